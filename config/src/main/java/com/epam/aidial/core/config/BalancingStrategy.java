@@ -0,0 +1,20 @@
+package com.epam.aidial.core.config;
+
+/**
+ * Strategy to distribute load between upstreams of the same tier.
+ */
+public enum BalancingStrategy {
+    /**
+     * Upstream is selected randomly in the proportion of upstream weights.
+     */
+    RANDOMIZED_WEIGHTED,
+    /**
+     * Upstream with the least expected load is selected.
+     * The load is estimated by the number of in-flight requests and the average time to first byte.
+     */
+    LEAST_LOAD,
+    /**
+     * Two random upstreams are picked and the one with the least expected load is selected.
+     */
+    POWER_OF_TWO_CHOICES
+}
@@ -0,0 +1,38 @@
+package com.epam.aidial.core.config;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.Data;
+
+/**
+ * Adaptive limit of concurrent requests per model upstream.
+ * The limit grows by one per limit of successful responses and shrinks by the backoff ratio on 429, 502-504
+ * or once time to first byte exceeds the latency tolerance. Requests over the limit go to other upstreams or the next tier.
+ */
+@Data
+public class ConcurrencyLimit {
+    /**
+     * The limit of the upstream until the first responses are observed.
+     */
+    @JsonAlias({"initialLimit", "initial_limit"})
+    private int initialLimit = 16;
+    /**
+     * The limit never shrinks below the value.
+     */
+    @JsonAlias({"minLimit", "min_limit"})
+    private int minLimit = 1;
+    /**
+     * The limit never grows above the value.
+     */
+    @JsonAlias({"maxLimit", "max_limit"})
+    private int maxLimit = 256;
+    /**
+     * The factor the limit is multiplied by when the upstream is overloaded.
+     */
+    @JsonAlias({"backoffRatio", "backoff_ratio"})
+    private double backoffRatio = 0.9;
+    /**
+     * Max ratio of the average time to first byte to the lowest one observed before the upstream is considered overloaded.
+     */
+    @JsonAlias({"latencyTolerance", "latency_tolerance"})
+    private double latencyTolerance = 2;
+}
@@ -0,0 +1,37 @@
+package com.epam.aidial.core.config;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.Data;
+
+/**
+ * Hedging policy for non-streaming requests to model upstreams.
+ * If response headers don't arrive within the delay, the same request is sent to another upstream
+ * and the first successful response wins.
+ */
+@Data
+public class Hedging {
+    /**
+     * The percentile of time to first byte of the model upstreams after which a hedged request is sent.
+     */
+    @JsonAlias({"delayPercentile", "delay_percentile"})
+    private double delayPercentile = 95;
+    /**
+     * Min delay in milliseconds before a hedged request is sent.
+     */
+    @JsonAlias({"minDelay", "min_delay"})
+    private long minDelay = 0;
+    /**
+     * Max delay in milliseconds before a hedged request is sent.
+     */
+    @JsonAlias({"maxDelay", "max_delay"})
+    private long maxDelay = 10000;
+    /**
+     * Max ratio of hedged requests to all requests to the model.
+     */
+    private double budget = 0.1;
+    /**
+     * Min number of time to first byte samples required to estimate the delay. No requests are hedged until then.
+     */
+    @JsonAlias({"minSamples", "min_samples"})
+    private int minSamples = 20;
+}
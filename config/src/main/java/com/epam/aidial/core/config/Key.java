@@ -13,6 +13,11 @@ public class Key {
     private String role;
     private boolean secured;
     private List<String> roles;
+    /**
+     * The share of the freed upstream slots the requests of the key get while the model upstreams are saturated.
+     * The priority of the key roles is used if it's not set.
+     */
+    private Integer priority;
 
     @JsonIgnore
     public List<String> getMergedRoles() {
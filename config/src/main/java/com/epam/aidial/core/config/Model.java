@@ -1,5 +1,6 @@
 package com.epam.aidial.core.config;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.experimental.Accessors;
@@ -15,8 +16,27 @@ public class Model extends Deployment {
     private TokenLimits limits;
     private Pricing pricing;
     private List<Upstream> upstreams = List.of();
+    /**
+     * Strategy to distribute load between upstreams of the same tier.
+     */
+    @JsonAlias({"balancingStrategy", "balancing_strategy"})
+    private BalancingStrategy balancingStrategy = BalancingStrategy.RANDOMIZED_WEIGHTED;
     // if it's set then the model name is overridden with that name in the request body to the model adapter
     private String overrideName;
+    /**
+     * Hedging policy for non-streaming requests. Hedging is disabled if the policy is not set.
+     */
+    private Hedging hedging;
+    /**
+     * Adaptive limit of concurrent requests per upstream. Concurrency isn't limited if the policy is not set.
+     */
+    @JsonAlias({"concurrencyLimit", "concurrency_limit"})
+    private ConcurrencyLimit concurrencyLimit;
+    /**
+     * Response cache policy. Responses are not cached if the policy is not set.
+     */
+    @JsonAlias({"responseCache", "response_cache"})
+    private ResponseCache responseCache;
 
     public Model() {
         setMaxRetryAttempts(5);
@@ -0,0 +1,21 @@
+package com.epam.aidial.core.config;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.Data;
+
+/**
+ * Response cache policy of the model. Only deterministic requests are cached:
+ * embeddings and non-streaming completions with zero temperature.
+ */
+@Data
+public class ResponseCache {
+    /**
+     * Time to live of the cached response in milliseconds.
+     */
+    private long ttl = 3600000;
+    /**
+     * Max size of the cached response in bytes. Larger responses are not cached.
+     */
+    @JsonAlias({"maxEntrySize", "max_entry_size"})
+    private long maxEntrySize = 1048576;
+}
@@ -8,4 +8,8 @@ import java.util.Map;
 public class Role {
     private String name;
     private Map<String, Limit> limits;
+    /**
+     * The share of the freed upstream slots the requests of the role get while the model upstreams are saturated.
+     */
+    private Integer priority;
 }
\ No newline at end of file
@@ -16,10 +16,19 @@ public class Route extends RoleBasedEntity {
     private List<Pattern> paths = List.of();
     private Set<String> methods = Set.of();
     private List<Upstream> upstreams = List.of();
+    /**
+     * Strategy to distribute load between upstreams of the same tier.
+     */
+    private BalancingStrategy balancingStrategy = BalancingStrategy.RANDOMIZED_WEIGHTED;
     /**
      * Indicated max retry attempts to route a single user request.
      */
     private int maxRetryAttempts = 1;
+    /**
+     * Pipes the request body to the upstream as it arrives instead of receiving the whole body first.
+     * The request is retried on connection errors only since the body is already sent to the failed upstream.
+     */
+    private boolean streamRequestBody;
 
     @Data
     public static class Response {
@@ -0,0 +1,62 @@
+package com.epam.aidial.core.server.controller;
+
+import io.vertx.core.http.HttpMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the trie routing of {@link ControllerSelector} with the linear scan of regular expressions.
+ * <p>
+ * Run with {@code ./gradlew :server:jmh}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerSelectorBenchmark {
+
+    @Param({
+            "POST /openai/deployments/gpt-4/chat/completions",
+            "GET /openai/models",
+            "GET /v1/files/3CcedGxCx23EwiVbVmscVktScRyf46KypuBQ65miviST/folder/file.txt",
+            "PUT /v1/conversations/3CcedGxCx23EwiVbVmscVktScRyf46KypuBQ65miviST/folder/conversation",
+            "POST /v1/ops/application/logs",
+            "GET /v1/unknown/route"
+    })
+    public String request;
+
+    private HttpMethod method;
+    private String path;
+
+    @Setup
+    public void setup() {
+        int index = request.indexOf(' ');
+        method = HttpMethod.valueOf(request.substring(0, index));
+        path = request.substring(index + 1);
+    }
+
+    @Benchmark
+    public Object trie() {
+        PathTrie.Match<?> match = ControllerSelector.match(method, path);
+        return match == null ? null : match.pathTemplate();
+    }
+
+    @Benchmark
+    public Object regex() {
+        return RegexRouteTable.select(method, path);
+    }
+}
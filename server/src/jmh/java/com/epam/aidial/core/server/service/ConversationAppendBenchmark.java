@@ -0,0 +1,103 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.Conversation;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.storage.util.EtagBuilder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the server work and the request bytes of adding a message to the conversation
+ * by rewriting the whole conversation with PUT and by appending the message with PATCH.
+ * The materialization of the appended messages on reads is measured separately.
+ * <p>
+ * Run with {@code ./gradlew :server:jmh}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversationAppendBenchmark {
+
+    private static final String MESSAGE = """
+            {"role":"user","content":"%s"}""".formatted("Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(8));
+
+    @Param({"10", "100", "1000"})
+    public int messages;
+
+    @Param({"1", "16"})
+    public int deltas;
+
+    private final ConversationPatch patch = new ConversationPatch();
+    private String conversation;
+    private String etag;
+    private String delta;
+    private List<String> pending;
+
+    /**
+     * The bytes sent by the client per operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Traffic {
+        public long requestBytes;
+    }
+
+    @Setup
+    public void setup() {
+        List<String> list = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            list.add(MESSAGE);
+        }
+
+        conversation = """
+                {"id":"conversation_id","name":"display_name","model":{"id":"model_id"},"prompt":"system prompt","temperature":1,\
+                "folderId":"folder1","selectedAddons":[],"lastActivityDate":4848683153,"messages":[%s]}\
+                """.formatted(String.join(",", list));
+        etag = EtagBuilder.generateEtag(conversation.getBytes(StandardCharsets.UTF_8));
+        delta = "{\"messages\":[" + MESSAGE + "]}";
+
+        pending = new ArrayList<>(deltas);
+        for (int i = 0; i < deltas; i++) {
+            pending.add(delta);
+        }
+    }
+
+    @Benchmark
+    public Object put(Traffic traffic) {
+        byte[] body = conversation.getBytes(StandardCharsets.UTF_8);
+        traffic.requestBytes += body.length;
+        ProxyUtil.convertToObject(conversation, Conversation.class);
+        return EtagBuilder.generateEtag(body);
+    }
+
+    @Benchmark
+    public Object append(Traffic traffic) {
+        traffic.requestBytes += delta.getBytes(StandardCharsets.UTF_8).length;
+        String validated = ConversationPatch.validate(delta);
+        return EtagBuilder.generateEtag((etag + validated).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Object materialize() {
+        return patch.apply(conversation, pending);
+    }
+}
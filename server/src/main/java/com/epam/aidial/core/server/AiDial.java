@@ -2,7 +2,9 @@ package com.epam.aidial.core.server;
 
 import com.epam.aidial.core.server.config.ConfigStore;
 import com.epam.aidial.core.server.config.FileConfigStore;
+import com.epam.aidial.core.server.data.ResourceTypes;
 import com.epam.aidial.core.server.limiter.RateLimiter;
+import com.epam.aidial.core.server.limiter.WorkerAdmission;
 import com.epam.aidial.core.server.log.GfLogStore;
 import com.epam.aidial.core.server.log.LogStore;
 import com.epam.aidial.core.server.security.AccessService;
@@ -10,18 +12,27 @@ import com.epam.aidial.core.server.security.AccessTokenValidator;
 import com.epam.aidial.core.server.security.ApiKeyStore;
 import com.epam.aidial.core.server.security.EncryptionService;
 import com.epam.aidial.core.server.service.ApplicationService;
+import com.epam.aidial.core.server.service.ConversationPatch;
 import com.epam.aidial.core.server.service.HeartbeatService;
 import com.epam.aidial.core.server.service.InvitationService;
 import com.epam.aidial.core.server.service.NotificationService;
+import com.epam.aidial.core.server.service.PublicationRegistry;
 import com.epam.aidial.core.server.service.PublicationService;
+import com.epam.aidial.core.server.service.RequestMetrics;
 import com.epam.aidial.core.server.service.ResourceOperationService;
+import com.epam.aidial.core.server.service.ResponseCacheService;
 import com.epam.aidial.core.server.service.RuleService;
+import com.epam.aidial.core.server.service.ShareIndex;
 import com.epam.aidial.core.server.service.ShareService;
+import com.epam.aidial.core.server.service.SharedByMePatch;
+import com.epam.aidial.core.server.service.SharedWithMePatch;
 import com.epam.aidial.core.server.service.VertxTimerService;
 import com.epam.aidial.core.server.token.TokenStatsTracker;
 import com.epam.aidial.core.server.tracing.DialTracingFactory;
+import com.epam.aidial.core.server.upstream.SharedUpstreamHealth;
 import com.epam.aidial.core.server.upstream.UpstreamRouteProvider;
 import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.server.vertx.stream.ResponseRetention;
 import com.epam.aidial.core.storage.blobstore.BlobStorage;
 import com.epam.aidial.core.storage.blobstore.Storage;
 import com.epam.aidial.core.storage.cache.CacheClientFactory;
@@ -31,6 +42,10 @@ import com.epam.aidial.core.storage.service.TimerService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.annotations.VisibleForTesting;
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import io.micrometer.registry.otlp.OtlpMeterRegistry;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.sdk.autoconfigure.AutoConfiguredOpenTelemetrySdk;
@@ -46,6 +61,7 @@ import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.metrics.MetricsOptions;
 import io.vertx.micrometer.MicrometerMetricsOptions;
+import io.vertx.micrometer.backends.BackendRegistries;
 import io.vertx.tracing.opentelemetry.OpenTelemetryOptions;
 import lombok.Getter;
 import lombok.Setter;
@@ -101,7 +117,6 @@ public class AiDial {
             client = vertx.createHttpClient(new HttpClientOptions(settings("client")));
 
             LogStore logStore = new GfLogStore(vertx);
-            UpstreamRouteProvider upstreamRouteProvider = new UpstreamRouteProvider(vertx, Random::new);
 
             if (accessTokenValidator == null) {
                 accessTokenValidator = new AccessTokenValidator(settings("identityProviders"), vertx, client);
@@ -115,35 +130,59 @@ public class AiDial {
 
             redis = CacheClientFactory.create(toJsonNode(settings("redis")));
 
+            JsonObject upstreamSettings = settings("upstreams");
+            SharedUpstreamHealth sharedUpstreamHealth = upstreamSettings.getBoolean("sharedHealth", false)
+                    ? new SharedUpstreamHealth(redis, storage.getPrefix(), upstreamSettings) : null;
+            MeterRegistry meterRegistry = Objects.requireNonNullElse(BackendRegistries.getDefaultNow(), Metrics.globalRegistry);
+            UpstreamRouteProvider upstreamRouteProvider = new UpstreamRouteProvider(vertx, Random::new, sharedUpstreamHealth, meterRegistry, upstreamSettings);
+
             LockService lockService = new LockService(redis, storage.getPrefix());
             TimerService timerService = new VertxTimerService(vertx);
             ResourceService.Settings resourceServiceSettings = Json.decodeValue(settings("resources").toBuffer(), ResourceService.Settings.class);
             resourceService = new ResourceService(timerService, redis, storage, lockService, resourceServiceSettings, storage.getPrefix());
+            resourceService.registerPatch(ResourceTypes.CONVERSATION, new ConversationPatch());
+            resourceService.registerPatch(ResourceTypes.SHARED_WITH_ME, new SharedWithMePatch());
+            resourceService.registerPatch(ResourceTypes.SHARED_BY_ME, new SharedByMePatch());
+            if (settings("resources").getBoolean("lockFreePublicFills", false)) {
+                // the published resources are written by the publications only, the documents of the public bucket
+                // updated in place like the rules and the publication records are filled under the lock
+                resourceService.registerImmutable(PublicationService::isPublished);
+            }
             InvitationService invitationService = new InvitationService(resourceService, encryptionService, settings("invitations"));
-            ShareService shareService = new ShareService(resourceService, invitationService, encryptionService);
+            ShareIndex shareIndex = new ShareIndex(redis, resourceService, storage.getPrefix(), settings("share"));
+            ShareService shareService = new ShareService(resourceService, invitationService, encryptionService, shareIndex);
             RuleService ruleService = new RuleService(resourceService);
             AccessService accessService = new AccessService(encryptionService, shareService, ruleService, settings("access"));
-            NotificationService notificationService = new NotificationService(resourceService, encryptionService);
+            NotificationService notificationService = new NotificationService(redis, resourceService, encryptionService,
+                    storage.getPrefix(), settings("notifications"));
             ApplicationService applicationService = new ApplicationService(vertx, client, redis,
                     encryptionService, resourceService, lockService, generator, settings("applications"));
             ResourceOperationService resourceOperationService = new ResourceOperationService(applicationService,
                     resourceService, invitationService, shareService, lockService);
+            PublicationRegistry publicationRegistry = new PublicationRegistry(redis, resourceService, storage.getPrefix(), settings("publications"));
             PublicationService publicationService = new PublicationService(encryptionService, resourceService, accessService,
-                    ruleService, notificationService, applicationService, resourceOperationService, generator, clock);
-            RateLimiter rateLimiter = new RateLimiter(vertx, resourceService);
+                    ruleService, notificationService, applicationService, resourceOperationService, publicationRegistry, generator, clock);
+            WorkerAdmission workerAdmission = new WorkerAdmission(vertx, meterRegistry, settings("workerAdmission"));
+            RateLimiter rateLimiter = new RateLimiter(vertx, resourceService, workerAdmission);
 
-            ApiKeyStore apiKeyStore = new ApiKeyStore(resourceService, vertx);
+            ApiKeyStore apiKeyStore = new ApiKeyStore(resourceService, vertx, workerAdmission);
             ConfigStore configStore = new FileConfigStore(vertx, settings("config"), apiKeyStore);
 
             TokenStatsTracker tokenStatsTracker = new TokenStatsTracker(vertx, resourceService);
 
             HeartbeatService heartbeatService = new HeartbeatService(
                     vertx, settings("resources").getLong("heartbeatPeriod"));
+            registerResourceMetrics(meterRegistry, resourceService);
+            ResponseCacheService responseCacheService = new ResponseCacheService(redis, storage.getPrefix(),
+                    meterRegistry, settings("responseCache"));
+            ResponseRetention responseRetention = new ResponseRetention(meterRegistry, settings("responseRetention"));
+            RequestMetrics requestMetrics = new RequestMetrics(meterRegistry, settings("requestMetrics"));
             proxy = new Proxy(vertx, client, configStore, logStore,
                     rateLimiter, upstreamRouteProvider, accessTokenValidator,
                     storage, encryptionService, apiKeyStore, tokenStatsTracker, resourceService, invitationService,
                     shareService, publicationService, accessService, lockService, resourceOperationService, ruleService,
-                    notificationService, applicationService, heartbeatService, version());
+                    notificationService, applicationService, heartbeatService, responseCacheService, responseRetention, workerAdmission,
+                    requestMetrics, version());
 
             server = vertx.createHttpServer(new HttpServerOptions(settings("server"))).requestHandler(proxy);
             open(server, HttpServer::listen);
@@ -292,6 +331,48 @@ public class AiDial {
         }, "shutdown-hook"));
     }
 
+    private static void registerResourceMetrics(MeterRegistry registry, ResourceService resourceService) {
+        Gauge.builder("aidial.resources.cache.compression.original", resourceService, ResourceService::getCacheOriginalBytes)
+                .description("Current size of the resources compressed in Redis by the node before compression")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("aidial.resources.cache.compression.compressed", resourceService, ResourceService::getCacheCompressedBytes)
+                .description("Current size of the resources compressed in Redis by the node after compression")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("aidial.resources.cache.fills", resourceService, ResourceService::getCacheFills)
+                .description("Resources loaded from the blob store to Redis")
+                .register(registry);
+        FunctionCounter.builder("aidial.resources.cache.fills.coalesced", resourceService, ResourceService::getCoalescedCacheFills)
+                .description("Reads which waited for the concurrent load of the same resource on this node instead of taking the lock")
+                .register(registry);
+        FunctionCounter.builder("aidial.resources.cache.fills.optimistic", resourceService, ResourceService::getOptimisticCacheFills)
+                .description("Resources cached without the lock")
+                .register(registry);
+        FunctionCounter.builder("aidial.resources.blob.lookups.saved", resourceService, ResourceService::getNegativeCacheLocalHits)
+                .description("Lookups of missing resources answered by the negative cache instead of the blob store")
+                .tag("cache", "local")
+                .register(registry);
+        FunctionCounter.builder("aidial.resources.blob.lookups.saved", resourceService, ResourceService::getNegativeCacheRedisHits)
+                .description("Lookups of missing resources answered by the negative cache instead of the blob store")
+                .tag("cache", "redis")
+                .register(registry);
+        FunctionCounter.builder("aidial.resources.sync.resources", resourceService, ResourceService::getSyncedResources)
+                .description("Resources written back from Redis to the blob store")
+                .register(registry);
+        FunctionCounter.builder("aidial.resources.sync.conflicts", resourceService, ResourceService::getSyncLockConflicts)
+                .description("Sync attempts skipped because the resource was locked or the partition was held by another node")
+                .tag("type", "lock")
+                .register(registry);
+        FunctionCounter.builder("aidial.resources.sync.conflicts", resourceService, ResourceService::getSyncClaimConflicts)
+                .description("Sync attempts skipped because the resource was locked or the partition was held by another node")
+                .tag("type", "claim")
+                .register(registry);
+        Gauge.builder("aidial.resources.sync.partitions", resourceService, ResourceService::getSyncPartitions)
+                .description("Partitions of the write-back queue owned by this node")
+                .register(registry);
+    }
+
     private static void setupMetrics(VertxOptions options) {
         MetricsOptions metrics = options.getMetricsOptions();
         if (metrics == null || !metrics.isEnabled()) {
@@ -7,6 +7,7 @@ import com.epam.aidial.core.server.controller.ControllerSelector;
 import com.epam.aidial.core.server.controller.ControllerTemplate;
 import com.epam.aidial.core.server.data.ApiKeyData;
 import com.epam.aidial.core.server.limiter.RateLimiter;
+import com.epam.aidial.core.server.limiter.WorkerAdmission;
 import com.epam.aidial.core.server.log.LogStore;
 import com.epam.aidial.core.server.security.AccessService;
 import com.epam.aidial.core.server.security.AccessTokenValidator;
@@ -18,12 +19,15 @@ import com.epam.aidial.core.server.service.HeartbeatService;
 import com.epam.aidial.core.server.service.InvitationService;
 import com.epam.aidial.core.server.service.NotificationService;
 import com.epam.aidial.core.server.service.PublicationService;
+import com.epam.aidial.core.server.service.RequestMetrics;
 import com.epam.aidial.core.server.service.ResourceOperationService;
+import com.epam.aidial.core.server.service.ResponseCacheService;
 import com.epam.aidial.core.server.service.RuleService;
 import com.epam.aidial.core.server.service.ShareService;
 import com.epam.aidial.core.server.token.TokenStatsTracker;
 import com.epam.aidial.core.server.upstream.UpstreamRouteProvider;
 import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.server.vertx.stream.ResponseRetention;
 import com.epam.aidial.core.storage.blobstore.BlobStorage;
 import com.epam.aidial.core.storage.http.HttpException;
 import com.epam.aidial.core.storage.http.HttpStatus;
@@ -68,7 +72,8 @@ public class Proxy implements Handler<HttpServerRequest> {
 
     public static final int REQUEST_BODY_MAX_SIZE_BYTES = 16 * 1024 * 1024;
 
-    private static final Set<HttpMethod> ALLOWED_HTTP_METHODS = Set.of(HttpMethod.GET, HttpMethod.POST, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.HEAD);
+    private static final Set<HttpMethod> ALLOWED_HTTP_METHODS = Set.of(HttpMethod.GET, HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH,
+            HttpMethod.DELETE, HttpMethod.HEAD);
 
     private final Vertx vertx;
     private final HttpClient client;
@@ -92,6 +97,10 @@ public class Proxy implements Handler<HttpServerRequest> {
     private final NotificationService notificationService;
     private final ApplicationService applicationService;
     private final HeartbeatService heartbeatService;
+    private final ResponseCacheService responseCacheService;
+    private final ResponseRetention responseRetention;
+    private final WorkerAdmission workerAdmission;
+    private final RequestMetrics requestMetrics;
     private final String version;
 
     @Override
@@ -111,6 +120,7 @@ public class Proxy implements Handler<HttpServerRequest> {
             if (error instanceof HttpException e) {
                 status = e.getStatus();
                 message = e.getMessage();
+                e.getHeaders().forEach(request.response()::putHeader);
             } else {
                 log.error("Can't handle request", error);
             }
@@ -175,8 +185,10 @@ public class Proxy implements Handler<HttpServerRequest> {
         String spanId = spanContext.getSpanId();
 
         request.pause();
+        long receivedTimestamp = System.currentTimeMillis();
         Future<AuthorizationResult> authorizationResultFuture = authorizeRequest(request);
-        authorizationResultFuture.compose(result -> processAuthorizationResult(result.extractedClaims, config, request, result.apiKeyData, traceId, spanId))
+        authorizationResultFuture.compose(result -> processAuthorizationResult(result.extractedClaims, config, request, result.apiKeyData,
+                        traceId, spanId, receivedTimestamp))
                 .onFailure(error -> handleError(error, request))
                 .onComplete(ignore -> request.resume());
     }
@@ -263,10 +275,12 @@ public class Proxy implements Handler<HttpServerRequest> {
 
     @SneakyThrows
     private Future<?> processAuthorizationResult(ExtractedClaims extractedClaims, Config config,
-                                                 HttpServerRequest request, ApiKeyData apiKeyData, String traceId, String spanId) {
+                                                 HttpServerRequest request, ApiKeyData apiKeyData, String traceId, String spanId,
+                                                 long receivedTimestamp) {
         Future<?> future;
         try {
             ProxyContext context = new ProxyContext(this, config, request, apiKeyData, extractedClaims, traceId, spanId);
+            context.setReceivedTimestamp(receivedTimestamp);
             ControllerTemplate controllerTemplate = ControllerSelector.select(request);
             Controller controller = controllerTemplate.build(this, context);
             future = controller.handle();
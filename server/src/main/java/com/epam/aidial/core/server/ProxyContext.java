@@ -78,12 +78,21 @@ public class ProxyContext {
     private HttpClientResponse proxyResponse;
     private Buffer requestBody;
     private Buffer responseBody;
+    private BufferingReadStream requestStream; // received from client if the request body is streamed
     private BufferingReadStream responseStream; // received from origin
+    // when the request headers were received before the authorization
+    private long receivedTimestamp;
     private long requestTimestamp;
     private long requestBodyTimestamp;
+    // when the request to the current upstream was started
+    private long upstreamRequestTimestamp;
     private long proxyConnectTimestamp;
     private long proxyResponseTimestamp;
     private long responseBodyTimestamp;
+    // time in millis spent on the rate limit check, -1 if the request is not limited
+    private long rateLimitTime = -1;
+    // time in millis spent on the deployment lookup and the access checks of the attachments
+    private long storageTime;
     private ExtractedClaims extractedClaims;
     private ApiKeyData proxyApiKeyData;
     // deployment triggers interceptors
@@ -231,6 +240,18 @@ public class ProxyContext {
         return this;
     }
 
+    /**
+     * Releases the content retained by the request and response streams once the request is finalized.
+     */
+    public void releaseStreams() {
+        if (requestStream != null) {
+            requestStream.release();
+        }
+        if (responseStream != null) {
+            responseStream.release();
+        }
+    }
+
     public String getRequestHeader(String name) {
         String value = request.getHeader(name);
         if (value != null) {
@@ -0,0 +1,184 @@
+package com.epam.aidial.core.server.config;
+
+import com.epam.aidial.core.config.Addon;
+import com.epam.aidial.core.config.Application;
+import com.epam.aidial.core.config.Assistant;
+import com.epam.aidial.core.config.Config;
+import com.epam.aidial.core.config.Model;
+import com.epam.aidial.core.config.RoleBasedEntity;
+import com.epam.aidial.core.server.Proxy;
+import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import io.vertx.core.buffer.Buffer;
+import lombok.Getter;
+import lombok.SneakyThrows;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+import static com.epam.aidial.core.config.Config.ASSISTANT;
+
+/**
+ * Immutable snapshot of the loaded config precompiled for the hot paths.
+ * <p>
+ * Each kind of deployments is indexed by roles, so the deployments accessible by a user are resolved with a few bitset operations.
+ * Listings are serialized once per distinct set of accessible deployments and served with ETag.
+ * </p>
+ */
+public final class ConfigSnapshot {
+
+    /**
+     * Max number of cached listings per snapshot. Listings are serialized on every request above the limit.
+     */
+    private static final int MAX_LISTINGS = 4096;
+
+    @Getter
+    private final Config config;
+    /**
+     * Digest of the config files the snapshot is loaded from or null if the snapshot is compiled on the fly
+     */
+    @Getter
+    @Nullable
+    private final String version;
+    @Getter
+    private final RoleIndex<Model> models;
+    @Getter
+    private final RoleIndex<Addon> addons;
+    @Getter
+    private final RoleIndex<Assistant> assistants;
+    @Getter
+    private final RoleIndex<Application> applications;
+
+    private final Map<ListingKey, Listing> listings = new ConcurrentHashMap<>();
+
+    public ConfigSnapshot(Config config, @Nullable String version) {
+        this.config = config;
+        this.version = version;
+        this.models = new RoleIndex<>(config.getModels().values());
+        this.addons = new RoleIndex<>(config.getAddons().values());
+        this.assistants = new RoleIndex<>(config.getAssistant().getAssistants().values().stream()
+                .filter(assistant -> !ASSISTANT.equals(assistant.getName()))
+                .toList());
+        this.applications = new RoleIndex<>(config.getApplications().values());
+    }
+
+    /**
+     * @return the snapshot of the config the request is processed with
+     */
+    public static ConfigSnapshot of(ProxyContext context) {
+        Proxy proxy = context.getProxy();
+        ConfigStore store = (proxy == null) ? null : proxy.getConfigStore();
+        ConfigSnapshot snapshot = (store == null) ? null : store.snapshot();
+        if (snapshot != null && snapshot.getConfig() == context.getConfig()) {
+            return snapshot;
+        }
+        // the config has been reloaded after the request was received or the request is processed outside the proxy
+        return new ConfigSnapshot(context.getConfig(), null);
+    }
+
+    /**
+     * Returns the serialized listing of deployments accessible by the user roles.
+     *
+     * @param name - the name of the listing, the same name must always be used with the same index and mapper
+     * @param index - the index of deployments
+     * @param userRoles - the user roles
+     * @param mapper - maps accessible deployments to the listing object
+     */
+    public <T extends RoleBasedEntity> Listing getListing(String name, RoleIndex<T> index, List<String> userRoles,
+                                                          Function<List<T>, Object> mapper) {
+        BitSet accessible = index.getAccessible(userRoles);
+        ListingKey key = new ListingKey(name, accessible);
+        Listing listing = listings.get(key);
+        if (listing == null) {
+            listing = createListing(mapper.apply(index.select(accessible)));
+            if (listings.size() < MAX_LISTINGS) {
+                listings.putIfAbsent(key, listing);
+            }
+        }
+        return listing;
+    }
+
+    @SneakyThrows
+    private static Listing createListing(Object data) {
+        byte[] body = ProxyUtil.MAPPER.writeValueAsBytes(data);
+        return new Listing(Buffer.buffer(body), digest(body));
+    }
+
+    @SneakyThrows
+    static String digest(byte[] bytes) {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(bytes));
+    }
+
+    /**
+     * @param body - serialized listing
+     * @param etag - digest of the serialized listing
+     */
+    public record Listing(Buffer body, String etag) {
+    }
+
+    private record ListingKey(String name, BitSet accessible) {
+    }
+
+    /**
+     * Index of deployments by roles. Deployments without roles are accessible by any user.
+     */
+    public static final class RoleIndex<T extends RoleBasedEntity> {
+
+        private final List<T> entities;
+        private final BitSet unrestricted = new BitSet();
+        private final Map<String, BitSet> roles = new HashMap<>();
+
+        RoleIndex(Collection<T> entities) {
+            this.entities = List.copyOf(entities);
+            for (int i = 0; i < this.entities.size(); i++) {
+                Set<String> userRoles = this.entities.get(i).getUserRoles();
+                if (userRoles == null) {
+                    unrestricted.set(i);
+                    continue;
+                }
+                for (String role : userRoles) {
+                    roles.computeIfAbsent(role, key -> new BitSet()).set(i);
+                }
+            }
+        }
+
+        /**
+         * @return the deployments accessible by the user roles in the order of the config
+         */
+        public List<T> select(List<String> userRoles) {
+            return select(getAccessible(userRoles));
+        }
+
+        private List<T> select(BitSet accessible) {
+            List<T> result = new ArrayList<>(accessible.cardinality());
+            for (int i = accessible.nextSetBit(0); i >= 0; i = accessible.nextSetBit(i + 1)) {
+                result.add(entities.get(i));
+            }
+            return result;
+        }
+
+        BitSet getAccessible(@Nullable List<String> userRoles) {
+            BitSet accessible = (BitSet) unrestricted.clone();
+            if (userRoles != null) {
+                for (String role : userRoles) {
+                    BitSet entries = roles.get(role);
+                    if (entries != null) {
+                        accessible.or(entries);
+                    }
+                }
+            }
+            return accessible;
+        }
+    }
+}
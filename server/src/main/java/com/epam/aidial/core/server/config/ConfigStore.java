@@ -11,4 +11,9 @@ public interface ConfigStore {
      */
     Config load();
 
+    /**
+     * @return precompiled snapshot of the config returned by {@link #load()}.
+     */
+    ConfigSnapshot snapshot();
+
 }
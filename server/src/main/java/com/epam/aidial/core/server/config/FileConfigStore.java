@@ -24,6 +24,11 @@ import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 
 import static com.epam.aidial.core.config.Config.ASSISTANT;
@@ -33,7 +38,7 @@ import static com.epam.aidial.core.config.Config.ASSISTANT;
 public final class FileConfigStore implements ConfigStore {
 
     private final String[] paths;
-    private volatile Config config;
+    private volatile ConfigSnapshot snapshot;
     private final ApiKeyStore apiKeyStore;
 
     public FileConfigStore(Vertx vertx, JsonObject settings, ApiKeyStore apiKeyStore) {
@@ -46,15 +51,28 @@ public final class FileConfigStore implements ConfigStore {
         vertx.setPeriodic(period, period, event -> load(false));
     }
 
+    @Override
+    public ConfigSnapshot snapshot() {
+        return snapshot;
+    }
+
     @Override
     public Config load() {
-        return config;
+        return snapshot.getConfig();
     }
 
     @SneakyThrows
     private void load(boolean fail) {
         try {
-            Config config = loadConfig();
+            List<byte[]> files = readFiles();
+            String version = digest(files);
+            ConfigSnapshot current = snapshot;
+            if (current != null && version.equals(current.getVersion())) {
+                // config files are not changed, no need to bind and compile the config again
+                return;
+            }
+
+            Config config = loadConfig(files);
 
             for (Map.Entry<String, Route> entry : config.getRoutes().entrySet()) {
                 String name = entry.getKey();
@@ -115,7 +133,7 @@ public final class FileConfigStore implements ConfigStore {
                 interceptor.setName(name);
             }
 
-            this.config = config;
+            this.snapshot = new ConfigSnapshot(config, version);
         } catch (Throwable e) {
             if (fail) {
                 throw e;
@@ -125,18 +143,35 @@ public final class FileConfigStore implements ConfigStore {
         }
     }
 
-    private Config loadConfig() throws Exception {
-        JsonNode tree = ProxyUtil.MAPPER.createObjectNode();
-
+    private List<byte[]> readFiles() throws Exception {
+        List<byte[]> files = new ArrayList<>(paths.length);
         for (String path : paths) {
             try (InputStream stream = openStream(path)) {
-                tree = ProxyUtil.MAPPER.readerForUpdating(tree).readTree(stream);
+                files.add(stream.readAllBytes());
             }
         }
+        return files;
+    }
+
+    private static Config loadConfig(List<byte[]> files) throws Exception {
+        JsonNode tree = ProxyUtil.MAPPER.createObjectNode();
+
+        for (byte[] file : files) {
+            tree = ProxyUtil.MAPPER.readerForUpdating(tree).readTree(file);
+        }
 
         return ProxyUtil.MAPPER.convertValue(tree, Config.class);
     }
 
+    private static String digest(List<byte[]> files) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (byte[] file : files) {
+            digest.update(Integer.toString(file.length).getBytes(StandardCharsets.UTF_8));
+            digest.update(file);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
     @SneakyThrows
     private static InputStream openStream(String path) {
         try {
@@ -3,6 +3,7 @@ package com.epam.aidial.core.server.controller;
 import com.epam.aidial.core.config.Addon;
 import com.epam.aidial.core.config.Config;
 import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.config.ConfigSnapshot;
 import com.epam.aidial.core.server.data.AddonData;
 import com.epam.aidial.core.server.data.ListData;
 import com.epam.aidial.core.storage.http.HttpStatus;
@@ -34,20 +35,15 @@ public class AddonController {
     }
 
     public Future<?> getAddons() {
-        Config config = context.getConfig();
-        List<AddonData> addons = new ArrayList<>();
-
-        for (Addon addon : config.getAddons().values()) {
-            if (addon.hasAccess(context.getUserRoles())) {
-                AddonData data = createAddon(addon);
-                addons.add(data);
+        ConfigSnapshot snapshot = ConfigSnapshot.of(context);
+        ConfigSnapshot.Listing listing = snapshot.getListing("addons", snapshot.getAddons(), context.getUserRoles(), addons -> {
+            List<AddonData> list = new ArrayList<>(addons.size());
+            for (Addon addon : addons) {
+                list.add(createAddon(addon));
             }
-        }
-
-        ListData<AddonData> list = new ListData<>();
-        list.setData(addons);
-
-        return context.respond(HttpStatus.OK, list);
+            return new ListData<>(list);
+        });
+        return DeploymentController.respondListing(context, listing);
     }
 
     private static AddonData createAddon(Addon addon) {
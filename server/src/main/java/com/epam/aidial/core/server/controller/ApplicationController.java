@@ -1,8 +1,8 @@
 package com.epam.aidial.core.server.controller;
 
 import com.epam.aidial.core.config.Application;
-import com.epam.aidial.core.config.Config;
 import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.config.ConfigSnapshot;
 import com.epam.aidial.core.server.data.ApplicationData;
 import com.epam.aidial.core.server.data.ListData;
 import com.epam.aidial.core.server.data.ResourceLink;
@@ -59,27 +59,20 @@ public class ApplicationController {
     }
 
     public Future<?> getApplications() {
-        Config config = context.getConfig();
-        List<ApplicationData> list = new ArrayList<>();
-
-        for (Application application : config.getApplications().values()) {
-            if (application.hasAccess(context.getUserRoles())) {
-                ApplicationData data = ApplicationUtil.mapApplication(application);
-                list.add(data);
-            }
+        ConfigSnapshot snapshot = ConfigSnapshot.of(context);
+        if (!applicationService.isIncludeCustomApps()) {
+            ConfigSnapshot.Listing listing = snapshot.getListing("applications", snapshot.getApplications(), context.getUserRoles(),
+                    applications -> new ListData<>(mapApplications(applications)));
+            return DeploymentController.respondListing(context, listing);
         }
 
-        Future<List<ApplicationData>> future = Future.succeededFuture(list);
-
-        if (applicationService.isIncludeCustomApps()) {
-            future = vertx.executeBlocking(() -> applicationService.getAllApplications(context), false)
-                    .map(apps -> {
-                        apps.forEach(app -> list.add(ApplicationUtil.mapApplication(app)));
-                        return list;
-                    });
-        }
-
-        future.onSuccess(apps -> context.respond(HttpStatus.OK, new ListData<>(apps)))
+        List<ApplicationData> list = mapApplications(snapshot.getApplications().select(context.getUserRoles()));
+        vertx.executeBlocking(() -> applicationService.getAllApplications(context), false)
+                .map(apps -> {
+                    apps.forEach(app -> list.add(ApplicationUtil.mapApplication(app)));
+                    return list;
+                })
+                .onSuccess(apps -> context.respond(HttpStatus.OK, new ListData<>(apps)))
                 .onFailure(this::respondError);
 
         return Future.succeededFuture();
@@ -130,6 +123,14 @@ public class ApplicationController {
         return Future.succeededFuture();
     }
 
+    private static List<ApplicationData> mapApplications(List<Application> applications) {
+        List<ApplicationData> list = new ArrayList<>(applications.size());
+        for (Application application : applications) {
+            list.add(ApplicationUtil.mapApplication(application));
+        }
+        return list;
+    }
+
     private ResourceDescriptor decodeUrl(String url) {
         ResourceDescriptor resource;
         try {
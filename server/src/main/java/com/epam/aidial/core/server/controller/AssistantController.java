@@ -3,6 +3,7 @@ package com.epam.aidial.core.server.controller;
 import com.epam.aidial.core.config.Assistant;
 import com.epam.aidial.core.config.Config;
 import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.config.ConfigSnapshot;
 import com.epam.aidial.core.server.data.AssistantData;
 import com.epam.aidial.core.server.data.ListData;
 import com.epam.aidial.core.storage.http.HttpStatus;
@@ -36,20 +37,16 @@ public class AssistantController {
     }
 
     public Future<?> getAssistants() {
-        Config config = context.getConfig();
-        List<AssistantData> assistants = new ArrayList<>();
-
-        for (Assistant assistant : config.getAssistant().getAssistants().values()) {
-            if (!ASSISTANT.equals(assistant.getName()) && assistant.hasAccess(context.getUserRoles())) {
-                AssistantData data = createAssistant(assistant);
-                assistants.add(data);
+        ConfigSnapshot snapshot = ConfigSnapshot.of(context);
+        // the index doesn't include the base assistant
+        ConfigSnapshot.Listing listing = snapshot.getListing("assistants", snapshot.getAssistants(), context.getUserRoles(), assistants -> {
+            List<AssistantData> list = new ArrayList<>(assistants.size());
+            for (Assistant assistant : assistants) {
+                list.add(createAssistant(assistant));
             }
-        }
-
-        ListData<AssistantData> list = new ListData<>();
-        list.setData(assistants);
-
-        return context.respond(HttpStatus.OK, list);
+            return new ListData<>(list);
+        });
+        return DeploymentController.respondListing(context, listing);
     }
 
     private static AssistantData createAssistant(Assistant assistant) {
@@ -10,70 +10,68 @@ import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.impl.HttpServerRequestInternal;
 import lombok.experimental.UtilityClass;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 
 @UtilityClass
 public class ControllerSelector {
 
     private static final Object CONTROLLER_TEMPLATE_KEY = new Object();
 
-    private static final List<ControllerRoute> ROUTES = new ArrayList<>();
+    /**
+     * Routes compiled into a trie of path segments. Routes are matched in the order they are added below.
+     */
+    private static final PathTrie<Initializer> ROUTES = new PathTrie<>();
 
     private static final ControllerTemplate DEFAULT_CONTROLLER_TEMPLATE = new ControllerTemplate(
             "/{path}", RouteController::new);
 
-    private static final Pattern PATTERN_POST_DEPLOYMENT = Pattern.compile("^/+openai/deployments/(?<id>.+?)/(completions|chat/completions|embeddings)$");
-    private static final Pattern PATTERN_DEPLOYMENT = Pattern.compile("^/+openai/deployments/(?<id>.+?)$");
-    private static final Pattern PATTERN_DEPLOYMENTS = Pattern.compile("^/+openai/deployments$");
+    private static final String PATTERN_POST_DEPLOYMENT = "/+openai/deployments/{id+}/(completions|chat/completions|embeddings)";
+    private static final String PATTERN_DEPLOYMENT = "/+openai/deployments/{id+}";
+    private static final String PATTERN_DEPLOYMENTS = "/+openai/deployments";
 
-    private static final Pattern PATTERN_MODEL = Pattern.compile("^/+openai/models/(?<id>.+?)$");
-    private static final Pattern PATTERN_MODELS = Pattern.compile("^/+openai/models$");
+    private static final String PATTERN_MODEL = "/+openai/models/{id+}";
+    private static final String PATTERN_MODELS = "/+openai/models";
 
-    private static final Pattern PATTERN_ADDON = Pattern.compile("^/+openai/addons/(?<id>.+?)$");
-    private static final Pattern PATTERN_ADDONS = Pattern.compile("^/+openai/addons$");
+    private static final String PATTERN_ADDON = "/+openai/addons/{id+}";
+    private static final String PATTERN_ADDONS = "/+openai/addons";
 
-    private static final Pattern PATTERN_ASSISTANT = Pattern.compile("^/+openai/assistants/(?<id>.+?)$");
-    private static final Pattern PATTERN_ASSISTANTS = Pattern.compile("^/+openai/assistants$");
+    private static final String PATTERN_ASSISTANT = "/+openai/assistants/{id+}";
+    private static final String PATTERN_ASSISTANTS = "/+openai/assistants";
 
-    private static final Pattern PATTERN_APPLICATION = Pattern.compile("^/+openai/applications/(?<id>.+?)$");
-    private static final Pattern PATTERN_APPLICATIONS = Pattern.compile("^/+openai/applications$");
-    private static final Pattern APPLICATIONS = Pattern.compile("^/v1/ops/application/(deploy|undeploy|logs)$");
+    private static final String PATTERN_APPLICATION = "/+openai/applications/{id+}";
+    private static final String PATTERN_APPLICATIONS = "/+openai/applications";
+    private static final String APPLICATIONS = "/v1/ops/application/(deploy|undeploy|logs)";
 
-    private static final Pattern PATTERN_BUCKET = Pattern.compile("^/v1/bucket$");
+    private static final String PATTERN_BUCKET = "/v1/bucket";
 
-    private static final Pattern PATTERN_FILES = Pattern.compile("^/v1/files/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
-    private static final Pattern PATTERN_FILES_METADATA = Pattern.compile("^/v1/metadata/files/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+    private static final String PATTERN_FILES = "/v1/files/{bucket}/{path*}";
+    private static final String PATTERN_FILES_METADATA = "/v1/metadata/files/{bucket}/{path*}";
 
-    private static final Pattern PATTERN_RESOURCE = Pattern.compile("^/v1/(conversations|prompts|applications)/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
-    private static final Pattern PATTERN_RESOURCE_METADATA = Pattern.compile("^/v1/metadata/(conversations|prompts|applications)/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+    private static final String PATTERN_RESOURCE = "/v1/(conversations|prompts|applications)/{bucket}/{path*}";
+    private static final String PATTERN_RESOURCE_METADATA = "/v1/metadata/(conversations|prompts|applications)/{bucket}/{path*}";
 
     // deployment feature patterns
-    private static final Pattern PATTERN_RATE_RESPONSE = Pattern.compile("^/+v1/(?<id>.+?)/rate$");
-    private static final Pattern PATTERN_TOKENIZE = Pattern.compile("^/+v1/deployments/(?<id>.+?)/tokenize$");
-    private static final Pattern PATTERN_TRUNCATE_PROMPT = Pattern.compile("^/+v1/deployments/(?<id>.+?)/truncate_prompt$");
-    private static final Pattern PATTERN_CONFIGURATION = Pattern.compile("^/+v1/deployments/(?<id>.+?)/configuration$");
+    private static final String PATTERN_RATE_RESPONSE = "/+v1/{id+}/rate";
+    private static final String PATTERN_TOKENIZE = "/+v1/deployments/{id+}/tokenize";
+    private static final String PATTERN_TRUNCATE_PROMPT = "/+v1/deployments/{id+}/truncate_prompt";
+    private static final String PATTERN_CONFIGURATION = "/+v1/deployments/{id+}/configuration";
 
-    private static final Pattern SHARE_RESOURCE_OPERATIONS = Pattern.compile("^/v1/ops/resource/share/(create|list|discard|revoke|copy)$");
-    private static final Pattern INVITATIONS = Pattern.compile("^/v1/invitations$");
-    private static final Pattern INVITATION = Pattern.compile("^/v1/invitations/(?<id>[a-zA-Z0-9]+)$");
-    private static final Pattern PUBLICATIONS = Pattern.compile("^/v1/ops/publication/(list|get|create|delete|approve|reject)$");
-    private static final Pattern PUBLISHED_RESOURCES = Pattern.compile("^/v1/ops/publication/resource/list$");
-    private static final Pattern PUBLICATION_RULES = Pattern.compile("^/v1/ops/publication/rule/list$");
+    private static final String SHARE_RESOURCE_OPERATIONS = "/v1/ops/resource/share/(create|list|discard|revoke|copy)";
+    private static final String INVITATIONS = "/v1/invitations";
+    private static final String INVITATION = "/v1/invitations/{id}";
+    private static final String PUBLICATIONS = "/v1/ops/publication/(list|get|create|delete|approve|reject)";
+    private static final String PUBLISHED_RESOURCES = "/v1/ops/publication/resource/list";
+    private static final String PUBLICATION_RULES = "/v1/ops/publication/rule/list";
 
-    private static final Pattern RESOURCE_OPERATIONS = Pattern.compile("^/v1/ops/resource/(move|subscribe)$");
+    private static final String RESOURCE_OPERATIONS = "/v1/ops/resource/(move|subscribe)";
 
-    private static final Pattern DEPLOYMENT_LIMITS = Pattern.compile("^/v1/deployments/(?<id>.+?)/limits$");
+    private static final String DEPLOYMENT_LIMITS = "/v1/deployments/{id+}/limits";
 
-    private static final Pattern NOTIFICATIONS = Pattern.compile("^/v1/ops/notification/(list|delete)$");
+    private static final String NOTIFICATIONS = "/v1/ops/notification/(list|delete)";
 
-    private static final Pattern USER_INFO = Pattern.compile("^/v1/user/info$");
+    private static final String USER_INFO = "/v1/user/info";
 
     static {
         // GET routes
@@ -298,6 +296,12 @@ public class ControllerSelector {
             String path = context.getRequest().path();
             return () -> controller.handle(resourcePath(path));
         });
+        // PATCH routes
+        patch(PATTERN_RESOURCE, (proxy, context, pathMatcher) -> {
+            ResourceController controller = new ResourceController(proxy, context, false);
+            String path = context.getRequest().path();
+            return () -> controller.handle(resourcePath(path));
+        });
     }
 
     public ControllerTemplate select(HttpServerRequest request) {
@@ -315,27 +319,38 @@ public class ControllerSelector {
     }
 
     private ControllerTemplate select(HttpMethod method, String path) {
-        return ROUTES.stream()
-                .map(r -> r.select(method, path))
-                .filter(Objects::nonNull)
-                .findAny()
-                .orElse(DEFAULT_CONTROLLER_TEMPLATE);
+        PathTrie.Match<Initializer> match = match(method, path);
+        if (match == null) {
+            return DEFAULT_CONTROLLER_TEMPLATE;
+        }
+        Initializer initializer = match.value();
+        return new ControllerTemplate(match.pathTemplate(),
+                (proxy, context) -> initializer.init(proxy, context, match));
+    }
+
+    @Nullable
+    PathTrie.Match<Initializer> match(HttpMethod method, String path) {
+        return ROUTES.match(method, path);
     }
 
-    private void get(Pattern pathPattern, ControllerRoute.Initializer initializer) {
-        ROUTES.add(new ControllerRoute(HttpMethod.GET, pathPattern, initializer));
+    private void get(String pathTemplate, Initializer initializer) {
+        ROUTES.add(HttpMethod.GET, pathTemplate, initializer);
     }
 
-    private void post(Pattern pathPattern, ControllerRoute.Initializer initializer) {
-        ROUTES.add(new ControllerRoute(HttpMethod.POST, pathPattern, initializer));
+    private void post(String pathTemplate, Initializer initializer) {
+        ROUTES.add(HttpMethod.POST, pathTemplate, initializer);
     }
 
-    private void put(Pattern pathPattern, ControllerRoute.Initializer initializer) {
-        ROUTES.add(new ControllerRoute(HttpMethod.PUT, pathPattern, initializer));
+    private void put(String pathTemplate, Initializer initializer) {
+        ROUTES.add(HttpMethod.PUT, pathTemplate, initializer);
     }
 
-    private void delete(Pattern pathPattern, ControllerRoute.Initializer initializer) {
-        ROUTES.add(new ControllerRoute(HttpMethod.DELETE, pathPattern, initializer));
+    private void delete(String pathTemplate, Initializer initializer) {
+        ROUTES.add(HttpMethod.DELETE, pathTemplate, initializer);
+    }
+
+    private void patch(String pathTemplate, Initializer initializer) {
+        ROUTES.add(HttpMethod.PATCH, pathTemplate, initializer);
     }
 
     private String resourcePath(String url) {
@@ -352,21 +367,7 @@ public class ControllerSelector {
         return url.substring(prefix.length());
     }
 
-    private record ControllerRoute(HttpMethod method, Pattern pathPattern, Initializer initializer) {
-        public ControllerTemplate select(HttpMethod method, String path) {
-            if (this.method.equals(method)) {
-                Matcher matcher = this.pathPattern.matcher(path);
-                if (matcher.find()) {
-                    String pathTemplate = RegexUtil.replaceNamedGroups(this.pathPattern, path);
-                    return new ControllerTemplate(pathTemplate,
-                            (proxy, context) -> this.initializer.init(proxy, context, matcher));
-                }
-            }
-            return null;
-        }
-
-        private interface Initializer {
-            Controller init(Proxy proxy, ProxyContext context, Matcher pathMatcher);
-        }
+    interface Initializer {
+        Controller init(Proxy proxy, ProxyContext context, PathTrie.Match<Initializer> pathMatcher);
     }
 }
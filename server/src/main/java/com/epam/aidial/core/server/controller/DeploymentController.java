@@ -6,22 +6,22 @@ import com.epam.aidial.core.config.Features;
 import com.epam.aidial.core.config.Model;
 import com.epam.aidial.core.server.Proxy;
 import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.config.ConfigSnapshot;
 import com.epam.aidial.core.server.data.DeploymentData;
 import com.epam.aidial.core.server.data.FeaturesData;
-import com.epam.aidial.core.server.data.ListData;
 import com.epam.aidial.core.server.data.ResourceTypes;
 import com.epam.aidial.core.server.service.PermissionDeniedException;
 import com.epam.aidial.core.server.service.ResourceNotFoundException;
+import com.epam.aidial.core.server.util.ProxyUtil;
 import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
+import com.epam.aidial.core.storage.http.HttpException;
 import com.epam.aidial.core.storage.http.HttpStatus;
 import com.epam.aidial.core.storage.resource.ResourceDescriptor;
 import com.epam.aidial.core.storage.util.UrlUtil;
 import io.vertx.core.Future;
+import io.vertx.core.http.HttpHeaders;
 import lombok.RequiredArgsConstructor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import static com.epam.aidial.core.server.controller.ModelController.createModel;
 
 @RequiredArgsConstructor
@@ -46,20 +46,11 @@ public class DeploymentController {
     }
 
     public Future<?> getDeployments() {
-        Config config = context.getConfig();
-        List<DeploymentData> deployments = new ArrayList<>();
-
-        for (Model model : config.getModels().values()) {
-            if (model.hasAccess(context.getUserRoles())) {
-                DeploymentData deployment = createModel(model);
-                deployments.add(deployment);
-            }
-        }
-
-        ListData<DeploymentData> list = new ListData<>();
-        list.setData(deployments);
-
-        return context.respond(HttpStatus.OK, list);
+        ConfigSnapshot snapshot = ConfigSnapshot.of(context);
+        // deployments listing is the same as models one
+        ConfigSnapshot.Listing listing = snapshot.getListing("models", snapshot.getModels(), context.getUserRoles(),
+                ModelController::createModels);
+        return respondListing(context, listing);
     }
 
     public static Future<Deployment> selectDeployment(ProxyContext context, String id) {
@@ -97,6 +88,27 @@ public class DeploymentController {
         }, false);
     }
 
+    /**
+     * Responds with the pre-serialized listing or 304 if the client has the same listing.
+     */
+    static Future<?> respondListing(ProxyContext context, ConfigSnapshot.Listing listing) {
+        context.putHeader(HttpHeaders.ETAG, listing.etag()).exposeHeaders();
+        try {
+            ProxyUtil.etag(context.getRequest()).validate(listing.etag());
+        } catch (HttpException e) {
+            if (e.getStatus() == HttpStatus.NOT_MODIFIED) {
+                context.getResponse().setStatusCode(HttpStatus.NOT_MODIFIED.getCode()).end();
+                return Future.succeededFuture();
+            }
+            return context.respond(e);
+        }
+        context.getResponse()
+                .putHeader(HttpHeaders.CONTENT_TYPE, Proxy.HEADER_CONTENT_TYPE_APPLICATION_JSON)
+                .setStatusCode(HttpStatus.OK.getCode())
+                .end(listing.body());
+        return Future.succeededFuture();
+    }
+
     static FeaturesData createFeatures(Features features) {
         FeaturesData data = new FeaturesData();
 
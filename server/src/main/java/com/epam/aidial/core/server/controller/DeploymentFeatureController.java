@@ -112,7 +112,7 @@ public class DeploymentFeatureController {
                 proxyResponse.headers().size());
 
         BufferingReadStream proxyResponseStream = new BufferingReadStream(proxyResponse,
-                ProxyUtil.contentLength(proxyResponse, 1024));
+                ProxyUtil.contentLength(proxyResponse, 1024), null, proxy.getResponseRetention());
 
         context.setProxyResponse(proxyResponse);
         context.setResponseStream(proxyResponseStream);
@@ -136,6 +136,7 @@ public class DeploymentFeatureController {
         Buffer proxyResponseBody = context.getResponseStream().getContent();
         context.setResponseBody(proxyResponseBody);
         proxy.getLogStore().save(context);
+        context.releaseStreams();
     }
 
     /**
@@ -169,5 +170,6 @@ public class DeploymentFeatureController {
         log.warn("Can't send response to client: {}", error.getMessage());
         context.getProxyRequest().reset(); // drop connection to stop origin response
         context.getResponse().reset();     // drop connection, so that partial client response won't seem complete
+        context.releaseStreams();
     }
 }
@@ -3,9 +3,11 @@ package com.epam.aidial.core.server.controller;
 import com.epam.aidial.core.config.Deployment;
 import com.epam.aidial.core.config.Features;
 import com.epam.aidial.core.config.Interceptor;
+import com.epam.aidial.core.config.Key;
 import com.epam.aidial.core.config.Model;
 import com.epam.aidial.core.config.ModelType;
 import com.epam.aidial.core.config.Pricing;
+import com.epam.aidial.core.config.Role;
 import com.epam.aidial.core.config.Upstream;
 import com.epam.aidial.core.server.Proxy;
 import com.epam.aidial.core.server.ProxyContext;
@@ -21,9 +23,11 @@ import com.epam.aidial.core.server.function.enhancement.EnhanceModelRequestFn;
 import com.epam.aidial.core.server.limiter.RateLimitResult;
 import com.epam.aidial.core.server.service.PermissionDeniedException;
 import com.epam.aidial.core.server.service.ResourceNotFoundException;
+import com.epam.aidial.core.server.service.ResponseCacheService;
 import com.epam.aidial.core.server.token.TokenUsage;
 import com.epam.aidial.core.server.token.TokenUsageParser;
 import com.epam.aidial.core.server.upstream.UpstreamRoute;
+import com.epam.aidial.core.server.upstream.UpstreamScheduler;
 import com.epam.aidial.core.server.util.ModelCostCalculator;
 import com.epam.aidial.core.server.util.ProxyUtil;
 import com.epam.aidial.core.server.vertx.stream.BufferingReadStream;
@@ -34,6 +38,7 @@ import com.google.common.annotations.VisibleForTesting;
 import io.netty.buffer.ByteBufInputStream;
 import io.vertx.core.Future;
 import io.vertx.core.MultiMap;
+import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpClientRequest;
 import io.vertx.core.http.HttpClientResponse;
@@ -52,6 +57,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 @Slf4j
 public class DeploymentPostController {
@@ -64,6 +70,26 @@ public class DeploymentPostController {
     private final ProxyContext context;
     private final List<BaseRequestFunction<ObjectNode>> enhancementFunctions;
 
+    /**
+     * Timer to send the hedged request or -1 if it's not scheduled
+     */
+    private long hedgeTimerId = -1;
+    /**
+     * Indicates if the request has been already hedged. The request is hedged at most once
+     */
+    private boolean hedged;
+    /**
+     * The hedged request which is racing with the current one
+     */
+    @Nullable
+    private HttpClientRequest hedgeRequest;
+    private long hedgeConnectTimestamp;
+    /**
+     * The key of the response in the cache or null if the request is not cacheable
+     */
+    @Nullable
+    private String responseCacheKey;
+
     public DeploymentPostController(Proxy proxy, ProxyContext context) {
         this.proxy = proxy;
         this.context = context;
@@ -89,8 +115,10 @@ public class DeploymentPostController {
     }
 
     private Future<?> handleDeployment(String deploymentId, String deploymentApi) {
+        long selectStartTime = System.currentTimeMillis();
         return DeploymentController.selectDeployment(context, deploymentId)
                 .map(dep -> {
+                    context.setStorageTime(context.getStorageTime() + System.currentTimeMillis() - selectStartTime);
                     if (dep.getEndpoint() == null) {
                         throw new HttpException(HttpStatus.SERVICE_UNAVAILABLE, "");
                     }
@@ -107,7 +135,9 @@ public class DeploymentPostController {
                 })
                 .compose(dep -> {
                     if (dep instanceof Model && !context.hasNextInterceptor()) {
-                        return proxy.getRateLimiter().limit(context, dep);
+                        long rateLimitStartTime = System.currentTimeMillis();
+                        return proxy.getRateLimiter().limit(context, dep)
+                                .onComplete(ignore -> context.setRateLimitTime(System.currentTimeMillis() - rateLimitStartTime));
                     } else {
                         return Future.succeededFuture(RateLimitResult.SUCCESS);
                     }
@@ -167,7 +197,7 @@ public class DeploymentPostController {
             respond(HttpStatus.NOT_FOUND, error.getMessage());
         } else if (error instanceof HttpException e) {
             log.error("Deployment error {}", deploymentId, error);
-            respond(e.getStatus(), e.getMessage());
+            respond(e);
         } else {
             log.error("Failed to handle deployment {}", deploymentId, error);
             respond(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to process deployment: " + deploymentId);
@@ -180,25 +210,80 @@ public class DeploymentPostController {
                 context.getProject(), context.getDeployment().getName(),
                 context.getRequest().headers().size());
 
-        Deployment deployment = context.getDeployment();
-        UpstreamRoute upstreamRoute = proxy.getUpstreamRouteProvider().get(deployment);
-        if (!canRetry(upstreamRoute)) {
-            return Future.succeededFuture();
-        }
-        context.setUpstreamRoute(upstreamRoute);
-
         setupProxyApiKeyData(new ApiKeyData());
         return proxy.getTokenStatsTracker().startSpan(context).map(ignore -> {
             context.getRequest().body()
-                    .onSuccess(body -> proxy.getVertx().executeBlocking(() -> {
-                        handleRequestBody(body);
-                        return null;
-                    }, false).onFailure(this::handleError))
+                    .onSuccess(body -> proxy.getVertx().executeBlocking(() -> handleRequestBody(body), false)
+                            .onSuccess(proceed -> {
+                                if (proceed) {
+                                    selectUpstream();
+                                }
+                            })
+                            .onFailure(this::handleError))
                     .onFailure(this::handleRequestBodyError);
             return null;
         });
     }
 
+    /**
+     * Selects the upstream once the request is known not to be served from the response cache,
+     * so the cached responses neither take the slots of the upstreams nor wait for them.
+     */
+    private void selectUpstream() {
+        UpstreamRoute upstreamRoute = proxy.getUpstreamRouteProvider().get(context.getDeployment());
+        if (upstreamRoute.isSaturated()) {
+            // the request waits for a free slot of the upstreams at their concurrency limits unless the client disconnects
+            HttpServerResponse response = context.getResponse();
+            Promise<Void> disconnected = Promise.promise();
+            response.closeHandler(ignore -> disconnected.tryComplete());
+            response.exceptionHandler(ignore -> disconnected.tryComplete());
+            proxy.getUpstreamRouteProvider().schedule(upstreamRoute, getPriority(), disconnected.future())
+                    .onComplete(ignore -> {
+                        response.closeHandler(null);
+                        response.exceptionHandler(null);
+                    })
+                    .onSuccess(ignore -> handleUpstreamSelected(upstreamRoute))
+                    .onFailure(error -> {
+                        if (error instanceof HttpException e) {
+                            handleNoRoute(e);
+                        } else {
+                            handleError(error);
+                        }
+                    });
+            return;
+        }
+        if (canRetry(upstreamRoute)) {
+            handleUpstreamSelected(upstreamRoute);
+        }
+    }
+
+    private void handleUpstreamSelected(UpstreamRoute upstreamRoute) {
+        context.setUpstreamRoute(upstreamRoute);
+        sendRequest();
+    }
+
+    /**
+     * @return the priority of the key or the highest priority of the user roles
+     */
+    private int getPriority() {
+        Key key = context.getKey();
+        if (key != null && key.getPriority() != null) {
+            return key.getPriority();
+        }
+        Integer priority = null;
+        List<String> userRoles = context.getUserRoles();
+        Map<String, Role> roles = context.getConfig().getRoles();
+        if (userRoles != null && roles != null) {
+            for (String name : userRoles) {
+                Role role = roles.get(name);
+                if (role != null && role.getPriority() != null && (priority == null || role.getPriority() > priority)) {
+                    priority = role.getPriority();
+                }
+            }
+        }
+        return Objects.requireNonNullElse(priority, UpstreamScheduler.DEFAULT_PRIORITY);
+    }
+
     private void setupProxyApiKeyData(ApiKeyData proxyApiKeyData) {
         context.setProxyApiKeyData(proxyApiKeyData);
         ApiKeyData.initFromContext(proxyApiKeyData, context);
@@ -245,13 +330,17 @@ public class DeploymentPostController {
                 .setMethod(request.method())
                 .setTraceOperation(context.getTraceOperation());
 
+        context.setUpstreamRequestTimestamp(System.currentTimeMillis());
         proxy.getClient().request(options)
                 .onSuccess(this::handleProxyRequest)
                 .onFailure(this::handleProxyConnectionError);
     }
 
+    /**
+     * @return true if the request should be sent to the upstream or false if the response is sent already
+     */
     @VisibleForTesting
-    void handleRequestBody(Buffer requestBody) {
+    boolean handleRequestBody(Buffer requestBody) {
         Deployment deployment = context.getDeployment();
         log.info("Received body from client. Trace: {}. Span: {}. Project: {}. Deployment: {}. Length: {}",
                 context.getTraceId(), context.getSpanId(),
@@ -262,9 +351,14 @@ public class DeploymentPostController {
 
         try (InputStream stream = new ByteBufInputStream(requestBody.getByteBuf())) {
             ObjectNode tree = (ObjectNode) ProxyUtil.MAPPER.readTree(stream);
+            long enhancementStartTime = System.currentTimeMillis();
             if (ProxyUtil.processChain(tree, enhancementFunctions)) {
                 context.setRequestBody(Buffer.buffer(ProxyUtil.MAPPER.writeValueAsBytes(tree)));
             }
+            context.setStorageTime(context.getStorageTime() + System.currentTimeMillis() - enhancementStartTime);
+            if (deployment instanceof Model model) {
+                responseCacheKey = ResponseCacheService.getKey(context, model, tree);
+            }
         } catch (Throwable e) {
             if (e instanceof HttpException httpException) {
                 respond(httpException.getStatus(), httpException.getMessage());
@@ -273,10 +367,46 @@ public class DeploymentPostController {
             }
             log.warn("Can't process JSON request body. Trace: {}. Span: {}. Error:",
                     context.getTraceId(), context.getSpanId(), e);
-            return;
+            return false;
         }
 
-        sendRequest();
+        if (responseCacheKey != null) {
+            Buffer cachedResponse = proxy.getResponseCacheService().get(responseCacheKey);
+            if (cachedResponse != null) {
+                respondFromCache(cachedResponse);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Sends the cached response to the client without calling the origin. The response costs nothing.
+     */
+    private void respondFromCache(Buffer responseBody) {
+        log.info("Sending cached response to client. Trace: {}. Span: {}. Project: {}. Deployment: {}. Length: {}",
+                context.getTraceId(), context.getSpanId(),
+                context.getProject(), context.getDeployment().getName(), responseBody.length());
+
+        long currentTime = System.currentTimeMillis();
+        context.setProxyResponseTimestamp(currentTime);
+        context.setResponseBody(responseBody);
+        context.setResponseBodyTimestamp(currentTime);
+
+        TokenUsage tokenUsage = new TokenUsage();
+        tokenUsage.setCost(BigDecimal.ZERO);
+        tokenUsage.setAggCost(BigDecimal.ZERO);
+        context.setTokenUsage(tokenUsage);
+        proxy.getTokenStatsTracker().updateModelStats(context).onFailure(error -> log.warn("Failed to update model stats. Trace: {}. Span: {}",
+                context.getTraceId(), context.getSpanId(), error));
+
+        HttpServerResponse response = context.getResponse();
+        response.putHeader(HttpHeaders.CONTENT_TYPE, Proxy.HEADER_CONTENT_TYPE_APPLICATION_JSON);
+        response.setStatusCode(HttpStatus.OK.getCode()).end(responseBody);
+
+        proxy.getLogStore().save(context);
+        finalizeRequest();
     }
 
     /**
@@ -289,10 +419,30 @@ public class DeploymentPostController {
                 context.getProject(), context.getDeployment().getName(),
                 proxyRequest.connection().remoteAddress());
 
-        HttpServerRequest request = context.getRequest();
         context.setProxyRequest(proxyRequest);
         context.setProxyConnectTimestamp(System.currentTimeMillis());
 
+        UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        prepareProxyRequest(proxyRequest, upstreamRoute == null ? null : upstreamRoute.get());
+
+        // the request may be abandoned in favor of the hedged one, so responses of the abandoned request are ignored
+        proxyRequest.send(context.getRequestBody())
+                .onSuccess(proxyResponse -> {
+                    if (proxyRequest == context.getProxyRequest()) {
+                        handleProxyResponse(proxyResponse);
+                    }
+                })
+                .onFailure(error -> {
+                    if (proxyRequest == context.getProxyRequest()) {
+                        handleProxyResponseError(error);
+                    }
+                });
+
+        scheduleHedge();
+    }
+
+    private void prepareProxyRequest(HttpClientRequest proxyRequest, @Nullable Upstream upstream) {
+        HttpServerRequest request = context.getRequest();
         Deployment deployment = context.getDeployment();
         MultiMap excludeHeaders = MultiMap.caseInsensitiveMultiMap();
         if (!deployment.isForwardAuthToken()) {
@@ -304,8 +454,7 @@ public class DeploymentPostController {
         ApiKeyData proxyApiKeyData = context.getProxyApiKeyData();
         proxyRequest.headers().add(Proxy.HEADER_API_KEY, proxyApiKeyData.getPerRequestKey());
 
-        if (context.getDeployment() instanceof Model model && !model.getUpstreams().isEmpty()) {
-            Upstream upstream = context.getUpstreamRoute().get();
+        if (deployment instanceof Model model && !model.getUpstreams().isEmpty()) {
             proxyRequest.putHeader(Proxy.HEADER_UPSTREAM_ENDPOINT, upstream.getEndpoint());
             proxyRequest.putHeader(Proxy.HEADER_UPSTREAM_KEY, upstream.getKey());
             proxyRequest.putHeader(Proxy.HEADER_UPSTREAM_EXTRA_DATA, upstream.getExtraData());
@@ -314,18 +463,162 @@ public class DeploymentPostController {
         Buffer requestBody = context.getRequestBody();
         proxyRequest.putHeader(HttpHeaders.CONTENT_LENGTH, Integer.toString(requestBody.length()));
         context.getRequestHeaders().forEach(proxyRequest::putHeader);
+    }
 
-        proxyRequest.send(requestBody)
-                .onSuccess(this::handleProxyResponse)
-                .onFailure(this::handleProxyResponseError);
+    /**
+     * Schedules the hedged request for non-streaming requests if the model has hedging policy.
+     * The delay is estimated by the percentile of time to first byte of the model upstreams.
+     */
+    private void scheduleHedge() {
+        UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        if (hedged || context.isStreamingRequest() || upstreamRoute == null || !upstreamRoute.isHedgingEnabled()) {
+            return;
+        }
+        long delay = upstreamRoute.getHedgeDelay();
+        if (delay < 0) {
+            return;
+        }
+        hedged = true;
+        hedgeTimerId = proxy.getVertx().setTimer(Math.max(delay, 1), ignore -> sendHedgeRequest());
+    }
+
+    private void cancelHedgeTimer() {
+        if (hedgeTimerId != -1) {
+            proxy.getVertx().cancelTimer(hedgeTimerId);
+            hedgeTimerId = -1;
+        }
+    }
+
+    @SneakyThrows
+    private void sendHedgeRequest() {
+        hedgeTimerId = -1;
+        UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        Upstream upstream = upstreamRoute.hedge();
+        if (upstream == null) {
+            return;
+        }
+
+        log.info("Sending hedged request. Trace: {}. Span: {}. Project: {}. Deployment: {}. Upstream: {}",
+                context.getTraceId(), context.getSpanId(),
+                context.getProject(), context.getDeployment().getName(), upstream.getEndpoint());
+
+        RequestOptions options = new RequestOptions()
+                .setAbsoluteURI(buildUri(context))
+                .setMethod(context.getRequest().method())
+                .setTraceOperation(context.getTraceOperation());
+
+        proxy.getClient().request(options)
+                .onSuccess(hedgeRequest -> handleHedgeRequest(hedgeRequest, upstream))
+                .onFailure(error -> handleHedgeConnectionError(error, upstream));
+    }
+
+    /**
+     * Called when the hedged request connected to the origin.
+     */
+    private void handleHedgeRequest(HttpClientRequest request, Upstream upstream) {
+        UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        if (upstreamRoute.getHedge() != upstream) {
+            // the hedged request has been abandoned while connecting
+            request.reset();
+            return;
+        }
+
+        hedgeRequest = request;
+        hedgeConnectTimestamp = System.currentTimeMillis();
+        prepareProxyRequest(request, upstream);
+
+        request.send(context.getRequestBody())
+                .onSuccess(response -> handleHedgeResponse(request, response))
+                .onFailure(error -> handleHedgeResponseError(request, error));
+    }
+
+    /**
+     * Called when the hedged request received the response headers from the origin.
+     */
+    private void handleHedgeResponse(HttpClientRequest request, HttpClientResponse response) {
+        if (request == context.getProxyRequest()) {
+            // the hedged request has been promoted
+            handleProxyResponse(response);
+            return;
+        }
+        if (request != hedgeRequest) {
+            return;
+        }
+
+        UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        if (isRetriableError(response.statusCode())) {
+            upstreamRoute.failHedge(response);
+            discardHedge();
+            return;
+        }
+
+        log.info("Hedged request won. Trace: {}. Span: {}. Project: {}. Deployment: {}. Upstream: {}",
+                context.getTraceId(), context.getSpanId(),
+                context.getProject(), context.getDeployment().getName(), upstreamRoute.getHedge().getEndpoint());
+
+        HttpClientRequest slowRequest = context.getProxyRequest();
+        promoteHedge();
+        slowRequest.reset(); // drop connection to stop the slow origin
+        handleProxyResponse(response);
+    }
+
+    private void handleHedgeResponseError(HttpClientRequest request, Throwable error) {
+        if (request == context.getProxyRequest()) {
+            handleProxyResponseError(error);
+            return;
+        }
+        if (request != hedgeRequest) {
+            return;
+        }
+        log.warn("Hedged request failed to receive response header from origin. Trace: {}. Span: {}. Error: {}",
+                context.getTraceId(), context.getSpanId(), error.getMessage());
+        context.getUpstreamRoute().failHedge(HttpStatus.BAD_GATEWAY);
+        discardHedge();
+    }
+
+    private void handleHedgeConnectionError(Throwable error, Upstream upstream) {
+        log.warn("Hedged request can't connect to origin. Trace: {}. Span: {}. Error: {}",
+                context.getTraceId(), context.getSpanId(), error.getMessage());
+        UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        if (upstreamRoute.getHedge() == upstream) {
+            upstreamRoute.cancelHedge();
+        }
+    }
+
+    /**
+     * Makes the hedged request the current one. The current request is abandoned.
+     */
+    private void promoteHedge() {
+        context.getUpstreamRoute().promoteHedge();
+        context.setProxyRequest(hedgeRequest);
+        context.setProxyConnectTimestamp(hedgeConnectTimestamp);
+        hedgeRequest = null;
+    }
+
+    /**
+     * Abandons the hedged request if any.
+     */
+    private void discardHedge() {
+        cancelHedgeTimer();
+        HttpClientRequest request = hedgeRequest;
+        hedgeRequest = null;
+        UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        if (upstreamRoute != null) {
+            upstreamRoute.cancelHedge();
+        }
+        if (request != null) {
+            request.reset();
+        }
     }
 
     /**
      * Called when proxy received the response headers from the origin.
      */
     private void handleProxyResponse(HttpClientResponse proxyResponse) {
+        cancelHedgeTimer();
         UpstreamRoute upstreamRoute = context.getUpstreamRoute();
         Upstream currentUpstream = upstreamRoute.get();
+        upstreamRoute.responded(System.currentTimeMillis() - context.getProxyConnectTimestamp());
         log.info("Received header from origin. Trace: {}. Span: {}. Project: {}. Deployment: {}. Endpoint: {}. Upstream: {}. Status: {}. Headers: {}",
                 context.getTraceId(), context.getSpanId(),
                 context.getProject(), context.getDeployment().getName(),
@@ -335,6 +628,10 @@ public class DeploymentPostController {
         int responseStatusCode = proxyResponse.statusCode();
         if (isRetriableError(responseStatusCode)) {
             upstreamRoute.fail(proxyResponse);
+            if (hedgeRequest != null) {
+                promoteHedge(); // wait for the hedged request instead of retry
+                return;
+            }
             // get next upstream
             if (canRetry(upstreamRoute)) {
                 sendRequest(); // try next
@@ -342,6 +639,8 @@ public class DeploymentPostController {
             return;
         }
 
+        discardHedge();
+
         if (responseStatusCode == 200) {
             upstreamRoute.succeed();
         } else if (isFailedStatusCode(responseStatusCode)) {
@@ -351,7 +650,7 @@ public class DeploymentPostController {
         CollectResponseAttachmentsFn handler = context.isStreamingRequest() ? new CollectResponseAttachmentsFn(proxy, context) : null;
 
         BufferingReadStream responseStream = new BufferingReadStream(proxyResponse,
-                ProxyUtil.contentLength(proxyResponse, 1024), handler);
+                ProxyUtil.contentLength(proxyResponse, 1024), handler, proxy.getResponseRetention());
 
         context.setProxyResponse(proxyResponse);
         context.setProxyResponseTimestamp(System.currentTimeMillis());
@@ -389,6 +688,10 @@ public class DeploymentPostController {
         Buffer responseBody = context.getResponseStream().getContent();
         context.setResponseBody(responseBody);
         context.setResponseBodyTimestamp(System.currentTimeMillis());
+        if (responseCacheKey != null && context.getResponse().getStatusCode() == HttpStatus.OK.getCode()
+                && context.getDeployment() instanceof Model model) {
+            proxy.getResponseCacheService().put(responseCacheKey, responseBody, model.getResponseCache());
+        }
         Future<TokenUsage> tokenUsageFuture = collectTokenUsage(responseBody);
 
         Future<Void> handleResponseFuture = tokenUsageFuture.transform(result -> {
@@ -517,8 +820,13 @@ public class DeploymentPostController {
                 context.getProxyRequest().connection().remoteAddress(),
                 error);
 
+        cancelHedgeTimer();
         // for 5xx errors we use exponential backoff strategy, so passing retryAfterSeconds parameter makes no sense
         upstreamRoute.fail(HttpStatus.BAD_GATEWAY);
+        if (hedgeRequest != null) {
+            promoteHedge(); // wait for the hedged request instead of retry
+            return;
+        }
         if (canRetry(upstreamRoute)) {
             sendRequest(); // try next
         }
@@ -569,37 +877,52 @@ public class DeploymentPostController {
         try {
             route.next();
         } catch (HttpException e) {
-            log.error("No route. Trace: {}. Span: {}. Project: {}. Deployment: {}. User sub: {}",
-                    context.getTraceId(), context.getSpanId(),
-                    context.getProject(), context.getDeployment().getName(), context.getUserSub());
-            respond(e);
+            handleNoRoute(e);
             return false;
         }
         return true;
     }
 
+    private void handleNoRoute(HttpException e) {
+        log.error("No route. Trace: {}. Span: {}. Project: {}. Deployment: {}. User sub: {}",
+                context.getTraceId(), context.getSpanId(),
+                context.getProject(), context.getDeployment().getName(), context.getUserSub());
+        respond(e);
+    }
+
     private Future<?> respond(HttpStatus status, String errorMessage) {
+        Future<?> result = context.respond(status, errorMessage);
         finalizeRequest();
-        return context.respond(status, errorMessage);
+        return result;
     }
 
     private void respond(HttpException exception) {
-        finalizeRequest();
         context.respond(exception);
+        finalizeRequest();
     }
 
     private void respond(HttpStatus status) {
-        finalizeRequest();
         context.respond(status);
+        finalizeRequest();
     }
 
     private void respond(HttpStatus status, Object result) {
-        finalizeRequest();
         context.respond(status, result);
+        finalizeRequest();
     }
 
+    /**
+     * Called once the response is sent to the client or the connection is dropped, the status of the response is set by then.
+     */
     private void finalizeRequest() {
+        proxy.getRequestMetrics().record(context);
+        discardHedge();
         proxy.getTokenStatsTracker().endSpan(context).onFailure(error -> log.error("Error occurred at completing span", error));
+        UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        if (upstreamRoute != null) {
+            upstreamRoute.release();
+        }
+        context.releaseStreams();
         ApiKeyData proxyApiKeyData = context.getProxyApiKeyData();
         if (proxyApiKeyData != null) {
             proxy.getApiKeyStore().invalidatePerRequestApiKey(proxyApiKeyData)
@@ -2,6 +2,7 @@ package com.epam.aidial.core.server.controller;
 
 import com.epam.aidial.core.server.Proxy;
 import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.limiter.WorkerAdmission;
 import com.epam.aidial.core.server.security.AccessService;
 import com.epam.aidial.core.storage.data.MetadataBase;
 import com.epam.aidial.core.storage.http.HttpStatus;
@@ -40,7 +41,7 @@ public class FileMetadataController extends AccessControlBaseController {
             return context.respond(HttpStatus.BAD_REQUEST, "Limit is out of allowed range: [0, 1000]");
         }
 
-        proxy.getVertx().executeBlocking(() -> {
+        proxy.getWorkerAdmission().execute(WorkerAdmission.Category.LISTING, () -> {
             try {
                 MetadataBase metadata = resourceService.getMetadata(resource, token, limit, recursive);
                 if (metadata != null) {
@@ -59,7 +60,7 @@ public class FileMetadataController extends AccessControlBaseController {
             }
 
             return null;
-        }, false);
+        }).onFailure(error -> context.respond(error, "Failed to list files by path %s".formatted(resource.getUrl())));
 
         return Future.succeededFuture();
     }
@@ -6,6 +6,7 @@ import com.epam.aidial.core.config.ModelType;
 import com.epam.aidial.core.config.Pricing;
 import com.epam.aidial.core.config.TokenLimits;
 import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.config.ConfigSnapshot;
 import com.epam.aidial.core.server.data.ListData;
 import com.epam.aidial.core.server.data.ModelData;
 import com.epam.aidial.core.server.data.PricingData;
@@ -39,20 +40,18 @@ public class ModelController {
     }
 
     public Future<?> getModels() {
-        Config config = context.getConfig();
-        List<ModelData> models = new ArrayList<>();
+        ConfigSnapshot snapshot = ConfigSnapshot.of(context);
+        ConfigSnapshot.Listing listing = snapshot.getListing("models", snapshot.getModels(), context.getUserRoles(),
+                ModelController::createModels);
+        return DeploymentController.respondListing(context, listing);
+    }
 
-        for (Model model : config.getModels().values()) {
-            if (model.hasAccess(context.getUserRoles())) {
-                ModelData data = createModel(model);
-                models.add(data);
-            }
+    static ListData<ModelData> createModels(List<Model> models) {
+        List<ModelData> data = new ArrayList<>(models.size());
+        for (Model model : models) {
+            data.add(createModel(model));
         }
-
-        ListData<ModelData> list = new ListData<>();
-        list.setData(models);
-
-        return context.respond(HttpStatus.OK, list);
+        return new ListData<>(data);
     }
 
     static ModelData createModel(Model model) {
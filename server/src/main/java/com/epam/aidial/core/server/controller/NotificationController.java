@@ -26,8 +26,22 @@ public class NotificationController {
     }
 
     public Future<?> listNotifications() {
-        vertx.executeBlocking(() -> service.listNotification(context), false)
-                .onSuccess(notifications -> context.respond(HttpStatus.OK, new Notifications(notifications)))
+        String token;
+        Integer limit;
+
+        try {
+            token = context.getRequest().getParam("token");
+            String limitParam = context.getRequest().getParam("limit");
+            limit = (limitParam == null) ? null : Integer.parseInt(limitParam);
+            if (limit != null && (limit <= 0 || limit > 1000)) {
+                throw new IllegalArgumentException("Limit is out of allowed range");
+            }
+        } catch (Throwable error) {
+            return context.respond(HttpStatus.BAD_REQUEST, "Bad query parameters. Limit must be in [1, 1000] range");
+        }
+
+        vertx.executeBlocking(() -> service.listNotification(context, token, limit), false)
+                .onSuccess(page -> context.respond(HttpStatus.OK, new Notifications(page.notifications(), page.nextToken())))
                 .onFailure(error -> respondError("Can't list notifications", error));
 
         return Future.succeededFuture();
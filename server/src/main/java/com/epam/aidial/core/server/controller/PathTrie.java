@@ -0,0 +1,356 @@
+package com.epam.aidial.core.server.controller;
+
+import io.vertx.core.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Router matching request paths against path templates compiled into a trie of path segments per HTTP method.
+ * <p>
+ * Template syntax:
+ * <ul>
+ *     <li>{@code /+} prefix - one or more leading slashes, otherwise the path must start with a single slash</li>
+ *     <li>{@code literal} - the segment equal to the literal</li>
+ *     <li>{@code {name}} - the segment of ASCII letters and digits</li>
+ *     <li>{@code {name+}} - the shortest non-empty sequence of segments</li>
+ *     <li>{@code {name*}} - the rest of the path which may be empty, must be the last element</li>
+ *     <li>{@code (a|b|c/d)} - one of the literal alternatives captured as an unnamed group</li>
+ * </ul>
+ * Named and unnamed groups are numbered from left to right like in regular expressions.
+ * If multiple templates match the path, the template added first wins.
+ * </p>
+ */
+final class PathTrie<T> {
+
+    private final Map<HttpMethod, Node<T>> roots = new HashMap<>();
+    private int routes;
+    private int maxSteps;
+
+    void add(HttpMethod method, String template, T value) {
+        Node<T> root = roots.computeIfAbsent(method, key -> new Node<>());
+        int order = routes++;
+        boolean leadingSlashes = template.startsWith("/+");
+        if (!leadingSlashes && !template.startsWith("/")) {
+            throw new IllegalArgumentException("Path template must start with /: " + template);
+        }
+        List<String> tokens = tokenize(template.substring(leadingSlashes ? 2 : 1));
+        for (Route<T> route : expand(order, leadingSlashes, tokens, value)) {
+            Node<T> node = root;
+            node.minOrder = Math.min(node.minOrder, order);
+            for (Step step : route.steps) {
+                node = node.child(step);
+                node.minOrder = Math.min(node.minOrder, order);
+            }
+            node.routes.add(route);
+            maxSteps = Math.max(maxSteps, route.steps.length);
+        }
+    }
+
+    /**
+     * @return the match of the template added first or null if no template matches the path
+     */
+    @Nullable
+    Match<T> match(HttpMethod method, String path) {
+        Node<T> root = roots.get(method);
+        if (root == null || path == null) {
+            return null;
+        }
+        int slashes = 0;
+        while (slashes < path.length() && path.charAt(slashes) == '/') {
+            slashes++;
+        }
+        if (slashes == 0) {
+            return null;
+        }
+        Search<T> search = new Search<>(path, slashes, maxSteps);
+        search.visit(root, 0, 0);
+        return search.best == null ? null : search.toMatch();
+    }
+
+    private static List<String> tokenize(String template) {
+        List<String> tokens = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '/' && depth == 0) {
+                tokens.add(template.substring(start, i));
+                start = i + 1;
+            }
+        }
+        tokens.add(template.substring(start));
+        return tokens;
+    }
+
+    private static <T> List<Route<T>> expand(int order, boolean leadingSlashes, List<String> tokens, T value) {
+        List<Route<T>> routes = new ArrayList<>();
+        expand(order, leadingSlashes, tokens, 0, new ArrayList<>(), new ArrayList<>(), value, routes);
+        return routes;
+    }
+
+    private static <T> void expand(int order, boolean leadingSlashes, List<String> tokens, int index,
+                                   List<Step> steps, List<Group> groups, T value, List<Route<T>> routes) {
+        if (index == tokens.size()) {
+            routes.add(new Route<>(order, leadingSlashes, steps.toArray(Step[]::new), groups.toArray(Group[]::new), value));
+            return;
+        }
+        String token = tokens.get(index);
+        if (token.startsWith("(") && token.endsWith(")")) {
+            for (String alternative : token.substring(1, token.length() - 1).split("\\|")) {
+                List<Step> nextSteps = new ArrayList<>(steps);
+                List<Group> nextGroups = new ArrayList<>(groups);
+                for (String literal : alternative.split("/")) {
+                    nextSteps.add(new Step(StepType.LITERAL, literal));
+                }
+                nextGroups.add(new Group(null, steps.size(), nextSteps.size()));
+                expand(order, leadingSlashes, tokens, index + 1, nextSteps, nextGroups, value, routes);
+            }
+            return;
+        }
+        List<Step> nextSteps = new ArrayList<>(steps);
+        List<Group> nextGroups = new ArrayList<>(groups);
+        if (token.startsWith("{") && token.endsWith("}")) {
+            String name = token.substring(1, token.length() - 1);
+            StepType type = StepType.SEGMENT;
+            if (name.endsWith("+")) {
+                type = StepType.SEGMENTS;
+            } else if (name.endsWith("*")) {
+                if (index != tokens.size() - 1) {
+                    throw new IllegalArgumentException("Rest of the path must be the last element: " + token);
+                }
+                type = StepType.TAIL;
+            }
+            if (type != StepType.SEGMENT) {
+                name = name.substring(0, name.length() - 1);
+            }
+            nextSteps.add(new Step(type, name));
+            nextGroups.add(new Group(name, steps.size(), nextSteps.size()));
+        } else {
+            nextSteps.add(new Step(StepType.LITERAL, token));
+        }
+        expand(order, leadingSlashes, tokens, index + 1, nextSteps, nextGroups, value, routes);
+    }
+
+    private static boolean isAlphanumeric(String segment) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The result of matching the path.
+     */
+    static final class Match<T> {
+
+        private final T value;
+        private final String pathTemplate;
+        private final String[] groups;
+
+        private Match(T value, String pathTemplate, String[] groups) {
+            this.value = value;
+            this.pathTemplate = pathTemplate;
+            this.groups = groups;
+        }
+
+        T value() {
+            return value;
+        }
+
+        /**
+         * @return the path where named groups are replaced with their names in curly braces
+         */
+        String pathTemplate() {
+            return pathTemplate;
+        }
+
+        int groupCount() {
+            return groups.length;
+        }
+
+        /**
+         * @param group - the group number starting from 1
+         */
+        String group(int group) {
+            return groups[group - 1];
+        }
+    }
+
+    private enum StepType {
+        LITERAL, SEGMENT, SEGMENTS, TAIL
+    }
+
+    private record Step(StepType type, String text) {
+    }
+
+    /**
+     * @param name - the name of the group or null if the group is unnamed
+     * @param from - the first step of the group
+     * @param to - the step after the last one of the group
+     */
+    private record Group(@Nullable String name, int from, int to) {
+    }
+
+    private record Route<T>(int order, boolean leadingSlashes, Step[] steps, Group[] groups, T value) {
+    }
+
+    private static final class Node<T> {
+
+        final Map<String, Node<T>> literals = new HashMap<>();
+        Node<T> segment;
+        Node<T> segments;
+        Node<T> tail;
+        // routes ending in the node in the order they are added
+        final List<Route<T>> routes = new ArrayList<>();
+        // the order of the first route in the subtree to skip subtrees which can't override the current match
+        int minOrder = Integer.MAX_VALUE;
+
+        Node<T> child(Step step) {
+            switch (step.type()) {
+                case SEGMENT -> {
+                    if (segment == null) {
+                        segment = new Node<>();
+                    }
+                    return segment;
+                }
+                case SEGMENTS -> {
+                    if (segments == null) {
+                        segments = new Node<>();
+                    }
+                    return segments;
+                }
+                case TAIL -> {
+                    if (tail == null) {
+                        tail = new Node<>();
+                    }
+                    return tail;
+                }
+                default -> {
+                    return literals.computeIfAbsent(step.text(), key -> new Node<>());
+                }
+            }
+        }
+    }
+
+    /**
+     * Depth-first search of the route added first. The shortest sequences of segments are tried first,
+     * so the first match of the route is the same as the match of the lazy quantifier.
+     */
+    private static final class Search<T> {
+
+        final String path;
+        final int slashes;
+        final String[] segments;
+        final int[] offsets;
+        // the segment following each step of the current branch
+        final int[] ends;
+        Route<T> best;
+        int[] bestEnds;
+
+        Search(String path, int slashes, int maxSteps) {
+            this.path = path;
+            this.slashes = slashes;
+            this.segments = path.substring(slashes).split("/", -1);
+            this.offsets = new int[segments.length + 1];
+            int offset = slashes;
+            for (int i = 0; i < segments.length; i++) {
+                offsets[i] = offset;
+                offset += segments[i].length() + 1;
+            }
+            offsets[segments.length] = offset;
+            this.ends = new int[maxSteps];
+        }
+
+        void visit(Node<T> node, int step, int position) {
+            if (best != null && node.minOrder >= best.order) {
+                return;
+            }
+            if (position == segments.length) {
+                for (Route<T> route : node.routes) {
+                    if ((slashes == 1 || route.leadingSlashes) && (best == null || route.order < best.order)) {
+                        best = route;
+                        bestEnds = Arrays.copyOf(ends, step);
+                        break;
+                    }
+                }
+                return;
+            }
+            String segment = segments[position];
+            Node<T> literal = node.literals.get(segment);
+            if (literal != null) {
+                ends[step] = position + 1;
+                visit(literal, step + 1, position + 1);
+            }
+            if (node.segment != null && isAlphanumeric(segment)) {
+                ends[step] = position + 1;
+                visit(node.segment, step + 1, position + 1);
+            }
+            if (node.segments != null) {
+                // the captured text must not be empty
+                int from = segment.isEmpty() ? position + 2 : position + 1;
+                for (int end = from; end <= segments.length; end++) {
+                    ends[step] = end;
+                    visit(node.segments, step + 1, end);
+                }
+            }
+            if (node.tail != null) {
+                ends[step] = segments.length;
+                visit(node.tail, step + 1, segments.length);
+            }
+        }
+
+        Match<T> toMatch() {
+            Step[] steps = best.steps;
+            Group[] groups = best.groups;
+            String[] values = new String[groups.length];
+            for (int i = 0; i < groups.length; i++) {
+                values[i] = text(groups[i].from(), groups[i].to());
+            }
+
+            StringBuilder template = new StringBuilder(path.length());
+            template.append(path, 0, best.leadingSlashes ? slashes : 1);
+            int group = 0;
+            int i = 0;
+            while (i < steps.length) {
+                if (i > 0) {
+                    template.append('/');
+                }
+                while (group < groups.length && groups[group].from() < i) {
+                    group++;
+                }
+                if (group < groups.length && groups[group].from() == i && groups[group].name() != null) {
+                    template.append('{').append(groups[group].name()).append('}');
+                    i = groups[group].to();
+                } else {
+                    template.append(text(i, i + 1));
+                    i++;
+                }
+            }
+            return new Match<>(best.value, template.toString(), values);
+        }
+
+        /**
+         * @return the text matched by the steps
+         */
+        private String text(int fromStep, int toStep) {
+            int from = fromStep == 0 ? 0 : bestEnds[fromStep - 1];
+            int to = bestEnds[toStep - 1];
+            return path.substring(offsets[from], offsets[to] - 1);
+        }
+    }
+}
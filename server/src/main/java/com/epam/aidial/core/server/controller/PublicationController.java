@@ -2,6 +2,7 @@ package com.epam.aidial.core.server.controller;
 
 import com.epam.aidial.core.server.Proxy;
 import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.data.ListPublicationsRequest;
 import com.epam.aidial.core.server.data.ListPublishedResourcesRequest;
 import com.epam.aidial.core.server.data.Publication;
 import com.epam.aidial.core.server.data.Publications;
@@ -56,12 +57,12 @@ public class PublicationController {
         context.getRequest()
                 .body()
                 .compose(body -> {
-                    String url = ProxyUtil.convertToObject(body, ResourceLink.class).url();
-                    ResourceDescriptor resource = decodePublication(url, true);
+                    ListPublicationsRequest request = ProxyUtil.convertToObject(body, ListPublicationsRequest.class);
+                    ResourceDescriptor resource = decodePublication(request.url(), true);
                     checkAccess(resource, resource.isPrivate());
-                    return vertx.executeBlocking(() -> publicationService.listPublications(resource), false);
+                    return vertx.executeBlocking(() -> publicationService.listPublications(resource, request), false);
                 })
-                .onSuccess(publications -> context.respond(HttpStatus.OK, new Publications(publications)))
+                .onSuccess(page -> context.respond(HttpStatus.OK, new Publications(page.publications(), page.nextToken())))
                 .onFailure(error -> respondError("Can't list publications", error));
 
         return Future.succeededFuture();
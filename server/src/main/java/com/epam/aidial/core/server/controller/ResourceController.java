@@ -6,8 +6,10 @@ import com.epam.aidial.core.server.ProxyContext;
 import com.epam.aidial.core.server.data.Conversation;
 import com.epam.aidial.core.server.data.Prompt;
 import com.epam.aidial.core.server.data.ResourceTypes;
+import com.epam.aidial.core.server.limiter.WorkerAdmission;
 import com.epam.aidial.core.server.security.AccessService;
 import com.epam.aidial.core.server.service.ApplicationService;
+import com.epam.aidial.core.server.service.ConversationPatch;
 import com.epam.aidial.core.server.service.PermissionDeniedException;
 import com.epam.aidial.core.server.service.ResourceNotFoundException;
 import com.epam.aidial.core.server.util.ProxyUtil;
@@ -40,7 +42,7 @@ public class ResourceController extends AccessControlBaseController {
     private final AccessService accessService;
 
     public ResourceController(Proxy proxy, ProxyContext context, boolean metadata) {
-        // PUT and DELETE require write access, GET - read
+        // PUT, PATCH and DELETE require write access, GET - read
         super(proxy, context, !HttpMethod.GET.equals(context.getRequest().method()));
         this.vertx = proxy.getVertx();
         this.service = proxy.getResourceService();
@@ -59,6 +61,10 @@ public class ResourceController extends AccessControlBaseController {
             return putResource(descriptor);
         }
 
+        if (context.getRequest().method() == HttpMethod.PATCH) {
+            return patchResource(descriptor);
+        }
+
         if (context.getRequest().method() == HttpMethod.DELETE) {
             return deleteResource(descriptor);
         }
@@ -89,7 +95,7 @@ public class ResourceController extends AccessControlBaseController {
             return context.respond(HttpStatus.BAD_REQUEST, "Bad query parameters. Limit must be in [0, 1000] range. Recursive must be true/false");
         }
 
-        vertx.executeBlocking(() -> service.getMetadata(descriptor, token, limit, recursive), false)
+        proxy.getWorkerAdmission().execute(WorkerAdmission.Category.LISTING, () -> service.getMetadata(descriptor, token, limit, recursive))
                 .onSuccess(result -> {
                     if (result == null) {
                         context.respond(HttpStatus.NOT_FOUND, "Not found: " + descriptor.getUrl());
@@ -102,8 +108,12 @@ public class ResourceController extends AccessControlBaseController {
                     }
                 })
                 .onFailure(error -> {
-                    log.warn("Can't list resource: {}", descriptor.getUrl(), error);
-                    context.respond(HttpStatus.INTERNAL_SERVER_ERROR);
+                    if (error instanceof HttpException exception) {
+                        context.respond(exception);
+                    } else {
+                        log.warn("Can't list resource: {}", descriptor.getUrl(), error);
+                        context.respond(HttpStatus.INTERNAL_SERVER_ERROR);
+                    }
                 });
 
         return Future.succeededFuture();
@@ -211,6 +221,51 @@ public class ResourceController extends AccessControlBaseController {
         return Future.succeededFuture();
     }
 
+    /**
+     * Appends the delta to the conversation without rewriting the whole conversation, see {@link ConversationPatch}.
+     */
+    private Future<?> patchResource(ResourceDescriptor descriptor) {
+        if (descriptor.isFolder()) {
+            return context.respond(HttpStatus.BAD_REQUEST, "Folder not allowed: " + descriptor.getUrl());
+        }
+
+        if (descriptor.getType() != ResourceTypes.CONVERSATION) {
+            return context.respond(HttpStatus.BAD_REQUEST, "Patch is supported for conversations only");
+        }
+
+        int contentLength = ProxyUtil.contentLength(context.getRequest(), 0);
+        int contentLimit = service.getMaxSize();
+
+        if (contentLength > contentLimit) {
+            String message = "Resource size: %s exceeds max limit: %s".formatted(contentLength, contentLimit);
+            return context.respond(HttpStatus.REQUEST_ENTITY_TOO_LARGE, message);
+        }
+
+        context.getRequest().body()
+                .compose(bytes -> {
+                    if (bytes.length() > contentLimit) {
+                        String message = "Resource size: %s exceeds max limit: %s".formatted(bytes.length(), contentLimit);
+                        throw new HttpException(HttpStatus.REQUEST_ENTITY_TOO_LARGE, message);
+                    }
+
+                    EtagHeader etag = ProxyUtil.etag(context.getRequest());
+                    String delta = ConversationPatch.validate(bytes.toString(StandardCharsets.UTF_8));
+                    return vertx.executeBlocking(() -> service.appendResource(descriptor, delta, etag), false);
+                })
+                .onSuccess(metadata -> {
+                    if (metadata == null) {
+                        context.respond(HttpStatus.NOT_FOUND, "Not found: " + descriptor.getUrl());
+                    } else {
+                        context.putHeader(HttpHeaders.ETAG, metadata.getEtag())
+                                .exposeHeaders()
+                                .respond(HttpStatus.OK, metadata);
+                    }
+                })
+                .onFailure(error -> handleError(descriptor, error));
+
+        return Future.succeededFuture();
+    }
+
     private Future<?> deleteResource(ResourceDescriptor descriptor) {
         if (descriptor.isFolder()) {
             return context.respond(HttpStatus.BAD_REQUEST, "Folder not allowed: " + descriptor.getUrl());
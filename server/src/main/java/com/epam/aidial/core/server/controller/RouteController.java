@@ -39,6 +39,8 @@ public class RouteController implements Controller {
 
     private final Proxy proxy;
     private final ProxyContext context;
+    // the client body piped to the origin, null if the body is received before sending the request
+    private BufferingReadStream requestStream;
 
     @Override
     public Future<?> handle() {
@@ -70,6 +72,15 @@ public class RouteController implements Controller {
         }
         context.setRoute(route);
 
+        if (response == null && route.isStreamRequestBody()) {
+            // the stream takes over the request before it is resumed, the chunks received before the pipe are replayed
+            HttpServerRequest request = context.getRequest();
+            requestStream = new BufferingReadStream(request, ProxyUtil.contentLength(request, 1024), null, proxy.getResponseRetention());
+            context.setRequestStream(requestStream);
+            limitRequest();
+            return Future.succeededFuture();
+        }
+
         context.getRequest().body()
                 .onSuccess(this::handleRequestBody)
                 .onFailure(this::handleRequestBodyError);
@@ -102,22 +113,26 @@ public class RouteController implements Controller {
         context.setRequestBody(requestBody);
 
         if (context.getResponseBody() == null) {
-            proxy.getRateLimiter().limit(context, context.getRoute())
-                    .compose(rateLimitResult -> {
-                        if (rateLimitResult.status() == HttpStatus.OK) {
-                            return sendRequest();
-                        } else {
-                            handleRateLimitHit(rateLimitResult);
-                            return Future.succeededFuture();
-                        }
-                    })
-                    .onFailure(this::handleError);
+            limitRequest();
         } else {
             context.getResponse().send(context.getResponseBody());
             proxy.getLogStore().save(context);
         }
     }
 
+    private void limitRequest() {
+        proxy.getRateLimiter().limit(context, context.getRoute())
+                .compose(rateLimitResult -> {
+                    if (rateLimitResult.status() == HttpStatus.OK) {
+                        return sendRequest();
+                    } else {
+                        handleRateLimitHit(rateLimitResult);
+                        return Future.succeededFuture();
+                    }
+                })
+                .onFailure(this::handleError);
+    }
+
     /**
      * Called when proxy connected to the origin.
      */
@@ -126,11 +141,17 @@ public class RouteController implements Controller {
 
         HttpServerRequest request = context.getRequest();
         context.setProxyRequest(proxyRequest);
+        context.setProxyConnectTimestamp(System.currentTimeMillis());
 
         Upstream upstream = context.getUpstreamRoute().get();
         ProxyUtil.copyHeaders(request.headers(), proxyRequest.headers());
         proxyRequest.putHeader(Proxy.HEADER_API_KEY, upstream.getKey());
 
+        if (requestStream != null) {
+            streamRequestBody(proxyRequest);
+            return;
+        }
+
         Buffer proxyRequestBody = context.getRequestBody();
         proxyRequest.putHeader(HttpHeaders.CONTENT_LENGTH, Integer.toString(proxyRequestBody.length()));
 
@@ -139,6 +160,30 @@ public class RouteController implements Controller {
                 .onFailure(this::handleProxyRequestError);
     }
 
+    /**
+     * Pipes the client body to the origin with backpressure as the body arrives.
+     */
+    private void streamRequestBody(HttpClientRequest proxyRequest) {
+        String contentLength = context.getRequest().getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength == null) {
+            proxyRequest.setChunked(true);
+        } else {
+            proxyRequest.putHeader(HttpHeaders.CONTENT_LENGTH, contentLength);
+        }
+
+        requestStream.pipe()
+                .endOnFailure(false)
+                .to(proxyRequest)
+                .onFailure(error -> {
+                    log.warn("Failed to stream client body: {}", error.getMessage());
+                    proxyRequest.reset(); // drop connection, so that partial body won't seem complete
+                });
+
+        proxyRequest.response()
+                .onSuccess(this::handleProxyResponse)
+                .onFailure(this::handleProxyRequestError);
+    }
+
     /**
      * Called when proxy received the response headers from the origin.
      */
@@ -146,10 +191,19 @@ public class RouteController implements Controller {
         int responseStatusCode = proxyResponse.statusCode();
         log.info("Received response header from origin: status={}, headers={}", responseStatusCode,
                 proxyResponse.headers().size());
+        UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        upstreamRoute.responded(System.currentTimeMillis() - context.getProxyConnectTimestamp());
 
-        if (responseStatusCode == HttpStatus.TOO_MANY_REQUESTS.getCode()) {
-            UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        if (responseStatusCode == 200) {
+            upstreamRoute.succeed();
+            proxy.getRateLimiter().increase(context, context.getRoute()).onFailure(error -> log.warn("Failed to increase limit. Trace: {}. Span: {}",
+                    context.getTraceId(), context.getSpanId(), error));
+        } else {
             upstreamRoute.fail(proxyResponse);
+        }
+
+        // the streamed body can't be sent to the next upstream, the response is returned to the client as is
+        if (responseStatusCode == HttpStatus.TOO_MANY_REQUESTS.getCode() && requestStream == null) {
             // get next upstream
             if (canRetry(upstreamRoute)) {
                 sendRequest(); // try next
@@ -157,16 +211,8 @@ public class RouteController implements Controller {
             return;
         }
 
-        if (responseStatusCode == 200) {
-            context.getUpstreamRoute().succeed();
-            proxy.getRateLimiter().increase(context, context.getRoute()).onFailure(error -> log.warn("Failed to increase limit. Trace: {}. Span: {}",
-                    context.getTraceId(), context.getSpanId(), error));
-        } else {
-            context.getUpstreamRoute().fail(proxyResponse);
-        }
-
         BufferingReadStream proxyResponseStream = new BufferingReadStream(proxyResponse,
-                ProxyUtil.contentLength(proxyResponse, 1024));
+                ProxyUtil.contentLength(proxyResponse, 1024), null, proxy.getResponseRetention());
 
         context.setProxyResponse(proxyResponse);
         context.setResponseStream(proxyResponseStream);
@@ -199,9 +245,21 @@ public class RouteController implements Controller {
     private void handleResponse() {
         Buffer proxyResponseBody = context.getResponseStream().getContent();
         context.setResponseBody(proxyResponseBody);
+        if (requestStream != null) {
+            context.setRequestBody(requestStream.getContent());
+        }
+        finalizeRequest();
         proxy.getLogStore().save(context);
     }
 
+    private void finalizeRequest() {
+        UpstreamRoute upstreamRoute = context.getUpstreamRoute();
+        if (upstreamRoute != null) {
+            upstreamRoute.release();
+        }
+        context.releaseStreams();
+    }
+
     private void handleRateLimitHit(RateLimitResult result) {
         ErrorData rateLimitError = new ErrorData();
         rateLimitError.getError().setCode(String.valueOf(result.status().getCode()));
@@ -221,12 +279,14 @@ public class RouteController implements Controller {
         }
 
         context.respond(httpException);
+        finalizeRequest();
     }
 
     private void handleError(Throwable error) {
         String route = context.getRoute().getName();
         log.error("Failed to handle route {}", route, error);
         context.respond(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to process route request: " + route);
+        finalizeRequest();
     }
 
     /**
@@ -235,6 +295,7 @@ public class RouteController implements Controller {
     private void handleRequestBodyError(Throwable error) {
         log.warn("Failed to receive client body: {}", error.getMessage());
         context.respond(HttpStatus.UNPROCESSABLE_ENTITY, "Failed to receive body");
+        finalizeRequest();
     }
 
     /**
@@ -259,6 +320,12 @@ public class RouteController implements Controller {
         UpstreamRoute upstreamRoute = context.getUpstreamRoute();
         // for 5xx errors we use exponential backoff strategy, so passing retryAfterSeconds parameter makes no sense
         upstreamRoute.fail(HttpStatus.BAD_GATEWAY);
+        if (requestStream != null) {
+            // the body may be consumed partially by the origin, so the request can't be retried
+            context.respond(HttpStatus.BAD_GATEWAY, "Failed to send request to origin");
+            finalizeRequest();
+            return;
+        }
         // get next upstream
         if (canRetry(upstreamRoute)) {
             sendRequest(); // try next
@@ -272,6 +339,7 @@ public class RouteController implements Controller {
         log.warn("Can't send response to client: {}", error.getMessage());
         context.getProxyRequest().reset(); // drop connection to stop origin response
         context.getResponse().reset();     // drop connection, so that partial client response won't seem complete
+        finalizeRequest();
     }
 
     private Route selectRoute() {
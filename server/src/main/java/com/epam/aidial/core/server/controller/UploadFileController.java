@@ -44,7 +44,7 @@ public class UploadFileController extends AccessControlBaseController {
                     .uploadHandler(upload -> {
                         String contentType = upload.contentType();
                         Pipe<Buffer> pipe = new PipeImpl<>(upload).endOnFailure(false);
-                        BlobWriteStream writeStream = new BlobWriteStream(proxy.getVertx(), proxy.getResourceService(),
+                        BlobWriteStream writeStream = new BlobWriteStream(proxy.getVertx(), proxy.getWorkerAdmission(), proxy.getResourceService(),
                                 proxy.getStorage(), resource, etag, contentType);
                         pipe.to(writeStream)
                                 .onSuccess(success -> {
@@ -0,0 +1,10 @@
+package com.epam.aidial.core.server.data;
+
+/**
+ * @param status - lists the publications with the status only, applies to the public publications
+ * @param targetFolder - lists the publications to the folder or its sub-folders only, applies to the public publications
+ * @param limit - the page size, all publications are listed if not specified
+ * @param nextToken - the token from the previous page
+ */
+public record ListPublicationsRequest(String url, Publication.Status status, String targetFolder, Integer limit, String nextToken) {
+}
@@ -0,0 +1,17 @@
+package com.epam.aidial.core.server.data;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * The change of the notifications appended to the notification document of a user.
+ *
+ * @param created - the notifications to add
+ * @param deleted - the IDs of the notifications to remove
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record NotificationDelta(List<Notification> created, List<String> deleted) {
+}
@@ -1,6 +1,9 @@
 package com.epam.aidial.core.server.data;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.Collection;
 
-public record Notifications(Collection<Notification> notifications) {
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Notifications(Collection<Notification> notifications, String nextToken) {
 }
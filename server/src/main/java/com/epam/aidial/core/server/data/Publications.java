@@ -1,6 +1,9 @@
 package com.epam.aidial.core.server.data;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.Collection;
 
-public record Publications(Collection<Publication> publications) {
-}
\ No newline at end of file
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Publications(Collection<Publication> publications, String nextToken) {
+}
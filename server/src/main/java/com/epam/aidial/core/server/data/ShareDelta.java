@@ -0,0 +1,25 @@
+package com.epam.aidial.core.server.data;
+
+import com.epam.aidial.core.storage.data.ResourceAccessType;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The change of the links appended to a shared-with-me or shared-by-me document.
+ *
+ * @param action - grant adds the permissions to the links, revoke removes them
+ * @param user - the location of the user the links are shared with, used by shared-by-me documents only.
+ *             Revoking without the user removes the permissions of all users.
+ * @param links - the permissions by the URLs of the shared resources
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ShareDelta(Action action, String user, Map<String, Set<ResourceAccessType>> links) {
+
+    public enum Action {
+        GRANT, REVOKE
+    }
+}
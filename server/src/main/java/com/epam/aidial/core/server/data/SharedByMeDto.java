@@ -49,17 +49,23 @@ public class SharedByMeDto {
     }
 
     public void addUserPermissionsToResource(String url, Map<String, Set<ResourceAccessType>> userPermissions) {
-        userPermissions.forEach((user, permissions) -> {
-            for (ResourceAccessType permission : permissions) {
-                Set<String> users = getUserMapForPermission(permission)
-                        .computeIfAbsent(url, k -> new HashSet<>());
-                users.add(user);
-            }
-        });
+        userPermissions.forEach((user, permissions) -> addUserPermissionsToResource(url, user, permissions));
+    }
+
+    public void addUserPermissionsToResource(String url, String user, Set<ResourceAccessType> permissions) {
+        for (ResourceAccessType permission : permissions) {
+            Set<String> users = getUserMapForPermission(permission)
+                    .computeIfAbsent(url, k -> new HashSet<>());
+            users.add(user);
+        }
     }
 
     public void removeUserFromResource(String url, String user) {
-        for (ResourceAccessType permission : ResourceAccessType.ALL) {
+        removeUserPermissionsFromResource(url, user, ResourceAccessType.ALL);
+    }
+
+    public void removeUserPermissionsFromResource(String url, String user, Set<ResourceAccessType> permissions) {
+        for (ResourceAccessType permission : permissions) {
             Map<String, Set<String>> usersMap = getUserMapForPermission(permission);
             Set<String> users = usersMap.get(url);
             if (users != null) {
@@ -5,8 +5,28 @@ import com.epam.aidial.core.server.ProxyContext;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.vertx.core.Future;
 
+import javax.annotation.Nullable;
+
 public abstract class BaseResponseFunction extends BaseFunction<ObjectNode, Future<Void>> {
     public BaseResponseFunction(Proxy proxy, ProxyContext context) {
         super(proxy, context);
     }
+
+    /**
+     * Returns the text the raw data of the stream event must contain for the function to be applied to the event.
+     * The events without the text are forwarded without parsing.
+     *
+     * @return the text or null to apply the function to all events
+     */
+    @Nullable
+    public String getEventFilter() {
+        return null;
+    }
+
+    /**
+     * Called once the function is applied to all events of the stream.
+     */
+    public Future<Void> complete() {
+        return Future.succeededFuture();
+    }
 }
@@ -17,8 +17,18 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Shares the files attached to the response with the per-request API key.
+ * The attachments of the streaming response are collected from the events and shared at once when the stream ends.
+ */
 @Slf4j
 public class CollectResponseAttachmentsFn extends BaseResponseFunction {
+
+    // the events without the attachments are not parsed
+    private static final String EVENT_FILTER = "\"attachments\"";
+
+    private final Set<String> streamAttachments = new HashSet<>();
+
     public CollectResponseAttachmentsFn(Proxy proxy, ProxyContext context) {
         super(proxy, context);
     }
@@ -28,17 +38,34 @@ public class CollectResponseAttachmentsFn extends BaseResponseFunction {
         try {
             Set<String> result = new HashSet<>();
             ProxyUtil.collectAttachmentsFromResponse(tree, context.isStreamingRequest(), url -> processAttachedFile(url, result));
-            if (result.isEmpty()) {
+            if (context.isStreamingRequest()) {
+                streamAttachments.addAll(result);
                 return Future.succeededFuture();
             }
-            String perRequestKey = context.getApiKeyData().getPerRequestKey();
-            return proxy.getApiKeyStore().updatePerRequestApiKey(perRequestKey, json -> updateAutoSharedAttachments(json, result, perRequestKey));
+            return share(result);
         } catch (Throwable e) {
             return Future.failedFuture(e);
         }
     }
 
+    @Override
+    public String getEventFilter() {
+        return EVENT_FILTER;
+    }
+
+    @Override
+    public Future<Void> complete() {
+        return share(streamAttachments);
+    }
 
+    private Future<Void> share(Set<String> attachments) {
+        if (attachments.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        Set<String> urls = Set.copyOf(attachments);
+        String perRequestKey = context.getApiKeyData().getPerRequestKey();
+        return proxy.getApiKeyStore().updatePerRequestApiKey(perRequestKey, json -> updateAutoSharedAttachments(json, urls, perRequestKey));
+    }
 
     private String updateAutoSharedAttachments(String json, Set<String> collectedUrls, String key) {
         ApiKeyData apiKeyData = ProxyUtil.convertToObject(json, ApiKeyData.class);
@@ -11,6 +11,7 @@ import com.epam.aidial.core.server.token.TokenUsage;
 import com.epam.aidial.core.server.util.BucketBuilder;
 import com.epam.aidial.core.server.util.ProxyUtil;
 import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
+import com.epam.aidial.core.storage.data.ResourceItemMetadata;
 import com.epam.aidial.core.storage.http.HttpStatus;
 import com.epam.aidial.core.storage.resource.ResourceDescriptor;
 import com.epam.aidial.core.storage.service.ResourceService;
@@ -18,6 +19,7 @@ import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.List;
 import java.util.Map;
@@ -34,6 +36,8 @@ public class RateLimiter {
 
     private final ResourceService resourceService;
 
+    private final WorkerAdmission workerAdmission;
+
     public Future<Void> increase(ProxyContext context, RoleBasedEntity roleBasedEntity) {
         try {
             // skip checking limits if redis is not available
@@ -49,6 +53,7 @@ public class RateLimiter {
 
             String tokensPath = getPathToTokens(roleBasedEntity.getName());
             ResourceDescriptor resourceDescription = getResourceDescription(context, tokensPath);
+            // the usage of the completed request is recorded regardless of the load
             return vertx.executeBlocking(() -> updateTokenLimit(resourceDescription, usage.getTotalTokens()), false);
         } catch (Throwable e) {
             return Future.failedFuture(e);
@@ -73,7 +78,7 @@ public class RateLimiter {
                 return Future.succeededFuture(new RateLimitResult(HttpStatus.FORBIDDEN, "Access denied", -1));
             }
 
-            return vertx.executeBlocking(() -> checkLimit(context, limit, roleBasedEntity), false);
+            return workerAdmission.execute(WorkerAdmission.Category.RATE_LIMIT, () -> checkLimit(context, limit, roleBasedEntity));
         } catch (Throwable e) {
             return Future.failedFuture(e);
         }
@@ -86,7 +91,7 @@ public class RateLimiter {
                 return Future.succeededFuture();
             }
             Limit limit = getLimitByUser(context, roleBasedEntity);
-            return vertx.executeBlocking(() -> getLimitStats(context, limit, roleBasedEntity.getName()), false);
+            return workerAdmission.execute(WorkerAdmission.Category.RATE_LIMIT, () -> getLimitStats(context, limit, roleBasedEntity.getName()));
         } catch (Throwable e) {
             return Future.failedFuture(e);
         }
@@ -95,31 +100,25 @@ public class RateLimiter {
     private LimitStats getLimitStats(ProxyContext context, Limit limit, String name) {
         LimitStats limitStats = create(limit);
         long timestamp = System.currentTimeMillis();
-        collectTokenLimitStats(context, limitStats, timestamp, name);
-        collectRequestLimitStats(context, limitStats, timestamp, name);
-        return limitStats;
-    }
+        ResourceDescriptor tokensResource = getResourceDescription(context, getPathToTokens(name));
+        ResourceDescriptor requestsResource = getResourceDescription(context, getPathToRequests(name));
+        List<Pair<ResourceItemMetadata, String>> resources = resourceService.getResources(List.of(tokensResource, requestsResource));
 
-    private void collectTokenLimitStats(ProxyContext context, LimitStats limitStats, long timestamp, String name) {
-        String tokensPath = getPathToTokens(name);
-        ResourceDescriptor resourceDescription = getResourceDescription(context, tokensPath);
-        String json = resourceService.getResource(resourceDescription);
-        TokenRateLimit rateLimit = ProxyUtil.convertToObject(json, TokenRateLimit.class);
-        if (rateLimit == null) {
-            return;
+        TokenRateLimit tokenRateLimit = convert(resources.get(0), TokenRateLimit.class);
+        if (tokenRateLimit != null) {
+            tokenRateLimit.update(timestamp, limitStats);
         }
-        rateLimit.update(timestamp, limitStats);
-    }
 
-    private void collectRequestLimitStats(ProxyContext context, LimitStats limitStats, long timestamp, String name) {
-        String requestsPath = getPathToRequests(name);
-        ResourceDescriptor resourceDescription = getResourceDescription(context, requestsPath);
-        String json = resourceService.getResource(resourceDescription);
-        RequestRateLimit rateLimit = ProxyUtil.convertToObject(json, RequestRateLimit.class);
-        if (rateLimit == null) {
-            return;
+        RequestRateLimit requestRateLimit = convert(resources.get(1), RequestRateLimit.class);
+        if (requestRateLimit != null) {
+            requestRateLimit.update(timestamp, limitStats);
         }
-        rateLimit.update(timestamp, limitStats);
+
+        return limitStats;
+    }
+
+    private static <T> T convert(Pair<ResourceItemMetadata, String> resource, Class<T> clazz) {
+        return (resource == null) ? null : ProxyUtil.convertToObject(resource.getValue(), clazz);
     }
 
     private LimitStats create(Limit limit) {
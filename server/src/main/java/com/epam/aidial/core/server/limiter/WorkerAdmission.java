@@ -0,0 +1,272 @@
+package com.epam.aidial.core.server.limiter;
+
+import com.epam.aidial.core.storage.http.HttpException;
+import com.epam.aidial.core.storage.http.HttpStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits the blocking storage work of the requests to the worker pool.
+ * <p>
+ * At most {@code concurrency} tasks run at once, the rest wait in the bounded queues of their categories
+ * and are dispatched in the order of the category priority, so the checks on the path of completions run ahead of listings.
+ * A task is rejected with 503 and Retry-After if the queue of its category is full, if the expected wait exceeds the max wait
+ * of the category or once the task has waited for the max wait in the queue.
+ * </p>
+ * The work of the requests already in flight, e.g. token usage accounting, bypasses the admission.
+ */
+public class WorkerAdmission {
+
+    // the weight of the last task in the average execution time
+    private static final double EWMA_WEIGHT = 0.1;
+
+    /**
+     * The categories of the blocking work ordered by priority.
+     */
+    public enum Category {
+        RATE_LIMIT("rateLimit"),
+        API_KEY("apiKey"),
+        UPLOAD("upload"),
+        LISTING("listing");
+
+        @Getter
+        private final String key;
+
+        Category(String key) {
+            this.key = key;
+        }
+    }
+
+    private final Vertx vertx;
+    @Getter
+    private final boolean enabled;
+    private final int concurrency;
+    private final int[] maxQueue = new int[Category.values().length];
+    private final long[] maxWait = new long[Category.values().length];
+    private final Timer[] waitTimers = new Timer[Category.values().length];
+    private final Counter[] queueRejections = new Counter[Category.values().length];
+    private final Counter[] deadlineRejections = new Counter[Category.values().length];
+
+    // guarded by this
+    private final PriorityQueue<Task<?>> queue = new PriorityQueue<>(
+            Comparator.<Task<?>>comparingInt(task -> task.category.ordinal()).thenComparingLong(task -> task.sequence));
+    private final int[] queued = new int[Category.values().length];
+    private long sequence;
+    private int running;
+    // sum of the admission times of the running tasks in nanoseconds since the origin
+    private long runningSince;
+    // average execution time of the tasks in nanoseconds
+    private double averageTime;
+    private final long origin = System.nanoTime();
+
+    public WorkerAdmission(Vertx vertx, MeterRegistry registry, JsonObject settings) {
+        this.vertx = vertx;
+        this.enabled = settings.getBoolean("enabled", false);
+        this.concurrency = settings.getInteger("concurrency", 24);
+
+        JsonObject categories = settings.getJsonObject("categories", new JsonObject());
+        for (Category category : Category.values()) {
+            int index = category.ordinal();
+            JsonObject limits = categories.getJsonObject(category.getKey(), new JsonObject());
+            maxQueue[index] = limits.getInteger("maxQueue", 256);
+            maxWait[index] = TimeUnit.MILLISECONDS.toNanos(limits.getLong("maxWait", 5000L));
+
+            waitTimers[index] = Timer.builder("aidial.workers.queue.wait")
+                    .description("Time the blocking tasks waited for a worker")
+                    .tag("category", category.getKey())
+                    .register(registry);
+            queueRejections[index] = Counter.builder("aidial.workers.rejected")
+                    .description("Blocking tasks rejected with 503")
+                    .tag("category", category.getKey())
+                    .tag("reason", "queue")
+                    .register(registry);
+            deadlineRejections[index] = Counter.builder("aidial.workers.rejected")
+                    .description("Blocking tasks rejected with 503")
+                    .tag("category", category.getKey())
+                    .tag("reason", "deadline")
+                    .register(registry);
+            Gauge.builder("aidial.workers.queued", this, admission -> admission.getQueued(category))
+                    .description("Blocking tasks waiting for a worker")
+                    .tag("category", category.getKey())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Runs the blocking task on the worker pool once admitted.
+     *
+     * @return the future of the task result, failed with {@link HttpException} 503 if the task is rejected.
+     */
+    public <T> Future<T> execute(Category category, Callable<T> callable) {
+        if (!enabled) {
+            return vertx.executeBlocking(callable, false);
+        }
+
+        Context context = vertx.getOrCreateContext();
+        Task<T> task;
+        long expectedWait = 0;
+
+        synchronized (this) {
+            task = new Task<>(category, callable, context, System.nanoTime(), sequence++);
+            int index = category.ordinal();
+
+            if (running < concurrency) {
+                admit(task, task.queuedAt);
+            } else {
+                expectedWait = expectedWait(category, task.queuedAt);
+                if (queued[index] >= maxQueue[index] || expectedWait > maxWait[index]) {
+                    task = null;
+                } else {
+                    queued[index]++;
+                    queue.add(task);
+                    Task<T> queuedTask = task;
+                    task.timerId = vertx.setTimer(Math.max(1, TimeUnit.NANOSECONDS.toMillis(maxWait[index])), ignore -> expire(queuedTask));
+                    return task.promise.future();
+                }
+            }
+        }
+
+        if (task == null) {
+            queueRejections[category.ordinal()].increment();
+            return Future.failedFuture(rejection(Math.max(expectedWait, maxWait[category.ordinal()])));
+        }
+
+        dispatch(task);
+        return task.promise.future();
+    }
+
+    synchronized int getQueued(Category category) {
+        return queued[category.ordinal()];
+    }
+
+    private <T> void dispatch(Task<T> task) {
+        task.context.executeBlocking(() -> {
+            long started = System.nanoTime();
+            waitTimers[task.category.ordinal()].record(started - task.queuedAt, TimeUnit.NANOSECONDS);
+            try {
+                return task.callable.call();
+            } finally {
+                release(task, System.nanoTime() - started);
+            }
+        }, false).onComplete(task.promise);
+    }
+
+    // guarded by this
+    private void admit(Task<?> task, long now) {
+        running++;
+        task.admittedAt = now;
+        runningSince += now - origin;
+    }
+
+    /**
+     * Frees the worker of the completed task for the next admitted one, the tasks waited longer than the max wait are rejected.
+     */
+    private void release(Task<?> completed, long time) {
+        List<Task<?>> expired = new ArrayList<>();
+        Task<?> next;
+
+        synchronized (this) {
+            averageTime += (time - averageTime) * EWMA_WEIGHT;
+            running--;
+            runningSince -= completed.admittedAt - origin;
+            long now = System.nanoTime();
+
+            while ((next = queue.poll()) != null) {
+                int index = next.category.ordinal();
+                queued[index]--;
+                vertx.cancelTimer(next.timerId);
+                if (now - next.queuedAt <= maxWait[index]) {
+                    admit(next, now);
+                    break;
+                }
+                expired.add(next);
+            }
+        }
+
+        expired.forEach(this::reject);
+
+        if (next != null) {
+            dispatch(next);
+        }
+    }
+
+    /**
+     * Rejects the task once it has waited for the max wait in the queue, the task dispatched meanwhile is left as is.
+     */
+    private void expire(Task<?> task) {
+        synchronized (this) {
+            if (!queue.remove(task)) {
+                return;
+            }
+            queued[task.category.ordinal()]--;
+        }
+
+        reject(task);
+    }
+
+    private void reject(Task<?> task) {
+        long waited = System.nanoTime() - task.queuedAt;
+        deadlineRejections[task.category.ordinal()].increment();
+        waitTimers[task.category.ordinal()].record(waited, TimeUnit.NANOSECONDS);
+        task.context.runOnContext(ignore -> task.promise.fail(rejection(waited)));
+    }
+
+    /**
+     * The tasks running longer than the average, e.g. stuck on the slow storage, stretch the expected time of a task
+     * before the average catches up on their completion.
+     *
+     * @return the expected wait in nanoseconds of the task behind the queued tasks of the same or higher priority
+     */
+    private long expectedWait(Category category, long now) {
+        int ahead = 0;
+        for (int i = 0; i <= category.ordinal(); i++) {
+            ahead += queued[i];
+        }
+
+        double elapsed = (running == 0) ? 0 : (double) (running * (now - origin) - runningSince) / running;
+        return (long) ((ahead + 1) * Math.max(averageTime, elapsed) / concurrency);
+    }
+
+    private static HttpException rejection(long wait) {
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+        return new HttpException(HttpStatus.SERVICE_UNAVAILABLE, "Server is overloaded",
+                Map.of(HttpHeaders.RETRY_AFTER.toString(), Long.toString(retryAfter)));
+    }
+
+    private static class Task<T> {
+        private final Category category;
+        private final Callable<T> callable;
+        private final Context context;
+        private final Promise<T> promise = Promise.promise();
+        private final long queuedAt;
+        private final long sequence;
+        // guarded by the admission
+        private long admittedAt;
+        private long timerId;
+
+        Task(Category category, Callable<T> callable, Context context, long queuedAt, long sequence) {
+            this.category = category;
+            this.callable = callable;
+            this.context = context;
+            this.queuedAt = queuedAt;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -31,10 +32,19 @@ import java.util.stream.Collectors;
 
 public class AccessService {
 
+    /**
+     * Max number of cached admin access decisions. The decisions are dropped once the limit is reached.
+     */
+    private static final int MAX_ADMIN_DECISIONS = 16384;
+
     private final EncryptionService encryptionService;
     private final ShareService shareService;
     private final RuleService ruleService;
-    private final List<Rule> adminRules;
+    private final CompiledRules adminRules;
+    /**
+     * Admin rules are static, so the decisions are cached per claims for the lifetime of the service.
+     */
+    private final Map<ClaimsFingerprint, Boolean> adminDecisions = new ConcurrentHashMap<>();
     private final List<PermissionRule> permissionRules = List.of(
             AccessService::getOwnResourcesAccess,
             this::getAdminAccess,
@@ -52,7 +62,7 @@ public class AccessService {
         this.encryptionService = encryptionService;
         this.shareService = shareService;
         this.ruleService = ruleService;
-        this.adminRules = adminRules(settings);
+        this.adminRules = CompiledRules.compile(adminRules(settings));
     }
 
     public boolean hasReadAccess(ResourceDescriptor resource, ProxyContext context) {
@@ -248,7 +258,21 @@ public class AccessService {
     }
 
     public boolean hasAdminAccess(ProxyContext context) {
-        return RuleMatcher.match(context, adminRules);
+        ClaimsFingerprint claims = ClaimsFingerprint.of(context.getExtractedClaims());
+        if (claims == null || adminRules.isEmpty()) {
+            return RuleMatcher.match(context, adminRules);
+        }
+
+        Boolean decision = adminDecisions.get(claims);
+        if (decision == null) {
+            decision = RuleMatcher.match(context, adminRules);
+            if (adminDecisions.size() >= MAX_ADMIN_DECISIONS) {
+                adminDecisions.clear();
+            }
+            adminDecisions.put(claims, decision);
+        }
+
+        return decision;
     }
 
     public void filterForbidden(ProxyContext context, ResourceDescriptor descriptor, MetadataBase metadata) {
@@ -4,6 +4,7 @@ import com.epam.aidial.core.config.Key;
 import com.epam.aidial.core.server.config.FileConfigStore;
 import com.epam.aidial.core.server.data.ApiKeyData;
 import com.epam.aidial.core.server.data.ResourceTypes;
+import com.epam.aidial.core.server.limiter.WorkerAdmission;
 import com.epam.aidial.core.server.util.ProxyUtil;
 import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
 import com.epam.aidial.core.storage.http.HttpException;
@@ -40,9 +41,12 @@ public class ApiKeyStore {
 
     private final Vertx vertx;
 
-    public ApiKeyStore(ResourceService resourceService, Vertx vertx) {
+    private final WorkerAdmission workerAdmission;
+
+    public ApiKeyStore(ResourceService resourceService, Vertx vertx, WorkerAdmission workerAdmission) {
         this.resourceService = resourceService;
         this.vertx = vertx;
+        this.workerAdmission = workerAdmission;
     }
 
     /**
@@ -95,12 +99,14 @@ public class ApiKeyStore {
             return Future.succeededFuture(apiKeyData);
         }
         ResourceDescriptor resource = toResource(key);
-        return vertx.executeBlocking(() -> ProxyUtil.convertToObject(resourceService.getResource(resource), ApiKeyData.class), false).compose(result -> {
-            if (result == null) {
-                return Future.failedFuture(new HttpException(HttpStatus.UNAUTHORIZED, "Unknown api key"));
-            }
-            return Future.succeededFuture(result);
-        });
+        return workerAdmission.execute(WorkerAdmission.Category.API_KEY,
+                        () -> ProxyUtil.convertToObject(resourceService.getResource(resource), ApiKeyData.class))
+                .compose(result -> {
+                    if (result == null) {
+                        return Future.failedFuture(new HttpException(HttpStatus.UNAUTHORIZED, "Unknown api key"));
+                    }
+                    return Future.succeededFuture(result);
+                });
     }
 
     /**
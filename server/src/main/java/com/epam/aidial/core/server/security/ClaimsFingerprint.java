@@ -0,0 +1,52 @@
+package com.epam.aidial.core.server.security;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Key of the claims rules are evaluated against. Identities with the same roles and claims share the same fingerprint,
+ * so rule decisions can be cached per fingerprint.
+ */
+public final class ClaimsFingerprint {
+
+    private final List<String> userRoles;
+    private final Map<String, List<String>> userClaims;
+    private final int hash;
+
+    private ClaimsFingerprint(List<String> userRoles, Map<String, List<String>> userClaims) {
+        this.userRoles = userRoles;
+        this.userClaims = userClaims;
+        this.hash = Objects.hash(userRoles, userClaims);
+    }
+
+    /**
+     * @return the fingerprint of the claims or null if there are no claims
+     */
+    @Nullable
+    public static ClaimsFingerprint of(@Nullable ExtractedClaims claims) {
+        if (claims == null) {
+            return null;
+        }
+        return new ClaimsFingerprint(claims.userRoles(), claims.userClaims());
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof ClaimsFingerprint that)) {
+            return false;
+        }
+        return hash == that.hash
+                && Objects.equals(userRoles, that.userRoles)
+                && Objects.equals(userClaims, that.userClaims);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
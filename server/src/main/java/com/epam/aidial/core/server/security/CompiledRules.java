@@ -0,0 +1,149 @@
+package com.epam.aidial.core.server.security;
+
+import com.epam.aidial.core.server.data.Rule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.Nullable;
+
+/**
+ * Rules compiled for evaluation: regular expressions are compiled and targets are lower-cased once.
+ * The instance is immutable and can be shared between threads.
+ */
+public final class CompiledRules {
+
+    private static final CompiledRules EMPTY = new CompiledRules(List.of());
+
+    private final List<CompiledRule> rules;
+
+    private CompiledRules(List<CompiledRule> rules) {
+        this.rules = rules;
+    }
+
+    public static CompiledRules compile(Collection<Rule> rules) {
+        if (rules.isEmpty()) {
+            return EMPTY;
+        }
+        List<CompiledRule> compiled = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            compiled.add(new CompiledRule(rule));
+        }
+        return new CompiledRules(List.copyOf(compiled));
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * @return true if any of the rules matched (OR condition behaviour) or there are no rules, otherwise - false
+     */
+    public boolean match(@Nullable ExtractedClaims claims) {
+        // if no rules provided - resource is available to everybody
+        if (rules.isEmpty()) {
+            return true;
+        }
+
+        if (claims == null) {
+            return false;
+        }
+
+        Map<String, List<String>> userClaims = claims.userClaims();
+
+        for (CompiledRule rule : rules) {
+            List<String> sources = rule.roles ? claims.userRoles() : userClaims.get(rule.source);
+            if (sources != null && rule.match(sources)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static final class CompiledRule {
+
+        final String source;
+        final boolean roles;
+        final Rule.Function function;
+        final List<String> targets;
+        final String[] lowerCaseTargets;
+        final Pattern[] patterns;
+        // invalid regular expression fails the evaluation of the rule rather than the compilation of the whole rule set
+        final PatternSyntaxException error;
+
+        CompiledRule(Rule rule) {
+            this.source = rule.getSource();
+            this.roles = "roles".equals(source);
+            this.function = rule.getFunction();
+            this.targets = (rule.getTargets() == null) ? List.of() : List.copyOf(rule.getTargets());
+            this.lowerCaseTargets = (function == Rule.Function.CONTAIN)
+                    ? targets.stream().map(String::toLowerCase).toArray(String[]::new)
+                    : null;
+            Pattern[] patterns = null;
+            PatternSyntaxException error = null;
+            if (function == Rule.Function.REGEX) {
+                try {
+                    patterns = targets.stream().map(Pattern::compile).toArray(Pattern[]::new);
+                } catch (PatternSyntaxException e) {
+                    error = e;
+                }
+            }
+            this.patterns = patterns;
+            this.error = error;
+        }
+
+        boolean match(List<String> sources) {
+            return switch (function) {
+                case TRUE -> true;
+                case FALSE -> false;
+                case EQUAL -> equal(sources);
+                case CONTAIN -> contain(sources);
+                case REGEX -> regex(sources);
+            };
+        }
+
+        private boolean equal(List<String> sources) {
+            for (String target : targets) {
+                for (String source : sources) {
+                    if (source.equalsIgnoreCase(target)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        private boolean contain(List<String> sources) {
+            for (String source : sources) {
+                String value = source.toLowerCase();
+                for (String target : lowerCaseTargets) {
+                    if (value.contains(target)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        private boolean regex(List<String> sources) {
+            if (error != null) {
+                throw error;
+            }
+            for (Pattern pattern : patterns) {
+                for (String source : sources) {
+                    if (pattern.matcher(source).matches()) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+}
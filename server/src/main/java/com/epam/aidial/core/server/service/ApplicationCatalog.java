@@ -0,0 +1,321 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.config.Application;
+import com.epam.aidial.core.server.data.ResourceTypes;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
+import com.epam.aidial.core.storage.data.MetadataBase;
+import com.epam.aidial.core.storage.data.NodeType;
+import com.epam.aidial.core.storage.data.ResourceEvent;
+import com.epam.aidial.core.storage.data.ResourceFolderMetadata;
+import com.epam.aidial.core.storage.data.ResourceItemMetadata;
+import com.epam.aidial.core.storage.resource.ResourceDescriptor;
+import com.epam.aidial.core.storage.service.ResourceService;
+import com.epam.aidial.core.storage.service.ResourceTopic;
+import com.epam.aidial.core.storage.util.EtagHeader;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * In-memory index of the applications stored in the public bucket and user buckets.
+ * <p>
+ * A bucket is indexed in the background on the first listing, the callers fall back to the folder walk until the index is built.
+ * The index is updated incrementally from resource events and from the writes made by {@link ApplicationService} on this node.
+ * Events are delivered at most once, so the index is also rebuilt in the background when it gets older than the refresh period.
+ * </p>
+ */
+@Slf4j
+public class ApplicationCatalog {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final Vertx vertx;
+    private final ResourceService resourceService;
+    private final int maxBuckets;
+    private final long refreshPeriod;
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+    // orders the loads of the same application, the state read by the later load wins
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong accesses = new AtomicLong();
+
+    public ApplicationCatalog(Vertx vertx, ResourceService resourceService, JsonObject settings) {
+        this.vertx = vertx;
+        this.resourceService = resourceService;
+        this.maxBuckets = settings.getInteger("maxBuckets", 1024);
+        this.refreshPeriod = settings.getLong("refreshPeriod", 300000L);
+    }
+
+    /**
+     * Lists the applications in the folder and its sub-folders from the index of the bucket.
+     * The applications are shared between the callers and must not be modified.
+     *
+     * @param build - whether to start indexing the bucket if it is not indexed yet
+     * @return the listing or null if the bucket is not indexed yet
+     */
+    @Nullable
+    public Listing list(ResourceDescriptor folder, boolean build) {
+        if (!folder.isFolder() || folder.getType() != ResourceTypes.APPLICATION) {
+            throw new IllegalArgumentException("Invalid application folder: " + folder.getUrl());
+        }
+
+        ResourceDescriptor root = ResourceDescriptorFactory.fromDecoded(ResourceTypes.APPLICATION,
+                folder.getBucketName(), folder.getBucketLocation(), null);
+        long now = System.currentTimeMillis();
+        Index index = indexes.get(root.getUrl());
+
+        if (index == null) {
+            if (build) {
+                index = indexes.computeIfAbsent(root.getUrl(), key -> new Index(root));
+                index.accessedAt = accesses.incrementAndGet();
+                evict();
+                scheduleBuild(index);
+            }
+            return null;
+        }
+
+        index.accessedAt = accesses.incrementAndGet();
+        NavigableMap<String, Entry> entries = index.entries;
+
+        if (entries == null) {
+            return null;
+        }
+
+        if (now - index.builtAt >= refreshPeriod) {
+            scheduleBuild(index);
+        }
+
+        long version = index.version.get();
+        String from = folder.getUrl();
+        Map<String, Application> applications = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Entry> entry : entries.subMap(from, true, from + Character.MAX_VALUE, false).entrySet()) {
+            Application application = entry.getValue().application();
+            if (application != null) {
+                applications.put(entry.getKey(), application);
+            }
+        }
+
+        return new Listing(version, applications);
+    }
+
+    /**
+     * Reloads the application into the index of its bucket if the bucket is indexed.
+     * Called after the application is changed on this node to make the change visible to the following listings.
+     */
+    public void reload(ResourceDescriptor resource) {
+        ResourceDescriptor root = ResourceDescriptorFactory.fromDecoded(ResourceTypes.APPLICATION,
+                resource.getBucketName(), resource.getBucketLocation(), null);
+        Index index = indexes.get(root.getUrl());
+
+        if (index != null) {
+            try {
+                reload(index, resource.getUrl());
+            } catch (Throwable e) {
+                log.warn("Failed to reload application: {}", resource.getUrl(), e);
+            }
+        }
+    }
+
+    private Void reload(Index index, String url) {
+        long seq = sequence.incrementAndGet();
+
+        synchronized (index) {
+            if (index.pending != null) {
+                index.pending.add(url);
+            }
+        }
+
+        NavigableMap<String, Entry> entries = index.entries;
+        if (entries != null) {
+            apply(index, entries, url, load(index.root.resolveByUrl(url), seq));
+        }
+
+        return null;
+    }
+
+    private void handle(Index index, ResourceEvent event) {
+        NavigableMap<String, Entry> entries = index.entries;
+        Entry entry = (entries == null) ? null : entries.get(event.getUrl());
+
+        // the change made on this node is already applied
+        if (entry != null && !index.building.get()) {
+            boolean deleted = event.getAction() == ResourceEvent.Action.DELETE;
+            if (deleted ? entry.application() == null : Objects.equals(entry.etag(), event.getEtag())) {
+                return;
+            }
+        }
+
+        vertx.executeBlocking(() -> reload(index, event.getUrl()), false)
+                .onFailure(error -> log.warn("Failed to reload application: {}", event.getUrl(), error));
+    }
+
+    private void scheduleBuild(Index index) {
+        if (index.building.compareAndSet(false, true)) {
+            vertx.executeBlocking(() -> build(index), false)
+                    .onFailure(error -> {
+                        index.building.set(false);
+                        log.warn("Failed to index applications: {}", index.root.getUrl(), error);
+                    });
+        }
+    }
+
+    private Void build(Index index) {
+        long builtAt = System.currentTimeMillis();
+        long seq = sequence.incrementAndGet();
+
+        synchronized (index) {
+            index.pending = new ArrayList<>();
+        }
+
+        NavigableMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+        List<String> pending;
+
+        try {
+            String nextToken = null;
+            do {
+                ResourceFolderMetadata folder = resourceService.getFolderMetadata(index.root, nextToken, PAGE_SIZE, true);
+                if (folder == null) {
+                    break;
+                }
+
+                List<ResourceDescriptor> items = new ArrayList<>();
+                for (MetadataBase meta : folder.getItems()) {
+                    if (meta.getNodeType() == NodeType.ITEM && meta.getResourceType() == ResourceTypes.APPLICATION) {
+                        items.add(index.root.resolveByUrl(meta.getUrl()));
+                    }
+                }
+
+                List<Pair<ResourceItemMetadata, String>> results = resourceService.getResources(items);
+                for (int i = 0; i < items.size(); i++) {
+                    Entry entry = toEntry(results.get(i), seq);
+                    if (entry.application() != null) {
+                        entries.put(items.get(i).getUrl(), entry);
+                    }
+                }
+
+                nextToken = folder.getNextToken();
+            } while (nextToken != null);
+        } finally {
+            synchronized (index) {
+                pending = index.pending;
+                index.pending = null;
+            }
+        }
+
+        index.entries = entries;
+        index.builtAt = builtAt;
+        index.version.incrementAndGet();
+        index.building.set(false);
+
+        // the applications changed during the build might have been read before the change
+        for (String url : pending) {
+            apply(index, entries, url, load(index.root.resolveByUrl(url), sequence.incrementAndGet()));
+        }
+
+        log.debug("Indexed {} applications in {}", entries.size(), index.root.getUrl());
+        return null;
+    }
+
+    private Entry load(ResourceDescriptor resource, long seq) {
+        return toEntry(resourceService.getResourceWithMetadata(resource, EtagHeader.ANY), seq);
+    }
+
+    private static Entry toEntry(@Nullable Pair<ResourceItemMetadata, String> result, long seq) {
+        Application application = (result == null) ? null : ProxyUtil.convertToObject(result.getValue(), Application.class);
+        String etag = (application == null) ? null : result.getKey().getEtag();
+        return new Entry(seq, etag, application);
+    }
+
+    private static void apply(Index index, NavigableMap<String, Entry> entries, String url, Entry entry) {
+        Entry result = entries.merge(url, entry, (previous, next) -> (next.seq() > previous.seq()) ? next : previous);
+        if (result == entry) {
+            index.version.incrementAndGet();
+        }
+    }
+
+    private void evict() {
+        while (indexes.size() > maxBuckets) {
+            Index eldest = null;
+            for (Index index : indexes.values()) {
+                if (eldest == null || index.accessedAt < eldest.accessedAt) {
+                    eldest = index;
+                }
+            }
+
+            if (eldest == null || !indexes.remove(eldest.root.getUrl(), eldest)) {
+                continue;
+            }
+
+            eldest.subscription.close();
+        }
+    }
+
+    /**
+     * @param version - changes whenever the indexed applications of the bucket change
+     * @param applications - the applications by their URLs in the URL order
+     */
+    public record Listing(long version, Map<String, Application> applications) {
+
+        public List<MetadataBase> items() {
+            List<MetadataBase> items = new ArrayList<>(applications.size());
+            for (String url : applications.keySet()) {
+                items.add(new ResourceItemMetadata().setUrl(url));
+            }
+            return items;
+        }
+
+        /**
+         * @return the listing without the applications which are not present in the items
+         */
+        public List<Application> filter(List<? extends MetadataBase> items) {
+            List<Application> result = new ArrayList<>(items.size());
+            for (MetadataBase item : items) {
+                Application application = applications.get(item.getUrl());
+                if (application != null) {
+                    result.add(application);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @param seq - the sequence number of the load
+     * @param application - the application or null if the application is deleted
+     */
+    private record Entry(long seq, @Nullable String etag, @Nullable Application application) {
+    }
+
+    private final class Index {
+
+        final ResourceDescriptor root;
+        final ResourceTopic.PrefixSubscription subscription;
+        final AtomicLong version = new AtomicLong();
+        final AtomicBoolean building = new AtomicBoolean();
+        volatile NavigableMap<String, Entry> entries;
+        volatile long builtAt;
+        // the number of the last access to evict the least recently listed indexes
+        volatile long accessedAt;
+        // the applications changed while the index is being built, guarded by the index
+        List<String> pending;
+
+        Index(ResourceDescriptor root) {
+            this.root = root;
+            this.subscription = resourceService.subscribeFolder(root, event -> handle(this, event));
+        }
+    }
+}
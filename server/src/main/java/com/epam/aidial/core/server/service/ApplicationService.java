@@ -41,7 +41,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 
 @Slf4j
 public class ApplicationService {
@@ -60,6 +62,8 @@ public class ApplicationService {
     private final int checkSize;
     @Getter
     private final boolean includeCustomApps;
+    @Nullable
+    private final ApplicationCatalog catalog;
 
     public ApplicationService(Vertx vertx,
                               HttpClient httpClient,
@@ -82,6 +86,9 @@ public class ApplicationService {
         this.checkSize = settings.getInteger("checkSize", 64);
         this.includeCustomApps = settings.getBoolean("includeCustomApps", false);
 
+        JsonObject catalogSettings = settings.getJsonObject("catalog", new JsonObject());
+        this.catalog = catalogSettings.getBoolean("enabled", true) ? new ApplicationCatalog(vertx, resourceService, catalogSettings) : null;
+
         if (controller.isActive()) {
             long checkPeriod = settings.getLong("checkPeriod", 300000L);
             vertx.setPeriodic(checkPeriod, checkPeriod, ignore -> vertx.executeBlocking(this::checkApplications));
@@ -111,6 +118,11 @@ public class ApplicationService {
         String bucket = encryptionService.encrypt(location);
 
         ResourceDescriptor folder = ResourceDescriptorFactory.fromDecoded(ResourceTypes.APPLICATION, bucket, location, null);
+        ApplicationCatalog.Listing listing = (catalog == null) ? null : catalog.list(folder, true);
+        if (listing != null) {
+            return new ArrayList<>(listing.applications().values());
+        }
+
         return getApplications(folder);
     }
 
@@ -126,23 +138,47 @@ public class ApplicationService {
         Set<MetadataBase> metadata = response.getResources();
 
         List<Application> list = new ArrayList<>();
+        List<ResourceDescriptor> items = new ArrayList<>();
 
         for (MetadataBase meta : metadata) {
             ResourceDescriptor resource = ResourceDescriptorFactory.fromAnyUrl(meta.getUrl(), encryptionService);
 
             if (meta instanceof ResourceItemMetadata) {
-                list.add(getApplication(resource).getValue());
+                verifyApplication(resource);
+                items.add(resource);
             } else {
-                list.addAll(getApplications(resource));
+                // the shared folders are served from the index only if the owner's bucket is already indexed
+                ApplicationCatalog.Listing listing = (catalog == null) ? null : catalog.list(resource, false);
+                list.addAll((listing == null) ? getApplications(resource) : listing.applications().values());
             }
         }
 
+        List<Pair<ResourceItemMetadata, String>> results = resourceService.getResources(items);
+        for (int i = 0; i < items.size(); i++) {
+            Pair<ResourceItemMetadata, String> result = results.get(i);
+            Application application = (result == null) ? null : ProxyUtil.convertToObject(result.getValue(), Application.class);
+
+            if (application == null) {
+                throw new ResourceNotFoundException("Application is not found: " + items.get(i).getUrl());
+            }
+
+            list.add(application);
+        }
+
         return list;
     }
 
     public List<Application> getPublicApplications(ProxyContext context) {
         ResourceDescriptor folder = ResourceDescriptorFactory.fromDecoded(ResourceTypes.APPLICATION, ResourceDescriptor.PUBLIC_BUCKET, ResourceDescriptor.PUBLIC_LOCATION, null);
         AccessService accessService = context.getProxy().getAccessService();
+        ApplicationCatalog.Listing listing = (catalog == null) ? null : catalog.list(folder, true);
+
+        if (listing != null) {
+            ResourceFolderMetadata page = new ResourceFolderMetadata(folder, listing.items(), null);
+            accessService.filterForbidden(context, folder, page);
+            return listing.filter(page.getItems());
+        }
+
         return getApplications(folder, page -> accessService.filterForbidden(context, folder, page));
     }
 
@@ -190,15 +226,18 @@ public class ApplicationService {
 
             filter.accept(folder);
 
+            List<ResourceDescriptor> items = new ArrayList<>();
             for (MetadataBase meta : folder.getItems()) {
                 if (meta.getNodeType() == NodeType.ITEM && meta.getResourceType() == ResourceTypes.APPLICATION) {
-                    try {
-                        ResourceDescriptor item = ResourceDescriptorFactory.fromAnyUrl(meta.getUrl(), encryptionService);
-                        Application application = getApplication(item).getValue();
-                        applications.add(application);
-                    } catch (ResourceNotFoundException ignore) {
-                        // deleted while fetching
-                    }
+                    items.add(ResourceDescriptorFactory.fromAnyUrl(meta.getUrl(), encryptionService));
+                }
+            }
+
+            for (Pair<ResourceItemMetadata, String> result : resourceService.getResources(items)) {
+                // null if deleted while fetching
+                Application application = (result == null) ? null : ProxyUtil.convertToObject(result.getValue(), Application.class);
+                if (application != null) {
+                    applications.add(application);
                 }
             }
 
@@ -211,7 +250,7 @@ public class ApplicationService {
     public Pair<ResourceItemMetadata, Application> putApplication(ResourceDescriptor resource, EtagHeader etag, Application application) {
         prepareApplication(resource, application);
 
-        ResourceItemMetadata meta = resourceService.computeResource(resource, etag, json -> {
+        ResourceItemMetadata meta = computeApplication(resource, etag, json -> {
             Application existing = ProxyUtil.convertToObject(json, Application.class);
             Application.Function function = application.getFunction();
 
@@ -253,7 +292,7 @@ public class ApplicationService {
         verifyApplication(resource);
         MutableObject<Application> reference = new MutableObject<>();
 
-        resourceService.computeResource(resource, etag, json -> {
+        computeApplication(resource, etag, json -> {
             Application application = ProxyUtil.convertToObject(json, Application.class);
 
             if (application == null) {
@@ -289,7 +328,7 @@ public class ApplicationService {
         boolean isPublicOrReview = isPublicOrReview(destination);
         String sourceFolder = (function == null) ? null : function.getSourceFolder();
 
-        resourceService.computeResource(destination, etag, json -> {
+        computeApplication(destination, etag, json -> {
             Application existing = ProxyUtil.convertToObject(json, Application.class);
 
             if (function != null) {
@@ -336,7 +375,7 @@ public class ApplicationService {
         controller.verifyActive();
 
         MutableObject<Application> result = new MutableObject<>();
-        resourceService.computeResource(resource, json -> {
+        computeApplication(resource, json -> {
             Application application = ProxyUtil.convertToObject(json, Application.class);
             if (application == null) {
                 throw new ResourceNotFoundException("Application is not found: " + resource.getUrl());
@@ -370,7 +409,7 @@ public class ApplicationService {
         controller.verifyActive();
 
         MutableObject<Application> result = new MutableObject<>();
-        resourceService.computeResource(resource, json -> {
+        computeApplication(resource, json -> {
             Application application = ProxyUtil.convertToObject(json, Application.class);
             if (application == null) {
                 throw new ResourceNotFoundException("Application is not found: " + resource.getUrl());
@@ -530,7 +569,7 @@ public class ApplicationService {
             controller.createApplicationImage(context, function);
             String endpoint = controller.createApplicationDeployment(context, function);
 
-            resourceService.computeResource(resource, json -> {
+            computeApplication(resource, json -> {
                 Application existing = ProxyUtil.convertToObject(json, Application.class);
                 if (existing == null || !Objects.equals(existing.getFunction(), application.getFunction())) {
                     throw new IllegalStateException("Application function has been updated");
@@ -581,7 +620,7 @@ public class ApplicationService {
                 controller.deleteApplicationImage(function);
                 controller.deleteApplicationDeployment(function);
 
-                resourceService.computeResource(resource, json -> {
+                computeApplication(resource, json -> {
                     Application existing = ProxyUtil.convertToObject(json, Application.class);
                     if (existing == null || !Objects.equals(existing.getFunction(), function)) {
                         throw new IllegalStateException("Application function has been updated");
@@ -607,6 +646,18 @@ public class ApplicationService {
         }
     }
 
+    private ResourceItemMetadata computeApplication(ResourceDescriptor resource, Function<String, String> fn) {
+        return computeApplication(resource, EtagHeader.ANY, fn);
+    }
+
+    private ResourceItemMetadata computeApplication(ResourceDescriptor resource, EtagHeader etag, Function<String, String> fn) {
+        ResourceItemMetadata meta = resourceService.computeResource(resource, etag, fn);
+        if (catalog != null) {
+            catalog.reload(resource);
+        }
+        return meta;
+    }
+
     private String deploymentLockKey(ResourceDescriptor resource) {
         return BlobStorageUtil.toStoragePath(lockService.getPrefix(), "deployment:" + resource.getAbsoluteFilePath());
     }
@@ -0,0 +1,76 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.Conversation;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.storage.service.ResourcePatch;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.List;
+
+/**
+ * Applies the conversation deltas: the messages of the delta are appended to the messages of the conversation
+ * and the other fields of the delta replace the fields of the conversation.
+ * <p>
+ * Example: {"messages": [{"role": "user", "content": "Hi"}], "lastActivityDate": 1700000000000}
+ * </p>
+ */
+public class ConversationPatch implements ResourcePatch {
+
+    private static final String MESSAGES_FIELD = "messages";
+
+    @Override
+    public String apply(String body, List<String> deltas) {
+        try {
+            ObjectNode conversation = (ObjectNode) ProxyUtil.MAPPER.readTree(body);
+
+            for (String delta : deltas) {
+                ObjectNode fields = (ObjectNode) ProxyUtil.MAPPER.readTree(delta);
+                fields.fields().forEachRemaining(field -> {
+                    if (MESSAGES_FIELD.equals(field.getKey()) && conversation.get(MESSAGES_FIELD) instanceof ArrayNode messages) {
+                        messages.addAll((ArrayNode) field.getValue());
+                    } else {
+                        conversation.set(field.getKey(), field.getValue());
+                    }
+                });
+            }
+
+            return ProxyUtil.MAPPER.writeValueAsString(conversation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to apply conversation deltas", e);
+        }
+    }
+
+    /**
+     * Validates the delta sent by the client.
+     *
+     * @return the delta serialized in the single line
+     */
+    public static String validate(String delta) {
+        JsonNode node;
+        try {
+            node = ProxyUtil.MAPPER.readTree(delta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Delta must be a valid JSON object");
+        }
+
+        if (!(node instanceof ObjectNode fields) || fields.isEmpty()) {
+            throw new IllegalArgumentException("Delta must be a non-empty JSON object");
+        }
+
+        JsonNode messages = fields.get(MESSAGES_FIELD);
+        if (messages != null) {
+            if (!messages.isArray()) {
+                throw new IllegalArgumentException("Delta messages must be an array");
+            }
+
+            for (JsonNode message : messages) {
+                ProxyUtil.MAPPER.convertValue(message, Conversation.Message.class);
+            }
+        }
+
+        return fields.toString();
+    }
+}
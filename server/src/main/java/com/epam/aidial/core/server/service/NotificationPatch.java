@@ -0,0 +1,57 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.Notification;
+import com.epam.aidial.core.server.data.NotificationDelta;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.storage.service.ResourcePatch;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the {@link NotificationDelta} to the notification document: the notifications by ID.
+ * Only the newest notifications up to the max size are kept.
+ * <p>
+ * Example: {"created": [{"id": "id1", "url": "publications/bucket/id", "type": "PUBLICATION", "timestamp": 1000}], "deleted": ["id0"]}
+ * </p>
+ */
+public class NotificationPatch implements ResourcePatch {
+
+    static final TypeReference<LinkedHashMap<String, Notification>> NOTIFICATIONS_TYPE = new TypeReference<>() {
+    };
+
+    private final int maxSize;
+
+    public NotificationPatch(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public String apply(String body, List<String> deltas) {
+        Map<String, Notification> notifications = ProxyUtil.convertToObject(body, NOTIFICATIONS_TYPE);
+
+        for (String delta : deltas) {
+            NotificationDelta change = ProxyUtil.convertToObject(delta, NotificationDelta.class);
+            if (change.created() != null) {
+                change.created().forEach(notification -> notifications.put(notification.getId(), notification));
+            }
+            if (change.deleted() != null) {
+                change.deleted().forEach(notifications::remove);
+            }
+        }
+
+        if (notifications.size() > maxSize) {
+            List<String> oldest = notifications.values().stream()
+                    .sorted(Comparator.comparingLong(Notification::getTimestamp))
+                    .limit(notifications.size() - maxSize)
+                    .map(Notification::getId)
+                    .toList();
+            oldest.forEach(notifications::remove);
+        }
+
+        return ProxyUtil.convertToString(notifications);
+    }
+}
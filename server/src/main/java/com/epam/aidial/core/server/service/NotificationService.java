@@ -3,54 +3,159 @@ package com.epam.aidial.core.server.service;
 import com.epam.aidial.core.server.ProxyContext;
 import com.epam.aidial.core.server.data.DeleteNotificationRequest;
 import com.epam.aidial.core.server.data.Notification;
+import com.epam.aidial.core.server.data.NotificationDelta;
 import com.epam.aidial.core.server.data.ResourceTypes;
 import com.epam.aidial.core.server.security.EncryptionService;
 import com.epam.aidial.core.server.util.BucketBuilder;
 import com.epam.aidial.core.server.util.ProxyUtil;
 import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
+import com.epam.aidial.core.storage.blobstore.BlobStorageUtil;
 import com.epam.aidial.core.storage.resource.ResourceDescriptor;
 import com.epam.aidial.core.storage.service.ResourceService;
-import com.fasterxml.jackson.core.type.TypeReference;
-import lombok.AllArgsConstructor;
+import com.epam.aidial.core.storage.util.EtagHeader;
+import io.vertx.core.json.JsonObject;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMap;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
 
-import java.util.LinkedHashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
+import javax.annotation.Nullable;
 
-@AllArgsConstructor
+/**
+ * Stores the notifications of a user in the notification resource and indexes them in Redis:
+ * a hash of the notifications by ID and a sorted set of the IDs by timestamp.
+ * <p>
+ * Appending and deleting notifications appends the delta to the resource and updates the Redis keys,
+ * so neither reads or rewrites the other notifications of the user. The deltas are compacted into the resource on write-back.
+ * The oldest notifications are dropped once the user has more than the max size of notifications.
+ * The Redis keys are a cache: they expire if no notifications are appended during the expiration period
+ * and are loaded from the resource again on the next access once expired or evicted.
+ * </p>
+ */
 @Slf4j
 public class NotificationService {
 
     private static final String NOTIFICATION_RESOURCE_FILENAME = "notifications";
+    private static final String EMPTY_NOTIFICATIONS = "{}";
 
-    private static final TypeReference<Map<String, Notification>> NOTIFICATIONS_TYPE = new TypeReference<>() {
-    };
+    private static final String APPEND_SCRIPT = """
+            for i = 1, #ARGV - 2, 3 do
+              redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1])
+              redis.call('zadd', KEYS[2], ARGV[i + 2], ARGV[i])
+            end
 
+            local excess = redis.call('zcard', KEYS[2]) - tonumber(ARGV[#ARGV - 1])
+            if (excess > 0) then
+              local ids = redis.call('zrange', KEYS[2], 0, excess - 1)
+              redis.call('zremrangebyrank', KEYS[2], 0, excess - 1)
+              redis.call('hdel', KEYS[1], unpack(ids))
+            end
+
+            redis.call('pexpire', KEYS[1], ARGV[#ARGV])
+            redis.call('pexpire', KEYS[2], ARGV[#ARGV])
+            redis.call('set', KEYS[3], (redis.call('exists', KEYS[2]) == 1) and '1' or '0', 'px', ARGV[#ARGV])
+            return true
+            """;
+
+    // the keys are loaded once the marker is set and, if the marker tells there are notifications, none of the keys is evicted
+    private static final String LOADED_SCRIPT = """
+            local state = redis.call('get', KEYS[3])
+            if (state == '0' or (state == '1' and redis.call('exists', KEYS[1], KEYS[2]) == 2)) then
+              return 1
+            end
+            return 0
+            """;
+
+    private static final String DELETE_SCRIPT = """
+            redis.call('zrem', KEYS[2], unpack(ARGV))
+            redis.call('hdel', KEYS[1], unpack(ARGV))
+            return true
+            """;
+
+    private final RedissonClient redis;
     private final ResourceService resourceService;
     private final EncryptionService encryptionService;
+    private final String prefix;
+    private final RScript script;
+    private final int maxSize;
+    private final long expiration;
 
+    public NotificationService(RedissonClient redis, ResourceService resourceService, EncryptionService encryptionService,
+                               @Nullable String prefix, JsonObject settings) {
+        this.redis = redis;
+        this.resourceService = resourceService;
+        this.encryptionService = encryptionService;
+        this.prefix = prefix;
+        this.script = redis.getScript(StringCodec.INSTANCE);
+        this.maxSize = settings.getInteger("maxSize", 1000);
+        this.expiration = settings.getLong("expiration", 2592000000L);
+        resourceService.registerPatch(ResourceTypes.NOTIFICATION, new NotificationPatch(maxSize));
+    }
 
     public Notification createNotification(String bucketName, String bucketLocation, Notification notification) {
         ResourceDescriptor notificationResource = getNotificationResource(bucketName, bucketLocation);
-
-        resourceService.computeResource(notificationResource, body -> {
-            Map<String, Notification> notifications = decodeNotifications(body);
-            notifications.put(notification.getId(), notification);
-
-            return ProxyUtil.convertToString(notifications);
-        });
-
+        load(notificationResource);
+        NotificationDelta delta = new NotificationDelta(List.of(notification), null);
+        String line = ProxyUtil.convertToString(delta);
+        if (resourceService.appendResource(notificationResource, line, EtagHeader.ANY) == null) {
+            resourceService.computeResource(notificationResource, body -> (body == null) ? EMPTY_NOTIFICATIONS : body);
+            resourceService.appendResource(notificationResource, line, EtagHeader.ANY);
+        }
+        append(notificationResource, List.of(notification));
         return notification;
     }
 
-    public Set<Notification> listNotification(ProxyContext context) {
+    /**
+     * Lists the notifications in the order of their timestamps.
+     *
+     * @param token - the token returned by the previous page or null to list from the oldest notification
+     * @param limit - the maximum number of notifications to return or null to return all
+     */
+    public Page listNotification(ProxyContext context, @Nullable String token, @Nullable Integer limit) {
         ResourceDescriptor notificationResource = getNotificationResource(context, encryptionService);
-        Map<String, Notification> notifications = decodeNotifications(resourceService.getResource(notificationResource));
+        load(notificationResource);
+
+        RScoredSortedSet<String> index = index(notificationResource);
+        List<String> ids;
 
-        return new TreeSet<>(notifications.values());
+        if (token == null) {
+            ids = new ArrayList<>(index.valueRange(0, (limit == null) ? -1 : limit - 1));
+        } else {
+            String cursor = decodeToken(token);
+            int separator = cursor.indexOf(':');
+            long timestamp = Long.parseLong(cursor.substring(0, separator));
+            String id = cursor.substring(separator + 1);
+            ids = after(index, timestamp, id, limit);
+        }
+
+        List<Notification> notifications = new ArrayList<>(ids.size());
+        if (!ids.isEmpty()) {
+            Map<String, String> values = data(notificationResource).getAll(new HashSet<>(ids));
+            for (String id : ids) {
+                Notification notification = ProxyUtil.convertToObject(values.get(id), Notification.class);
+                if (notification != null) {
+                    notifications.add(notification);
+                }
+            }
+        }
+
+        String nextToken = null;
+        if (limit != null && ids.size() == limit && !notifications.isEmpty()) {
+            Notification last = notifications.get(notifications.size() - 1);
+            nextToken = encodeToken(last.getTimestamp() + ":" + last.getId());
+        }
+
+        return new Page(notifications, nextToken);
     }
 
     public void deleteNotification(ProxyContext context, DeleteNotificationRequest request) {
@@ -59,14 +164,84 @@ public class NotificationService {
             throw new IllegalArgumentException("Notification IDs cannot be empty");
         }
         ResourceDescriptor notificationResource = getNotificationResource(context, encryptionService);
-        resourceService.computeResource(notificationResource, state -> {
-            Map<String, Notification> notifications = decodeNotifications(state);
-            ids.forEach(notifications::remove);
+        load(notificationResource);
+
+        resourceService.appendResource(notificationResource, ProxyUtil.convertToString(new NotificationDelta(null, ids)), EtagHeader.ANY);
+        script.eval(RScript.Mode.READ_WRITE, DELETE_SCRIPT, RScript.ReturnType.BOOLEAN,
+                List.of(key(notificationResource, "data"), key(notificationResource, "index")), ids.toArray());
+    }
+
+    private static List<String> after(RScoredSortedSet<String> index, long timestamp, String id, @Nullable Integer limit) {
+        Integer rank = index.rank(id);
+        if (rank != null) {
+            return new ArrayList<>(index.valueRange(rank + 1, (limit == null) ? -1 : rank + limit));
+        }
 
-            return ProxyUtil.convertToString(notifications);
+        // the last notification of the previous page is deleted, the notifications with the same timestamp are ordered by ID
+        List<String> ids = new ArrayList<>();
+        for (String candidate : index.valueRange(timestamp, true, timestamp, true)) {
+            if (candidate.compareTo(id) > 0) {
+                ids.add(candidate);
+            }
+        }
+
+        int count = (limit == null) ? -1 : limit;
+        ids.addAll(index.valueRange(timestamp, false, Double.POSITIVE_INFINITY, true, 0, count));
+        return (limit == null || ids.size() <= limit) ? ids : new ArrayList<>(ids.subList(0, limit));
+    }
+
+    private void append(ResourceDescriptor resource, Collection<Notification> notifications) {
+        List<Object> args = new ArrayList<>(3 * notifications.size() + 2);
+        for (Notification notification : notifications) {
+            args.add(notification.getId());
+            args.add(ProxyUtil.convertToString(notification));
+            args.add(String.valueOf(notification.getTimestamp()));
+        }
+        args.add(String.valueOf(maxSize));
+        args.add(String.valueOf(expiration));
+
+        script.eval(RScript.Mode.READ_WRITE, APPEND_SCRIPT, RScript.ReturnType.BOOLEAN,
+                List.of(key(resource, "data"), key(resource, "index"), key(resource, "loaded")), args.toArray());
+    }
+
+    /**
+     * Loads the notifications of the resource to Redis unless they are there.
+     * The resource is locked, so the concurrent appends and deletes update Redis after the notifications are loaded.
+     */
+    private void load(ResourceDescriptor resource) {
+        Boolean loaded = script.eval(RScript.Mode.READ_ONLY, LOADED_SCRIPT, RScript.ReturnType.BOOLEAN,
+                List.of(key(resource, "data"), key(resource, "index"), key(resource, "loaded")));
+        if (Boolean.TRUE.equals(loaded)) {
+            return;
+        }
+
+        resourceService.computeResource(resource, body -> {
+            Map<String, Notification> notifications = ProxyUtil.convertToObject(body, NotificationPatch.NOTIFICATIONS_TYPE);
+            List<Notification> newest = (notifications == null) ? List.of() : notifications.values().stream()
+                    .sorted(Comparator.comparingLong(Notification::getTimestamp).reversed())
+                    .limit(maxSize)
+                    .toList();
+            append(resource, newest);
+            log.debug("Loaded {} notifications to Redis: {}", newest.size(), resource.getUrl());
+            return body;
         });
     }
 
+    private RMap<String, String> data(ResourceDescriptor resource) {
+        return redis.getMap(key(resource, "data"), StringCodec.INSTANCE);
+    }
+
+    private RScoredSortedSet<String> index(ResourceDescriptor resource) {
+        return redis.getScoredSortedSet(key(resource, "index"), StringCodec.INSTANCE);
+    }
+
+    /**
+     * The keys of the user share the hash tag to be stored in the same Redis cluster slot.
+     */
+    private String key(ResourceDescriptor resource, String suffix) {
+        return "notifications:{" + BlobStorageUtil.toStoragePath(prefix, resource.getAbsoluteFilePath()) + "}:" + suffix;
+    }
+
     private static ResourceDescriptor getNotificationResource(ProxyContext context, EncryptionService encryptionService) {
         String bucketLocation = BucketBuilder.buildInitiatorBucket(context);
         String bucketName = encryptionService.encrypt(bucketLocation);
@@ -77,8 +252,26 @@ public class NotificationService {
         return ResourceDescriptorFactory.fromDecoded(ResourceTypes.NOTIFICATION, bucketName, bucketLocation, NOTIFICATION_RESOURCE_FILENAME);
     }
 
-    private static Map<String, Notification> decodeNotifications(String json) {
-        Map<String, Notification> notifications = ProxyUtil.convertToObject(json, NOTIFICATIONS_TYPE);
-        return (notifications == null) ? new LinkedHashMap<>() : notifications;
+    private static String encodeToken(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeToken(String token) {
+        try {
+            String cursor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (cursor.indexOf(':') <= 0) {
+                throw new IllegalArgumentException();
+            }
+            Long.parseLong(cursor.substring(0, cursor.indexOf(':')));
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Bad next token: " + token);
+        }
+    }
+
+    /**
+     * @param nextToken - the token to list the next page or null if there are no more notifications
+     */
+    public record Page(List<Notification> notifications, @Nullable String nextToken) {
     }
 }
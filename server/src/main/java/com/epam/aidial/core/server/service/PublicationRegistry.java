@@ -0,0 +1,288 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.Publication;
+import com.epam.aidial.core.server.data.ResourceTypes;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
+import com.epam.aidial.core.storage.blobstore.BlobStorageUtil;
+import com.epam.aidial.core.storage.data.MetadataBase;
+import com.epam.aidial.core.storage.data.NodeType;
+import com.epam.aidial.core.storage.data.ResourceFolderMetadata;
+import com.epam.aidial.core.storage.data.ResourceItemMetadata;
+import com.epam.aidial.core.storage.resource.ResourceDescriptor;
+import com.epam.aidial.core.storage.service.ResourceService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.vertx.core.json.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.mutable.MutableObject;
+import org.apache.commons.lang3.tuple.Pair;
+import org.redisson.api.RBucket;
+import org.redisson.api.RLexSortedSet;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Registry of the publications awaiting review across all buckets.
+ * <p>
+ * Every publication is a separate resource, so creating and finalizing publications only locks the publication itself.
+ * The Redis lexicographically sorted set indexes the publications by status, target folder and URL to list them in pages.
+ * The index is derived from the records: the members without a matching record are dropped on listing
+ * and the records are re-added to the index on the first listing after the index check expires.
+ * The legacy document is migrated to the records before the first access to the registry,
+ * so publications finalized before the first listing are not brought back by the migration.
+ * </p>
+ */
+@Slf4j
+public class PublicationRegistry {
+
+    private static final String PUBLICATIONS_NAME = "publications";
+    private static final String RECORDS_FOLDER = "registry/";
+    private static final char SEPARATOR = '\n';
+    private static final int PAGE_SIZE = 1000;
+
+    private static final TypeReference<Map<String, Publication>> PUBLICATIONS_TYPE = new TypeReference<>() {
+    };
+
+    /**
+     * The single document with all publications used by the previous versions, migrated to the records on the first access.
+     */
+    private static final ResourceDescriptor LEGACY_PUBLICATIONS = ResourceDescriptorFactory.fromDecoded(
+            ResourceTypes.PUBLICATION, ResourceDescriptor.PUBLIC_BUCKET, ResourceDescriptor.PUBLIC_LOCATION, PUBLICATIONS_NAME);
+
+    private static final ResourceDescriptor RECORDS = ResourceDescriptorFactory.fromDecoded(
+            ResourceTypes.PUBLICATION, ResourceDescriptor.PUBLIC_BUCKET, ResourceDescriptor.PUBLIC_LOCATION, RECORDS_FOLDER);
+
+    private final ResourceService resourceService;
+    private final RLexSortedSet index;
+    private final RBucket<String> checked;
+    private final RBucket<String> migrated;
+    private final Duration checkPeriod;
+    private volatile boolean migrationDone;
+
+    public PublicationRegistry(RedissonClient redis, ResourceService resourceService, @Nullable String prefix, JsonObject settings) {
+        String key = "publication-registry:" + BlobStorageUtil.toStoragePath(prefix, RECORDS.getAbsoluteFilePath());
+        this.resourceService = resourceService;
+        this.index = redis.getLexSortedSet(key);
+        this.checked = redis.getBucket(key + ":checked", StringCodec.INSTANCE);
+        this.migrated = redis.getBucket(key + ":migrated", StringCodec.INSTANCE);
+        this.checkPeriod = Duration.ofMillis(settings.getLong("indexCheckPeriod", 3600000L));
+    }
+
+    /**
+     * Adds the publication to the registry.
+     *
+     * @param publication - the metadata of the publication to list
+     */
+    public void create(Publication publication) {
+        migrate();
+        resourceService.computeResource(record(publication.getUrl()), body -> {
+            if (body != null) {
+                throw new IllegalStateException("Publication with such url already exists: " + publication.getUrl());
+            }
+
+            return ProxyUtil.convertToString(publication);
+        });
+
+        index.add(member(publication));
+    }
+
+    /**
+     * Removes the publication from the registry.
+     *
+     * @return the removed publication or null if the publication is not in the registry
+     */
+    @Nullable
+    public Publication remove(String url) {
+        migrate();
+        MutableObject<Publication> reference = new MutableObject<>();
+        resourceService.computeResource(record(url), body -> {
+            reference.setValue(ProxyUtil.convertToObject(body, Publication.class));
+            return null;
+        });
+
+        Publication publication = reference.getValue();
+        if (publication != null) {
+            index.remove(member(publication));
+        }
+
+        return publication;
+    }
+
+    /**
+     * Lists the publications in the order of status, target folder and URL.
+     *
+     * @param status - the status of the publications to list or null to list all
+     * @param targetFolder - the target folder of the publications to list including its sub-folders or null to list all
+     * @param token - the token returned by the previous page or null to list from the start
+     * @param limit - the maximum number of the publications to return
+     */
+    public Page list(@Nullable Publication.Status status, @Nullable String targetFolder, @Nullable String token, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+
+        migrate();
+        check();
+
+        String prefix = (status == null) ? "" : status.name() + SEPARATOR + ((targetFolder == null) ? "" : targetFolder);
+        String from = (token == null) ? prefix : decodeToken(token);
+        String to = prefix + Character.MAX_VALUE;
+        boolean fromInclusive = (token == null);
+
+        if (from.compareTo(prefix) < 0) {
+            from = prefix;
+            fromInclusive = true;
+        }
+
+        List<Publication> publications = new ArrayList<>(Math.min(limit, PAGE_SIZE));
+        String last = null;
+
+        while (publications.size() < limit) {
+            int count = Math.min(limit - publications.size(), PAGE_SIZE);
+            List<String> members = new ArrayList<>(index.range(from, fromInclusive, to, false, 0, count));
+            if (members.isEmpty()) {
+                last = null;
+                break;
+            }
+
+            List<ResourceDescriptor> records = new ArrayList<>(members.size());
+            for (String member : members) {
+                records.add(record(member.substring(member.lastIndexOf(SEPARATOR) + 1)));
+            }
+
+            List<Pair<ResourceItemMetadata, String>> results = resourceService.getResources(records);
+            for (int i = 0; i < members.size(); i++) {
+                String member = members.get(i);
+                Pair<ResourceItemMetadata, String> result = results.get(i);
+                Publication publication = (result == null) ? null : ProxyUtil.convertToObject(result.getValue(), Publication.class);
+
+                if (publication == null || !member.equals(member(publication))) {
+                    // the record is removed or the member is left from the failed update
+                    index.remove(member);
+                } else if (matches(publication, status, targetFolder)) {
+                    publications.add(publication);
+                }
+            }
+
+            last = members.get(members.size() - 1);
+            from = last;
+            fromInclusive = false;
+
+            if (members.size() < count) {
+                last = null;
+                break;
+            }
+        }
+
+        return new Page(publications, (last == null) ? null : encodeToken(last));
+    }
+
+    private void check() {
+        if (checked.isExists()) {
+            return;
+        }
+
+        String nextToken = null;
+        do {
+            ResourceFolderMetadata folder = resourceService.getFolderMetadata(RECORDS, nextToken, PAGE_SIZE, true);
+            if (folder == null) {
+                break;
+            }
+
+            List<ResourceDescriptor> records = new ArrayList<>();
+            for (MetadataBase meta : folder.getItems()) {
+                if (meta.getNodeType() == NodeType.ITEM) {
+                    records.add(RECORDS.resolveByUrl(meta.getUrl()));
+                }
+            }
+
+            List<String> members = new ArrayList<>(records.size());
+            for (Pair<ResourceItemMetadata, String> result : resourceService.getResources(records)) {
+                Publication publication = (result == null) ? null : ProxyUtil.convertToObject(result.getValue(), Publication.class);
+                if (publication != null) {
+                    members.add(member(publication));
+                }
+            }
+
+            if (!members.isEmpty()) {
+                index.addAll(members);
+            }
+
+            nextToken = folder.getNextToken();
+        } while (nextToken != null);
+
+        checked.set("", checkPeriod);
+    }
+
+    private void migrate() {
+        if (migrationDone) {
+            return;
+        }
+
+        if (!migrated.isExists()) {
+            // the lock of the legacy document makes the concurrent accesses wait until the migration is done
+            resourceService.computeResource(LEGACY_PUBLICATIONS, body -> {
+                Map<String, Publication> publications = ProxyUtil.convertToObject(body, PUBLICATIONS_TYPE);
+                if (publications != null) {
+                    for (Publication publication : publications.values()) {
+                        resourceService.computeResource(record(publication.getUrl()),
+                                existing -> (existing == null) ? ProxyUtil.convertToString(publication) : existing);
+                        index.add(member(publication));
+                    }
+                    log.info("Migrated {} publications to the registry", publications.size());
+                }
+
+                return null;
+            });
+            migrated.set("");
+        }
+
+        migrationDone = true;
+    }
+
+    private static boolean matches(Publication publication, @Nullable Publication.Status status, @Nullable String targetFolder) {
+        return (status == null || status == publication.getStatus())
+                && (targetFolder == null || (publication.getTargetFolder() != null && publication.getTargetFolder().startsWith(targetFolder)));
+    }
+
+    /**
+     * @param url - the publication URL: publications/bucket/id
+     */
+    private static ResourceDescriptor record(String url) {
+        String path = url.substring(url.indexOf(ResourceDescriptor.PATH_SEPARATOR) + 1);
+        return ResourceDescriptorFactory.fromDecoded(ResourceTypes.PUBLICATION,
+                ResourceDescriptor.PUBLIC_BUCKET, ResourceDescriptor.PUBLIC_LOCATION, RECORDS_FOLDER + path);
+    }
+
+    private static String member(Publication publication) {
+        String targetFolder = (publication.getTargetFolder() == null) ? "" : publication.getTargetFolder();
+        return publication.getStatus().name() + SEPARATOR + targetFolder + SEPARATOR + publication.getUrl();
+    }
+
+    private static String encodeToken(String member) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(member.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeToken(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Bad next token: " + token);
+        }
+    }
+
+    /**
+     * @param nextToken - the token to list the next page or null if there are no more publications
+     */
+    public record Page(Collection<Publication> publications, @Nullable String nextToken) {
+    }
+}
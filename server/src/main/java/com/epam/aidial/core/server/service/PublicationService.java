@@ -3,6 +3,7 @@ package com.epam.aidial.core.server.service;
 import com.epam.aidial.core.config.Application;
 import com.epam.aidial.core.server.ProxyContext;
 import com.epam.aidial.core.server.controller.ApplicationUtil;
+import com.epam.aidial.core.server.data.ListPublicationsRequest;
 import com.epam.aidial.core.server.data.ListPublishedResourcesRequest;
 import com.epam.aidial.core.server.data.Notification;
 import com.epam.aidial.core.server.data.Publication;
@@ -48,8 +49,7 @@ public class PublicationService {
     private static final TypeReference<Map<String, Publication>> PUBLICATIONS_TYPE = new TypeReference<>() {
     };
 
-    private static final ResourceDescriptor PUBLIC_PUBLICATIONS = ResourceDescriptorFactory.fromDecoded(
-            ResourceTypes.PUBLICATION, ResourceDescriptor.PUBLIC_BUCKET, ResourceDescriptor.PUBLIC_LOCATION, PUBLICATIONS_NAME);
+    private static final int MAX_LIST_LIMIT = 1000;
 
     private static final Set<ResourceType> ALLOWED_RESOURCES = Set.of(ResourceTypes.FILE, ResourceTypes.CONVERSATION,
             ResourceTypes.PROMPT, ResourceTypes.APPLICATION);
@@ -61,9 +61,18 @@ public class PublicationService {
     private final NotificationService notificationService;
     private final ApplicationService applicationService;
     private final ResourceOperationService resourceOperationService;
+    private final PublicationRegistry registry;
     private final Supplier<String> ids;
     private final LongSupplier clock;
 
+    /**
+     * @return true if the resource is a published conversation, prompt, application or file,
+     *         unlike the rules, the publication records and the other documents kept in the public bucket
+     */
+    public static boolean isPublished(ResourceDescriptor resource) {
+        return resource.isPublic() && ALLOWED_RESOURCES.contains(resource.getType());
+    }
+
     public static boolean isReviewBucket(ResourceDescriptor resource) {
         return resource.isPrivate() && resource.getBucketLocation().contains(PUBLICATIONS_NAME);
     }
@@ -78,11 +87,27 @@ public class PublicationService {
         return false;
     }
 
-    public Collection<Publication> listPublications(ResourceDescriptor resource) {
+    public PublicationRegistry.Page listPublications(ResourceDescriptor resource, ListPublicationsRequest request) {
         if (resource.getType() != ResourceTypes.PUBLICATION || !resource.isRootFolder()) {
             throw new IllegalArgumentException("Bad publication url: " + resource.getUrl());
         }
 
+        if (resource.isPublic()) {
+            if (request.limit() != null) {
+                return registry.list(request.status(), request.targetFolder(), request.nextToken(), request.limit());
+            }
+
+            List<Publication> publications = new ArrayList<>();
+            String nextToken = request.nextToken();
+            do {
+                PublicationRegistry.Page page = registry.list(request.status(), request.targetFolder(), nextToken, MAX_LIST_LIMIT);
+                publications.addAll(page.publications());
+                nextToken = page.nextToken();
+            } while (nextToken != null);
+
+            return new PublicationRegistry.Page(publications, null);
+        }
+
         ResourceDescriptor key = publications(resource);
         Map<String, Publication> publications = decodePublications(resourceService.getResource(key));
 
@@ -90,7 +115,7 @@ public class PublicationService {
             leaveMetadata(publication);
         }
 
-        return publications.values();
+        return new PublicationRegistry.Page(publications.values(), null);
     }
 
     public Collection<MetadataBase> listPublishedResources(ListPublishedResourcesRequest request, String bucket, String location) {
@@ -165,15 +190,7 @@ public class PublicationService {
             return encodePublications(publications);
         });
 
-        resourceService.computeResource(PUBLIC_PUBLICATIONS, body -> {
-            Map<String, Publication> publications = decodePublications(body);
-
-            if (publications.put(publication.getUrl(), newMetadata(publication)) != null) {
-                throw new IllegalStateException("Publication with such url already exists: " + publication.getUrl());
-            }
-
-            return encodePublications(publications);
-        });
+        registry.create(newMetadata(publication));
 
         return publication;
     }
@@ -183,11 +200,7 @@ public class PublicationService {
             throw new IllegalArgumentException("Bad publication url: " + resource.getUrl());
         }
 
-        resourceService.computeResource(PUBLIC_PUBLICATIONS, body -> {
-            Map<String, Publication> publications = decodePublications(body);
-            Publication publication = publications.remove(resource.getUrl());
-            return (publication == null) ? body : encodePublications(publications);
-        });
+        registry.remove(resource.getUrl());
 
         MutableObject<Publication> reference = new MutableObject<>();
         resourceService.computeResource(publications(resource), body -> {
@@ -245,11 +258,7 @@ public class PublicationService {
             return encodePublications(publications);
         });
 
-        resourceService.computeResource(PUBLIC_PUBLICATIONS, body -> {
-            Map<String, Publication> publications = decodePublications(body);
-            Publication removed = publications.remove(resource.getUrl());
-            return (removed == null) ? body : encodePublications(publications);
-        });
+        registry.remove(resource.getUrl());
 
         ruleService.storeRules(publication);
 
@@ -288,11 +297,7 @@ public class PublicationService {
             return encodePublications(publications);
         });
 
-        resourceService.computeResource(PUBLIC_PUBLICATIONS, body -> {
-            Map<String, Publication> publications = decodePublications(body);
-            Publication publication = publications.remove(resource.getUrl());
-            return (publication == null) ? body : encodePublications(publications);
-        });
+        registry.remove(resource.getUrl());
 
         Publication publication = reference.getValue();
         List<Publication.Resource> resourcesToAdd = publication.getResources().stream()
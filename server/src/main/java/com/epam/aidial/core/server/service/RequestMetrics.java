@@ -0,0 +1,146 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.token.TokenUsage;
+import com.epam.aidial.core.server.upstream.UpstreamRoute;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.json.JsonObject;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records where the time of the requests proxied to the deployments goes.
+ * <p>
+ * Every phase of the request is recorded by the timer {@code aidial.request.phase} tagged by phase, deployment and status.
+ * The upstream is not a tag, so the number of the series doesn't grow with the endpoints of the deployments.
+ * The timers publish percentile histograms if enabled, so the percentiles can be aggregated across nodes.
+ * The tokens, the completion speed and the retry attempts are recorded per deployment.
+ * </p>
+ */
+public class RequestMetrics {
+
+    /**
+     * The phases of the request in the order they happen.
+     */
+    public enum Phase {
+        // API key or access token validation
+        AUTH("auth"),
+        RATE_LIMIT("rateLimit"),
+        // deployment lookup and access checks of the attachments
+        STORAGE("storage"),
+        // from the request to the upstream until the connection is established
+        CONNECT("connect"),
+        TIME_TO_FIRST_BYTE("ttfb"),
+        STREAM("stream"),
+        // token usage, attachments and prompt log
+        POST_PROCESSING("postProcessing"),
+        TOTAL("total");
+
+        @Getter
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    private final MeterRegistry registry;
+    @Getter
+    private final boolean enabled;
+    private final boolean percentileHistogram;
+
+    public RequestMetrics(MeterRegistry registry, JsonObject settings) {
+        this.registry = registry;
+        this.enabled = settings.getBoolean("enabled", true);
+        this.percentileHistogram = settings.getBoolean("percentileHistogram", false);
+    }
+
+    /**
+     * Records the phases of the request once the response is sent to the client.
+     * The requests rejected before the deployment is resolved are not recorded.
+     */
+    public void record(ProxyContext context) {
+        if (!enabled || context.getDeployment() == null) {
+            return;
+        }
+        long currentTime = System.currentTimeMillis();
+        String deployment = context.getDeployment().getName();
+        UpstreamRoute route = context.getUpstreamRoute();
+        Tags tags = Tags.of("deployment", deployment, "status", Integer.toString(context.getResponse().getStatusCode()));
+
+        long requestTimestamp = context.getRequestTimestamp();
+        long receivedTimestamp = context.getReceivedTimestamp();
+        long upstreamRequestTimestamp = context.getUpstreamRequestTimestamp();
+        long proxyConnectTimestamp = context.getProxyConnectTimestamp();
+        long proxyResponseTimestamp = context.getProxyResponseTimestamp();
+        long responseBodyTimestamp = context.getResponseBodyTimestamp();
+
+        if (receivedTimestamp > 0) {
+            record(Phase.AUTH, tags, requestTimestamp - receivedTimestamp);
+        }
+        if (context.getRateLimitTime() >= 0) {
+            record(Phase.RATE_LIMIT, tags, context.getRateLimitTime());
+        }
+        record(Phase.STORAGE, tags, context.getStorageTime());
+        if (upstreamRequestTimestamp > 0 && proxyConnectTimestamp >= upstreamRequestTimestamp) {
+            record(Phase.CONNECT, tags, proxyConnectTimestamp - upstreamRequestTimestamp);
+        }
+        if (proxyConnectTimestamp > 0 && proxyResponseTimestamp > 0) {
+            record(Phase.TIME_TO_FIRST_BYTE, tags, proxyResponseTimestamp - proxyConnectTimestamp);
+        }
+        if (proxyResponseTimestamp > 0 && responseBodyTimestamp > 0) {
+            record(Phase.STREAM, tags, responseBodyTimestamp - proxyResponseTimestamp);
+        }
+        if (responseBodyTimestamp > 0) {
+            record(Phase.POST_PROCESSING, tags, currentTime - responseBodyTimestamp);
+        }
+        record(Phase.TOTAL, tags, currentTime - (receivedTimestamp > 0 ? receivedTimestamp : requestTimestamp));
+
+        if (route != null && route.getAttemptCount() > 1) {
+            Counter.builder("aidial.upstream.retries")
+                    .description("Attempts to send the requests to another upstream after the first one")
+                    .tag("deployment", deployment)
+                    .register(registry)
+                    .increment(route.getAttemptCount() - 1);
+        }
+
+        TokenUsage tokenUsage = context.getTokenUsage();
+        if (tokenUsage != null) {
+            tokens(deployment, "prompt").increment(tokenUsage.getPromptTokens());
+            tokens(deployment, "completion").increment(tokenUsage.getCompletionTokens());
+            long generationTime = responseBodyTimestamp - proxyResponseTimestamp;
+            if (tokenUsage.getCompletionTokens() > 0 && proxyResponseTimestamp > 0 && generationTime > 0) {
+                DistributionSummary.builder("aidial.deployment.completion.speed")
+                        .description("Completion tokens per second streamed after the first byte")
+                        .baseUnit("tokens/s")
+                        .tag("deployment", deployment)
+                        .publishPercentileHistogram(percentileHistogram)
+                        .register(registry)
+                        .record(tokenUsage.getCompletionTokens() * 1000.0 / generationTime);
+            }
+        }
+    }
+
+    private void record(Phase phase, Tags tags, long time) {
+        Timer.builder("aidial.request.phase")
+                .description("Time of the request phases proxied to the deployments")
+                .tags(tags)
+                .tag("phase", phase.getKey())
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry)
+                .record(Math.max(time, 0), TimeUnit.MILLISECONDS);
+    }
+
+    private Counter tokens(String deployment, String type) {
+        return Counter.builder("aidial.deployment.tokens")
+                .description("Tokens processed by the deployments, the rate is tokens per second")
+                .tag("deployment", deployment)
+                .tag("type", type)
+                .register(registry);
+    }
+}
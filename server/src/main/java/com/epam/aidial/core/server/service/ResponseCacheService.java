@@ -0,0 +1,250 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.config.Model;
+import com.epam.aidial.core.config.ModelType;
+import com.epam.aidial.core.config.ResponseCache;
+import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.util.BucketBuilder;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.storage.blobstore.BlobStorageUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Two-tier cache of deterministic model responses: embeddings and non-streaming completions with zero temperature.
+ * <p>
+ * The first tier is a node-local LRU cache limited by the total size of responses.
+ * The second tier is Redis shared by all nodes of the cluster.
+ * Responses are partitioned by the initiator of the request (user or API key project) the same way as rate limits,
+ * so a response is never served to another identity.
+ * </p>
+ */
+@Slf4j
+public class ResponseCacheService {
+
+    private final String prefix;
+    @Nullable
+    private final RedissonClient redis;
+    private final long localMaxSize;
+    private final LocalCache localCache = new LocalCache();
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    public ResponseCacheService(RedissonClient redis, String prefix, MeterRegistry registry, JsonObject settings) {
+        this.prefix = prefix;
+        this.redis = settings.getBoolean("redis", true) ? redis : null;
+        this.localMaxSize = settings.getLong("localMaxSize", 67108864L);
+
+        this.localHits = registry.counter("aidial.response.cache.requests", "result", "hit", "tier", "local");
+        this.redisHits = registry.counter("aidial.response.cache.requests", "result", "hit", "tier", "redis");
+        this.misses = registry.counter("aidial.response.cache.requests", "result", "miss", "tier", "none");
+        Gauge.builder("aidial.response.cache.hit.ratio", this, ResponseCacheService::getHitRatio)
+                .register(registry);
+        Gauge.builder("aidial.response.cache.local.size", localCache, LocalCache::getSize)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Computes the cache key of the request. The query parameters are part of the key, e.g. {@code api-version} may change the response.
+     *
+     * @return the cache key or null if the request is not cacheable
+     */
+    @Nullable
+    public static String getKey(ProxyContext context, Model model, ObjectNode request) {
+        if (model.getResponseCache() == null || context.isStreamingRequest() || !isDeterministic(model, request)) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        key.append(BucketBuilder.buildInitiatorBucket(context)).append('\n')
+                .append(model.getName()).append('\n')
+                .append(model.getOverrideName()).append('\n')
+                .append(context.getRequest().query()).append('\n')
+                .append(ProxyUtil.convertToString(canonicalize(request)));
+        return sha256(key.toString());
+    }
+
+    /**
+     * Returns the cached response body. Looks up the local cache first, then Redis.
+     * <p>
+     *     Note. The method is blocking and shouldn't be run in the event loop thread.
+     * </p>
+     */
+    @Nullable
+    public Buffer get(String key) {
+        lookups.incrementAndGet();
+        long currentTime = System.currentTimeMillis();
+        Buffer body = localCache.get(key, currentTime);
+        if (body != null) {
+            hits.incrementAndGet();
+            localHits.increment();
+            return body;
+        }
+        if (redis != null) {
+            try {
+                RBucket<byte[]> bucket = redisBucket(key);
+                byte[] bytes = bucket.get();
+                if (bytes != null) {
+                    long ttl = bucket.remainTimeToLive();
+                    body = Buffer.buffer(bytes);
+                    if (ttl > 0) {
+                        localCache.put(key, body, currentTime + ttl, localMaxSize);
+                    }
+                    hits.incrementAndGet();
+                    redisHits.increment();
+                    return body;
+                }
+            } catch (Throwable e) {
+                log.warn("Failed to get cached response: {}", e.getMessage());
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches the response body in the local cache and Redis. The method is not blocking.
+     */
+    public void put(String key, Buffer body, ResponseCache policy) {
+        if (body.length() > policy.getMaxEntrySize() || policy.getTtl() <= 0) {
+            return;
+        }
+        localCache.put(key, body.copy(), System.currentTimeMillis() + policy.getTtl(), localMaxSize);
+        if (redis != null) {
+            redisBucket(key).setAsync(body.getBytes(), policy.getTtl(), TimeUnit.MILLISECONDS)
+                    .whenComplete((ignore, error) -> {
+                        if (error != null) {
+                            log.warn("Failed to cache response: {}", error.getMessage());
+                        }
+                    });
+        }
+    }
+
+    double getHitRatio() {
+        long total = lookups.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    private RBucket<byte[]> redisBucket(String key) {
+        return redis.getBucket("response-cache:" + BlobStorageUtil.toStoragePath(prefix, key), ByteArrayCodec.INSTANCE);
+    }
+
+    private static boolean isDeterministic(Model model, ObjectNode request) {
+        if (model.getType() == ModelType.EMBEDDING) {
+            return true;
+        }
+        JsonNode temperature = request.get("temperature");
+        if (temperature == null || !temperature.isNumber() || temperature.asDouble() != 0) {
+            return false;
+        }
+        JsonNode n = request.get("n");
+        return n == null || n.isNull() || n.asInt() == 1;
+    }
+
+    /**
+     * @return a copy of the tree with object fields sorted by name, so equal requests have the same representation
+     */
+    private static JsonNode canonicalize(JsonNode node) {
+        if (node.isObject()) {
+            List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            names.sort(null);
+            ObjectNode result = ProxyUtil.MAPPER.createObjectNode();
+            for (String name : names) {
+                result.set(name, canonicalize(node.get(name)));
+            }
+            return result;
+        }
+        if (node.isArray()) {
+            ArrayNode result = ProxyUtil.MAPPER.createArrayNode();
+            for (JsonNode element : node) {
+                result.add(canonicalize(element));
+            }
+            return result;
+        }
+        return node;
+    }
+
+    @SneakyThrows
+    private static String sha256(String value) {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * LRU cache limited by the total size of responses.
+     */
+    private static class LocalCache {
+
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long size;
+
+        synchronized Buffer get(String key, long currentTime) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt <= currentTime) {
+                remove(key);
+                return null;
+            }
+            return entry.body;
+        }
+
+        synchronized void put(String key, Buffer body, long expireAt, long maxSize) {
+            if (body.length() > maxSize) {
+                return;
+            }
+            remove(key);
+            entries.put(key, new Entry(body, expireAt));
+            size += body.length();
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                Entry eldest = iterator.next().getValue();
+                iterator.remove();
+                size -= eldest.body.length();
+            }
+        }
+
+        synchronized long getSize() {
+            return size;
+        }
+
+        private void remove(String key) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                size -= entry.body.length();
+            }
+        }
+
+        private record Entry(Buffer body, long expireAt) {
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.epam.aidial.core.server.ProxyContext;
 import com.epam.aidial.core.server.data.Publication;
 import com.epam.aidial.core.server.data.ResourceTypes;
 import com.epam.aidial.core.server.data.Rule;
+import com.epam.aidial.core.server.security.ClaimsFingerprint;
+import com.epam.aidial.core.server.security.CompiledRules;
 import com.epam.aidial.core.server.security.RuleMatcher;
 import com.epam.aidial.core.server.util.ProxyUtil;
 import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
@@ -22,8 +24,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 public class RuleService {
 
@@ -36,9 +40,14 @@ public class RuleService {
             ResourceTypes.RULES, ResourceDescriptor.PUBLIC_BUCKET, ResourceDescriptor.PUBLIC_LOCATION, RULES_NAME);
 
     /**
-     * Key is updated time from the metadata. Value is decoded map (folder path, list of rules).
+     * Max number of cached decisions per rule set. The decisions are dropped once the limit is reached.
      */
-    private final AtomicReference<Pair<Long, Map<String, List<Rule>>>> cachedRules = new AtomicReference<>();
+    private static final int MAX_DECISIONS = 65536;
+
+    /**
+     * Rules decoded and compiled for the updated time from the metadata.
+     */
+    private final AtomicReference<RuleSet> cachedRules = new AtomicReference<>();
 
     private final ResourceService resources;
 
@@ -66,7 +75,7 @@ public class RuleService {
             throw new IllegalArgumentException("Bad rule url: " + resource.getUrl());
         }
 
-        Map<String, List<Rule>> rules = getCachedRules();
+        Map<String, List<Rule>> rules = getCachedRules().rules();
         Map<String, List<Rule>> result = new TreeMap<>();
 
         while (resource != null) {
@@ -93,10 +102,11 @@ public class RuleService {
             return Set.of();
         }
 
-        Map<String, List<Rule>> rules = getCachedRules();
+        RuleSet rules = getCachedRules();
         Map<String, Boolean> cache = new HashMap<>();
+        ClaimsFingerprint claims = ClaimsFingerprint.of(context.getExtractedClaims());
         for (ResourceDescriptor resource : resources) {
-            evaluate(context, resource, rules, cache);
+            evaluate(context, claims, resource, rules, cache);
         }
 
         return resources.stream()
@@ -112,39 +122,46 @@ public class RuleService {
             return;
         }
 
-        Map<String, List<Rule>> rules = getCachedRules();
+        RuleSet rules = getCachedRules();
         Map<String, Boolean> cache = new HashMap<>();
         cache.put(ruleUrl(folder), true);
 
         List<? extends MetadataBase> filtered = metadata.getItems().stream().filter(item -> {
             ResourceDescriptor resource = ResourceDescriptorFactory.fromPublicUrl(item.getUrl());
-            return evaluate(context, resource, rules, cache);
+            // decisions relative to the listed folder are not shared since the folder is assumed to be allowed
+            return evaluate(context, null, resource, rules, cache);
         }).toList();
 
         metadata.setItems(filtered);
     }
 
-    private Map<String, List<Rule>> getCachedRules() {
+    private RuleSet getCachedRules() {
         ResourceItemMetadata meta = resources.getResourceMetadata(PUBLIC_RULES);
         long key = (meta == null) ? Long.MIN_VALUE : meta.getUpdatedAt();
-        Pair<Long, Map<String, List<Rule>>> current = cachedRules.get();
+        RuleSet current = cachedRules.get();
 
-        if (current == null || current.getKey() != key) {
+        if (current == null || current.version() != key) {
             Pair<ResourceItemMetadata, String> resource = resources.getResourceWithMetadata(PUBLIC_RULES, EtagHeader.ANY);
-            Pair<Long, Map<String, List<Rule>>> next = (resource == null)
-                    ? Pair.of(Long.MIN_VALUE, decodeRules(null))
-                    : Pair.of(resource.getKey().getUpdatedAt(), decodeRules(resource.getValue()));
+            RuleSet next = (resource == null)
+                    ? RuleSet.of(Long.MIN_VALUE, decodeRules(null))
+                    : RuleSet.of(resource.getKey().getUpdatedAt(), decodeRules(resource.getValue()));
 
             cachedRules.compareAndSet(current, next);
             current = next;
         }
 
-        return current.getValue();
+        return current;
     }
 
+    /**
+     * Evaluates the rules of the folder and its parents.
+     *
+     * @param claims - the fingerprint to share the decisions across requests or null to keep them in the local cache only
+     */
     private static boolean evaluate(ProxyContext context,
+                                    @Nullable ClaimsFingerprint claims,
                                     ResourceDescriptor resource,
-                                    Map<String, List<Rule>> rules,
+                                    RuleSet rules,
                                     Map<String, Boolean> cache) {
 
         if (resource != null && !resource.isFolder()) {
@@ -162,11 +179,20 @@ public class RuleService {
             return evaluated;
         }
 
-        evaluated = evaluate(context, resource.getParent(), rules, cache);
+        Decision decision = (claims == null) ? null : new Decision(claims, folderUrl);
+        evaluated = (decision == null) ? null : rules.decisions().get(decision);
 
-        if (evaluated) {
-            List<Rule> folderRules = rules.get(folderUrl);
-            evaluated = folderRules == null || RuleMatcher.match(context, folderRules);
+        if (evaluated == null) {
+            evaluated = evaluate(context, claims, resource.getParent(), rules, cache);
+
+            if (evaluated) {
+                CompiledRules folderRules = rules.compiled().get(folderUrl);
+                evaluated = folderRules == null || RuleMatcher.match(context, folderRules);
+            }
+
+            if (decision != null) {
+                rules.putDecision(decision, evaluated);
+            }
         }
 
         cache.put(folderUrl, evaluated);
@@ -186,4 +212,32 @@ public class RuleService {
     private static String encodeRules(Map<String, List<Rule>> rules) {
         return ProxyUtil.convertToString(rules);
     }
+
+    /**
+     * @param version - updated time of the rules resource
+     * @param rules - decoded map (folder path, list of rules)
+     * @param compiled - compiled rules per folder path
+     * @param decisions - cached decisions per claims and folder path, dropped with the rule set when the rules are updated
+     */
+    private record RuleSet(long version,
+                           Map<String, List<Rule>> rules,
+                           Map<String, CompiledRules> compiled,
+                           Map<Decision, Boolean> decisions) {
+
+        static RuleSet of(long version, Map<String, List<Rule>> rules) {
+            Map<String, CompiledRules> compiled = new HashMap<>();
+            rules.forEach((folder, list) -> compiled.put(folder, CompiledRules.compile(list)));
+            return new RuleSet(version, rules, compiled, new ConcurrentHashMap<>());
+        }
+
+        void putDecision(Decision decision, boolean allowed) {
+            if (decisions.size() >= MAX_DECISIONS) {
+                decisions.clear();
+            }
+            decisions.put(decision, allowed);
+        }
+    }
+
+    private record Decision(ClaimsFingerprint claims, String folder) {
+    }
 }
@@ -0,0 +1,247 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.ShareDelta;
+import com.epam.aidial.core.server.data.SharedResource;
+import com.epam.aidial.core.server.data.SharedResources;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.storage.blobstore.BlobStorageUtil;
+import com.epam.aidial.core.storage.data.ResourceAccessType;
+import com.epam.aidial.core.storage.data.ResourceItemMetadata;
+import com.epam.aidial.core.storage.resource.ResourceDescriptor;
+import com.epam.aidial.core.storage.service.ResourceService;
+import com.epam.aidial.core.storage.util.EtagHeader;
+import io.vertx.core.json.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.Pair;
+import org.redisson.api.RMap;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Redis hash per shared-with-me document mapping the URL of every shared resource to its permissions.
+ * <p>
+ * The document stays the source of truth and the only thing exported or listed, the index is a cache to look up
+ * the permissions of a resource and its parent folders without reading the whole document.
+ * The links are granted and revoked with {@link ShareDelta} appended to the document, so the document is not rewritten
+ * on every change, and the same delta is applied to the index atomically.
+ * The index is stamped with the ETag of the document it reflects. The delta is applied to the index only
+ * if the index reflects the version of the document preceding the delta, otherwise the index is dropped.
+ * Reads rebuild the index from the document if the stamp doesn't match the current ETag of the document.
+ * </p>
+ */
+@Slf4j
+public class ShareIndex {
+
+    private static final String VERSION_FIELD = "@version";
+    private static final String EMPTY_DOCUMENT = ProxyUtil.convertToString(new SharedResources(List.of()));
+
+    private final RedissonClient redis;
+    private final ResourceService resourceService;
+    private final String prefix;
+    private final RScript script;
+    private final long expiration;
+
+    public ShareIndex(RedissonClient redis, ResourceService resourceService, @Nullable String prefix, JsonObject settings) {
+        this.redis = redis;
+        this.resourceService = resourceService;
+        this.prefix = prefix;
+        this.script = redis.getScript(StringCodec.INSTANCE);
+        this.expiration = settings.getLong("indexExpiration", 3600000L);
+    }
+
+    /**
+     * Looks up the permissions granted by the shared-with-me document to the resources.
+     *
+     * @param urls - the URLs of the resources including their parent folders
+     * @return the permissions of the URLs present in the document or null if there is no document
+     */
+    @Nullable
+    public Map<String, Set<ResourceAccessType>> getPermissions(ResourceDescriptor document, Collection<String> urls) {
+        ResourceItemMetadata metadata = resourceService.getResourceMetadata(document);
+        if (metadata == null) {
+            return null;
+        }
+
+        Set<String> fields = new HashSet<>(urls);
+        fields.add(VERSION_FIELD);
+
+        RMap<String, String> index = redis.getMap(key(document), StringCodec.INSTANCE);
+        Map<String, String> values = index.getAll(fields);
+
+        if (metadata.getEtag().equals(values.get(VERSION_FIELD))) {
+            Map<String, Set<ResourceAccessType>> permissions = new HashMap<>();
+            values.forEach((url, value) -> {
+                if (!VERSION_FIELD.equals(url)) {
+                    permissions.put(url, decode(value));
+                }
+            });
+            return permissions;
+        }
+
+        Pair<ResourceItemMetadata, String> resource = resourceService.getResourceWithMetadata(document, EtagHeader.ANY);
+        if (resource == null) {
+            return null;
+        }
+
+        Map<String, String> links = encode(ProxyUtil.convertToObject(resource.getValue(), SharedResources.class));
+        rebuild(document, resource.getKey().getEtag(), links);
+
+        Map<String, Set<ResourceAccessType>> permissions = new HashMap<>();
+        for (String url : urls) {
+            String value = links.get(url);
+            if (value != null) {
+                permissions.put(url, decode(value));
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Appends the delta to the shared-with-me document and applies it to the index.
+     * The document is created by the first granted link, revoking the links of the document which doesn't exist does nothing.
+     */
+    public void append(ResourceDescriptor document, ShareDelta delta) {
+        String line = ProxyUtil.convertToString(delta);
+        Pair<ResourceItemMetadata, String> result = resourceService.appendResourceWithPreviousEtag(document, line, EtagHeader.ANY);
+        if (result == null) {
+            if (delta.action() == ShareDelta.Action.REVOKE) {
+                return;
+            }
+            resourceService.computeResource(document, state -> (state == null) ? EMPTY_DOCUMENT : state);
+            result = resourceService.appendResourceWithPreviousEtag(document, line, EtagHeader.ANY);
+        }
+
+        try {
+            update(document, delta, result.getValue(), result.getKey().getEtag());
+        } catch (Throwable e) {
+            // the index is validated against the document on read
+            log.warn("Failed to update share index: {}", document.getUrl(), e);
+        }
+    }
+
+    private void update(ResourceDescriptor document, ShareDelta delta, String previousVersion, String version) {
+        RMap<String, String> index = redis.getMap(key(document), StringCodec.INSTANCE);
+        String indexVersion = index.get(VERSION_FIELD);
+        if (indexVersion == null) {
+            // no index, it's built on the next read
+            return;
+        }
+        if (!indexVersion.equals(previousVersion)) {
+            // the index doesn't reflect the version of the document preceding the delta
+            index.delete();
+            return;
+        }
+
+        List<Object> args = new ArrayList<>(4 + 2 * delta.links().size());
+        args.add(previousVersion);
+        args.add(version);
+        args.add(String.valueOf(expiration));
+        args.add(delta.action() == ShareDelta.Action.GRANT ? "1" : "0");
+        delta.links().forEach((url, permissions) -> {
+            args.add(url);
+            args.add(String.valueOf(mask(permissions)));
+        });
+
+        script.eval(RScript.Mode.READ_WRITE,
+                """
+                        local version = redis.call('hget', KEYS[1], '@version')
+
+                        if (version ~= ARGV[1]) then
+                          redis.call('del', KEYS[1])
+                          return false
+                        end
+
+                        for i = 5, #ARGV, 2 do
+                          local mask = tonumber(redis.call('hget', KEYS[1], ARGV[i])) or 0
+                          if (ARGV[4] == '1') then
+                            mask = bit.bor(mask, tonumber(ARGV[i + 1]))
+                          else
+                            mask = bit.band(mask, bit.bnot(tonumber(ARGV[i + 1])))
+                          end
+
+                          if (mask == 0) then
+                            redis.call('hdel', KEYS[1], ARGV[i])
+                          else
+                            redis.call('hset', KEYS[1], ARGV[i], tostring(mask))
+                          end
+                        end
+
+                        redis.call('hset', KEYS[1], '@version', ARGV[2])
+                        redis.call('pexpire', KEYS[1], ARGV[3])
+                        return true
+                        """, RScript.ReturnType.BOOLEAN, List.of(key(document)), args.toArray());
+    }
+
+    private void rebuild(ResourceDescriptor document, String version, Map<String, String> links) {
+        List<Object> args = new ArrayList<>(2 + 2 * links.size());
+        args.add(version);
+        args.add(String.valueOf(expiration));
+        links.forEach((url, value) -> {
+            args.add(url);
+            args.add(value);
+        });
+
+        try {
+            script.eval(RScript.Mode.READ_WRITE,
+                    """
+                            redis.call('del', KEYS[1])
+
+                            for i = 3, #ARGV, 2 do
+                              redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1])
+                            end
+
+                            redis.call('hset', KEYS[1], '@version', ARGV[1])
+                            redis.call('pexpire', KEYS[1], ARGV[2])
+                            return true
+                            """, RScript.ReturnType.BOOLEAN, List.of(key(document)), args.toArray());
+        } catch (Throwable e) {
+            log.warn("Failed to rebuild share index: {}", document.getUrl(), e);
+        }
+    }
+
+    private String key(ResourceDescriptor document) {
+        return "share-index:" + BlobStorageUtil.toStoragePath(prefix, document.getAbsoluteFilePath());
+    }
+
+    private static Map<String, String> encode(@Nullable SharedResources resources) {
+        Map<String, Integer> masks = new HashMap<>();
+        if (resources != null) {
+            for (SharedResource resource : resources.getResources()) {
+                masks.merge(resource.url(), mask(resource.permissions()), (a, b) -> a | b);
+            }
+        }
+        Map<String, String> links = new HashMap<>();
+        masks.forEach((url, mask) -> links.put(url, String.valueOf(mask)));
+        return links;
+    }
+
+    private static int mask(Set<ResourceAccessType> permissions) {
+        int mask = 0;
+        for (ResourceAccessType permission : permissions) {
+            mask |= 1 << permission.ordinal();
+        }
+        return mask;
+    }
+
+    private static Set<ResourceAccessType> decode(String value) {
+        int mask = Integer.parseInt(value);
+        Set<ResourceAccessType> permissions = EnumSet.noneOf(ResourceAccessType.class);
+        for (ResourceAccessType permission : ResourceAccessType.values()) {
+            if ((mask & (1 << permission.ordinal())) != 0) {
+                permissions.add(permission);
+            }
+        }
+        return permissions;
+    }
+}
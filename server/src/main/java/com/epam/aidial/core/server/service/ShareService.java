@@ -6,6 +6,7 @@ import com.epam.aidial.core.server.data.ListSharedResourcesRequest;
 import com.epam.aidial.core.server.data.ResourceLink;
 import com.epam.aidial.core.server.data.ResourceLinkCollection;
 import com.epam.aidial.core.server.data.ResourceTypes;
+import com.epam.aidial.core.server.data.ShareDelta;
 import com.epam.aidial.core.server.data.ShareResourcesRequest;
 import com.epam.aidial.core.server.data.SharedByMeDto;
 import com.epam.aidial.core.server.data.SharedResource;
@@ -21,12 +22,13 @@ import com.epam.aidial.core.storage.data.ResourceItemMetadata;
 import com.epam.aidial.core.storage.resource.ResourceDescriptor;
 import com.epam.aidial.core.storage.resource.ResourceType;
 import com.epam.aidial.core.storage.service.ResourceService;
+import com.epam.aidial.core.storage.util.EtagHeader;
 import com.google.common.collect.Sets;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -40,10 +42,12 @@ import java.util.stream.Collectors;
 public class ShareService {
 
     private static final String SHARE_RESOURCE_FILENAME = "share";
+    private static final String EMPTY_SHARED_BY_ME = ProxyUtil.convertToString(new SharedByMeDto(new HashMap<>(), new HashMap<>()));
 
     private final ResourceService resourceService;
     private final InvitationService invitationService;
     private final EncryptionService encryptionService;
+    private final ShareIndex shareIndex;
 
     /**
      * Returns a list of resources shared with user.
@@ -63,9 +67,10 @@ public class ShareService {
         }
 
         Set<MetadataBase> resultMetadata = new HashSet<>();
-        for (ResourceDescriptor resource : shareResources) {
-            String sharedResource = resourceService.getResource(resource);
-            SharedResources sharedResources = ProxyUtil.convertToObject(sharedResource, SharedResources.class);
+        for (Pair<ResourceItemMetadata, String> sharedResource : resourceService.getResources(shareResources)) {
+            SharedResources sharedResources = (sharedResource == null)
+                    ? null
+                    : ProxyUtil.convertToObject(sharedResource.getValue(), SharedResources.class);
             if (sharedResources != null) {
                 Map<String, Set<ResourceAccessType>> links = sharedResourcesToMap(sharedResources.getResources());
                 resultMetadata.addAll(linksToMetadata(links));
@@ -93,9 +98,10 @@ public class ShareService {
         }
 
         Set<MetadataBase> resultMetadata = new HashSet<>();
-        for (ResourceDescriptor resource : shareResources) {
-            String sharedResource = resourceService.getResource(resource);
-            SharedByMeDto resourceToUsers = ProxyUtil.convertToObject(sharedResource, SharedByMeDto.class);
+        for (Pair<ResourceItemMetadata, String> sharedResource : resourceService.getResources(shareResources)) {
+            SharedByMeDto resourceToUsers = (sharedResource == null)
+                    ? null
+                    : ProxyUtil.convertToObject(sharedResource.getValue(), SharedByMeDto.class);
             if (resourceToUsers != null) {
                 Map<String, Set<ResourceAccessType>> links = resourceToUsers.getAggregatedPermissions();
                 resultMetadata.addAll(linksToMetadata(links));
@@ -167,34 +173,15 @@ public class ShareService {
             String ownerBucket = getBucket(links.get(0).url());
             String ownerLocation = encryptionService.decrypt(ownerBucket);
 
+            Map<String, Set<ResourceAccessType>> permissions = sharedResourcesToMap(links);
+
             // write user location to the resource owner
             ResourceDescriptor sharedByMe = getShareResource(ResourceTypes.SHARED_BY_ME, resourceType, ownerBucket, ownerLocation);
-            resourceService.computeResource(sharedByMe, state -> {
-                SharedByMeDto dto = ProxyUtil.convertToObject(state, SharedByMeDto.class);
-                if (dto == null) {
-                    dto = new SharedByMeDto(new HashMap<>(), new HashMap<>());
-                }
-
-                // add user location for each link
-                for (SharedResource resource : links) {
-                    dto.addUserToResource(resource, location);
-                }
-
-                return ProxyUtil.convertToString(dto);
-            });
+            appendSharedByMe(sharedByMe, new ShareDelta(ShareDelta.Action.GRANT, location, permissions));
 
+            // add all links to the user
             ResourceDescriptor sharedWithMe = getShareResource(ResourceTypes.SHARED_WITH_ME, resourceType, bucket, location);
-            resourceService.computeResource(sharedWithMe, state -> {
-                SharedResources sharedResources = ProxyUtil.convertToObject(state, SharedResources.class);
-                if (sharedResources == null) {
-                    sharedResources = new SharedResources(new ArrayList<>());
-                }
-
-                // add all links to the user
-                sharedResources.addSharedResources(sharedResourcesToMap(links));
-
-                return ProxyUtil.convertToString(sharedResources);
-            });
+            shareIndex.append(sharedWithMe, new ShareDelta(ShareDelta.Action.GRANT, null, permissions));
         });
     }
 
@@ -207,15 +194,20 @@ public class ShareService {
         privateResourcesByTypes.forEach((type, resources) -> {
             ResourceDescriptor shareResource = getShareResource(ResourceTypes.SHARED_WITH_ME, type, bucket, location);
 
-            String state = resourceService.getResource(shareResource);
-            SharedResources sharedResources = ProxyUtil.convertToObject(state, SharedResources.class);
-            if (sharedResources == null) {
+            // the permissions are granted to the resource or any of its parent folders
+            Set<String> urls = new HashSet<>();
+            for (ResourceDescriptor resource : resources) {
+                for (ResourceDescriptor parent = resource; parent != null; parent = parent.getParent()) {
+                    urls.add(parent.getUrl());
+                }
+            }
+
+            Map<String, Set<ResourceAccessType>> resourcePermissions = shareIndex.getPermissions(shareResource, urls);
+            if (resourcePermissions == null) {
                 log.debug("No state found for share access");
                 return;
             }
 
-            Map<String, Set<ResourceAccessType>> resourcePermissions =
-                    sharedResourcesToMap(sharedResources.getResources());
             for (ResourceDescriptor resource : resources) {
                 result.put(resource, lookupPermissions(resource, resourcePermissions, new HashMap<>()));
             }
@@ -294,14 +286,8 @@ public class ShareService {
                     removeSharedResourcePermissions(userBucket, user, resourceUrl, resourceType, permissionsToRemove);
                 });
 
-                resourceService.computeResource(sharedByMeResource, ownerState -> {
-                    SharedByMeDto sharedByMeDto = ProxyUtil.convertToObject(state, SharedByMeDto.class);
-                    if (sharedByMeDto != null) {
-                        sharedByMeDto.removePermissionsFromResource(resourceUrl, permissionsToRemove);
-                    }
-
-                    return ProxyUtil.convertToString(sharedByMeDto);
-                });
+                appendSharedByMe(sharedByMeResource,
+                        new ShareDelta(ShareDelta.Action.REVOKE, null, Map.of(resourceUrl, permissionsToRemove)));
             }
         });
     }
@@ -325,15 +311,8 @@ public class ShareService {
             String ownerBucket = resource.getBucketName();
             String ownerLocation = encryptionService.decrypt(ownerBucket);
 
-            ResourceDescriptor sharedWithMe = getShareResource(ResourceTypes.SHARED_BY_ME, resourceType, ownerBucket, ownerLocation);
-            resourceService.computeResource(sharedWithMe, ownerState -> {
-                SharedByMeDto sharedByMeDto = ProxyUtil.convertToObject(ownerState, SharedByMeDto.class);
-                if (sharedByMeDto != null) {
-                    sharedByMeDto.removeUserFromResource(resourceUrl, location);
-                }
-
-                return ProxyUtil.convertToString(sharedByMeDto);
-            });
+            ResourceDescriptor sharedByMe = getShareResource(ResourceTypes.SHARED_BY_ME, resourceType, ownerBucket, ownerLocation);
+            appendSharedByMe(sharedByMe, new ShareDelta(ShareDelta.Action.REVOKE, location, Map.of(resourceUrl, ResourceAccessType.ALL)));
         }
     }
 
@@ -360,24 +339,16 @@ public class ShareService {
         // source and destination resource type might be different
         sharedByMeResource = getShareResource(ResourceTypes.SHARED_BY_ME, destinationResourceType, bucket, location);
 
-        // copy user locations from source to destination
-        resourceService.computeResource(sharedByMeResource, state -> {
-            SharedByMeDto dto = ProxyUtil.convertToObject(state, SharedByMeDto.class);
-            if (dto == null) {
-                dto = new SharedByMeDto(new HashMap<>(), new HashMap<>());
-            }
-
-            // add shared access to the destination resource
-            dto.addUserPermissionsToResource(destinationResourceLink, userPermissions);
-
-            return ProxyUtil.convertToString(dto);
-        });
+        // copy user locations from source to destination and add each user shared access to the destination resource
+        for (Map.Entry<String, Set<ResourceAccessType>> entry : userPermissions.entrySet()) {
+            String userLocation = entry.getKey();
+            Set<ResourceAccessType> permissions = entry.getValue();
+            appendSharedByMe(sharedByMeResource,
+                    new ShareDelta(ShareDelta.Action.GRANT, userLocation, Map.of(destinationResourceLink, permissions)));
 
-        // add each user shared access to the destination resource
-        userPermissions.forEach((userLocation, permissions) -> {
             String userBucket = encryptionService.encrypt(userLocation);
             addSharedResource(userBucket, userLocation, destinationResourceLink, destinationResourceType, permissions);
-        });
+        }
     }
 
     public void moveSharedAccess(String bucket, String location, ResourceDescriptor source, ResourceDescriptor destination) {
@@ -389,21 +360,8 @@ public class ShareService {
 
     private void removeSharedResourcePermissions(
             String bucket, String location, String link, ResourceType resourceType, Set<ResourceAccessType> permissionsToRemove) {
-        ResourceDescriptor sharedByMeResource = getShareResource(ResourceTypes.SHARED_WITH_ME, resourceType, bucket, location);
-        resourceService.computeResource(sharedByMeResource, state -> {
-            SharedResources sharedWithMe = ProxyUtil.convertToObject(state, SharedResources.class);
-            if (sharedWithMe != null) {
-                Set<ResourceAccessType> permissions = EnumSet.noneOf(ResourceAccessType.class);
-                permissions.addAll(sharedWithMe.findPermissions(link));
-                permissions.removeAll(permissionsToRemove);
-                sharedWithMe.getResources().removeIf(resource -> link.equals(resource.url()));
-                if (!permissions.isEmpty()) {
-                    sharedWithMe.getResources().add(new SharedResource(link, permissions));
-                }
-            }
-
-            return ProxyUtil.convertToString(sharedWithMe);
-        });
+        ResourceDescriptor sharedWithMeResource = getShareResource(ResourceTypes.SHARED_WITH_ME, resourceType, bucket, location);
+        shareIndex.append(sharedWithMeResource, new ShareDelta(ShareDelta.Action.REVOKE, null, Map.of(link, permissionsToRemove)));
     }
 
     private void addSharedResource(
@@ -412,20 +370,20 @@ public class ShareService {
             String link,
             ResourceType resourceType,
             Set<ResourceAccessType> permissionsToAdd) {
-        ResourceDescriptor sharedByMeResource = getShareResource(ResourceTypes.SHARED_WITH_ME, resourceType, bucket, location);
-        resourceService.computeResource(sharedByMeResource, state -> {
-            SharedResources sharedWithMe = ProxyUtil.convertToObject(state, SharedResources.class);
-            if (sharedWithMe == null) {
-                sharedWithMe = new SharedResources(new ArrayList<>());
-            }
-            Set<ResourceAccessType> permissions = EnumSet.noneOf(ResourceAccessType.class);
-            permissions.addAll(sharedWithMe.findPermissions(link));
-            permissions.addAll(permissionsToAdd);
-            sharedWithMe.getResources().removeIf(resource -> link.equals(resource.url()));
-            sharedWithMe.getResources().add(new SharedResource(link, permissions));
+        ResourceDescriptor sharedWithMeResource = getShareResource(ResourceTypes.SHARED_WITH_ME, resourceType, bucket, location);
+        shareIndex.append(sharedWithMeResource, new ShareDelta(ShareDelta.Action.GRANT, null, Map.of(link, permissionsToAdd)));
+    }
 
-            return ProxyUtil.convertToString(sharedWithMe);
-        });
+    /**
+     * Appends the delta to the shared-by-me document of the owner instead of rewriting the whole document.
+     * The document is created by the first granted link, revoking the links of the document which doesn't exist does nothing.
+     */
+    private void appendSharedByMe(ResourceDescriptor sharedByMe, ShareDelta delta) {
+        String line = ProxyUtil.convertToString(delta);
+        if (resourceService.appendResource(sharedByMe, line, EtagHeader.ANY) == null && delta.action() == ShareDelta.Action.GRANT) {
+            resourceService.computeResource(sharedByMe, state -> (state == null) ? EMPTY_SHARED_BY_ME : state);
+            resourceService.appendResource(sharedByMe, line, EtagHeader.ANY);
+        }
     }
 
     private List<MetadataBase> linksToMetadata(Map<String, Set<ResourceAccessType>> links) {
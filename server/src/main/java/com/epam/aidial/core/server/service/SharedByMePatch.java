@@ -0,0 +1,38 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.ShareDelta;
+import com.epam.aidial.core.server.data.SharedByMeDto;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.storage.service.ResourcePatch;
+
+import java.util.List;
+
+/**
+ * Applies the {@link ShareDelta} to the shared-by-me document: the user is added to or removed from
+ * the users of the links for the permissions of the delta. Revoking without the user removes all users.
+ * <p>
+ * Example: {"action": "GRANT", "user": "Users/user1/", "links": {"files/bucket/folder/": ["READ", "WRITE"]}}
+ * </p>
+ */
+public class SharedByMePatch implements ResourcePatch {
+
+    @Override
+    public String apply(String body, List<String> deltas) {
+        SharedByMeDto document = ProxyUtil.convertToObject(body, SharedByMeDto.class);
+
+        for (String delta : deltas) {
+            ShareDelta change = ProxyUtil.convertToObject(delta, ShareDelta.class);
+            change.links().forEach((url, permissions) -> {
+                if (change.action() == ShareDelta.Action.GRANT) {
+                    document.addUserPermissionsToResource(url, change.user(), permissions);
+                } else if (change.user() == null) {
+                    document.removePermissionsFromResource(url, permissions);
+                } else {
+                    document.removeUserPermissionsFromResource(url, change.user(), permissions);
+                }
+            });
+        }
+
+        return ProxyUtil.convertToString(document);
+    }
+}
@@ -0,0 +1,55 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.ShareDelta;
+import com.epam.aidial.core.server.data.SharedResource;
+import com.epam.aidial.core.server.data.SharedResources;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.storage.data.ResourceAccessType;
+import com.epam.aidial.core.storage.service.ResourcePatch;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies the {@link ShareDelta} to the shared-with-me document: the granted permissions are added to the links
+ * and the revoked ones are removed, the link without permissions is removed.
+ * <p>
+ * Example: {"action": "GRANT", "links": {"files/bucket/folder/": ["READ"]}}
+ * </p>
+ */
+public class SharedWithMePatch implements ResourcePatch {
+
+    @Override
+    public String apply(String body, List<String> deltas) {
+        SharedResources document = ProxyUtil.convertToObject(body, SharedResources.class);
+        Map<String, Set<ResourceAccessType>> links = new LinkedHashMap<>();
+        for (SharedResource resource : document.getResources()) {
+            links.computeIfAbsent(resource.url(), url -> EnumSet.noneOf(ResourceAccessType.class)).addAll(resource.permissions());
+        }
+
+        for (String delta : deltas) {
+            ShareDelta change = ProxyUtil.convertToObject(delta, ShareDelta.class);
+            change.links().forEach((url, permissions) -> {
+                if (change.action() == ShareDelta.Action.GRANT) {
+                    links.computeIfAbsent(url, key -> EnumSet.noneOf(ResourceAccessType.class)).addAll(permissions);
+                } else {
+                    Set<ResourceAccessType> current = links.get(url);
+                    if (current != null) {
+                        current.removeAll(permissions);
+                        if (current.isEmpty()) {
+                            links.remove(url);
+                        }
+                    }
+                }
+            });
+        }
+
+        List<SharedResource> resources = new ArrayList<>(links.size());
+        links.forEach((url, permissions) -> resources.add(new SharedResource(url, permissions)));
+        return ProxyUtil.convertToString(new SharedResources(resources));
+    }
+}
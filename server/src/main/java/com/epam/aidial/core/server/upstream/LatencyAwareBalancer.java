@@ -0,0 +1,92 @@
+package com.epam.aidial.core.server.upstream;
+
+import com.epam.aidial.core.config.Upstream;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nullable;
+
+/**
+ * Load balancer routes requests to the upstream with the least expected load.
+ * The load is estimated by the amount of in-flight requests, the average time to first byte and upstream weight.
+ * If power of two choices is enabled, only two random upstreams are compared instead of all available upstreams.
+ */
+@Slf4j
+class LatencyAwareBalancer implements LoadBalancer {
+
+    @Getter
+    private final int tier;
+    @Getter
+    private final List<UpstreamState> upstreamStates;
+    private final Random generator;
+    private final boolean twoChoices;
+
+    LatencyAwareBalancer(String deploymentName, List<Upstream> upstreams, Random generator, boolean twoChoices) {
+        if (upstreams == null || upstreams.isEmpty()) {
+            throw new IllegalArgumentException("Upstream list is null or empty for deployment: " + deploymentName);
+        }
+        int tier = upstreams.get(0).getTier();
+        for (Upstream upstream : upstreams) {
+            if (upstream.getTier() != tier) {
+                throw new IllegalArgumentException("Tier mismatch for deployment " + deploymentName);
+            }
+        }
+        this.tier = tier;
+        this.upstreamStates = upstreams.stream()
+                .filter(upstream -> upstream.getWeight() > 0)
+                .map(UpstreamState::new)
+                .toList();
+        this.generator = generator;
+        this.twoChoices = twoChoices;
+        if (this.upstreamStates.isEmpty()) {
+            log.warn("No available upstreams for deployment {} and tier {}", deploymentName, tier);
+        }
+    }
+
+    @Override
+    public Upstream next(@Nullable Upstream excluded) {
+        int size = upstreamStates.size();
+        long currentTime = System.currentTimeMillis();
+        boolean[] available = new boolean[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            UpstreamState state = upstreamStates.get(i);
+            if (state.getUpstream() != excluded && UpstreamState.isAvailable(state.getAvailability(), currentTime) && state.hasCapacity()) {
+                available[i] = true;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+
+        UpstreamState result = null;
+        if (twoChoices && count > 2) {
+            int first = generator.nextInt(count);
+            // pick the second candidate among the rest upstreams
+            int second = (first + 1 + generator.nextInt(count - 1)) % count;
+            int index = 0;
+            for (int i = 0; i < size; i++) {
+                if (available[i]) {
+                    if (index == first || index == second) {
+                        result = leastLoaded(result, upstreamStates.get(i));
+                    }
+                    index++;
+                }
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                if (available[i]) {
+                    result = leastLoaded(result, upstreamStates.get(i));
+                }
+            }
+        }
+        return result.getUpstream();
+    }
+
+    private static UpstreamState leastLoaded(@Nullable UpstreamState a, UpstreamState b) {
+        return a == null || b.getLoad() < a.getLoad() ? b : a;
+    }
+}
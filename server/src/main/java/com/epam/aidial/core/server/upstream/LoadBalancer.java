@@ -0,0 +1,31 @@
+package com.epam.aidial.core.server.upstream;
+
+import com.epam.aidial.core.config.Upstream;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Load balancer distributes load between upstreams of the same tier.
+ */
+interface LoadBalancer {
+
+    int getTier();
+
+    List<UpstreamState> getUpstreamStates();
+
+    /**
+     * @return the next available upstream or null if all upstreams of the tier are unavailable
+     */
+    @Nullable
+    default Upstream next() {
+        return next(null);
+    }
+
+    /**
+     * @param excluded the upstream which must not be selected, e.g. the upstream which is already in use by the request
+     * @return the next available upstream or null if all upstreams of the tier are unavailable
+     */
+    @Nullable
+    Upstream next(@Nullable Upstream excluded);
+}
@@ -6,14 +6,16 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
 import java.util.Random;
+import javax.annotation.Nullable;
 
 /**
  * Load balancer distributes load in the proportion of probability of upstream weights.
  * The higher upstream weight, the higher probability the upstream takes more load.
  */
 @Slf4j
-class RandomizedWeightedBalancer implements Comparable<RandomizedWeightedBalancer> {
+class RandomizedWeightedBalancer implements LoadBalancer {
 
+    @Getter
     private final int tier;
     @Getter
     private final List<UpstreamState> upstreamStates;
@@ -40,37 +42,41 @@ class RandomizedWeightedBalancer implements Comparable<RandomizedWeightedBalance
         }
     }
 
-    public Upstream next() {
-        if (upstreamStates.isEmpty()) {
+    @Override
+    public Upstream next(@Nullable Upstream excluded) {
+        int size = upstreamStates.size();
+        if (size == 0) {
             return null;
         }
 
-        List<Upstream> availableUpstreams = upstreamStates.stream().filter(UpstreamState::isUpstreamAvailable)
-                .map(UpstreamState::getUpstream).toList();
-        if (availableUpstreams.isEmpty()) {
+        // take a snapshot of availability, so both passes see the same set of upstreams
+        long currentTime = System.currentTimeMillis();
+        boolean[] available = new boolean[size];
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            UpstreamState state = upstreamStates.get(i);
+            if (state.getUpstream() != excluded && UpstreamState.isAvailable(state.getAvailability(), currentTime) && state.hasCapacity()) {
+                available[i] = true;
+                total += state.getUpstream().getWeight();
+            }
+        }
+        if (total == 0) {
             return null;
         }
-        int total = availableUpstreams.stream().map(Upstream::getWeight).reduce(0, Integer::sum);
         // make sure the upper bound `total` is inclusive
         int random = generator.nextInt(total + 1);
         int current = 0;
 
-        Upstream result = null;
-
-        for (Upstream upstream : availableUpstreams) {
-            current += upstream.getWeight();
-            if (current >= random) {
-                result = upstream;
-                break;
+        for (int i = 0; i < size; i++) {
+            if (available[i]) {
+                Upstream upstream = upstreamStates.get(i).getUpstream();
+                current += upstream.getWeight();
+                if (current >= random) {
+                    return upstream;
+                }
             }
         }
 
-        return result;
+        return null;
     }
-
-    @Override
-    public int compareTo(RandomizedWeightedBalancer randomizedWeightedBalancer) {
-        return Integer.compare(tier, randomizedWeightedBalancer.tier);
-    }
-
 }
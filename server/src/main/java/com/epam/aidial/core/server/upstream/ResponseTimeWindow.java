@@ -0,0 +1,45 @@
+package com.epam.aidial.core.server.upstream;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe sliding window of the latest time to first byte samples to estimate percentiles.
+ */
+class ResponseTimeWindow {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+
+    ResponseTimeWindow(int size) {
+        this.samples = new AtomicLongArray(size);
+    }
+
+    void add(long timeToFirstByte) {
+        long index = count.getAndIncrement();
+        samples.set((int) (index % samples.length()), Math.max(timeToFirstByte, 0));
+    }
+
+    int size() {
+        return (int) Math.min(count.get(), samples.length());
+    }
+
+    /**
+     * @param percentile the percentile in range (0, 100]
+     * @return the value of the percentile or -1 if there are no samples
+     */
+    long percentile(double percentile) {
+        int size = size();
+        if (size == 0) {
+            return -1;
+        }
+        long[] values = new long[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = samples.get(i);
+        }
+        Arrays.sort(values);
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return values[Math.min(Math.max(index, 0), size - 1)];
+    }
+}
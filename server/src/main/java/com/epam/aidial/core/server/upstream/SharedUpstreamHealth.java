@@ -0,0 +1,125 @@
+package com.epam.aidial.core.server.upstream;
+
+import com.epam.aidial.core.config.Upstream;
+import com.epam.aidial.core.storage.blobstore.BlobStorageUtil;
+import io.vertx.core.json.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.TypedJsonJacksonCodec;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Shares upstream failures and recoveries between nodes of the cluster via Redis pub/sub,
+ * so a throttled upstream is skipped by every node instead of each node collecting its own 429s.
+ * <p>
+ * Events are published asynchronously and never block the request path.
+ * If Redis is slow and too many events are pending, new events are dropped and nodes fall back to their local state.
+ */
+@Slf4j
+public class SharedUpstreamHealth {
+
+    private final String node = UUID.randomUUID().toString();
+    private final RTopic topic;
+    private final int maxPendingEvents;
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    /**
+     * Active failures per balancer key, so balancers created later (e.g. after config reload) start with the shared state
+     */
+    private final Map<String, Map<String, UpstreamHealthEvent>> failures = new ConcurrentHashMap<>();
+    private volatile Consumer<UpstreamHealthEvent> subscriber = event -> { };
+
+    public SharedUpstreamHealth(RedissonClient redis, String prefix, JsonObject settings) {
+        this.maxPendingEvents = settings.getInteger("sharedHealthMaxPendingEvents", 256);
+        this.topic = redis.getTopic("upstream:" + BlobStorageUtil.toStoragePath(prefix, "health"),
+                new TypedJsonJacksonCodec(UpstreamHealthEvent.class));
+        topic.addListener(UpstreamHealthEvent.class, (channel, event) -> handle(event));
+    }
+
+    void subscribe(Consumer<UpstreamHealthEvent> subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    void publishFailure(String deployment, UpstreamState state, long availability) {
+        UpstreamHealthEvent event = createEvent(deployment, state.getUpstream())
+                .setAction(UpstreamHealthEvent.Action.FAILURE)
+                .setStatus(UpstreamState.getStatus(availability))
+                .setSource(UpstreamState.getSource(availability))
+                .setRetryAfter(UpstreamState.getRetryAfter(availability));
+        publish(event);
+    }
+
+    void publishRecovery(String deployment, UpstreamState state) {
+        UpstreamHealthEvent event = createEvent(deployment, state.getUpstream())
+                .setAction(UpstreamHealthEvent.Action.RECOVERY);
+        publish(event);
+    }
+
+    /**
+     * @return failures of upstreams of the given balancer which are not expired yet
+     */
+    List<UpstreamHealthEvent> getActiveFailures(String deployment) {
+        Map<String, UpstreamHealthEvent> events = failures.get(deployment);
+        if (events == null) {
+            return List.of();
+        }
+        long currentTime = System.currentTimeMillis();
+        return events.values().stream()
+                .filter(event -> event.getRetryAfter() > currentTime)
+                .toList();
+    }
+
+    private void publish(UpstreamHealthEvent event) {
+        if (pendingEvents.incrementAndGet() > maxPendingEvents) {
+            pendingEvents.decrementAndGet();
+            log.debug("Upstream health event is dropped, too many pending events: {}", event);
+            return;
+        }
+        topic.publishAsync(event).whenComplete((ignore, error) -> {
+            pendingEvents.decrementAndGet();
+            if (error != null) {
+                log.warn("Failed to publish upstream health event: {}", error.getMessage());
+            }
+        });
+    }
+
+    private void handle(UpstreamHealthEvent event) {
+        if (node.equals(event.getNode()) || event.getDeployment() == null) {
+            return;
+        }
+
+        String upstreamKey = event.getEndpoint() + "#" + event.getUpstreamHash();
+        if (event.getAction() == UpstreamHealthEvent.Action.FAILURE) {
+            if (event.getRetryAfter() <= System.currentTimeMillis()) {
+                return;
+            }
+            failures.computeIfAbsent(event.getDeployment(), key -> new ConcurrentHashMap<>())
+                    .put(upstreamKey, event);
+        } else {
+            failures.computeIfPresent(event.getDeployment(), (key, events) -> {
+                events.remove(upstreamKey);
+                return events.isEmpty() ? null : events;
+            });
+        }
+
+        try {
+            subscriber.accept(event);
+        } catch (Throwable e) {
+            log.warn("Can't apply upstream health event", e);
+        }
+    }
+
+    private UpstreamHealthEvent createEvent(String deployment, Upstream upstream) {
+        return new UpstreamHealthEvent()
+                .setNode(node)
+                .setDeployment(deployment)
+                .setEndpoint(upstream.getEndpoint())
+                .setUpstreamHash(upstream.hashCode());
+    }
+}
@@ -1,5 +1,7 @@
 package com.epam.aidial.core.server.upstream;
 
+import com.epam.aidial.core.config.BalancingStrategy;
+import com.epam.aidial.core.config.ConcurrencyLimit;
 import com.epam.aidial.core.config.Upstream;
 import com.epam.aidial.core.storage.http.HttpException;
 import com.epam.aidial.core.storage.http.HttpStatus;
@@ -7,86 +9,189 @@ import io.vertx.core.http.HttpHeaders;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
 /**
  * Tiered load balancer. Each next() call returns an available upstream from the highest tier (lowest tier value in config).
  * If the whole tier (highest) is unavailable, balancer start routing upstreams from next tier (lower) if any.
+ * Upstreams at their adaptive concurrency limit are skipped as unavailable, so the excess requests spill to the next tier.
+ * <p>
+ * The balancer is thread-safe and doesn't take locks: the state of upstreams is kept in atomics
+ * and the structure of tiers is immutable after construction.
+ * Only the queue of the requests waiting for a free slot is guarded by the lock and it's touched only if the upstreams are saturated.
  */
 class TieredBalancer {
 
-    private final List<RandomizedWeightedBalancer> tiers;
+    // the amount of latest time to first byte samples to estimate hedging delay
+    private static final int RESPONSE_TIME_WINDOW_SIZE = 256;
+    // hedge budget is kept in thousandths of a hedged request
+    private static final long HEDGE_COST = 1000;
+    // max amount of hedged requests which can be accumulated in the budget
+    private static final long MAX_HEDGE_BUDGET = 10 * HEDGE_COST;
 
-    private final List<UpstreamState> upstreamStates = new ArrayList<>();
+    private final String deploymentName;
 
-    private final List<Predicate<UpstreamState>> predicates = new ArrayList<>();
+    private final List<LoadBalancer> tiers;
+
+    private final UpstreamState[] upstreamStates;
+
+    private final Map<Upstream, UpstreamState> upstreamStateIndex = new HashMap<>();
+
+    @Nullable
+    private final SharedUpstreamHealth sharedHealth;
+
+    private final ResponseTimeWindow responseTimes = new ResponseTimeWindow(RESPONSE_TIME_WINDOW_SIZE);
+
+    private final AtomicLong hedgeBudget = new AtomicLong();
+
+    private final boolean concurrencyLimited;
+
+    /**
+     * The requests waiting for a free slot of the saturated upstreams, guarded by itself
+     */
+    private final WeightedFairQueue<UpstreamScheduler.Waiter> waiters = new WeightedFairQueue<>();
+
+    /**
+     * The size of the queue, so the released upstreams don't take the lock if nobody waits
+     */
+    private volatile int waiterCount;
 
     public TieredBalancer(String deploymentName, List<Upstream> upstreams, Random random) {
-        this.tiers = buildTiers(deploymentName, upstreams, random);
-        for (RandomizedWeightedBalancer tier : tiers) {
-            upstreamStates.addAll(tier.getUpstreamStates());
+        this(deploymentName, upstreams, BalancingStrategy.RANDOMIZED_WEIGHTED, random);
+    }
+
+    public TieredBalancer(String deploymentName, List<Upstream> upstreams, BalancingStrategy strategy, Random random) {
+        this(deploymentName, upstreams, strategy, random, null);
+    }
+
+    public TieredBalancer(String deploymentName, List<Upstream> upstreams, BalancingStrategy strategy, Random random,
+                          @Nullable SharedUpstreamHealth sharedHealth) {
+        this(deploymentName, upstreams, strategy, random, sharedHealth, null);
+    }
+
+    public TieredBalancer(String deploymentName, List<Upstream> upstreams, BalancingStrategy strategy, Random random,
+                          @Nullable SharedUpstreamHealth sharedHealth, @Nullable ConcurrencyLimit concurrencyLimit) {
+        this.deploymentName = deploymentName;
+        this.sharedHealth = sharedHealth;
+        this.tiers = buildTiers(deploymentName, upstreams,
+                Objects.requireNonNullElse(strategy, BalancingStrategy.RANDOMIZED_WEIGHTED), random);
+        List<UpstreamState> states = new ArrayList<>();
+        for (LoadBalancer tier : tiers) {
+            states.addAll(tier.getUpstreamStates());
+        }
+        this.upstreamStates = states.toArray(UpstreamState[]::new);
+        this.concurrencyLimited = concurrencyLimit != null;
+        for (UpstreamState state : upstreamStates) {
+            upstreamStateIndex.putIfAbsent(state.getUpstream(), state);
+            if (concurrencyLimit != null) {
+                state.limitConcurrency(concurrencyLimit);
+            }
+        }
+        if (sharedHealth != null) {
+            sharedHealth.getActiveFailures(deploymentName).forEach(this::applyHealthEvent);
         }
-        predicates.add(state -> state.getStatus().is5xx()
-                && state.getSource() == UpstreamState.RetryAfterSource.CORE);
-        predicates.add(state -> state.getStatus().is5xx()
-                && state.getSource() == UpstreamState.RetryAfterSource.UPSTREAM);
-        predicates.add(state -> state.getStatus() == HttpStatus.TOO_MANY_REQUESTS
-                && state.getSource() == UpstreamState.RetryAfterSource.CORE);
-        predicates.add(state -> state.getStatus() == HttpStatus.TOO_MANY_REQUESTS
-                && state.getSource() == UpstreamState.RetryAfterSource.UPSTREAM);
     }
 
     @Nullable
-    synchronized Upstream next(Set<Upstream> usedUpstreams) {
-        for (RandomizedWeightedBalancer tier : tiers) {
+    Upstream next(Set<Upstream> usedUpstreams) {
+        for (LoadBalancer tier : tiers) {
             Upstream upstream = tier.next();
             if (upstream != null) {
                 return upstream;
             }
         }
-        // fallback
-        for (Predicate<UpstreamState> p : predicates) {
-            UpstreamState candidate = upstreamStates.stream().filter(p)
-                    .filter(upstreamState -> !usedUpstreams.contains(upstreamState.getUpstream()))
-                    .min(Comparator.comparingLong(UpstreamState::getRetryAfter)).orElse(null);
-            if (candidate != null) {
-                usedUpstreams.add(candidate.getUpstream());
-                return candidate.getUpstream();
+        // fallback: 5xx errors are preferred to 429 ones, core backoff is preferred to the upstream one,
+        // the upstream which becomes available earlier is preferred within the same priority
+        UpstreamState candidate = null;
+        int candidatePriority = Integer.MAX_VALUE;
+        long candidateRetryAfter = Long.MAX_VALUE;
+        for (UpstreamState state : upstreamStates) {
+            long availability = state.getAvailability();
+            int priority = getFallbackPriority(availability);
+            if (priority == Integer.MAX_VALUE || priority > candidatePriority
+                    || usedUpstreams.contains(state.getUpstream())) {
+                continue;
             }
+            long retryAfter = UpstreamState.getRetryAfter(availability);
+            if (priority < candidatePriority || retryAfter < candidateRetryAfter) {
+                candidate = state;
+                candidatePriority = priority;
+                candidateRetryAfter = retryAfter;
+            }
+        }
+        if (candidate != null) {
+            usedUpstreams.add(candidate.getUpstream());
+            return candidate.getUpstream();
         }
         return null;
     }
 
-    synchronized void fail(Upstream upstream, HttpStatus status, long retryAfterSeconds) {
+    /**
+     * Returns the next available upstream except the given one. Unlike {@link #next(Set)} it never falls back to unavailable upstreams.
+     */
+    @Nullable
+    Upstream nextExcept(Upstream excluded) {
+        for (LoadBalancer tier : tiers) {
+            Upstream upstream = tier.next(excluded);
+            if (upstream != null) {
+                return upstream;
+            }
+        }
+        return null;
+    }
+
+    void fail(Upstream upstream, HttpStatus status, long retryAfterSeconds) {
         Objects.requireNonNull(upstream);
         UpstreamState upstreamState = findUpstreamState(upstream);
-        upstreamState.fail(status, retryAfterSeconds);
+        long availability = upstreamState.fail(status, retryAfterSeconds);
+        if (status == HttpStatus.TOO_MANY_REQUESTS || status == HttpStatus.BAD_GATEWAY
+                || status == HttpStatus.SERVICE_UNAVAILABLE || status == HttpStatus.GATEWAY_TIMEOUT) {
+            upstreamState.decreaseConcurrencyLimit();
+        }
+        if (sharedHealth != null) {
+            sharedHealth.publishFailure(deploymentName, upstreamState, availability);
+        }
     }
 
-    synchronized HttpException createUpstreamUnavailableException() {
+    HttpException createUpstreamUnavailableException() {
+        long[] snapshot = new long[upstreamStates.length];
+        for (int i = 0; i < upstreamStates.length; i++) {
+            snapshot[i] = upstreamStates[i].getAvailability();
+        }
         int busyUpstreamsCount = 0;
-        for (UpstreamState upstreamState : upstreamStates) {
-            if (upstreamState.getStatus() == HttpStatus.TOO_MANY_REQUESTS) {
+        int saturatedUpstreamsCount = 0;
+        long currentTime = System.currentTimeMillis();
+        for (int i = 0; i < snapshot.length; i++) {
+            if (UpstreamState.getStatus(snapshot[i]) == HttpStatus.TOO_MANY_REQUESTS) {
                 busyUpstreamsCount++;
+            } else if (UpstreamState.isAvailable(snapshot[i], currentTime) && !upstreamStates[i].hasCapacity()) {
+                saturatedUpstreamsCount++;
             }
         }
-        if (busyUpstreamsCount == upstreamStates.size()) {
+        if (saturatedUpstreamsCount > 0 && busyUpstreamsCount + saturatedUpstreamsCount == snapshot.length) {
+            // the upstreams are healthy but run at their concurrency limits, the client may retry shortly
+            return new HttpException(HttpStatus.SERVICE_UNAVAILABLE, "Service is not available",
+                    Map.of(HttpHeaders.RETRY_AFTER.toString(), "1"));
+        }
+        if (busyUpstreamsCount == snapshot.length) {
             long replyAfter = -1;
-            for (UpstreamState upstreamState : upstreamStates) {
-                if (upstreamState.getStatus() == HttpStatus.TOO_MANY_REQUESTS
-                        && upstreamState.getSource() == UpstreamState.RetryAfterSource.UPSTREAM) {
+            for (long availability : snapshot) {
+                if (UpstreamState.getStatus(availability) == HttpStatus.TOO_MANY_REQUESTS
+                        && UpstreamState.getSource(availability) == UpstreamState.RetryAfterSource.UPSTREAM) {
+                    long retryAfter = UpstreamState.getRetryAfter(availability);
                     if (replyAfter == -1) {
-                        replyAfter = upstreamState.getRetryAfter();
+                        replyAfter = retryAfter;
                     } else {
-                        replyAfter = Math.min(replyAfter, upstreamState.getRetryAfter());
+                        replyAfter = Math.min(replyAfter, retryAfter);
                     }
                 }
             }
@@ -106,32 +211,214 @@ class TieredBalancer {
         return new HttpException(HttpStatus.BAD_GATEWAY, "No route");
     }
 
-    synchronized void succeed(Upstream upstream) {
+    void succeed(Upstream upstream) {
         Objects.requireNonNull(upstream);
         UpstreamState upstreamState = findUpstreamState(upstream);
-        upstreamState.succeeded();
+        upstreamState.increaseConcurrencyLimit();
+        if (upstreamState.succeeded() && sharedHealth != null) {
+            sharedHealth.publishRecovery(deploymentName, upstreamState);
+        }
     }
 
-    private UpstreamState findUpstreamState(Upstream upstream) {
-        for (UpstreamState upstreamState : upstreamStates) {
-            if (upstreamState.getUpstream().equals(upstream)) {
-                return upstreamState;
+    /**
+     * Applies upstream failure or recovery observed by another node of the cluster.
+     */
+    void applyHealthEvent(UpstreamHealthEvent event) {
+        for (UpstreamState state : upstreamStates) {
+            Upstream upstream = state.getUpstream();
+            if (!Objects.equals(upstream.getEndpoint(), event.getEndpoint()) || upstream.hashCode() != event.getUpstreamHash()) {
+                continue;
+            }
+            if (event.getAction() == UpstreamHealthEvent.Action.FAILURE) {
+                if (event.getStatus() == null || event.getSource() == null) {
+                    continue;
+                }
+                state.failRemotely(event.getStatus(), event.getSource(), event.getRetryAfter());
+            } else {
+                state.succeeded();
+            }
+        }
+    }
+
+    List<UpstreamState> getUpstreamStates() {
+        return List.of(upstreamStates);
+    }
+
+    void acquire(Upstream upstream) {
+        Objects.requireNonNull(upstream);
+        UpstreamState upstreamState = findUpstreamState(upstream);
+        upstreamState.acquire();
+    }
+
+    void release(Upstream upstream) {
+        Objects.requireNonNull(upstream);
+        UpstreamState upstreamState = findUpstreamState(upstream);
+        upstreamState.release();
+        if (waiterCount > 0) {
+            dispatchWaiter();
+        }
+    }
+
+    /**
+     * @return true if no upstream can take a request because the available ones are at their concurrency limits
+     */
+    boolean isSaturated() {
+        if (!concurrencyLimited) {
+            return false;
+        }
+        boolean saturated = false;
+        long currentTime = System.currentTimeMillis();
+        for (UpstreamState state : upstreamStates) {
+            if (UpstreamState.isAvailable(state.getAvailability(), currentTime)) {
+                if (state.hasCapacity()) {
+                    return false;
+                }
+                saturated = true;
+            }
+        }
+        return saturated;
+    }
+
+    boolean hasWaiters() {
+        return waiterCount > 0;
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    boolean addWaiter(UpstreamScheduler.Waiter waiter, int maxSize) {
+        synchronized (waiters) {
+            if (waiters.size() >= maxSize) {
+                return false;
             }
+            waiters.add(waiter, waiter.getPriority());
+            waiterCount = waiters.size();
+            return true;
+        }
+    }
+
+    /**
+     * Returns the dispatched request which hasn't got a slot to the head of its priority class.
+     */
+    void returnWaiter(UpstreamScheduler.Waiter waiter) {
+        synchronized (waiters) {
+            waiters.addFirst(waiter, waiter.getPriority());
+            waiterCount = waiters.size();
+        }
+    }
+
+    boolean removeWaiter(UpstreamScheduler.Waiter waiter) {
+        synchronized (waiters) {
+            boolean removed = waiters.remove(waiter, waiter.getPriority());
+            waiterCount = waiters.size();
+            return removed;
+        }
+    }
+
+    /**
+     * Dispatches the next waiting request if any, the request selects the upstream itself.
+     */
+    void dispatchWaiter() {
+        UpstreamScheduler.Waiter waiter;
+        synchronized (waiters) {
+            waiter = waiters.poll();
+            waiterCount = waiters.size();
+        }
+        if (waiter != null) {
+            waiter.dispatch();
         }
-        throw new IllegalArgumentException("Upstream is not found: " + upstream);
     }
 
-    private static List<RandomizedWeightedBalancer> buildTiers(String deploymentName, List<Upstream> upstreams, Random random) {
-        List<RandomizedWeightedBalancer> balancers = new ArrayList<>();
+    void updateResponseTime(Upstream upstream, long timeToFirstByte) {
+        Objects.requireNonNull(upstream);
+        UpstreamState upstreamState = findUpstreamState(upstream);
+        upstreamState.updateResponseTime(timeToFirstByte);
+        responseTimes.add(timeToFirstByte);
+    }
+
+    /**
+     * @return the percentile of time to first byte across all upstreams or -1 if there are not enough samples
+     */
+    long getResponseTimePercentile(double percentile, int minSamples) {
+        if (responseTimes.size() < Math.max(minSamples, 1)) {
+            return -1;
+        }
+        return responseTimes.percentile(percentile);
+    }
+
+    /**
+     * Every request deposits the given share of a hedged request into the budget.
+     */
+    void depositHedgeBudget(double ratio) {
+        long deposit = (long) (ratio * HEDGE_COST);
+        if (deposit <= 0) {
+            return;
+        }
+        hedgeBudget.getAndUpdate(budget -> Math.min(budget + deposit, MAX_HEDGE_BUDGET));
+    }
+
+    /**
+     * @return true if the budget allows one more hedged request
+     */
+    boolean withdrawHedgeBudget() {
+        long budget;
+        do {
+            budget = hedgeBudget.get();
+            if (budget < HEDGE_COST) {
+                return false;
+            }
+        } while (!hedgeBudget.compareAndSet(budget, budget - HEDGE_COST));
+        return true;
+    }
+
+    private UpstreamState findUpstreamState(Upstream upstream) {
+        UpstreamState upstreamState = upstreamStateIndex.get(upstream);
+        if (upstreamState == null) {
+            throw new IllegalArgumentException("Upstream is not found: " + upstream);
+        }
+        return upstreamState;
+    }
+
+    /**
+     * @return priority of the upstream to be selected in fallback mode (lower value - higher priority)
+     *     or {@link Integer#MAX_VALUE} if the upstream is not failed
+     */
+    private static int getFallbackPriority(long availability) {
+        HttpStatus status = UpstreamState.getStatus(availability);
+        if (status == null) {
+            return Integer.MAX_VALUE;
+        }
+        boolean core = UpstreamState.getSource(availability) == UpstreamState.RetryAfterSource.CORE;
+        if (status.is5xx()) {
+            return core ? 0 : 1;
+        }
+        if (status == HttpStatus.TOO_MANY_REQUESTS) {
+            return core ? 2 : 3;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static List<LoadBalancer> buildTiers(String deploymentName, List<Upstream> upstreams,
+                                                 BalancingStrategy strategy, Random random) {
+        List<LoadBalancer> balancers = new ArrayList<>();
         Map<Integer, List<Upstream>> groups = upstreams.stream()
                 .collect(Collectors.groupingBy(Upstream::getTier));
 
         for (Map.Entry<Integer, List<Upstream>> entry : groups.entrySet()) {
-            balancers.add(new RandomizedWeightedBalancer(deploymentName, entry.getValue(), random));
+            balancers.add(buildTier(deploymentName, entry.getValue(), strategy, random));
         }
 
-        balancers.sort(Comparator.naturalOrder());
+        balancers.sort(Comparator.comparingInt(LoadBalancer::getTier));
 
         return balancers;
     }
+
+    private static LoadBalancer buildTier(String deploymentName, List<Upstream> upstreams,
+                                          BalancingStrategy strategy, Random random) {
+        return switch (strategy) {
+            case RANDOMIZED_WEIGHTED -> new RandomizedWeightedBalancer(deploymentName, upstreams, random);
+            case LEAST_LOAD -> new LatencyAwareBalancer(deploymentName, upstreams, random, false);
+            case POWER_OF_TWO_CHOICES -> new LatencyAwareBalancer(deploymentName, upstreams, random, true);
+        };
+    }
 }
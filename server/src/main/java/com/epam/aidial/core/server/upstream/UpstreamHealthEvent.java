@@ -0,0 +1,40 @@
+package com.epam.aidial.core.server.upstream;
+
+import com.epam.aidial.core.storage.http.HttpStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Upstream failure or recovery observed by a node and shared with other nodes of the cluster.
+ */
+@Data
+@Accessors(chain = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+class UpstreamHealthEvent {
+
+    /**
+     * The node which published the event
+     */
+    private String node;
+    /**
+     * The key of load balancer, e.g. model:gpt-4
+     */
+    private String deployment;
+    private String endpoint;
+    /**
+     * Hash of upstream to distinguish upstreams with the same endpoint but different keys without sharing the keys
+     */
+    private int upstreamHash;
+    private Action action;
+    private HttpStatus status;
+    private UpstreamState.RetryAfterSource source;
+    /**
+     * Timestamp in millis when upstream may be available
+     */
+    private long retryAfter = -1;
+
+    enum Action {
+        FAILURE, RECOVERY
+    }
+}
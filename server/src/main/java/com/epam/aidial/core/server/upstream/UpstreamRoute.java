@@ -1,5 +1,6 @@
 package com.epam.aidial.core.server.upstream;
 
+import com.epam.aidial.core.config.Hedging;
 import com.epam.aidial.core.config.Upstream;
 import com.epam.aidial.core.storage.http.HttpStatus;
 import io.vertx.core.http.HttpClientResponse;
@@ -26,6 +27,7 @@ import javax.annotation.Nullable;
  * } else {
  *     succeed(); // if 200 - report upstream as succeeded
  * }
+ * release(); // when the request is completed - release the current upstream
  * </pre>
  */
 @Slf4j
@@ -50,9 +52,31 @@ public class UpstreamRoute {
 
     private final Set<Upstream> usedUpstreams = new HashSet<>();
 
+    /**
+     * Indicates if the current upstream is counted as in-flight by load balancer
+     */
+    private boolean acquired;
+
+    /**
+     * Hedging policy. Null if hedging is disabled
+     */
+    @Nullable
+    private final Hedging hedging;
+
+    /**
+     * Upstream of the hedged request which is in-flight along with the current upstream
+     */
+    @Nullable
+    private Upstream hedgeUpstream;
+
     public UpstreamRoute(TieredBalancer balancer, int maxRetryAttempts) {
+        this(balancer, maxRetryAttempts, null);
+    }
+
+    public UpstreamRoute(TieredBalancer balancer, int maxRetryAttempts, @Nullable Hedging hedging) {
         this.balancer = balancer;
         this.maxRetryAttempts = maxRetryAttempts;
+        this.hedging = hedging;
     }
 
     /**
@@ -73,17 +97,170 @@ public class UpstreamRoute {
     public Upstream next() {
         // if max attempts reached - do not call balancer
         if (attemptCount + 1 > maxRetryAttempts) {
+            release();
             this.upstream = null;
             throw balancer.createUpstreamUnavailableException();
         }
+        release();
+        if (attemptCount == 0 && hedging != null) {
+            balancer.depositHedgeBudget(hedging.getBudget());
+        }
         attemptCount++;
         upstream = balancer.next(usedUpstreams);
         if (upstream == null) {
             throw balancer.createUpstreamUnavailableException();
         }
+        balancer.acquire(upstream);
+        acquired = true;
         return upstream;
     }
 
+    /**
+     * @return true if the first upstream can't be selected now because the upstreams are at their concurrency limits
+     *     or other requests wait for a free slot already
+     */
+    public boolean isSaturated() {
+        return attemptCount == 0 && (balancer.hasWaiters() || balancer.isSaturated());
+    }
+
+    /**
+     * Selects the first upstream like {@link #next()} unless the upstreams are at their concurrency limits.
+     * No attempt is counted in that case, so the request may wait for a free slot and try again.
+     *
+     * @return true if the upstream is selected, false if the upstreams are saturated
+     * @throws com.epam.aidial.core.storage.http.HttpException if no upstream is available
+     */
+    boolean tryFirst() {
+        Upstream candidate = balancer.next(usedUpstreams);
+        if (candidate == null) {
+            if (balancer.isSaturated()) {
+                return false;
+            }
+            throw balancer.createUpstreamUnavailableException();
+        }
+        if (hedging != null) {
+            balancer.depositHedgeBudget(hedging.getBudget());
+        }
+        attemptCount++;
+        upstream = candidate;
+        balancer.acquire(upstream);
+        acquired = true;
+        return true;
+    }
+
+    TieredBalancer getBalancer() {
+        return balancer;
+    }
+
+    /**
+     * Releases the current upstream, so it's not counted as in-flight anymore. The method is idempotent.
+     */
+    public void release() {
+        if (acquired) {
+            acquired = false;
+            balancer.release(upstream);
+        }
+        cancelHedge();
+    }
+
+    public boolean isHedgingEnabled() {
+        return hedging != null;
+    }
+
+    /**
+     * @return the delay in millis after which the current request should be hedged or -1 if the request can't be hedged
+     */
+    public long getHedgeDelay() {
+        if (hedging == null) {
+            return -1;
+        }
+        long percentile = balancer.getResponseTimePercentile(hedging.getDelayPercentile(), hedging.getMinSamples());
+        if (percentile < 0) {
+            return -1;
+        }
+        return Math.min(Math.max(percentile, hedging.getMinDelay()), hedging.getMaxDelay());
+    }
+
+    /**
+     * Selects an available upstream other than the current one to send the hedged request.
+     * The hedged request counts as an attempt and consumes the hedge budget of the deployment.
+     *
+     * @return upstream for the hedged request or null if the request can't be hedged
+     */
+    @Nullable
+    public Upstream hedge() {
+        if (hedging == null || upstream == null || hedgeUpstream != null || attemptCount + 1 > maxRetryAttempts) {
+            return null;
+        }
+        Upstream candidate = balancer.nextExcept(upstream);
+        if (candidate == null || !balancer.withdrawHedgeBudget()) {
+            return null;
+        }
+        attemptCount++;
+        usedUpstreams.add(candidate);
+        balancer.acquire(candidate);
+        hedgeUpstream = candidate;
+        return candidate;
+    }
+
+    /**
+     * @return upstream of the hedged request in-flight or null if there is no one
+     */
+    @Nullable
+    public Upstream getHedge() {
+        return hedgeUpstream;
+    }
+
+    /**
+     * Makes the hedged request current one. The previous request is abandoned without reporting its upstream as failed.
+     */
+    public void promoteHedge() {
+        Objects.requireNonNull(hedgeUpstream, "hedge upstream is undefined");
+        if (acquired) {
+            balancer.release(upstream);
+        }
+        upstream = hedgeUpstream;
+        hedgeUpstream = null;
+        acquired = true;
+    }
+
+    /**
+     * Abandons the hedged request if any. The method is idempotent.
+     */
+    public void cancelHedge() {
+        if (hedgeUpstream != null) {
+            balancer.release(hedgeUpstream);
+            hedgeUpstream = null;
+        }
+    }
+
+    /**
+     * Reports upstream of the hedged request as failed and abandons the hedged request.
+     */
+    public void failHedge(HttpClientResponse response) {
+        failHedge(HttpStatus.fromStatusCode(response.statusCode()), retrieveRetryAfterSeconds(response));
+    }
+
+    public void failHedge(HttpStatus status) {
+        failHedge(status, -1);
+    }
+
+    void failHedge(HttpStatus status, long retryAfterSeconds) {
+        Objects.requireNonNull(hedgeUpstream, "hedge upstream is undefined");
+        balancer.fail(hedgeUpstream, status, retryAfterSeconds);
+        cancelHedge();
+    }
+
+    /**
+     * Registers time to first byte of the current upstream
+     *
+     * @param timeToFirstByte time in millis between sending request to upstream and receiving response headers
+     */
+    public void responded(long timeToFirstByte) {
+        verifyCurrentUpstream();
+        balancer.updateResponseTime(upstream, timeToFirstByte);
+    }
+
     /**
      * @return get current upstream. null if no upstream available
      */
@@ -2,13 +2,22 @@ package com.epam.aidial.core.server.upstream;
 
 import com.epam.aidial.core.config.Application;
 import com.epam.aidial.core.config.Assistant;
+import com.epam.aidial.core.config.BalancingStrategy;
+import com.epam.aidial.core.config.ConcurrencyLimit;
 import com.epam.aidial.core.config.Deployment;
+import com.epam.aidial.core.config.Hedging;
 import com.epam.aidial.core.config.Model;
 import com.epam.aidial.core.config.Route;
 import com.epam.aidial.core.config.Upstream;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -16,6 +25,7 @@ import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 
 /**
  * This class caches load balancers for deployments and routes.
@@ -37,40 +47,100 @@ public class UpstreamRouteProvider {
 
     private final Supplier<Random> generatorFactory;
 
+    @Nullable
+    private final SharedUpstreamHealth sharedHealth;
+
+    private final UpstreamScheduler scheduler;
+
+    /**
+     * In-flight requests and concurrency limits per upstream, null if metrics are disabled
+     */
+    @Nullable
+    private final MultiGauge inFlightRequests;
+    @Nullable
+    private final MultiGauge concurrencyLimits;
+
     public UpstreamRouteProvider(Vertx vertx, Supplier<Random> generatorFactory) {
+        this(vertx, generatorFactory, null);
+    }
+
+    public UpstreamRouteProvider(Vertx vertx, Supplier<Random> generatorFactory, @Nullable SharedUpstreamHealth sharedHealth) {
+        this(vertx, generatorFactory, sharedHealth, null, new JsonObject());
+    }
+
+    public UpstreamRouteProvider(Vertx vertx, Supplier<Random> generatorFactory, @Nullable SharedUpstreamHealth sharedHealth,
+                                 @Nullable MeterRegistry registry, JsonObject settings) {
         this.generatorFactory = generatorFactory;
+        this.sharedHealth = sharedHealth;
+        this.scheduler = new UpstreamScheduler(vertx, registry, settings);
+        this.inFlightRequests = (registry == null) ? null : MultiGauge.builder("aidial.upstream.requests.inflight")
+                .description("Requests sent to the upstream and not completed yet")
+                .register(registry);
+        this.concurrencyLimits = (registry == null) ? null : MultiGauge.builder("aidial.upstream.concurrency.limit")
+                .description("Adaptive limit of in-flight requests to the upstream")
+                .register(registry);
         vertx.setPeriodic(0, TimeUnit.MINUTES.toMillis(1), event -> evictExpiredBalancers());
+        if (sharedHealth != null) {
+            sharedHealth.subscribe(this::applyHealthEvent);
+        }
     }
 
     public UpstreamRoute get(Deployment deployment) {
         String key = getKey(deployment);
         List<Upstream> upstreams = getUpstreams(deployment);
-        return get(key, upstreams, deployment.getMaxRetryAttempts());
+        BalancingStrategy strategy = BalancingStrategy.RANDOMIZED_WEIGHTED;
+        Hedging hedging = null;
+        ConcurrencyLimit concurrencyLimit = null;
+        if (deployment instanceof Model model) {
+            strategy = model.getBalancingStrategy();
+            hedging = model.getHedging();
+            concurrencyLimit = model.getConcurrencyLimit();
+        }
+        return get(key, upstreams, strategy, deployment.getMaxRetryAttempts(), hedging, concurrencyLimit);
     }
 
     public UpstreamRoute get(Route route) {
         String key = getKey(route);
-        return get(key, route.getUpstreams(), route.getMaxRetryAttempts());
-    }
-
-    private UpstreamRoute get(String key, List<Upstream> upstreams, int maxRetryAttempts) {
-        BalancerWrapper wrapper = balancers.compute(key, (k, cur) -> {
-            BalancerWrapper result;
-            if (cur != null && isUpstreamsTheSame(cur.upstreams, upstreams)
-                    && maxRetryAttempts == cur.maxRetryAttempts) {
-                result = cur;
-            } else {
-                TieredBalancer balancer = new TieredBalancer(key, upstreams, generatorFactory.get());
-                result = new BalancerWrapper(balancer, maxRetryAttempts, upstreams);
+        return get(key, route.getUpstreams(), route.getBalancingStrategy(), route.getMaxRetryAttempts(), null, null);
+    }
+
+    private UpstreamRoute get(String key, List<Upstream> upstreams, BalancingStrategy strategy, int maxRetryAttempts,
+                              @Nullable Hedging hedging, @Nullable ConcurrencyLimit concurrencyLimit) {
+        // fast path: the balancer is up-to-date, no need to lock the map entry
+        BalancerWrapper wrapper = balancers.get(key);
+        if (wrapper == null || !wrapper.matches(upstreams, strategy, maxRetryAttempts, concurrencyLimit)) {
+            BalancerWrapper previous = wrapper;
+            wrapper = balancers.compute(key, (k, cur) -> {
+                if (cur != null && cur.matches(upstreams, strategy, maxRetryAttempts, concurrencyLimit)) {
+                    return cur;
+                }
+                TieredBalancer balancer = new TieredBalancer(key, upstreams, strategy, generatorFactory.get(), sharedHealth, concurrencyLimit);
+                return new BalancerWrapper(balancer, maxRetryAttempts, strategy, upstreams, concurrencyLimit);
+            });
+            if (wrapper != previous) {
+                registerMetrics();
             }
-            result.lastAccessTime = System.currentTimeMillis();
-            return result;
-        });
+        }
+        wrapper.lastAccessTime = System.currentTimeMillis();
         int result = Math.min(maxRetryAttempts, upstreams.size());
         if (result <= 0) {
             throw new IllegalArgumentException("max retry attempts must be positive integer");
         }
-        return new UpstreamRoute(wrapper.balancer, result);
+        return new UpstreamRoute(wrapper.balancer, result, hedging);
+    }
+
+    /**
+     * Selects the first upstream of the saturated route once an upstream frees a slot, see {@link UpstreamScheduler}.
+     */
+    public Future<Void> schedule(UpstreamRoute route, int priority) {
+        return scheduler.schedule(route, priority, null);
+    }
+
+    /**
+     * Selects the first upstream of the saturated route, the request is removed from the queue once the cancellation completes.
+     */
+    public Future<Void> schedule(UpstreamRoute route, int priority, Future<?> cancellation) {
+        return scheduler.schedule(route, priority, cancellation);
     }
 
     private List<Upstream> getUpstreams(Deployment deployment) {
@@ -104,8 +174,16 @@ public class UpstreamRouteProvider {
         return prefix + ":" + deployment.getName();
     }
 
+    private void applyHealthEvent(UpstreamHealthEvent event) {
+        BalancerWrapper wrapper = balancers.get(event.getDeployment());
+        if (wrapper != null) {
+            wrapper.balancer.applyHealthEvent(event);
+        }
+    }
+
     private void evictExpiredBalancers() {
         long currentTime = System.currentTimeMillis();
+        int size = balancers.size();
         for (String key : balancers.keySet()) {
             balancers.compute(key, (k, wrapper) -> {
                 if (wrapper != null && currentTime - wrapper.lastAccessTime > IDLE_PERIOD_IN_MS) {
@@ -114,27 +192,95 @@ public class UpstreamRouteProvider {
                 return wrapper;
             });
         }
+        if (balancers.size() != size) {
+            registerMetrics();
+        }
     }
 
-    private static boolean isUpstreamsTheSame(List<Upstream> a, List<Upstream> b) {
-        return new HashSet<>(a).equals(new HashSet<>(b));
+    /**
+     * Replaces the rows of the upstream gauges with the upstreams of the cached balancers.
+     */
+    private void registerMetrics() {
+        if (inFlightRequests == null || concurrencyLimits == null) {
+            return;
+        }
+        List<MultiGauge.Row<?>> requests = new ArrayList<>();
+        List<MultiGauge.Row<?>> limits = new ArrayList<>();
+        balancers.forEach((key, wrapper) -> {
+            for (UpstreamState state : wrapper.balancer.getUpstreamStates()) {
+                Tags tags = Tags.of("deployment", key, "upstream", Objects.toString(state.getUpstream().getEndpoint(), ""));
+                requests.add(MultiGauge.Row.of(tags, state, UpstreamState::getInFlightRequests));
+                if (state.isConcurrencyLimited()) {
+                    limits.add(MultiGauge.Row.of(tags, state, UpstreamState::getConcurrencyLimit));
+                }
+            }
+        });
+        inFlightRequests.register(requests, true);
+        concurrencyLimits.register(limits, true);
+    }
+
+    /**
+     * Order-independent hash of upstreams
+     */
+    private static int hash(List<Upstream> upstreams) {
+        int hash = 0;
+        for (Upstream upstream : upstreams) {
+            hash += upstream.hashCode();
+        }
+        return hash;
     }
 
     private static class BalancerWrapper {
         final TieredBalancer balancer;
-        long lastAccessTime;
+        volatile long lastAccessTime;
 
         /**
          * Note. The value is taken from {@link Deployment#getMaxRetryAttempts()} or {@link Route#getMaxRetryAttempts()}
          */
         final int maxRetryAttempts;
 
-        final List<Upstream> upstreams;
+        final BalancingStrategy strategy;
+
+        /**
+         * The list of the latest config matched by value, so the following requests match it by reference
+         */
+        volatile List<Upstream> upstreams;
 
-        public BalancerWrapper(TieredBalancer balancer, int maxRetryAttempts, List<Upstream> upstreams) {
+        @Nullable
+        final ConcurrencyLimit concurrencyLimit;
+
+        /**
+         * Precomputed hash of upstreams to detect configuration changes without comparing upstreams on every request
+         */
+        final int upstreamsHash;
+
+        public BalancerWrapper(TieredBalancer balancer, int maxRetryAttempts, BalancingStrategy strategy, List<Upstream> upstreams,
+                               @Nullable ConcurrencyLimit concurrencyLimit) {
             this.balancer = balancer;
             this.maxRetryAttempts = maxRetryAttempts;
+            this.strategy = strategy;
             this.upstreams = upstreams;
+            this.concurrencyLimit = concurrencyLimit;
+            this.upstreamsHash = hash(upstreams);
+            // the balancer isn't evicted before the request which created it has used it
+            this.lastAccessTime = System.currentTimeMillis();
+        }
+
+        boolean matches(List<Upstream> upstreams, BalancingStrategy strategy, int maxRetryAttempts, @Nullable ConcurrencyLimit concurrencyLimit) {
+            if (maxRetryAttempts != this.maxRetryAttempts || strategy != this.strategy || !Objects.equals(concurrencyLimit, this.concurrencyLimit)) {
+                return false;
+            }
+            // the list is the same until config is reloaded
+            List<Upstream> current = this.upstreams;
+            if (upstreams == current) {
+                return true;
+            }
+            if (upstreamsHash == hash(upstreams)
+                    && (current.equals(upstreams) || new HashSet<>(current).equals(new HashSet<>(upstreams)))) {
+                this.upstreams = upstreams;
+                return true;
+            }
+            return false;
         }
     }
 }
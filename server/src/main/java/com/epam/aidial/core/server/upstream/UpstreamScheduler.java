@@ -0,0 +1,202 @@
+package com.epam.aidial.core.server.upstream;
+
+import com.epam.aidial.core.storage.http.HttpException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * Holds the requests to a deployment whose upstreams are all at their concurrency limits
+ * and dispatches them as soon as an upstream frees a slot.
+ * <p>
+ * The waiting requests of the deployment form a {@link WeightedFairQueue} keyed by the request priority,
+ * so the priority classes get the freed slots in proportion to their priorities and the lowest one is not starved.
+ * A request waits at most {@code queueMaxWait} millis and fails with 503 afterward or once it's cancelled, e.g. by the client disconnect.
+ * A request is not queued if {@code queueMaxSize} requests to the deployment are waiting already.
+ * </p>
+ */
+public class UpstreamScheduler {
+
+    public static final int DEFAULT_PRIORITY = 1;
+
+    private final Vertx vertx;
+    private final long maxWait;
+    private final int maxSize;
+
+    @Nullable
+    private final MeterRegistry registry;
+
+    private final ConcurrentHashMap<Integer, PriorityClass> priorityClasses = new ConcurrentHashMap<>();
+
+    public UpstreamScheduler(Vertx vertx, @Nullable MeterRegistry registry, JsonObject settings) {
+        this.vertx = vertx;
+        this.registry = registry;
+        this.maxWait = settings.getLong("queueMaxWait", 5000L);
+        this.maxSize = settings.getInteger("queueMaxSize", 1024);
+    }
+
+    /**
+     * Selects the first upstream of the route, the request waits for a free slot if all upstreams are at their concurrency limits.
+     *
+     * @param priority     the weight of the request in the queue, values less than 1 are treated as 1
+     * @param cancellation the future completed once the request is abandoned, the waiting request is removed from the queue then
+     * @return the future completed once the upstream is selected or failed with {@link HttpException} if no upstream is available
+     */
+    public Future<Void> schedule(UpstreamRoute route, int priority, @Nullable Future<?> cancellation) {
+        TieredBalancer balancer = route.getBalancer();
+        try {
+            // the requests waiting already go first
+            if ((maxWait <= 0 || !balancer.hasWaiters()) && route.tryFirst()) {
+                return Future.succeededFuture();
+            }
+        } catch (HttpException e) {
+            return Future.failedFuture(e);
+        }
+        if (maxWait <= 0) {
+            return Future.failedFuture(balancer.createUpstreamUnavailableException());
+        }
+
+        Waiter waiter = new Waiter(route, Math.max(priority, 1), vertx.getOrCreateContext());
+        if (!balancer.addWaiter(waiter, maxSize)) {
+            return Future.failedFuture(balancer.createUpstreamUnavailableException());
+        }
+        waiter.start();
+        if (cancellation != null) {
+            cancellation.onComplete(ignore -> waiter.remove());
+        }
+        // an upstream may free the slot before the request is queued
+        if (!balancer.isSaturated()) {
+            balancer.dispatchWaiter();
+        }
+        return waiter.promise.future();
+    }
+
+    int getQueued(int priority) {
+        PriorityClass priorityClass = priorityClasses.get(priority);
+        return (priorityClass == null) ? 0 : priorityClass.queued.get();
+    }
+
+    private PriorityClass getPriorityClass(int priority) {
+        return priorityClasses.computeIfAbsent(priority, key -> new PriorityClass(key, registry));
+    }
+
+    /**
+     * The request waiting for a free slot. The methods except {@link #dispatch()} are called on the context of the request.
+     */
+    class Waiter {
+        private final UpstreamRoute route;
+        private final int priority;
+        private final Context context;
+        private final PriorityClass priorityClass;
+        private final Promise<Void> promise = Promise.promise();
+        private final long queuedAt = System.nanoTime();
+        private long timerId = -1;
+
+        private Waiter(UpstreamRoute route, int priority, Context context) {
+            this.route = route;
+            this.priority = priority;
+            this.context = context;
+            this.priorityClass = getPriorityClass(priority);
+        }
+
+        int getPriority() {
+            return priority;
+        }
+
+        /**
+         * Lets the request try the freed slot. The method may be called on any thread.
+         */
+        void dispatch() {
+            context.runOnContext(ignore -> attempt());
+        }
+
+        private void start() {
+            priorityClass.queued.incrementAndGet();
+            timerId = vertx.setTimer(maxWait, ignore -> remove());
+        }
+
+        private void attempt() {
+            if (promise.future().isComplete()) {
+                return;
+            }
+            TieredBalancer balancer = route.getBalancer();
+            try {
+                if (route.tryFirst()) {
+                    complete(null);
+                    return;
+                }
+            } catch (HttpException e) {
+                complete(e);
+                // the freed slot goes to the next request
+                balancer.dispatchWaiter();
+                return;
+            }
+            if (System.nanoTime() - queuedAt >= TimeUnit.MILLISECONDS.toNanos(maxWait)) {
+                // the timer has fired while the request was being dispatched
+                complete(balancer.createUpstreamUnavailableException());
+                return;
+            }
+            // another request has taken the slot, the request keeps its place in the queue
+            balancer.returnWaiter(this);
+            if (!balancer.isSaturated()) {
+                balancer.dispatchWaiter();
+            }
+        }
+
+        /**
+         * Fails the request which has waited for the max wait or is cancelled.
+         */
+        private void remove() {
+            TieredBalancer balancer = route.getBalancer();
+            // the request is being dispatched otherwise
+            if (balancer.removeWaiter(this)) {
+                complete(balancer.createUpstreamUnavailableException());
+            }
+        }
+
+        private void complete(@Nullable HttpException error) {
+            vertx.cancelTimer(timerId);
+            priorityClass.queued.decrementAndGet();
+            if (priorityClass.waitTime != null) {
+                priorityClass.waitTime.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            }
+            if (error == null) {
+                promise.complete();
+            } else {
+                promise.fail(error);
+            }
+        }
+    }
+
+    private static class PriorityClass {
+        final AtomicInteger queued = new AtomicInteger();
+        @Nullable
+        final Timer waitTime;
+
+        PriorityClass(int priority, @Nullable MeterRegistry registry) {
+            String tag = Integer.toString(priority);
+            if (registry == null) {
+                waitTime = null;
+                return;
+            }
+            Gauge.builder("aidial.upstream.queue.size", queued, AtomicInteger::get)
+                    .description("Requests waiting for a free slot of the upstreams at their concurrency limits")
+                    .tag("priority", tag)
+                    .register(registry);
+            waitTime = Timer.builder("aidial.upstream.queue.wait")
+                    .description("Time the requests waited for a free slot of the upstreams")
+                    .tag("priority", tag)
+                    .register(registry);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.epam.aidial.core.server.upstream;
 
+import com.epam.aidial.core.config.ConcurrencyLimit;
 import com.epam.aidial.core.config.Upstream;
 import com.epam.aidial.core.storage.http.HttpStatus;
 import lombok.Getter;
@@ -7,7 +8,13 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.time.Instant;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 
+/**
+ * Thread-safe state of upstream. All updates are lock-free, reads are wait-free.
+ */
 @Slf4j
 class UpstreamState {
 
@@ -18,75 +25,311 @@ class UpstreamState {
     // max backoff delay - 5 minutes
     private static final long MAX_BACKOFF_DELAY_SEC = 5 * 60;
 
+    // the weight of the latest sample in the moving average of response time
+    private static final double RESPONSE_TIME_SMOOTHING_FACTOR = 0.2;
+    // the weight of the latest average response time in the baseline which drifts up to follow the upstream changes
+    private static final double BASELINE_SMOOTHING_FACTOR = 0.01;
+
+    private static final HttpStatus[] STATUSES = HttpStatus.values();
+    private static final RetryAfterSource[] SOURCES = RetryAfterSource.values();
+
+    // layout of availability word: retry after timestamp + 1 (0 - not set), error count, retry-after source + 1, status + 1
+    private static final int RETRY_AFTER_BITS = 44;
+    private static final int ERROR_COUNT_SHIFT = RETRY_AFTER_BITS;
+    private static final int ERROR_COUNT_BITS = 5;
+    private static final int SOURCE_SHIFT = ERROR_COUNT_SHIFT + ERROR_COUNT_BITS;
+    private static final int SOURCE_BITS = 2;
+    private static final int STATUS_SHIFT = SOURCE_SHIFT + SOURCE_BITS;
+    private static final int STATUS_BITS = 7;
+    private static final long AVAILABLE = 0;
+
     /**
-     * Amount of 5xx errors from upstream
+     * Upstream availability is packed into a single word, so it's read and updated atomically without locks.
+     * It contains timestamp in millis when upstream may be available, amount of 5xx errors from upstream,
+     * the source of retry-after value and the status of the last failure.
      */
-    private int errorCount = 0;
+    private final AtomicLong availability = new AtomicLong(AVAILABLE);
+
     /**
-     * Timestamp in millis when upstream may be available
+     * Amount of requests sent to upstream and not completed yet
      */
-    @Getter
-    private long retryAfter = -1;
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
 
-    @Getter
-    private RetryAfterSource source;
+    /**
+     * Exponentially weighted moving average of time to first byte in millis (raw bits of double), 0 if there are no samples yet
+     */
+    private final AtomicLong responseTime = new AtomicLong(Double.doubleToRawLongBits(0));
 
-    @Getter
-    private HttpStatus status;
+    /**
+     * The lowest average time to first byte in millis (raw bits of double), 0 if there are no samples yet
+     */
+    private final AtomicLong baselineResponseTime = new AtomicLong(Double.doubleToRawLongBits(0));
+
+    /**
+     * Adaptive concurrency limit policy, null if the concurrency isn't limited
+     */
+    @Nullable
+    private volatile ConcurrencyLimit concurrencyPolicy;
+
+    /**
+     * Max amount of in-flight requests (raw bits of double), adjusted with additive increase and multiplicative decrease
+     */
+    private final AtomicLong concurrencyLimit = new AtomicLong(Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+
+    /**
+     * Timestamp in millis of the last decrease of the limit, the limit is decreased at most once per average response time
+     */
+    private final AtomicLong limitDecreasedAt = new AtomicLong();
 
     UpstreamState(Upstream upstream) {
         this.upstream = upstream;
     }
 
+    /**
+     * Enables the adaptive limit of in-flight requests to the upstream.
+     */
+    void limitConcurrency(ConcurrencyLimit policy) {
+        concurrencyLimit.set(Double.doubleToRawLongBits(policy.getInitialLimit()));
+        concurrencyPolicy = policy;
+    }
+
     /**
      * Register upstream failure. Supported error codes are 429 and 5xx.
      *
      * @param status response status code from upstream
      * @param retryAfterSeconds time in seconds when upstream may become available; only take into account with 429 status code
+     * @return the new availability word
      */
-    void fail(HttpStatus status, long retryAfterSeconds) {
-        this.source = retryAfterSeconds == -1 ? RetryAfterSource.CORE : RetryAfterSource.UPSTREAM;
-        this.status = status;
-        if (status == HttpStatus.TOO_MANY_REQUESTS) {
-            retryAfterSeconds = source == RetryAfterSource.CORE ? DEFAULT_RETRY_AFTER_SECONDS_VALUE : retryAfterSeconds;
-            setReplyAfter(retryAfterSeconds);
-            log.warn("Upstream {} limit hit: retry after {}", upstream.getEndpoint(), Instant.ofEpochMilli(retryAfter).toString());
-        } else if (status.is5xx()) {
-            if (source == RetryAfterSource.CORE) {
+    long fail(HttpStatus status, long retryAfterSeconds) {
+        if (status != HttpStatus.TOO_MANY_REQUESTS && !status.is5xx()) {
+            throw new IllegalArgumentException("Unsupported http status: " + status);
+        }
+        RetryAfterSource source = retryAfterSeconds == -1 ? RetryAfterSource.CORE : RetryAfterSource.UPSTREAM;
+        long current;
+        long next;
+        do {
+            current = availability.get();
+            int errorCount = getErrorCount(current);
+            long delaySeconds = retryAfterSeconds;
+            if (status == HttpStatus.TOO_MANY_REQUESTS) {
+                delaySeconds = source == RetryAfterSource.CORE ? DEFAULT_RETRY_AFTER_SECONDS_VALUE : retryAfterSeconds;
+            } else if (source == RetryAfterSource.CORE) {
                 if (errorCount != 30) {
                     errorCount++;
                 }
-                retryAfterSeconds = Math.min(1L << errorCount, MAX_BACKOFF_DELAY_SEC);
-                setReplyAfter(retryAfterSeconds);
-            } else {
-                setReplyAfter(retryAfterSeconds);
+                delaySeconds = Math.min(1L << errorCount, MAX_BACKOFF_DELAY_SEC);
             }
-        } else {
-            throw new IllegalArgumentException("Unsupported http status: " + status);
+            long retryAfter = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(delaySeconds);
+            next = pack(retryAfter, errorCount, source, status);
+        } while (!availability.compareAndSet(current, next));
+
+        if (status == HttpStatus.TOO_MANY_REQUESTS) {
+            log.warn("Upstream {} limit hit: retry after {}", upstream.getEndpoint(), Instant.ofEpochMilli(getRetryAfter(next)).toString());
         }
+        return next;
     }
 
-    private void setReplyAfter(long retryAfterSeconds) {
-        retryAfter = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(retryAfterSeconds);
+    /**
+     * Register upstream failure observed by another node of the cluster.
+     * The error count isn't changed, the retry-after timestamp is only extended.
+     *
+     * @param status response status code from upstream
+     * @param source the source of retry-after value
+     * @param retryAfter timestamp in millis when upstream may be available
+     */
+    void failRemotely(HttpStatus status, RetryAfterSource source, long retryAfter) {
+        long current;
+        long next;
+        do {
+            current = availability.get();
+            if (getRetryAfter(current) >= retryAfter) {
+                return;
+            }
+            next = pack(retryAfter, getErrorCount(current), source, status);
+        } while (!availability.compareAndSet(current, next));
     }
 
     /**
      * reset errors state
+     *
+     * @return true if the upstream was failed before
      */
-    void succeeded() {
-        // reset errors
-        errorCount = 0;
-        retryAfter = -1;
-        source = null;
-        status = null;
+    boolean succeeded() {
+        // avoid the write to the shared word if upstream is healthy
+        if (availability.get() == AVAILABLE) {
+            return false;
+        }
+        return availability.getAndSet(AVAILABLE) != AVAILABLE;
     }
 
     boolean isUpstreamAvailable() {
-        if (retryAfter < 0) {
-            return true;
+        return isAvailable(availability.get(), System.currentTimeMillis());
+    }
+
+    /**
+     * @return the current availability word, use static accessors to unpack it
+     */
+    long getAvailability() {
+        return availability.get();
+    }
+
+    /**
+     * @return timestamp in millis when upstream may be available or -1
+     */
+    long getRetryAfter() {
+        return getRetryAfter(availability.get());
+    }
+
+    static long getRetryAfter(long availability) {
+        return (availability & mask(RETRY_AFTER_BITS)) - 1;
+    }
+
+    @Nullable
+    RetryAfterSource getSource() {
+        return getSource(availability.get());
+    }
+
+    @Nullable
+    static RetryAfterSource getSource(long availability) {
+        int index = (int) ((availability >>> SOURCE_SHIFT) & mask(SOURCE_BITS));
+        return index == 0 ? null : SOURCES[index - 1];
+    }
+
+    @Nullable
+    HttpStatus getStatus() {
+        return getStatus(availability.get());
+    }
+
+    @Nullable
+    static HttpStatus getStatus(long availability) {
+        int index = (int) ((availability >>> STATUS_SHIFT) & mask(STATUS_BITS));
+        return index == 0 ? null : STATUSES[index - 1];
+    }
+
+    static boolean isAvailable(long availability, long currentTime) {
+        long retryAfter = getRetryAfter(availability);
+        return retryAfter < 0 || currentTime > retryAfter;
+    }
+
+    static int getErrorCount(long availability) {
+        return (int) ((availability >>> ERROR_COUNT_SHIFT) & mask(ERROR_COUNT_BITS));
+    }
+
+    private static long pack(long retryAfter, int errorCount, RetryAfterSource source, HttpStatus status) {
+        return ((retryAfter + 1) & mask(RETRY_AFTER_BITS))
+                | ((long) errorCount << ERROR_COUNT_SHIFT)
+                | ((long) (source.ordinal() + 1) << SOURCE_SHIFT)
+                | ((long) (status.ordinal() + 1) << STATUS_SHIFT);
+    }
+
+    private static long mask(int bits) {
+        return (1L << bits) - 1;
+    }
+
+    void acquire() {
+        inFlightRequests.incrementAndGet();
+    }
+
+    void release() {
+        inFlightRequests.decrementAndGet();
+    }
+
+    int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    boolean isConcurrencyLimited() {
+        return concurrencyPolicy != null;
+    }
+
+    double getConcurrencyLimit() {
+        return Double.longBitsToDouble(concurrencyLimit.get());
+    }
+
+    /**
+     * @return true if one more request can be sent to the upstream without exceeding the concurrency limit
+     */
+    boolean hasCapacity() {
+        return getInFlightRequests() < getConcurrencyLimit();
+    }
+
+    /**
+     * Register a successful response. The limit grows by one per limit of responses while the upstream uses at least half of it
+     * and the average time to first byte stays within the tolerance, otherwise the limit is decreased.
+     */
+    void increaseConcurrencyLimit() {
+        ConcurrencyLimit policy = concurrencyPolicy;
+        if (policy == null) {
+            return;
+        }
+        double baseline = Double.longBitsToDouble(baselineResponseTime.get());
+        if (baseline > 0 && getResponseTime() > baseline * policy.getLatencyTolerance()) {
+            decreaseConcurrencyLimit();
+            return;
         }
+        long current;
+        long next;
+        do {
+            current = concurrencyLimit.get();
+            double limit = Double.longBitsToDouble(current);
+            if (getInFlightRequests() < limit / 2) {
+                return;
+            }
+            next = Double.doubleToRawLongBits(Math.min(limit + 1 / limit, policy.getMaxLimit()));
+        } while (!concurrencyLimit.compareAndSet(current, next));
+    }
 
-        return System.currentTimeMillis() > retryAfter;
+    /**
+     * Register a response of the overloaded upstream. The limit is multiplied by the backoff ratio at most once per average response time,
+     * so a burst of failures of the requests sent at the same time shrinks the limit once.
+     */
+    void decreaseConcurrencyLimit() {
+        ConcurrencyLimit policy = concurrencyPolicy;
+        if (policy == null) {
+            return;
+        }
+        long currentTime = System.currentTimeMillis();
+        long decreasedAt = limitDecreasedAt.get();
+        if (currentTime - decreasedAt < Math.max(getResponseTime(), 1) || !limitDecreasedAt.compareAndSet(decreasedAt, currentTime)) {
+            return;
+        }
+        concurrencyLimit.getAndUpdate(current -> Double.doubleToRawLongBits(
+                Math.max(Double.longBitsToDouble(current) * policy.getBackoffRatio(), policy.getMinLimit())));
+    }
+
+    /**
+     * Register a new sample of time to first byte.
+     *
+     * @param timeToFirstByte time in millis between sending request to upstream and receiving response headers
+     */
+    void updateResponseTime(long timeToFirstByte) {
+        double sample = Math.max(timeToFirstByte, 0);
+        long current;
+        long next;
+        do {
+            current = responseTime.get();
+            double average = Double.longBitsToDouble(current);
+            average = average == 0 ? sample : average + RESPONSE_TIME_SMOOTHING_FACTOR * (sample - average);
+            next = Double.doubleToRawLongBits(average);
+        } while (!responseTime.compareAndSet(current, next));
+
+        // the baseline follows the lowest average immediately and higher ones slowly, concurrent updates may lose a sample
+        double average = Double.longBitsToDouble(next);
+        double baseline = Double.longBitsToDouble(baselineResponseTime.get());
+        baseline = (baseline == 0 || average < baseline) ? average : baseline + BASELINE_SMOOTHING_FACTOR * (average - baseline);
+        baselineResponseTime.set(Double.doubleToRawLongBits(baseline));
+    }
+
+    double getResponseTime() {
+        return Double.longBitsToDouble(responseTime.get());
+    }
+
+    /**
+     * Estimates the expected load of upstream taking into account in-flight requests, response time and weight.
+     * Upstreams without response time samples are considered fast, so they get a chance to be measured.
+     */
+    double getLoad() {
+        return (getInFlightRequests() + 1) * Math.max(getResponseTime(), 1) / upstream.getWeight();
     }
 
     enum RetryAfterSource {
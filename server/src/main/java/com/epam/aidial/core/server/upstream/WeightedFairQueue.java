@@ -0,0 +1,104 @@
+package com.epam.aidial.core.server.upstream;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Not thread-safe! Queue of the items grouped into classes by weight.
+ * <p>
+ * While several classes have items, each of them is polled in proportion to its weight:
+ * a class of weight 3 gets three items polled per an item of a class of weight 1, so no class is starved.
+ * The items within the class are polled in FIFO order. Stride scheduling is used:
+ * the class with the lowest pass is polled next and its pass advances by its stride inversely proportional to its weight,
+ * the heavier class wins a tie. The passes are integers, so the order doesn't depend on the rounding of fractions.
+ * </p>
+ */
+class WeightedFairQueue<T> {
+
+    /**
+     * The least common multiple of the weights 1 to 16, so the strides of these weights are exact.
+     */
+    static final long STRIDE_SCALE = 720720;
+
+    private final Map<Integer, Lane<T>> lanes = new TreeMap<>();
+
+    /**
+     * The pass of the class polled last. An idle class starts from it, so it doesn't accumulate credit while being empty.
+     */
+    private long pass;
+
+    private int size;
+
+    /**
+     * Adds the item to the tail of the class.
+     *
+     * @param weight the weight of the class, values less than 1 are treated as 1
+     */
+    void add(T item, int weight) {
+        lane(weight).items.addLast(item);
+        size++;
+    }
+
+    /**
+     * Adds the item to the head of the class, e.g. to return the polled item which can't be served yet.
+     */
+    void addFirst(T item, int weight) {
+        lane(weight).items.addFirst(item);
+        size++;
+    }
+
+    boolean remove(T item, int weight) {
+        Lane<T> lane = lanes.get(Math.max(weight, 1));
+        if (lane == null || !lane.items.remove(item)) {
+            return false;
+        }
+        size--;
+        return true;
+    }
+
+    @Nullable
+    T poll() {
+        Lane<T> next = null;
+        for (Lane<T> lane : lanes.values()) {
+            if (!lane.items.isEmpty() && (next == null || lane.pass <= next.pass)) {
+                next = lane;
+            }
+        }
+        if (next == null) {
+            return null;
+        }
+        pass = next.pass;
+        next.pass += next.stride;
+        size--;
+        return next.items.pollFirst();
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private Lane<T> lane(int weight) {
+        Lane<T> lane = lanes.computeIfAbsent(Math.max(weight, 1), Lane::new);
+        if (lane.items.isEmpty()) {
+            lane.pass = Math.max(lane.pass, pass);
+        }
+        return lane;
+    }
+
+    private static class Lane<T> {
+        final long stride;
+        final Deque<T> items = new ArrayDeque<>();
+        long pass;
+
+        Lane(int weight) {
+            this.stride = Math.max(STRIDE_SCALE / weight, 1);
+        }
+    }
+}
@@ -4,15 +4,26 @@ import com.epam.aidial.core.server.function.BaseResponseFunction;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ByteProcessor;
 import io.vertx.core.Future;
 import io.vertx.core.buffer.Buffer;
-import jodd.io.CharBufferReader;
+import io.vertx.core.buffer.impl.BufferImpl;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Parses the server-sent events and applies the handler to the JSON data of the events.
+ * <p>
+ * The events are scanned in place: the data is copied only if the event spans several chunks.
+ * If the handler defines the event filter, only the events containing the filter bytes are parsed to JSON.
+ * </p>
+ */
 @Slf4j
 public class EventStreamParser {
 
@@ -39,6 +50,8 @@ public class EventStreamParser {
 
     private final BaseResponseFunction handler;
 
+    private final ByteBuf filter;
+
     private Stages stage;
 
     private List<Future<Void>> futures;
@@ -50,27 +63,39 @@ public class EventStreamParser {
 
     public EventStreamParser(int initialSizeHint, BaseResponseFunction handler) {
         this.handler = handler == null ? DEFAULT_HANDLER : handler;
+        String eventFilter = this.handler.getEventFilter();
+        this.filter = (eventFilter == null) ? null : Unpooled.wrappedBuffer(eventFilter.getBytes(StandardCharsets.UTF_8));
         buffer = ByteBufAllocator.DEFAULT.heapBuffer(initialSizeHint, Integer.MAX_VALUE);
     }
 
+    /**
+     * Completes the handler once all events are parsed.
+     */
+    public Future<Void> complete() {
+        return handler.complete()
+                .onFailure(error -> log.warn("Error occurred at completing event stream handler", error));
+    }
+
     public synchronized Future<Boolean> parse(Buffer chunk) {
         if (lastChunk) {
             return Future.succeededFuture(true);
         }
+        // the view of the chunk bytes without copying, Buffer#getByteBuf is deprecated
+        ByteBuf bytes = ((BufferImpl) chunk).byteBuf().slice();
         chunkIndex = 0;
         futures = null;
         if (firstChunk) {
-            chunkIndex += skipBom(chunk);
+            chunkIndex += skipBom(bytes);
             firstChunk = false;
             stage = Stages.EVENT;
         }
 
         try {
-            while (chunkIndex < chunk.length()) {
+            while (chunkIndex < bytes.writerIndex()) {
                 switch (stage) {
-                    case EVENT -> handleEventStage(chunk);
-                    case DATA -> handleDataStage(chunk);
-                    case EOL -> handleEndOfLineStage(chunk);
+                    case EVENT -> handleEventStage(bytes);
+                    case DATA -> handleDataStage(bytes);
+                    case EOL -> handleEndOfLineStage(bytes);
                     default -> throw new IllegalStateException("unknown stage + " + stage);
                 }
                 if (lastChunk) {
@@ -89,8 +114,8 @@ public class EventStreamParser {
         return Future.join(futures).transform(ignore -> Future.succeededFuture(localLastChunk));
     }
 
-    private void handleEventStage(Buffer chunk) {
-        for (; eventIndex < EVENT_TOKEN.length && chunkIndex < chunk.length(); chunkIndex++, eventIndex++) {
+    private void handleEventStage(ByteBuf chunk) {
+        for (; eventIndex < EVENT_TOKEN.length && chunkIndex < chunk.writerIndex(); chunkIndex++, eventIndex++) {
             if (EVENT_TOKEN[eventIndex] != chunk.getByte(chunkIndex)) {
                 throw new IllegalArgumentException("Bad event");
             }
@@ -102,51 +127,63 @@ public class EventStreamParser {
         }
     }
 
-    private void handleDataStage(Buffer chunk) {
-        boolean eol = accumulateBuffer(chunk);
-        if (eol) {
-            boolean done = isLastMessage();
-            if (done) {
-                lastChunk = true;
-                return;
-            }
-            if (futures == null) {
-                futures = new ArrayList<>();
-            }
-            try (CharBufferReader reader = toCharBufferReader()) {
-                ObjectNode tree = (ObjectNode) ProxyUtil.MAPPER.readTree(reader);
-                Future<Void> future = handler.apply(tree)
-                        .onFailure(error -> log.warn("Error occurred at handling json data from chunk", error));
-                futures.add(future);
-            } catch (Throwable e) {
-                log.error("Error occurred at parsing json data from chunk", e);
-            } finally {
-                buffer.clear();
-                stage = Stages.EOL;
-            }
+    private void handleDataStage(ByteBuf chunk) {
+        int end = chunk.forEachByte(chunkIndex, chunk.writerIndex() - chunkIndex, ByteProcessor.FIND_CRLF);
+        if (end < 0) {
+            // the event continues in the next chunk
+            buffer.writeBytes(chunk, chunkIndex, chunk.writerIndex() - chunkIndex);
+            chunkIndex = chunk.writerIndex();
+            return;
         }
-    }
 
-    private CharBufferReader toCharBufferReader() {
-        return new CharBufferReader(StandardCharsets.UTF_8.decode(buffer.nioBuffer()));
+        ByteBuf data;
+        if (buffer.isReadable()) {
+            buffer.writeBytes(chunk, chunkIndex, end - chunkIndex);
+            data = buffer;
+        } else {
+            data = chunk.slice(chunkIndex, end - chunkIndex);
+        }
+        chunkIndex = end;
+
+        try {
+            handleData(data);
+        } finally {
+            buffer.clear();
+            stage = Stages.EOL;
+        }
     }
 
-    private boolean accumulateBuffer(Buffer chunk) {
-        for (; chunkIndex < chunk.length(); chunkIndex++) {
-            byte b = chunk.getByte(chunkIndex);
-            if (b == '\n' || b == '\r') {
-                return true;
+    private void handleData(ByteBuf data) {
+        if (isLastMessage(data)) {
+            lastChunk = true;
+            return;
+        }
+
+        if (filter != null && ByteBufUtil.indexOf(filter, data) < 0) {
+            return;
+        }
+
+        try (ByteBufInputStream stream = new ByteBufInputStream(data.duplicate())) {
+            ObjectNode tree = (ObjectNode) ProxyUtil.MAPPER.readTree(stream);
+            Future<Void> future = handler.apply(tree)
+                    .onFailure(error -> log.warn("Error occurred at handling json data from chunk", error));
+            // the completed futures don't delay the chunk
+            if (!future.isComplete()) {
+                if (futures == null) {
+                    futures = new ArrayList<>();
+                }
+                futures.add(future);
             }
-            buffer.writeByte(b);
+        } catch (Throwable e) {
+            log.error("Error occurred at parsing json data from chunk", e);
         }
-        return false;
     }
 
-    private boolean isLastMessage() {
-        if (buffer.readableBytes() == DONE_TOKEN.length) {
+    private static boolean isLastMessage(ByteBuf data) {
+        if (data.readableBytes() == DONE_TOKEN.length) {
             int j = 0;
             for (; j < DONE_TOKEN.length; j++) {
-                if (buffer.getByte(j) != DONE_TOKEN[j]) {
+                if (data.getByte(data.readerIndex() + j) != DONE_TOKEN[j]) {
                     break;
                 }
             }
@@ -155,8 +192,8 @@ public class EventStreamParser {
         return false;
     }
 
-    private void handleEndOfLineStage(Buffer chunk) {
-        for (; chunkIndex < chunk.length(); chunkIndex++) {
+    private void handleEndOfLineStage(ByteBuf chunk) {
+        for (; chunkIndex < chunk.writerIndex(); chunkIndex++) {
             byte b = chunk.getByte(chunkIndex);
             if (b == '\n' || b == '\r') {
                 continue;
@@ -166,8 +203,8 @@ public class EventStreamParser {
         }
     }
 
-    private int skipBom(Buffer chunk) {
-        if (chunk.length() < BOM.length) {
+    private static int skipBom(ByteBuf chunk) {
+        if (chunk.writerIndex() < BOM.length) {
             return 0;
         }
         for (int i = 0; i < BOM.length; i++) {
@@ -1,8 +1,10 @@
 package com.epam.aidial.core.server.vertx.stream;
 
+import com.epam.aidial.core.server.limiter.WorkerAdmission;
 import com.epam.aidial.core.storage.blobstore.BlobStorage;
 import com.epam.aidial.core.storage.blobstore.BlobStorageUtil;
 import com.epam.aidial.core.storage.data.FileMetadata;
+import com.epam.aidial.core.storage.http.HttpException;
 import com.epam.aidial.core.storage.resource.ResourceDescriptor;
 import com.epam.aidial.core.storage.service.ResourceService;
 import com.epam.aidial.core.storage.util.EtagBuilder;
@@ -26,12 +28,14 @@ import org.jclouds.io.payloads.InputStreamPayload;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Implementation of vertx {@link io.vertx.core.streams.WriteStream} that handles data chunks (from {@link io.vertx.core.streams.ReadStream}) and writes them to the blob storage.
  * If file content is bigger than 5MB - multipart upload will be used.
  * Chunk size can be configured via {@link #setWriteQueueMaxSize(int)} method, but should be no less than 5 MB according to the s3 specification.
  * If any exception is caught in between - multipart upload will be aborted.
+ * The upload is admitted to the worker pool with its first write to the blob storage, the rest of the writes bypass the admission.
  */
 @Slf4j
 public class BlobWriteStream implements WriteStream<Buffer> {
@@ -39,6 +43,7 @@ public class BlobWriteStream implements WriteStream<Buffer> {
     public static final int MIN_PART_SIZE_BYTES = 5 * 1024 * 1024;
 
     private final Vertx vertx;
+    private final WorkerAdmission workerAdmission;
     private final ResourceService resourceService;
     private final BlobStorage storage;
     private final ResourceDescriptor resource;
@@ -64,13 +69,17 @@ public class BlobWriteStream implements WriteStream<Buffer> {
 
     private long bytesHandled;
 
+    private boolean admitted;
+
     public BlobWriteStream(Vertx vertx,
+                           WorkerAdmission workerAdmission,
                            ResourceService resourceService,
                            BlobStorage storage,
                            ResourceDescriptor resource,
                            EtagHeader etag,
                            String contentType) {
         this.vertx = vertx;
+        this.workerAdmission = workerAdmission;
         this.resourceService = resourceService;
         this.storage = storage;
         this.resource = resource;
@@ -113,8 +122,11 @@ public class BlobWriteStream implements WriteStream<Buffer> {
 
     @Override
     public void end(Handler<AsyncResult<Void>> handler) {
-        Future<Void> result = vertx.executeBlocking(() -> {
+        Future<Void> result = executeBlocking(() -> {
             synchronized (BlobWriteStream.this) {
+                if (exception instanceof HttpException e) {
+                    throw e;
+                }
                 if (exception != null) {
                     throw new RuntimeException(exception);
                 }
@@ -162,7 +174,7 @@ public class BlobWriteStream implements WriteStream<Buffer> {
 
     @Override
     public WriteStream<Buffer> drainHandler(Handler<Void> handler) {
-        vertx.executeBlocking(() -> {
+        executeBlocking(() -> {
             synchronized (BlobWriteStream.this) {
                 try {
                     if (mpu == null) {
@@ -187,6 +199,14 @@ public class BlobWriteStream implements WriteStream<Buffer> {
                 }
             }
             return null;
+        }).onFailure(error -> {
+            // the upload is rejected by the admission
+            synchronized (BlobWriteStream.this) {
+                exception = error;
+            }
+            if (handler != null) {
+                handler.handle(null);
+            }
         });
 
         return this;
@@ -204,6 +224,16 @@ public class BlobWriteStream implements WriteStream<Buffer> {
         log.warn("Multipart upload aborted", ex);
     }
 
+    private <T> Future<T> executeBlocking(Callable<T> callable) {
+        boolean admit;
+        synchronized (this) {
+            admit = !admitted;
+            admitted = true;
+        }
+
+        return admit ? workerAdmission.execute(WorkerAdmission.Category.UPLOAD, callable) : vertx.executeBlocking(callable);
+    }
+
     private static Payload bufferToPayload(ByteBuf buffer) {
         Payload payload = new InputStreamPayload(new ByteBufInputStream(buffer));
         // Content length is required by S3BlobStore
@@ -12,12 +12,14 @@ import io.vertx.core.streams.impl.PipeImpl;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 @Slf4j
 @Getter
 public class BufferingReadStream implements ReadStream<Buffer> {
 
     private final ReadStream<Buffer> stream;
-    private final Buffer content;
+    private final SpillableBuffer content;
 
     private Handler<Buffer> chunkHandler;
     private Handler<Void> endHandler;
@@ -40,8 +42,16 @@ public class BufferingReadStream implements ReadStream<Buffer> {
     }
 
     public BufferingReadStream(ReadStream<Buffer> stream, int initialSize, BaseResponseFunction streamHandler) {
+        this(stream, initialSize, streamHandler, null);
+    }
+
+    /**
+     * @param retention - the policy of retaining the content or null to retain the whole content in the heap
+     */
+    public BufferingReadStream(ReadStream<Buffer> stream, int initialSize, BaseResponseFunction streamHandler,
+                               @Nullable ResponseRetention retention) {
         this.stream = stream;
-        this.content = Buffer.buffer(initialSize);
+        this.content = new SpillableBuffer(initialSize, retention);
         if (streamHandler == null) {
             this.eventStreamParser = null;
         } else {
@@ -86,7 +96,7 @@ public class BufferingReadStream implements ReadStream<Buffer> {
 
             if (error == null) {
                 if (content.length() > 0) {
-                    notifyOnChunk(content.slice());
+                    notifyOnChunk(content.view().slice());
                 }
 
                 if (ended) {
@@ -126,9 +136,23 @@ public class BufferingReadStream implements ReadStream<Buffer> {
         return this;
     }
 
+    /**
+     * @return the content received so far
+     */
+    public synchronized Buffer getContent() {
+        return content.view();
+    }
+
+    /**
+     * Releases the content retained on disk once the request is finalized, the content received so far stays readable.
+     */
+    public synchronized void release() {
+        content.release();
+    }
+
     public synchronized void end(HttpServerResponse response) {
         if (lastChunkPos != -1) {
-            Buffer lastChunk = content.slice(lastChunkPos, content.length());
+            Buffer lastChunk = content.view().slice(lastChunkPos, content.length());
             response.end(lastChunk);
         } else {
             response.end();
@@ -137,14 +161,14 @@ public class BufferingReadStream implements ReadStream<Buffer> {
 
     private synchronized void handleChunk(Buffer chunk) {
         int pos = content.length();
-        content.appendBuffer(chunk);
+        content.append(chunk);
         if (lastChunkPos != -1) {
             // stop streaming
             return;
         }
         if (eventStreamParser != null) {
             // build chain of chunk futures: the chunks should be sent in the same order as they arrive
-            if (streamHandlerFuture == null) {
+            if (streamHandlerFuture == null || streamHandlerFuture.isComplete()) {
                 streamHandlerFuture = parseChunk(chunk, pos);
             } else {
                 streamHandlerFuture = streamHandlerFuture.transform(ignore -> parseChunk(chunk, pos));
@@ -172,11 +196,15 @@ public class BufferingReadStream implements ReadStream<Buffer> {
 
     private synchronized void handleEnd(Void ignored) {
         ended = true;
-        if (streamHandlerFuture == null) {
+        if (eventStreamParser == null) {
             notifyOnEnd(ignored);
-        } else {
-            streamHandlerFuture.onComplete(ignore -> notifyOnEnd(ignored));
+            return;
         }
+
+        // the stream ends once the handler is completed, e.g. the attachments are shared
+        Future<?> future = (streamHandlerFuture == null) ? Future.succeededFuture() : streamHandlerFuture;
+        future.transform(ignore -> eventStreamParser.complete())
+                .onComplete(ignore -> notifyOnEnd(ignored));
     }
 
     private synchronized void handleException(Throwable exception) {
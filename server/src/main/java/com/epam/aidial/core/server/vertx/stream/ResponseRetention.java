@@ -0,0 +1,57 @@
+package com.epam.aidial.core.server.vertx.stream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.json.JsonObject;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Policy of retaining the upstream responses until the request is logged and billed.
+ * <p>
+ * The first bytes of every response are kept in the heap, the rest is spilled to a memory-mapped temporary file,
+ * so long streams and large responses don't hold the heap. The retained bytes are released once the request is finalized.
+ * </p>
+ */
+public class ResponseRetention {
+
+    /**
+     * Max heap memory in bytes retained per response.
+     */
+    @Getter
+    private final int memoryLimit;
+    /**
+     * The directory of the temporary files the responses are spilled to.
+     */
+    @Getter
+    private final Path spillDirectory;
+
+    private final AtomicLong memoryBytes = new AtomicLong();
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    public ResponseRetention(MeterRegistry registry, JsonObject settings) {
+        this.memoryLimit = settings.getInteger("memoryLimit", 4194304);
+        this.spillDirectory = Path.of(settings.getString("spillDirectory", System.getProperty("java.io.tmpdir")));
+
+        Gauge.builder("aidial.response.retained.bytes", memoryBytes, AtomicLong::get)
+                .tag("storage", "memory")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("aidial.response.retained.bytes", diskBytes, AtomicLong::get)
+                .tag("storage", "disk")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    void retain(long memory, long disk) {
+        memoryBytes.addAndGet(memory);
+        diskBytes.addAndGet(disk);
+    }
+
+    void release(long memory, long disk) {
+        memoryBytes.addAndGet(-memory);
+        diskBytes.addAndGet(-disk);
+    }
+}
@@ -0,0 +1,195 @@
+package com.epam.aidial.core.server.vertx.stream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.buffer.impl.BufferImpl;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Append-only content keeping up to the memory limit in the heap and spilling the rest to a memory-mapped temporary file.
+ * <p>
+ * The content is read through a single {@link Buffer} view over the heap part and the mapped segments of the file.
+ * The temporary file is deleted and the retained bytes are released once the request is finalized,
+ * or once the content is garbage collected if the request is abandoned. The mapped segments referenced by the views stay valid.
+ * </p>
+ */
+@Slf4j
+class SpillableBuffer {
+
+    private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Buffer memory;
+    private final int memoryLimit;
+    private final Resources resources;
+    @Nullable
+    private final Cleaner.Cleanable cleanable;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    // the content after the failed spill
+    private Buffer overflow;
+    private int length;
+    private Buffer view;
+
+    SpillableBuffer(int initialSize, @Nullable ResponseRetention retention) {
+        this.memoryLimit = (retention == null) ? Integer.MAX_VALUE : retention.getMemoryLimit();
+        this.memory = Buffer.buffer(Math.min(initialSize, memoryLimit));
+        this.resources = new Resources(retention);
+        this.cleanable = (retention == null) ? null : CLEANER.register(this, resources);
+    }
+
+    int length() {
+        return length;
+    }
+
+    void append(Buffer chunk) {
+        int inMemory = Math.min(chunk.length(), Math.max(memoryLimit - memory.length(), 0));
+        if (inMemory > 0) {
+            memory.appendBuffer(chunk, 0, inMemory);
+            resources.retain(inMemory, 0);
+        }
+
+        if (inMemory < chunk.length()) {
+            spill(chunk, inMemory);
+        }
+
+        length += chunk.length();
+        view = null;
+    }
+
+    /**
+     * Deletes the temporary file and releases the retained bytes, the content read so far stays readable.
+     * The content appended later is kept in the heap and not accounted.
+     */
+    void release() {
+        if (cleanable != null) {
+            cleanable.clean();
+        }
+    }
+
+    /**
+     * @return the content, the heap part itself if nothing is spilled
+     */
+    Buffer view() {
+        if (segments.isEmpty() && overflow == null) {
+            return memory;
+        }
+
+        if (view == null) {
+            List<ByteBuf> parts = new ArrayList<>(segments.size() + 2);
+            parts.add(((BufferImpl) memory).byteBuf().slice());
+            for (MappedByteBuffer segment : segments) {
+                parts.add(Unpooled.wrappedBuffer(segment.duplicate().flip()));
+            }
+            if (overflow != null) {
+                parts.add(((BufferImpl) overflow).byteBuf().slice());
+            }
+            view = BufferImpl.buffer(Unpooled.wrappedBuffer(parts.toArray(ByteBuf[]::new)));
+        }
+
+        return view;
+    }
+
+    private void spill(Buffer chunk, int offset) {
+        ByteBuf bytes = ((BufferImpl) chunk).byteBuf().slice();
+        int index = offset;
+
+        if (overflow == null) {
+            try {
+                while (index < chunk.length()) {
+                    MappedByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                    if (segment == null || !segment.hasRemaining()) {
+                        segment = resources.map((long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE);
+                        segments.add(segment);
+                    }
+
+                    int count = Math.min(chunk.length() - index, segment.remaining());
+                    ByteBuffer target = segment.slice().limit(count);
+                    bytes.getBytes(index, target);
+                    segment.position(segment.position() + count);
+                    resources.retain(0, count);
+                    index += count;
+                }
+            } catch (IOException e) {
+                // keeping the content in the heap is better than losing it
+                log.warn("Failed to spill response to disk: {}", e.getMessage());
+                overflow = Buffer.buffer();
+            }
+        }
+
+        if (index < chunk.length()) {
+            overflow.appendBuffer(chunk, index, chunk.length() - index);
+            resources.retain(chunk.length() - index, 0);
+        }
+    }
+
+    /**
+     * Holds the temporary file and the accounting of the retained bytes, must not reference the content.
+     */
+    private static class Resources implements Runnable {
+
+        @Nullable
+        private final ResponseRetention retention;
+        private FileChannel channel;
+        private long memoryBytes;
+        private long diskBytes;
+        private boolean released;
+
+        Resources(@Nullable ResponseRetention retention) {
+            this.retention = retention;
+        }
+
+        synchronized MappedByteBuffer map(long position, int size) throws IOException {
+            if (released) {
+                throw new IOException("Response content is released");
+            }
+
+            if (channel == null) {
+                Path directory = (retention == null) ? Path.of(System.getProperty("java.io.tmpdir")) : retention.getSpillDirectory();
+                Path file = Files.createTempFile(directory, "aidial-response-", ".tmp");
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        }
+
+        synchronized void retain(long memory, long disk) {
+            if (released) {
+                return;
+            }
+
+            memoryBytes += memory;
+            diskBytes += disk;
+            if (retention != null) {
+                retention.retain(memory, disk);
+            }
+        }
+
+        @Override
+        public synchronized void run() {
+            released = true;
+            if (retention != null) {
+                retention.release(memoryBytes, diskBytes);
+            }
+
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("Failed to delete spilled response: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
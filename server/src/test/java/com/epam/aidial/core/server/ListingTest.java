@@ -1,6 +1,7 @@
 package com.epam.aidial.core.server;
 
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.codec.BodyCodec;
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @ExtendWith(VertxExtension.class)
 public class ListingTest extends ResourceBaseTest {
@@ -106,4 +108,19 @@ public class ListingTest extends ResourceBaseTest {
                     });
                 }));
     }
+
+    @Test
+    void testListingNotModified() {
+        Response response = send(HttpMethod.GET, "/openai/models");
+        assertEquals(200, response.status());
+        String etag = response.headers().get("etag");
+        assertNotNull(etag);
+
+        response = send(HttpMethod.GET, "/openai/models", null, null, "if-none-match", etag);
+        assertEquals(304, response.status());
+
+        response = send(HttpMethod.GET, "/openai/models", null, null, "if-none-match", "\"unknown\"");
+        assertEquals(200, response.status());
+        assertEquals(etag, response.headers().get("etag"));
+    }
 }
@@ -1,9 +1,16 @@
 package com.epam.aidial.core.server;
 
 import com.epam.aidial.core.server.data.Notification;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.vertx.core.http.HttpMethod;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class NotificationApiTest extends ResourceBaseTest {
 
@@ -72,6 +79,69 @@ public class NotificationApiTest extends ResourceBaseTest {
                 """);
     }
 
+    @Test
+    void testNotificationPagination() throws Exception {
+        createNotification("id1", 1000, "message1");
+        createNotification("id2", 2000, "message2");
+        createNotification("id3", 2000, "message3");
+
+        Response response = send(HttpMethod.POST, "/v1/ops/notification/list", "limit=2", "");
+        verify(response, 200);
+        JsonNode page = ProxyUtil.MAPPER.readTree(response.body());
+        assertEquals(List.of("id1", "id2"), page.get("notifications").findValuesAsText("id"));
+
+        String token = page.get("nextToken").asText();
+        response = send(HttpMethod.POST, "/v1/ops/notification/list", "limit=2&token=" + token, "");
+        verify(response, 200);
+        page = ProxyUtil.MAPPER.readTree(response.body());
+        assertEquals(List.of("id3"), page.get("notifications").findValuesAsText("id"));
+        assertNull(page.get("nextToken"));
+
+        // the last notification of the page is deleted before the next page is requested
+        response = operationRequest("/v1/ops/notification/delete", """
+                {
+                   "ids": ["id2"]
+                }
+                """);
+        verify(response, 200);
+        response = send(HttpMethod.POST, "/v1/ops/notification/list", "limit=2&token=" + token, "");
+        page = ProxyUtil.MAPPER.readTree(response.body());
+        assertEquals(List.of("id3"), page.get("notifications").findValuesAsText("id"));
+
+        response = send(HttpMethod.POST, "/v1/ops/notification/list", "limit=0", "");
+        verify(response, 400);
+    }
+
+    @Test
+    void testNotificationsReloadedAfterEviction() {
+        createNotification("id1", 1000, "message1");
+        createNotification("id2", 2000, "message2");
+        Response response = operationRequest("/v1/ops/notification/delete", """
+                {
+                   "ids": ["id1"]
+                }
+                """);
+        verify(response, 200);
+
+        // the Redis keys of the notifications are evicted, the resource still has them
+        dial.getRedis().getKeys().deleteByPattern("notifications:*");
+
+        response = operationRequest("/v1/ops/notification/list", "");
+        verifyJson(response, 200, """
+                {
+                 "notifications": [
+                   {
+                     "id": "id2",
+                     "url": "url",
+                     "type": "PUBLICATION",
+                     "message": "message2",
+                     "timestamp": 2000
+                   }
+                 ]
+                }
+                """);
+    }
+
     private void createNotification(String id, long time, String content) {
         Notification notification = new Notification(id, "url", Notification.NotificationType.PUBLICATION, content, time);
         notificationService.createNotification(bucket, encryptionService.decrypt(bucket), notification);
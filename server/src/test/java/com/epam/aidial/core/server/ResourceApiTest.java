@@ -138,6 +138,51 @@ class ResourceApiTest extends ResourceBaseTest {
         verify(response, 200, "");
     }
 
+    @Test
+    public void testPatchConversation() {
+        Response response = resourceRequest(HttpMethod.PATCH, "/folder/conversation", "{\"name\":\"renamed\"}");
+        verify(response, 404, "Not found: conversations/3CcedGxCx23EwiVbVmscVktScRyf46KypuBQ65miviST/folder/conversation");
+
+        response = resourceRequest(HttpMethod.PUT, "/folder/conversation", CONVERSATION_BODY_1);
+        verify(response, 200);
+        String etag = response.headers().get("etag");
+
+        response = resourceRequest(HttpMethod.PATCH, "/folder/conversation", "{\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}]}",
+                "if-match", "123");
+        verifyNotExact(response, 412, "If-match condition is failed for etag");
+
+        response = resourceRequest(HttpMethod.PATCH, "/folder/conversation", "{\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}]}",
+                "if-match", etag);
+        verify(response, 200);
+        String patchedEtag = response.headers().get("etag");
+        assertTrue(!etag.equals(patchedEtag));
+        verifyNotExact(response, 200, "\"etag\":\"" + patchedEtag + "\"");
+
+        response = resourceRequest(HttpMethod.PATCH, "/folder/conversation", """
+                {
+                  "messages": [{"role": "assistant", "content": "hello\\nworld"}],
+                  "name": "renamed"
+                }
+                """, "if-match", patchedEtag);
+        verify(response, 200);
+        patchedEtag = response.headers().get("etag");
+
+        response = resourceRequest(HttpMethod.GET, "/folder/conversation");
+        verifyNotExact(response, 200,
+                "\"messages\":[{\"role\":\"user\",\"content\":\"hi\"},{\"role\":\"assistant\",\"content\":\"hello\\nworld\"}]");
+        verifyNotExact(response, 200, "\"name\":\"renamed\"");
+        assertEquals(patchedEtag, response.headers().get("etag"));
+
+        response = resourceRequest(HttpMethod.PATCH, "/folder/conversation", "[]");
+        verify(response, 400, "Delta must be a non-empty JSON object");
+
+        response = resourceRequest(HttpMethod.PATCH, "/folder/conversation", "{\"messages\":1}");
+        verify(response, 400, "Delta messages must be an array");
+
+        response = send(HttpMethod.PATCH, "/v1/prompts/" + bucket + "/prompt", null, "{\"name\":\"renamed\"}");
+        verify(response, 400, "Patch is supported for conversations only");
+    }
+
     @Test
     public void testFileUploadWithInvalidResourcePath() {
         Response response = resourceRequest(HttpMethod.PUT, "/folder/conversation.", CONVERSATION_BODY_1);
@@ -57,6 +57,21 @@ class RouteApiTest extends ResourceBaseTest {
         }
     }
 
+    @Test
+    void routeStreamRequestBody() {
+        String body = "chunk ".repeat(64 * 1024);
+        TestWebServer.Handler handler = request -> new MockResponse().setBody(request.getPath() + ":" + request.getBody().readUtf8());
+
+        try (TestWebServer server = new TestWebServer(9876, handler)) {
+            Response response = send(HttpMethod.POST, "/v1/streaming_upload", null, body, "api-key", "vstore_admin_key");
+            assertEquals(200, response.status());
+            assertEquals("/v1/streaming_upload:" + body, response.body());
+
+            response = send(HttpMethod.POST, "/v1/streaming_upload", null, body, "api-key", "vstore_user_key");
+            assertEquals(403, response.status());
+        }
+    }
+
     private static List<Arguments> datasource() {
         return List.of(
                 Arguments.of(HttpMethod.GET, "/v1/plain", "vstore_user_key", 200, "/"),
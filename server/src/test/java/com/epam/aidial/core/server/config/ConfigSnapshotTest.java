@@ -0,0 +1,87 @@
+package com.epam.aidial.core.server.config;
+
+import com.epam.aidial.core.config.Config;
+import com.epam.aidial.core.config.Model;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ConfigSnapshotTest {
+
+    @Test
+    void testRoleIndex() {
+        ConfigSnapshot snapshot = new ConfigSnapshot(createConfig(), "v1");
+        ConfigSnapshot.RoleIndex<Model> models = snapshot.getModels();
+
+        assertEquals(List.of("public"), names(models.select(null)));
+        assertEquals(List.of("public"), names(models.select(List.of())));
+        assertEquals(List.of("public", "role1"), names(models.select(List.of("role1"))));
+        assertEquals(List.of("public", "role1", "role2"), names(models.select(List.of("role2"))));
+        assertEquals(List.of("public", "role1", "role2"), names(models.select(List.of("role1", "role2", "unknown"))));
+    }
+
+    @Test
+    void testListingIsSharedByRolesWithSameAccess() {
+        ConfigSnapshot snapshot = new ConfigSnapshot(createConfig(), "v1");
+        AtomicInteger calls = new AtomicInteger();
+
+        ConfigSnapshot.Listing listing1 = snapshot.getListing("models", snapshot.getModels(), List.of("role2"), models -> {
+            calls.incrementAndGet();
+            return names(models);
+        });
+        ConfigSnapshot.Listing listing2 = snapshot.getListing("models", snapshot.getModels(), List.of("role1", "role2"), models -> {
+            calls.incrementAndGet();
+            return names(models);
+        });
+        ConfigSnapshot.Listing listing3 = snapshot.getListing("models", snapshot.getModels(), List.of("role1"), models -> {
+            calls.incrementAndGet();
+            return names(models);
+        });
+
+        assertSame(listing1, listing2);
+        assertNotEquals(listing1.etag(), listing3.etag());
+        assertEquals(2, calls.get());
+        assertEquals("[\"public\",\"role1\",\"role2\"]", listing1.body().toString());
+    }
+
+    @Test
+    void testEtagDependsOnContentOnly() {
+        ConfigSnapshot snapshot1 = new ConfigSnapshot(createConfig(), "v1");
+        ConfigSnapshot snapshot2 = new ConfigSnapshot(createConfig(), "v2");
+
+        ConfigSnapshot.Listing listing1 = snapshot1.getListing("models", snapshot1.getModels(), List.of("role1"), ConfigSnapshotTest::names);
+        ConfigSnapshot.Listing listing2 = snapshot2.getListing("models", snapshot2.getModels(), List.of("role1"), ConfigSnapshotTest::names);
+
+        assertEquals(listing1.etag(), listing2.etag());
+    }
+
+    private static Config createConfig() {
+        Map<String, Model> models = new LinkedHashMap<>();
+        models.put("public", createModel("public", null));
+        models.put("role1", createModel("role1", Set.of("role1", "role2")));
+        models.put("role2", createModel("role2", Set.of("role2")));
+        models.put("nobody", createModel("nobody", Set.of()));
+        Config config = new Config();
+        config.setModels(models);
+        return config;
+    }
+
+    private static Model createModel(String name, Set<String> userRoles) {
+        Model model = new Model();
+        model.setName(name);
+        model.setUserRoles(userRoles);
+        return model;
+    }
+
+    private static List<String> names(List<Model> models) {
+        return models.stream().map(Model::getName).toList();
+    }
+}
@@ -6,20 +6,30 @@ import com.epam.aidial.core.config.Config;
 import com.epam.aidial.core.server.ProxyContext;
 import com.epam.aidial.core.server.data.AssistantData;
 import com.epam.aidial.core.server.data.ListData;
+import com.epam.aidial.core.server.util.ProxyUtil;
 import com.epam.aidial.core.storage.http.HttpStatus;
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.List;
-
 import static com.epam.aidial.core.config.Config.ASSISTANT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -81,19 +91,23 @@ public class AssistantControllerTest {
         Assistant assistant = new Assistant();
         assistant.setName("key");
         config.getAssistant().getAssistants().put("key", assistant);
+        HttpServerRequest request = mock(HttpServerRequest.class);
+        when(request.method()).thenReturn(HttpMethod.GET);
+        when(context.getRequest()).thenReturn(request);
+        when(context.putHeader(any(), anyString())).thenReturn(context);
+        HttpServerResponse response = mock(HttpServerResponse.class, RETURNS_SELF);
+        when(context.getResponse()).thenReturn(response);
 
         controller.getAssistants();
 
-        verify(context).respond(eq(HttpStatus.OK), argThat((ArgumentMatcher<Object>) argument -> {
-            if (!(argument instanceof ListData list)) {
-                return false;
-            }
-            List<AssistantData> data = list.getData();
-            if (data.size() != 1) {
-                return false;
-            }
-            return "key".equals(data.get(0).getId());
-        }));
+        // the listing is serialized once per snapshot and sent as is
+        ArgumentCaptor<Buffer> body = ArgumentCaptor.forClass(Buffer.class);
+        verify(response).setStatusCode(HttpStatus.OK.getCode());
+        verify(response).end(body.capture());
+        ListData<AssistantData> list = ProxyUtil.convertToObject(body.getValue().toString(), new TypeReference<>() {
+        });
+        assertEquals(1, list.getData().size());
+        assertEquals("key", list.getData().get(0).getId());
     }
 
 }
@@ -0,0 +1,146 @@
+package com.epam.aidial.core.server.controller;
+
+import io.vertx.core.http.HttpMethod;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Verifies that the routes compiled into the trie are selected the same way as the reference regular expressions.
+ */
+public class ControllerSelectorParityTest {
+
+    private static final List<HttpMethod> METHODS = List.of(
+            HttpMethod.GET, HttpMethod.POST, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.PATCH);
+
+    private static final String[] SEGMENTS = {
+            "", "openai", "v1", "deployments", "models", "addons", "assistants", "applications", "completions", "chat",
+            "embeddings", "rate", "tokenize", "truncate_prompt", "configuration", "limits", "files", "metadata",
+            "conversations", "prompts", "bucket", "invitations", "ops", "resource", "share", "publication", "rule",
+            "list", "get", "create", "delete", "move", "subscribe", "notification", "application", "deploy", "user",
+            "info", "gpt-4", "abc123", "my%20file.txt", "a_b", "3CcedGxCx23EwiVbVmscVktScRyf46KypuBQ65miviST"
+    };
+
+    private static final String[] PREFIXES = {
+            "", "openai", "openai/deployments", "v1", "v1/deployments", "v1/files/abc123", "v1/metadata",
+            "v1/conversations/abc123", "v1/ops", "v1/ops/resource", "v1/ops/publication"
+    };
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/openai/deployments/gpt/chat/completions",
+            "/openai/deployments/gpt/completions",
+            "/openai/deployments/gpt/embeddings",
+            "//openai/deployments/gpt/chat/completions",
+            "/openai/deployments/a/b/chat/completions",
+            "/openai/deployments/a/chat/completions/chat/completions",
+            "/openai/deployments//chat/completions",
+            "/openai/deployments///chat/completions",
+            "/openai/deployments/chat/completions",
+            "/openai/deployments/gpt",
+            "/openai/deployments/gpt/",
+            "/openai/deployments/",
+            "/openai/deployments",
+            "///openai/deployments",
+            "/openai/models/gpt%2F4",
+            "/openai/models",
+            "/openai/addons/search",
+            "/openai/addons",
+            "/openai/assistants/assistant",
+            "/openai/assistants",
+            "/openai/applications/app",
+            "/openai/applications",
+            "/v1/files/bucket/folder/file.txt",
+            "/v1/files/bucket/",
+            "/v1/files/bucket",
+            "/v1/files/buc-ket/file.txt",
+            "//v1/files/bucket/file.txt",
+            "/v1/metadata/files/bucket/folder/",
+            "/v1/conversations/bucket/folder/conversation",
+            "/v1/prompts/bucket/prompt",
+            "/v1/applications/bucket/app",
+            "/v1/metadata/conversations/bucket/",
+            "/v1/metadata/prompts/bucket/folder/",
+            "/v1/bucket",
+            "/v1/bucket/",
+            "/v1/invitations",
+            "/v1/invitations/abc123",
+            "/v1/invitations/abc-123",
+            "/v1/deployments/gpt/limits",
+            "/v1/deployments/gpt/configuration",
+            "//v1/deployments/gpt/configuration",
+            "/v1/deployments/gpt/rate",
+            "/v1/gpt/rate",
+            "/v1//rate",
+            "/v1/rate",
+            "/v1/deployments/gpt/tokenize",
+            "/v1/deployments/gpt/truncate_prompt",
+            "/v1/ops/resource/share/create",
+            "/v1/ops/resource/share/rate",
+            "/v1/ops/publication/list",
+            "/v1/ops/publication/rule/list",
+            "/v1/ops/publication/resource/list",
+            "/v1/ops/resource/move",
+            "/v1/ops/resource/subscribe",
+            "/v1/ops/notification/list",
+            "/v1/ops/notification/delete",
+            "/v1/ops/application/deploy",
+            "/v1/ops/application/logs",
+            "/v1/user/info",
+            "/v1/user/info/",
+            "/",
+            "//",
+            "",
+            "openai/models",
+            "/unknown/route"
+    })
+    void testParity(String path) {
+        for (HttpMethod method : METHODS) {
+            assertParity(method, path);
+        }
+    }
+
+    @Test
+    void testParityOfRandomPaths() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder path = new StringBuilder("/");
+            if (random.nextInt(10) == 0) {
+                path.append('/');
+            }
+            // start with the prefix of known routes to cover more of them
+            path.append(PREFIXES[random.nextInt(PREFIXES.length)]);
+            int segments = random.nextInt(5);
+            for (int j = 0; j < segments; j++) {
+                path.append('/').append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+            }
+            assertParity(METHODS.get(random.nextInt(METHODS.size())), path.toString());
+        }
+    }
+
+    private static void assertParity(HttpMethod method, String path) {
+        RegexRouteTable.Result expected = RegexRouteTable.select(method, path);
+        PathTrie.Match<?> actual = ControllerSelector.match(method, path);
+        String message = method + " " + path;
+        if (expected == null) {
+            assertNull(actual, message);
+            return;
+        }
+        assertNotNull(actual, message);
+        assertEquals(expected.pathTemplate(), actual.pathTemplate(), message);
+
+        List<String> groups = new ArrayList<>();
+        for (int i = 1; i <= actual.groupCount(); i++) {
+            groups.add(actual.group(i));
+        }
+        assertEquals(expected.groups(), groups, message);
+    }
+}
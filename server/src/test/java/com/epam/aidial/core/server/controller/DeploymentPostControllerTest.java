@@ -12,6 +12,7 @@ import com.epam.aidial.core.server.data.ApiKeyData;
 import com.epam.aidial.core.server.limiter.RateLimiter;
 import com.epam.aidial.core.server.log.LogStore;
 import com.epam.aidial.core.server.security.ApiKeyStore;
+import com.epam.aidial.core.server.service.RequestMetrics;
 import com.epam.aidial.core.server.service.ResourceNotFoundException;
 import com.epam.aidial.core.server.token.TokenStatsTracker;
 import com.epam.aidial.core.server.token.TokenUsage;
@@ -26,7 +27,6 @@ import io.vertx.core.Future;
 import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientRequest;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpServerRequest;
@@ -54,6 +54,7 @@ import static io.vertx.core.http.HttpHeaders.AUTHORIZATION;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -84,6 +85,9 @@ public class DeploymentPostControllerTest {
     @Mock
     private LogStore logStore;
 
+    @Mock
+    private RequestMetrics requestMetrics;
+
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private TokenStatsTracker tokenStatsTracker;
 
@@ -98,10 +102,12 @@ public class DeploymentPostControllerTest {
         when(context.getRequest()).thenReturn(request);
         when(request.getHeader(eq(HttpHeaders.CONTENT_TYPE))).thenReturn("unsupported");
         when(proxy.getTokenStatsTracker()).thenReturn(tokenStatsTracker);
+        when(proxy.getRequestMetrics()).thenReturn(requestMetrics);
 
         controller.handle("app1", "api");
 
         verify(context).respond(eq(UNSUPPORTED_MEDIA_TYPE), anyString());
+        verify(requestMetrics).record(eq(context));
     }
 
     @Test
@@ -116,10 +122,12 @@ public class DeploymentPostControllerTest {
         config.getApplications().put("app1", app);
         when(context.getConfig()).thenReturn(config);
         when(proxy.getTokenStatsTracker()).thenReturn(tokenStatsTracker);
+        when(proxy.getRequestMetrics()).thenReturn(requestMetrics);
 
         controller.handle("app1", "chat/completions");
 
         verify(context).respond(eq(FORBIDDEN), anyString());
+        verify(requestMetrics).record(eq(context));
     }
 
     @Test
@@ -133,6 +141,7 @@ public class DeploymentPostControllerTest {
         when(context.getConfig()).thenReturn(config);
         when(proxy.getVertx()).thenReturn(vertx);
         when(proxy.getTokenStatsTracker()).thenReturn(tokenStatsTracker);
+        when(proxy.getRequestMetrics()).thenReturn(requestMetrics);
         when(vertx.executeBlocking(any(Callable.class), eq(false)))
                 .thenReturn(Future.failedFuture(new ResourceNotFoundException("Not found")));
         when(context.getProxy()).thenReturn(proxy);
@@ -140,6 +149,7 @@ public class DeploymentPostControllerTest {
         controller.handle("unknown-app", "chat/completions");
 
         verify(context).respond(eq(NOT_FOUND), anyString());
+        verify(requestMetrics).record(eq(context));
     }
 
     @Test
@@ -160,6 +170,7 @@ public class DeploymentPostControllerTest {
         when(context.getConfig()).thenReturn(config);
         when(proxy.getVertx()).thenReturn(vertx);
         when(proxy.getTokenStatsTracker()).thenReturn(tokenStatsTracker);
+        when(proxy.getRequestMetrics()).thenReturn(requestMetrics);
         when(vertx.executeBlocking(any(Callable.class), eq(false)))
                 .thenReturn(Future.succeededFuture(app));
         when(context.getProxy()).thenReturn(proxy);
@@ -167,6 +178,7 @@ public class DeploymentPostControllerTest {
         controller.handle("unknown-app", "chat/completions");
 
         verify(context).respond(eq(FORBIDDEN), anyString());
+        verify(requestMetrics).record(eq(context));
     }
 
     @Test
@@ -188,12 +200,18 @@ public class DeploymentPostControllerTest {
         when(endpointRoute.next()).thenThrow(new HttpException(BAD_GATEWAY, "no route"));
         MultiMap headers = mock(MultiMap.class);
         when(request.headers()).thenReturn(headers);
+        when(request.body()).thenReturn(Future.succeededFuture(Buffer.buffer()));
         when(context.getDeployment()).thenReturn(application);
         when(proxy.getTokenStatsTracker()).thenReturn(tokenStatsTracker);
+        when(proxy.getRequestMetrics()).thenReturn(requestMetrics);
+        when(tokenStatsTracker.startSpan(context)).thenReturn(Future.succeededFuture());
+        when(proxy.getVertx()).thenReturn(vertx);
+        when(vertx.executeBlocking(any(Callable.class), eq(false))).thenReturn(Future.succeededFuture(true));
 
         controller.handle("app1", "chat/completions");
 
         verify(context).respond(any(HttpException.class));
+        verify(requestMetrics).record(eq(context));
     }
 
     @Test
@@ -209,11 +227,6 @@ public class DeploymentPostControllerTest {
         application.setEndpoint("http://fake.com");
         config.getApplications().put("app1", application);
         when(context.getConfig()).thenReturn(config);
-        UpstreamRouteProvider balancerProvider = mock(UpstreamRouteProvider.class);
-        when(proxy.getUpstreamRouteProvider()).thenReturn(balancerProvider);
-        UpstreamRoute endpointRoute = mock(UpstreamRoute.class);
-        when(balancerProvider.get(any(Deployment.class))).thenReturn(endpointRoute);
-        when(endpointRoute.next()).thenReturn(new Upstream());
         MultiMap headers = mock(MultiMap.class);
         when(request.headers()).thenReturn(headers);
         when(context.getDeployment()).thenReturn(application);
@@ -261,13 +274,6 @@ public class DeploymentPostControllerTest {
 
     @Test
     public void testHandleRequestBody_OverrideModelName() throws IOException {
-        when(context.getRequest()).thenReturn(request);
-        UpstreamRoute upstreamRoute = mock(UpstreamRoute.class, RETURNS_DEEP_STUBS);
-        when(upstreamRoute.next()).thenReturn(new Upstream());
-        when(context.getUpstreamRoute()).thenReturn(upstreamRoute);
-        HttpServerRequest request = mock(HttpServerRequest.class, RETURNS_DEEP_STUBS);
-        when(context.getRequest()).thenReturn(request);
-        when(proxy.getClient()).thenReturn(mock(HttpClient.class, RETURNS_DEEP_STUBS));
         when(proxy.getApiKeyStore()).thenReturn(mock(ApiKeyStore.class));
 
         Model model = new Model();
@@ -286,7 +292,7 @@ public class DeploymentPostControllerTest {
         when(context.getRequestBody()).thenCallRealMethod();
         doCallRealMethod().when(context).setRequestBody(any());
 
-        controller.handleRequestBody(requestBody);
+        assertTrue(controller.handleRequestBody(requestBody));
 
         Buffer updatedBody = context.getRequestBody();
         assertNotNull(updatedBody);
@@ -299,13 +305,6 @@ public class DeploymentPostControllerTest {
 
     @Test
     public void testHandleRequestBody_NotOverrideModelName() {
-        when(context.getRequest()).thenReturn(request);
-        UpstreamRoute upstreamRoute = mock(UpstreamRoute.class, RETURNS_DEEP_STUBS);
-        when(upstreamRoute.next()).thenReturn(new Upstream());
-        when(context.getUpstreamRoute()).thenReturn(upstreamRoute);
-        HttpServerRequest request = mock(HttpServerRequest.class, RETURNS_DEEP_STUBS);
-        when(context.getRequest()).thenReturn(request);
-        when(proxy.getClient()).thenReturn(mock(HttpClient.class, RETURNS_DEEP_STUBS));
         when(proxy.getApiKeyStore()).thenReturn(mock(ApiKeyStore.class));
 
         Model model = new Model();
@@ -323,7 +322,7 @@ public class DeploymentPostControllerTest {
         when(context.getRequestBody()).thenCallRealMethod();
         doCallRealMethod().when(context).setRequestBody(any());
 
-        controller.handleRequestBody(requestBody);
+        assertTrue(controller.handleRequestBody(requestBody));
 
         assertEquals(requestBody, context.getRequestBody());
 
@@ -373,6 +372,7 @@ public class DeploymentPostControllerTest {
         when(response.getStatusCode()).thenReturn(HttpStatus.OK.getCode());
         when(proxy.getRateLimiter()).thenReturn(rateLimiter);
         when(proxy.getLogStore()).thenReturn(logStore);
+        when(proxy.getRequestMetrics()).thenReturn(requestMetrics);
         UpstreamRoute upstreamRoute = mock(UpstreamRoute.class, RETURNS_DEEP_STUBS);
         when(context.getUpstreamRoute()).thenReturn(upstreamRoute);
         when(context.getResponseBody()).thenReturn(Buffer.buffer());
@@ -386,6 +386,7 @@ public class DeploymentPostControllerTest {
         verify(rateLimiter).increase(eq(context), eq(model));
         verify(context).setTokenUsage(any(TokenUsage.class));
         verify(logStore).save(eq(context));
+        verify(requestMetrics).record(eq(context));
         verify(tokenStatsTracker).endSpan(eq(context));
         verify(bufferingReadStream).end(response);
     }
@@ -397,6 +398,7 @@ public class DeploymentPostControllerTest {
         when(context.getDeployment()).thenReturn(app);
 
         when(proxy.getLogStore()).thenReturn(logStore);
+        when(proxy.getRequestMetrics()).thenReturn(requestMetrics);
         UpstreamRoute upstreamRoute = mock(UpstreamRoute.class, RETURNS_DEEP_STUBS);
         when(context.getUpstreamRoute()).thenReturn(upstreamRoute);
         HttpServerResponse response = mock(HttpServerResponse.class);
@@ -413,6 +415,7 @@ public class DeploymentPostControllerTest {
         verify(tokenStatsTracker).getTokenStats(eq(context));
         verify(context).setTokenUsage(any(TokenUsage.class));
         verify(logStore).save(eq(context));
+        verify(requestMetrics).record(eq(context));
         verify(tokenStatsTracker).endSpan(eq(context));
         verify(bufferingReadStream).end(response);
     }
@@ -431,11 +434,6 @@ public class DeploymentPostControllerTest {
         application.setEndpoint("http://fake.com");
         when(proxy.getVertx()).thenReturn(vertx);
         when(vertx.executeBlocking(any(Callable.class), eq(false))).thenReturn(Future.succeededFuture(application));
-        UpstreamRouteProvider balancerProvider = mock(UpstreamRouteProvider.class);
-        when(proxy.getUpstreamRouteProvider()).thenReturn(balancerProvider);
-        UpstreamRoute endpointRoute = mock(UpstreamRoute.class);
-        when(balancerProvider.get(any(Deployment.class))).thenReturn(endpointRoute);
-        when(endpointRoute.next()).thenReturn(new Upstream());
         MultiMap headers = mock(MultiMap.class);
         when(request.headers()).thenReturn(headers);
         when(context.getDeployment()).thenReturn(application);
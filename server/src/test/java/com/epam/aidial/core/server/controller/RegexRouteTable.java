@@ -0,0 +1,94 @@
+package com.epam.aidial.core.server.controller;
+
+import io.vertx.core.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * The reference table of routes matched with regular expressions one by one in the order of registration.
+ * It is used to verify the parity of {@link ControllerSelector} routing and to benchmark it.
+ */
+class RegexRouteTable {
+
+    private static final List<Route> ROUTES = new ArrayList<>();
+
+    static {
+        // GET routes
+        add(HttpMethod.GET, "^/+openai/deployments/(?<id>.+?)$");
+        add(HttpMethod.GET, "^/+openai/deployments$");
+        add(HttpMethod.GET, "^/+openai/models/(?<id>.+?)$");
+        add(HttpMethod.GET, "^/+openai/models$");
+        add(HttpMethod.GET, "^/+openai/addons/(?<id>.+?)$");
+        add(HttpMethod.GET, "^/+openai/addons$");
+        add(HttpMethod.GET, "^/+openai/assistants/(?<id>.+?)$");
+        add(HttpMethod.GET, "^/+openai/assistants$");
+        add(HttpMethod.GET, "^/+openai/applications/(?<id>.+?)$");
+        add(HttpMethod.GET, "^/+openai/applications$");
+        add(HttpMethod.GET, "^/v1/metadata/files/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+        add(HttpMethod.GET, "^/v1/files/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+        add(HttpMethod.GET, "^/v1/(conversations|prompts|applications)/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+        add(HttpMethod.GET, "^/v1/metadata/(conversations|prompts|applications)/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+        add(HttpMethod.GET, "^/v1/bucket$");
+        add(HttpMethod.GET, "^/v1/invitations/(?<id>[a-zA-Z0-9]+)$");
+        add(HttpMethod.GET, "^/v1/invitations$");
+        add(HttpMethod.GET, "^/v1/deployments/(?<id>.+?)/limits$");
+        add(HttpMethod.GET, "^/+v1/deployments/(?<id>.+?)/configuration$");
+        add(HttpMethod.GET, "^/v1/user/info$");
+        // POST routes
+        add(HttpMethod.POST, "^/+openai/deployments/(?<id>.+?)/(completions|chat/completions|embeddings)$");
+        add(HttpMethod.POST, "^/+v1/(?<id>.+?)/rate$");
+        add(HttpMethod.POST, "^/+v1/deployments/(?<id>.+?)/tokenize$");
+        add(HttpMethod.POST, "^/+v1/deployments/(?<id>.+?)/truncate_prompt$");
+        add(HttpMethod.POST, "^/v1/ops/resource/share/(create|list|discard|revoke|copy)$");
+        add(HttpMethod.POST, "^/v1/ops/publication/(list|get|create|delete|approve|reject)$");
+        add(HttpMethod.POST, "^/v1/ops/publication/rule/list$");
+        add(HttpMethod.POST, "^/v1/ops/resource/(move|subscribe)$");
+        add(HttpMethod.POST, "^/v1/ops/publication/resource/list$");
+        add(HttpMethod.POST, "^/v1/ops/notification/(list|delete)$");
+        add(HttpMethod.POST, "^/v1/ops/application/(deploy|undeploy|logs)$");
+        // DELETE routes
+        add(HttpMethod.DELETE, "^/v1/files/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+        add(HttpMethod.DELETE, "^/v1/(conversations|prompts|applications)/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+        add(HttpMethod.DELETE, "^/v1/invitations/(?<id>[a-zA-Z0-9]+)$");
+        // PUT routes
+        add(HttpMethod.PUT, "^/v1/files/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+        add(HttpMethod.PUT, "^/v1/(conversations|prompts|applications)/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+        // PATCH routes
+        add(HttpMethod.PATCH, "^/v1/(conversations|prompts|applications)/(?<bucket>[a-zA-Z0-9]+)/(?<path>.*)");
+    }
+
+    /**
+     * @return the path template and groups of the first matching route or null if no route matches
+     */
+    @Nullable
+    static Result select(HttpMethod method, String path) {
+        for (Route route : ROUTES) {
+            if (route.method() != method) {
+                continue;
+            }
+            Matcher matcher = route.pattern().matcher(path);
+            if (matcher.find()) {
+                List<String> groups = new ArrayList<>();
+                for (int i = 1; i <= matcher.groupCount(); i++) {
+                    groups.add(matcher.group(i));
+                }
+                return new Result(RegexUtil.replaceNamedGroups(route.pattern(), path), groups);
+            }
+        }
+        return null;
+    }
+
+    private static void add(HttpMethod method, String pattern) {
+        ROUTES.add(new Route(method, Pattern.compile(pattern)));
+    }
+
+    record Result(String pathTemplate, List<String> groups) {
+    }
+
+    private record Route(HttpMethod method, Pattern pattern) {
+    }
+}
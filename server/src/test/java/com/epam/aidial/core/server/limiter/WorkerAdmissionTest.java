@@ -0,0 +1,180 @@
+package com.epam.aidial.core.server.limiter;
+
+import com.epam.aidial.core.storage.http.HttpException;
+import com.epam.aidial.core.storage.http.HttpStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorkerAdmissionTest {
+
+    private Vertx vertx;
+    private MeterRegistry registry;
+
+    @BeforeEach
+    public void beforeEach() {
+        vertx = Vertx.vertx();
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        vertx.close();
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        WorkerAdmission admission = new WorkerAdmission(vertx, registry, new JsonObject());
+
+        assertFalse(admission.isEnabled());
+        assertEquals("value", await(admission.execute(WorkerAdmission.Category.LISTING, () -> "value")));
+    }
+
+    @Test
+    public void testQueueLimit() throws Exception {
+        WorkerAdmission admission = create(1, 10000);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Future<String> running = admission.execute(WorkerAdmission.Category.LISTING, () -> {
+            latch.await();
+            return "running";
+        });
+        Future<String> queued = admission.execute(WorkerAdmission.Category.LISTING, () -> "queued");
+        Future<String> rejected = admission.execute(WorkerAdmission.Category.LISTING, () -> "rejected");
+
+        assertEquals(1, admission.getQueued(WorkerAdmission.Category.LISTING));
+        HttpException error = rejection(rejected);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, error.getStatus());
+        assertEquals("10", error.getHeaders().get("Retry-After"));
+        assertEquals(1, rejections("listing", "queue"));
+
+        latch.countDown();
+        assertEquals("running", await(running));
+        assertEquals("queued", await(queued));
+        assertEquals(0, admission.getQueued(WorkerAdmission.Category.LISTING));
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        WorkerAdmission admission = create(1, 10000);
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Future<Object> running = admission.execute(WorkerAdmission.Category.UPLOAD, () -> {
+            latch.await();
+            return null;
+        });
+        Future<Boolean> listing = admission.execute(WorkerAdmission.Category.LISTING, () -> order.add("listing"));
+        Future<Boolean> rateLimit = admission.execute(WorkerAdmission.Category.RATE_LIMIT, () -> order.add("rateLimit"));
+
+        latch.countDown();
+        await(running);
+        assertTrue(await(listing));
+        assertTrue(await(rateLimit));
+        assertEquals(List.of("rateLimit", "listing"), order);
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        WorkerAdmission admission = create(1, 50);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Future<Object> running = admission.execute(WorkerAdmission.Category.API_KEY, () -> {
+            latch.await();
+            return null;
+        });
+        Future<String> expired = admission.execute(WorkerAdmission.Category.LISTING, () -> "expired");
+
+        Thread.sleep(100);
+        latch.countDown();
+        await(running);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejection(expired).getStatus());
+        assertEquals(1, rejections("listing", "deadline"));
+        assertEquals(1, registry.get("aidial.workers.queue.wait").tag("category", "listing").timer().count());
+    }
+
+    @Test
+    public void testDeadlineWhileRunning() throws Exception {
+        WorkerAdmission admission = create(1, 50);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Future<Object> running = admission.execute(WorkerAdmission.Category.API_KEY, () -> {
+            latch.await();
+            return null;
+        });
+        Future<String> expired = admission.execute(WorkerAdmission.Category.LISTING, () -> "expired");
+
+        // the queued task is rejected at the max wait, not once the running one completes
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejection(expired).getStatus());
+        assertEquals(0, admission.getQueued(WorkerAdmission.Category.LISTING));
+        assertFalse(running.isComplete());
+
+        latch.countDown();
+        await(running);
+        assertEquals(1, rejections("listing", "deadline"));
+    }
+
+    @Test
+    public void testRunningTime() throws Exception {
+        WorkerAdmission admission = create(1, 100);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Future<Object> running = admission.execute(WorkerAdmission.Category.API_KEY, () -> {
+            latch.await();
+            return null;
+        });
+        Thread.sleep(200);
+
+        // no task has completed yet, the expected wait is based on the time the running task has taken so far
+        Future<String> rejected = admission.execute(WorkerAdmission.Category.LISTING, () -> "rejected");
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejection(rejected).getStatus());
+        assertEquals(1, rejections("listing", "queue"));
+
+        latch.countDown();
+        await(running);
+    }
+
+    private WorkerAdmission create(int concurrency, long maxWait) {
+        JsonObject limits = new JsonObject().put("maxQueue", 1).put("maxWait", maxWait);
+        JsonObject categories = new JsonObject();
+        for (WorkerAdmission.Category category : WorkerAdmission.Category.values()) {
+            categories.put(category.getKey(), limits);
+        }
+
+        return new WorkerAdmission(vertx, registry, new JsonObject()
+                .put("enabled", true)
+                .put("concurrency", concurrency)
+                .put("categories", categories));
+    }
+
+    private double rejections(String category, String reason) {
+        return registry.get("aidial.workers.rejected").tag("category", category).tag("reason", reason).counter().count();
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    private static HttpException rejection(Future<?> future) {
+        ExecutionException error = assertThrows(ExecutionException.class, () -> await(future));
+        return assertInstanceOf(HttpException.class, error.getCause());
+    }
+}
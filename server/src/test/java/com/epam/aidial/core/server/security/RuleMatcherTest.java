@@ -8,6 +8,7 @@ import org.mockito.Mockito;
 
 import java.util.List;
 import java.util.Map;
+import java.util.regex.PatternSyntaxException;
 
 class RuleMatcherTest {
 
@@ -98,6 +99,43 @@ class RuleMatcherTest {
                 List.of("user"), Map.of("title", List.of("Manager Senior")), false);
     }
 
+    @Test
+    void testCompiledRules() {
+        CompiledRules rules = CompiledRules.compile(List.of(
+                rule("roles", Rule.Function.CONTAIN, "ADMIN"),
+                rule("title", Rule.Function.REGEX, "(Manager|Developer)")));
+
+        Assertions.assertTrue(rules.match(new ExtractedClaims("sub", List.of("Admin2"), "hash", Map.of(), null)));
+        Assertions.assertTrue(rules.match(new ExtractedClaims("sub", List.of("user"), "hash", Map.of("title", List.of("Manager")), null)));
+        Assertions.assertFalse(rules.match(new ExtractedClaims("sub", List.of("user"), "hash", Map.of("title", List.of("Engineer")), null)));
+        Assertions.assertFalse(rules.match(null));
+        Assertions.assertTrue(CompiledRules.compile(List.of()).match(null));
+    }
+
+    @Test
+    void testInvalidRegexFailsEvaluation() {
+        CompiledRules rules = CompiledRules.compile(List.of(
+                rule("roles", Rule.Function.EQUAL, "admin"),
+                rule("title", Rule.Function.REGEX, "(")));
+
+        Assertions.assertTrue(rules.match(new ExtractedClaims("sub", List.of("admin"), "hash", Map.of(), null)));
+        Assertions.assertThrows(PatternSyntaxException.class,
+                () -> rules.match(new ExtractedClaims("sub", List.of("user"), "hash", Map.of("title", List.of("Manager")), null)));
+    }
+
+    @Test
+    void testClaimsFingerprint() {
+        ClaimsFingerprint fingerprint1 = ClaimsFingerprint.of(new ExtractedClaims("sub1", List.of("user"), "hash1", Map.of("title", List.of("Manager")), null));
+        ClaimsFingerprint fingerprint2 = ClaimsFingerprint.of(new ExtractedClaims("sub2", List.of("user"), "hash2", Map.of("title", List.of("Manager")), null));
+        ClaimsFingerprint fingerprint3 = ClaimsFingerprint.of(new ExtractedClaims("sub1", List.of("admin"), "hash1", Map.of("title", List.of("Manager")), null));
+
+        // rules depend on roles and claims only
+        Assertions.assertEquals(fingerprint1, fingerprint2);
+        Assertions.assertEquals(fingerprint1.hashCode(), fingerprint2.hashCode());
+        Assertions.assertNotEquals(fingerprint1, fingerprint3);
+        Assertions.assertNull(ClaimsFingerprint.of(null));
+    }
+
     void verify(List<Rule> rules, List<String> userRoles, Map<String, List<String>> userClaims, boolean expected) {
         ProxyContext context = Mockito.mock(ProxyContext.class);
         ExtractedClaims claims = new ExtractedClaims("sub", userRoles, "hash", userClaims, null);
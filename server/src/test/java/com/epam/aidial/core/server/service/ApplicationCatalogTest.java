@@ -0,0 +1,196 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.config.Application;
+import com.epam.aidial.core.server.data.ResourceTypes;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
+import com.epam.aidial.core.storage.data.MetadataBase;
+import com.epam.aidial.core.storage.data.ResourceEvent;
+import com.epam.aidial.core.storage.data.ResourceFolderMetadata;
+import com.epam.aidial.core.storage.data.ResourceItemMetadata;
+import com.epam.aidial.core.storage.resource.ResourceDescriptor;
+import com.epam.aidial.core.storage.service.ResourceService;
+import com.epam.aidial.core.storage.service.ResourceTopic;
+import com.epam.aidial.core.storage.util.EtagHeader;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class ApplicationCatalogTest {
+
+    private static final ResourceDescriptor PUBLIC_FOLDER = ResourceDescriptorFactory.fromDecoded(ResourceTypes.APPLICATION,
+            ResourceDescriptor.PUBLIC_BUCKET, ResourceDescriptor.PUBLIC_LOCATION, null);
+
+    @Mock
+    private Vertx vertx;
+    @Mock
+    private ResourceService resourceService;
+    @Mock
+    private ResourceTopic.PrefixSubscription subscription;
+
+    private final Map<String, String> storage = new TreeMap<>();
+    private final List<Consumer<ResourceEvent>> subscribers = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        lenient().when(vertx.executeBlocking(any(Callable.class), anyBoolean()))
+                .thenAnswer(invocation -> Future.succeededFuture(invocation.getArgument(0, Callable.class).call()));
+        lenient().when(resourceService.subscribeFolder(any(), any())).thenAnswer(invocation -> {
+            subscribers.add(invocation.getArgument(1));
+            return subscription;
+        });
+        lenient().when(resourceService.getFolderMetadata(any(), any(), anyInt(), eq(true))).thenAnswer(invocation -> {
+            ResourceDescriptor folder = invocation.getArgument(0);
+            List<MetadataBase> items = new ArrayList<>();
+            for (String url : storage.keySet()) {
+                if (url.startsWith(folder.getUrl())) {
+                    items.add(new ResourceItemMetadata(folder.resolveByUrl(url)));
+                }
+            }
+            return new ResourceFolderMetadata(folder, items, null);
+        });
+        lenient().when(resourceService.getResourceWithMetadata(any(), eq(EtagHeader.ANY)))
+                .thenAnswer(invocation -> getResource(invocation.getArgument(0)));
+        lenient().when(resourceService.getResources(any())).thenAnswer(invocation -> {
+            List<Pair<ResourceItemMetadata, String>> resources = new ArrayList<>();
+            for (ResourceDescriptor resource : invocation.<Collection<ResourceDescriptor>>getArgument(0)) {
+                resources.add(getResource(resource));
+            }
+            return resources;
+        });
+    }
+
+    @Test
+    void testColdStart() {
+        putApplication("applications/public/app1", "http://app1");
+        putApplication("applications/public/folder/app2", "http://app2");
+
+        ApplicationCatalog catalog = new ApplicationCatalog(vertx, resourceService, new JsonObject());
+        assertNull(catalog.list(PUBLIC_FOLDER, false));
+        // the caller falls back to the folder walk while the bucket is being indexed
+        assertNull(catalog.list(PUBLIC_FOLDER, true));
+
+        ApplicationCatalog.Listing listing = catalog.list(PUBLIC_FOLDER, true);
+        assertNotNull(listing);
+        assertEquals(List.of("applications/public/app1", "applications/public/folder/app2"), List.copyOf(listing.applications().keySet()));
+        assertEquals("http://app2", listing.applications().get("applications/public/folder/app2").getEndpoint());
+
+        ResourceDescriptor folder = PUBLIC_FOLDER.resolveByUrl("applications/public/folder/");
+        assertEquals(List.of("applications/public/folder/app2"), List.copyOf(catalog.list(folder, false).applications().keySet()));
+
+        // the index is served without storage round-trips
+        catalog.list(PUBLIC_FOLDER, true);
+        verify(resourceService, times(1)).getFolderMetadata(any(), any(), anyInt(), eq(true));
+    }
+
+    @Test
+    void testEvents() {
+        putApplication("applications/public/app1", "http://app1");
+
+        ApplicationCatalog catalog = new ApplicationCatalog(vertx, resourceService, new JsonObject());
+        catalog.list(PUBLIC_FOLDER, true);
+        long version = catalog.list(PUBLIC_FOLDER, true).version();
+
+        putApplication("applications/public/app2", "http://app2");
+        publish("applications/public/app2", ResourceEvent.Action.CREATE);
+        putApplication("applications/public/app1", "http://app1-v2");
+        publish("applications/public/app1", ResourceEvent.Action.UPDATE);
+
+        ApplicationCatalog.Listing listing = catalog.list(PUBLIC_FOLDER, true);
+        assertNotEquals(version, listing.version());
+        assertEquals("http://app1-v2", listing.applications().get("applications/public/app1").getEndpoint());
+        assertEquals("http://app2", listing.applications().get("applications/public/app2").getEndpoint());
+
+        storage.remove("applications/public/app1");
+        publish("applications/public/app1", ResourceEvent.Action.DELETE);
+        assertEquals(List.of("applications/public/app2"), List.copyOf(catalog.list(PUBLIC_FOLDER, true).applications().keySet()));
+    }
+
+    @Test
+    void testReload() {
+        ApplicationCatalog catalog = new ApplicationCatalog(vertx, resourceService, new JsonObject());
+        catalog.list(PUBLIC_FOLDER, true);
+
+        putApplication("applications/public/app1", "http://app1");
+        ResourceDescriptor resource = PUBLIC_FOLDER.resolveByUrl("applications/public/app1");
+        catalog.reload(resource);
+        assertEquals(List.of("applications/public/app1"), List.copyOf(catalog.list(PUBLIC_FOLDER, true).applications().keySet()));
+
+        // the event of the change made on this node doesn't reload the application again
+        publish("applications/public/app1", ResourceEvent.Action.CREATE);
+        verify(resourceService, times(1)).getResourceWithMetadata(eq(resource), eq(EtagHeader.ANY));
+
+        storage.remove("applications/public/app1");
+        catalog.reload(resource);
+        assertEquals(Map.of(), catalog.list(PUBLIC_FOLDER, true).applications());
+    }
+
+    @Test
+    void testEviction() {
+        ApplicationCatalog catalog = new ApplicationCatalog(vertx, resourceService, new JsonObject().put("maxBuckets", 1));
+        ResourceDescriptor privateFolder = ResourceDescriptorFactory.fromDecoded(ResourceTypes.APPLICATION,
+                "bucket", "Users/user/", null);
+
+        catalog.list(PUBLIC_FOLDER, true);
+        assertNotNull(catalog.list(PUBLIC_FOLDER, true));
+
+        catalog.list(privateFolder, true);
+        assertNotNull(catalog.list(privateFolder, true));
+        assertNull(catalog.list(PUBLIC_FOLDER, false));
+        verify(subscription).close();
+    }
+
+    private Pair<ResourceItemMetadata, String> getResource(ResourceDescriptor resource) {
+        String body = storage.get(resource.getUrl());
+        if (body == null) {
+            return null;
+        }
+        ResourceItemMetadata meta = new ResourceItemMetadata(resource);
+        meta.setEtag(Integer.toHexString(body.hashCode()));
+        return Pair.of(meta, body);
+    }
+
+    private void putApplication(String url, String endpoint) {
+        Application application = new Application();
+        application.setName(url);
+        application.setEndpoint(endpoint);
+        storage.put(url, ProxyUtil.convertToString(application));
+    }
+
+    private void publish(String url, ResourceEvent.Action action) {
+        String body = storage.get(url);
+        ResourceEvent event = new ResourceEvent()
+                .setUrl(url)
+                .setAction(action)
+                .setEtag(body == null ? null : Integer.toHexString(body.hashCode()));
+        subscribers.forEach(subscriber -> subscriber.accept(event));
+    }
+}
@@ -0,0 +1,127 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.Publication;
+import com.epam.aidial.core.server.data.ResourceTypes;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
+import com.epam.aidial.core.storage.resource.ResourceDescriptor;
+import com.epam.aidial.core.storage.service.ResourceService;
+import com.epam.aidial.core.storage.util.EtagHeader;
+import io.vertx.core.json.JsonObject;
+import org.jclouds.blobstore.domain.internal.PageSetImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+public class PublicationRegistryTest extends ResourceServiceBaseTest {
+
+    private ResourceService resourceService;
+    private PublicationRegistry registry;
+
+    @BeforeEach
+    public void beforeEach() {
+        lenient().when(blobStorage.list(any(), any(), anyInt(), anyBoolean())).thenAnswer(invocation -> new PageSetImpl<>(List.of(), null));
+        resourceService = createResourceService(settings().build());
+        registry = new PublicationRegistry(redissonClient, resourceService, null, new JsonObject());
+    }
+
+    @AfterEach
+    public void afterEach() {
+        resourceService.close();
+    }
+
+    @Test
+    public void testList() {
+        registry.create(publication("publications/bucket1/3", "public/b/"));
+        registry.create(publication("publications/bucket1/1", "public/a/"));
+        registry.create(publication("publications/bucket2/2", "public/a/folder/"));
+
+        PublicationRegistry.Page page = registry.list(Publication.Status.PENDING, null, null, 2);
+        assertEquals(List.of("publications/bucket1/1", "publications/bucket2/2"), urls(page));
+
+        page = registry.list(Publication.Status.PENDING, null, page.nextToken(), 2);
+        assertEquals(List.of("publications/bucket1/3"), urls(page));
+        assertNull(page.nextToken());
+
+        page = registry.list(Publication.Status.PENDING, "public/a/", null, 10);
+        assertEquals(List.of("publications/bucket1/1", "publications/bucket2/2"), urls(page));
+
+        page = registry.list(null, "public/b/", null, 10);
+        assertEquals(List.of("publications/bucket1/3"), urls(page));
+
+        assertEquals(List.of(), urls(registry.list(Publication.Status.APPROVED, null, null, 10)));
+    }
+
+    @Test
+    public void testCreateAndRemove() {
+        Publication publication = publication("publications/bucket/1", "public/");
+        registry.create(publication);
+        assertThrows(IllegalStateException.class, () -> registry.create(publication));
+
+        assertEquals("public/", registry.remove("publications/bucket/1").getTargetFolder());
+        assertNull(registry.remove("publications/bucket/1"));
+        assertEquals(List.of(), urls(registry.list(null, null, null, 10)));
+    }
+
+    @Test
+    public void testStaleIndex() {
+        registry.create(publication("publications/bucket/1", "public/"));
+        registry.create(publication("publications/bucket/2", "public/"));
+
+        // the record is removed bypassing the index
+        ResourceDescriptor record = ResourceDescriptorFactory.fromDecoded(ResourceTypes.PUBLICATION,
+                ResourceDescriptor.PUBLIC_BUCKET, ResourceDescriptor.PUBLIC_LOCATION, "registry/bucket/1");
+        resourceService.deleteResource(record, EtagHeader.ANY);
+
+        assertEquals(List.of("publications/bucket/2"), urls(registry.list(null, null, null, 1)));
+        assertEquals(List.of("publications/bucket/2"), urls(registry.list(null, null, null, 10)));
+    }
+
+    @Test
+    public void testMigration() {
+        ResourceDescriptor legacy = ResourceDescriptorFactory.fromDecoded(ResourceTypes.PUBLICATION,
+                ResourceDescriptor.PUBLIC_BUCKET, ResourceDescriptor.PUBLIC_LOCATION, "publications");
+        Publication publication = publication("publications/bucket/1", "public/");
+        resourceService.putResource(legacy, ProxyUtil.convertToString(Map.of(publication.getUrl(), publication)), EtagHeader.ANY);
+
+        assertEquals(List.of("publications/bucket/1"), urls(registry.list(null, null, null, 10)));
+        assertNull(resourceService.getResource(legacy));
+        assertEquals("public/", registry.remove("publications/bucket/1").getTargetFolder());
+    }
+
+    @Test
+    public void testRemoveBeforeMigration() {
+        ResourceDescriptor legacy = ResourceDescriptorFactory.fromDecoded(ResourceTypes.PUBLICATION,
+                ResourceDescriptor.PUBLIC_BUCKET, ResourceDescriptor.PUBLIC_LOCATION, "publications");
+        Publication publication = publication("publications/bucket/1", "public/");
+        resourceService.putResource(legacy, ProxyUtil.convertToString(Map.of(publication.getUrl(), publication)), EtagHeader.ANY);
+
+        assertEquals("public/", registry.remove("publications/bucket/1").getTargetFolder());
+        assertEquals(List.of(), urls(registry.list(null, null, null, 10)));
+        assertNull(resourceService.getResource(legacy));
+    }
+
+    private static Publication publication(String url, String targetFolder) {
+        return new Publication()
+                .setUrl(url)
+                .setTargetFolder(targetFolder)
+                .setStatus(Publication.Status.PENDING)
+                .setCreatedAt(0L);
+    }
+
+    private static List<String> urls(PublicationRegistry.Page page) {
+        return page.publications().stream().map(Publication::getUrl).toList();
+    }
+}
@@ -0,0 +1,121 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.config.Model;
+import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.token.TokenUsage;
+import com.epam.aidial.core.server.upstream.UpstreamRoute;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RequestMetricsTest {
+
+    @Mock
+    private ProxyContext context;
+    @Mock
+    private UpstreamRoute route;
+    @Mock
+    private HttpServerResponse response;
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void beforeEach() {
+        registry = new SimpleMeterRegistry();
+        Model model = new Model();
+        model.setName("model1");
+        when(context.getDeployment()).thenReturn(model);
+        // not used by the requests rejected before the deployment is resolved
+        lenient().when(context.getResponse()).thenReturn(response);
+        lenient().when(response.getStatusCode()).thenReturn(200);
+        lenient().when(context.getUpstreamRoute()).thenReturn(route);
+    }
+
+    @Test
+    void testPhases() {
+        long now = System.currentTimeMillis();
+        when(context.getReceivedTimestamp()).thenReturn(now - 1000);
+        when(context.getRequestTimestamp()).thenReturn(now - 990);
+        when(context.getRateLimitTime()).thenReturn(5L);
+        when(context.getStorageTime()).thenReturn(20L);
+        when(context.getUpstreamRequestTimestamp()).thenReturn(now - 900);
+        when(context.getProxyConnectTimestamp()).thenReturn(now - 880);
+        when(context.getProxyResponseTimestamp()).thenReturn(now - 580);
+        when(context.getResponseBodyTimestamp()).thenReturn(now - 80);
+        when(route.getAttemptCount()).thenReturn(3);
+        TokenUsage tokenUsage = new TokenUsage();
+        tokenUsage.setPromptTokens(30);
+        tokenUsage.setCompletionTokens(50);
+        when(context.getTokenUsage()).thenReturn(tokenUsage);
+
+        new RequestMetrics(registry, new JsonObject()).record(context);
+
+        assertEquals(10, time("auth"));
+        assertEquals(5, time("rateLimit"));
+        assertEquals(20, time("storage"));
+        assertEquals(20, time("connect"));
+        assertEquals(300, time("ttfb"));
+        assertEquals(500, time("stream"));
+        assertEquals(80, time("postProcessing"), 50);
+        assertEquals(1000, time("total"), 50);
+
+        assertEquals(2, registry.get("aidial.upstream.retries").tag("deployment", "model1").counter().count());
+        assertEquals(30, registry.get("aidial.deployment.tokens").tag("type", "prompt").counter().count());
+        assertEquals(50, registry.get("aidial.deployment.tokens").tag("type", "completion").counter().count());
+        assertEquals(100, registry.get("aidial.deployment.completion.speed").summary().max());
+    }
+
+    @Test
+    void testCachedResponse() {
+        long now = System.currentTimeMillis();
+        when(context.getRequestTimestamp()).thenReturn(now - 100);
+        when(context.getRateLimitTime()).thenReturn(-1L);
+        when(context.getProxyResponseTimestamp()).thenReturn(now - 10);
+        when(context.getResponseBodyTimestamp()).thenReturn(now - 10);
+        when(route.getAttemptCount()).thenReturn(1);
+
+        new RequestMetrics(registry, new JsonObject()).record(context);
+
+        assertNull(registry.find("aidial.request.phase").tag("phase", "auth").timer());
+        assertNull(registry.find("aidial.request.phase").tag("phase", "rateLimit").timer());
+        assertNull(registry.find("aidial.request.phase").tag("phase", "connect").timer());
+        assertEquals(0, time("stream"));
+        assertEquals(100, time("total"), 50);
+        assertNull(registry.find("aidial.upstream.retries").counter());
+    }
+
+    @Test
+    void testNoDeployment() {
+        when(context.getDeployment()).thenReturn(null);
+
+        new RequestMetrics(registry, new JsonObject()).record(context);
+
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    private double time(String phase) {
+        Timer timer = registry.get("aidial.request.phase")
+                .tag("phase", phase)
+                .tag("deployment", "model1")
+                .tag("status", "200")
+                .timer();
+        assertEquals(1, timer.count());
+        return timer.totalTime(TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,89 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.storage.blobstore.BlobStorage;
+import com.epam.aidial.core.storage.service.LockService;
+import com.epam.aidial.core.storage.service.ResourceService;
+import com.epam.aidial.core.storage.service.TimerService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.Redisson;
+import org.redisson.api.RKeys;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the resource service against the embedded Redis and the mocked blob storage.
+ * The timer is stubbed, so the resources are synced to the blob storage only when the test asks for it.
+ */
+@ExtendWith(MockitoExtension.class)
+public abstract class ResourceServiceBaseTest {
+
+    private static RedisServer redisServer;
+    protected static RedissonClient redissonClient;
+
+    @Mock
+    protected BlobStorage blobStorage;
+    @Mock
+    protected TimerService timerService;
+
+    @BeforeAll
+    public static void startRedis() throws IOException {
+        redisServer = RedisServer.newRedisServer()
+                .port(16372)
+                .bind("127.0.0.1")
+                .setting("maxmemory 16M")
+                .setting("maxmemory-policy volatile-lfu")
+                .build();
+        redisServer.start();
+
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://localhost:16372");
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    public static void stopRedis() throws IOException {
+        if (redissonClient != null) {
+            redissonClient.shutdown();
+        }
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    public void resetRedis() {
+        RKeys keys = redissonClient.getKeys();
+        for (String key : keys.getKeys()) {
+            keys.delete(key);
+        }
+        when(timerService.scheduleWithFixedDelay(anyLong(), anyLong(), any())).thenReturn(mock(TimerService.Timer.class));
+    }
+
+    protected static ResourceService.Settings.SettingsBuilder settings() {
+        return ResourceService.Settings.builder()
+                .maxSize(1048576)
+                .syncPeriod(60000)
+                .syncDelay(120000)
+                .syncBatch(4096)
+                .cacheExpiration(300000)
+                .compressionMinSize(256)
+                .batchParallelism(ResourceService.Settings.DEFAULT_BATCH_PARALLELISM);
+    }
+
+    protected ResourceService createResourceService(ResourceService.Settings settings) {
+        return new ResourceService(timerService, redissonClient, blobStorage, new LockService(redissonClient, null), settings, null);
+    }
+}
@@ -0,0 +1,156 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.ResourceTypes;
+import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
+import com.epam.aidial.core.storage.data.ResourceItemMetadata;
+import com.epam.aidial.core.storage.resource.ResourceDescriptor;
+import com.epam.aidial.core.storage.service.ResourceService;
+import com.epam.aidial.core.storage.util.EtagHeader;
+import org.apache.commons.lang3.tuple.Pair;
+import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResourceServiceBatchTest extends ResourceServiceBaseTest {
+
+    private ResourceService resourceService;
+
+    @BeforeEach
+    public void beforeEach() {
+        resourceService = createResourceService(settings().batchParallelism(4).build());
+    }
+
+    @AfterEach
+    public void afterEach() {
+        resourceService.close();
+    }
+
+    @Test
+    public void testGetResources() {
+        ResourceDescriptor first = prompt("first");
+        ResourceDescriptor missing = prompt("missing");
+        ResourceDescriptor second = prompt("second");
+        resourceService.putResource(first, "{\"name\":\"first\"}", EtagHeader.ANY);
+        resourceService.putResource(second, "{\"name\":\"second\"}", EtagHeader.ANY);
+
+        List<Pair<ResourceItemMetadata, String>> resources = resourceService.getResources(List.of(second, missing, first, missing));
+
+        assertEquals(4, resources.size());
+        assertEquals("{\"name\":\"second\"}", resources.get(0).getValue());
+        assertEquals(second.getUrl(), resources.get(0).getKey().getUrl());
+        assertNull(resources.get(1));
+        assertEquals("{\"name\":\"first\"}", resources.get(2).getValue());
+        assertNull(resources.get(3));
+
+        // the missing resource is loaded from the blob store once
+        verify(blobStorage, times(1)).load(missing.getAbsoluteFilePath());
+
+        assertTrue(resourceService.getResources(List.of()).isEmpty());
+    }
+
+    @Test
+    public void testGetResourcesMetadata() {
+        ResourceDescriptor first = prompt("first");
+        ResourceDescriptor missing = prompt("missing");
+        ResourceItemMetadata expected = resourceService.putResource(first, "{}", EtagHeader.ANY);
+
+        List<ResourceItemMetadata> metadata = resourceService.getResourcesMetadata(List.of(missing, first));
+
+        assertEquals(2, metadata.size());
+        assertNull(metadata.get(0));
+        assertEquals(expected.getEtag(), metadata.get(1).getEtag());
+        assertEquals(first.getUrl(), metadata.get(1).getUrl());
+    }
+
+    @Test
+    public void testCoalescedCacheFills() throws Exception {
+        ResourceDescriptor missing = prompt("missing");
+        int threads = 8;
+        when(blobStorage.load(missing.getAbsoluteFilePath())).thenAnswer(invocation -> {
+            // hold the fill until the other readers join it
+            long deadline = System.currentTimeMillis() + 5000;
+            while (resourceService.getCoalescedCacheFills() < threads - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return null;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> resourceService.getResource(missing)));
+            }
+            for (Future<String> future : futures) {
+                assertNull(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(blobStorage, times(1)).load(missing.getAbsoluteFilePath());
+        assertEquals(1, resourceService.getCacheFills());
+        assertEquals(threads - 1, resourceService.getCoalescedCacheFills());
+        assertEquals(0, resourceService.getOptimisticCacheFills());
+    }
+
+    @Test
+    public void testOptimisticCacheFills() {
+        resourceService.registerImmutable(PublicationService::isPublished);
+        ResourceDescriptor published = prompt("published");
+        when(blobStorage.load(published.getAbsoluteFilePath())).thenReturn(new BlobBuilderImpl()
+                .name(published.getAbsoluteFilePath())
+                .payload("{\"name\":\"published\"}".getBytes(StandardCharsets.UTF_8))
+                .contentType("application/json")
+                .build());
+
+        assertEquals("{\"name\":\"published\"}", resourceService.getResource(published));
+        assertEquals("{\"name\":\"published\"}", resourceService.getResource(published));
+        verify(blobStorage, times(1)).load(published.getAbsoluteFilePath());
+        assertEquals(1, resourceService.getOptimisticCacheFills());
+
+        // the absence isn't cached without the lock, the resource may be copied to the blob store meanwhile
+        ResourceDescriptor missing = prompt("missing");
+        assertNull(resourceService.getResource(missing));
+        assertNull(resourceService.getResource(missing));
+        verify(blobStorage, times(2)).load(missing.getAbsoluteFilePath());
+        assertEquals(1, resourceService.getOptimisticCacheFills());
+
+        // the resource created while it is loaded from the blob store isn't overwritten with the stale blob
+        ResourceDescriptor created = prompt("created");
+        when(blobStorage.load(created.getAbsoluteFilePath())).thenAnswer(invocation -> {
+            resourceService.putResource(created, "{\"name\":\"created\"}", EtagHeader.ANY);
+            return null;
+        });
+
+        assertEquals("{\"name\":\"created\"}", resourceService.getResource(created));
+        assertEquals("{\"name\":\"created\"}", resourceService.getResource(created));
+        assertEquals(1, resourceService.getOptimisticCacheFills());
+
+        // the documents of the public bucket updated in place are filled under the lock
+        ResourceDescriptor rules = ResourceDescriptorFactory.fromDecoded(ResourceTypes.RULES, ResourceDescriptor.PUBLIC_BUCKET,
+                ResourceDescriptor.PUBLIC_LOCATION, "rules");
+        assertNull(resourceService.getResource(rules));
+        assertEquals(1, resourceService.getOptimisticCacheFills());
+    }
+
+    private static ResourceDescriptor prompt(String name) {
+        return ResourceDescriptorFactory.fromDecoded(ResourceTypes.PROMPT, ResourceDescriptor.PUBLIC_BUCKET,
+                ResourceDescriptor.PUBLIC_LOCATION, name);
+    }
+}
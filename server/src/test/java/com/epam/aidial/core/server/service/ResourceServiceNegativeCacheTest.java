@@ -0,0 +1,159 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.ResourceTypes;
+import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
+import com.epam.aidial.core.storage.resource.ResourceDescriptor;
+import com.epam.aidial.core.storage.service.ResourceService;
+import com.epam.aidial.core.storage.util.EtagHeader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RMap;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResourceServiceNegativeCacheTest extends ResourceServiceBaseTest {
+
+    private static final long EXPIRATION = 10000;
+
+    private ResourceService node1;
+    private ResourceService node2;
+
+    @BeforeEach
+    public void beforeEach() {
+        node1 = create();
+        node2 = create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        node1.close();
+        node2.close();
+    }
+
+    @Test
+    public void testLocalHits() {
+        ResourceDescriptor missing = prompt("missing");
+
+        assertFalse(node1.hasResource(missing));
+        assertFalse(node1.hasResource(missing));
+        assertNull(node1.getResourceMetadata(missing));
+
+        verify(blobStorage, times(1)).exists(missing.getAbsoluteFilePath());
+        verify(blobStorage, never()).meta(missing.getAbsoluteFilePath());
+        assertEquals(2, node1.getNegativeCacheLocalHits());
+
+        RMap<String, String> tombstone = entry(missing);
+        assertEquals("false", tombstone.get("exists"));
+        long ttl = tombstone.remainTimeToLive();
+        assertTrue(ttl > 0 && ttl <= EXPIRATION, "ttl: " + ttl);
+    }
+
+    @Test
+    public void testRedisHits() {
+        ResourceDescriptor missing = prompt("missing");
+
+        assertNull(node1.getResourceMetadata(missing));
+        assertNull(node2.getResourceMetadata(missing));
+        assertFalse(node2.hasResource(missing));
+
+        verify(blobStorage, times(1)).meta(missing.getAbsoluteFilePath());
+        assertEquals(1, node2.getNegativeCacheRedisHits());
+        assertEquals(1, node2.getNegativeCacheLocalHits());
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        ResourceDescriptor resource = prompt("created");
+
+        assertFalse(node1.hasResource(resource));
+        assertFalse(node2.hasResource(resource));
+
+        node1.putResource(resource, "{}", EtagHeader.ANY);
+        assertTrue(node1.hasResource(resource));
+        assertEquals("{}", node1.getResource(resource));
+
+        // the other node is notified via the resource topic
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!node2.hasResource(resource) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(node2.getResourceMetadata(resource));
+    }
+
+    @Test
+    public void testConcurrentCreate() {
+        ResourceDescriptor resource = prompt("created");
+        when(blobStorage.exists(resource.getAbsoluteFilePath())).thenAnswer(invocation -> {
+            // the resource is created after the blob store is checked, but before the tombstone is written
+            node1.putResource(resource, "{}", EtagHeader.ANY);
+            return false;
+        });
+
+        assertFalse(node1.hasResource(resource));
+        assertTrue(node1.hasResource(resource));
+        assertEquals("{}", node1.getResource(resource));
+    }
+
+    @Test
+    public void testConcurrentBlobWrite() {
+        ResourceService limited = createResourceService(settings().maxSize(16).negativeCacheExpiration(EXPIRATION).build());
+        try {
+            ResourceDescriptor resource = prompt("large");
+            AtomicInteger checks = new AtomicInteger();
+            when(blobStorage.exists(resource.getAbsoluteFilePath())).thenAnswer(invocation -> {
+                if (checks.getAndIncrement() > 0) {
+                    return true;
+                }
+                // the body larger than the max size is written to the blob store only after the resource is missed there
+                limited.putResource(resource, "{\"name\":\"large resource\"}", EtagHeader.ANY);
+                return false;
+            });
+
+            assertFalse(limited.hasResource(resource));
+            assertNull(entry(resource).get("exists"));
+            assertTrue(node2.hasResource(resource));
+        } finally {
+            limited.close();
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        ResourceService service = createResourceService(settings().batchParallelism(4).build());
+        try {
+            ResourceDescriptor missing = prompt("missing");
+            assertFalse(service.hasResource(missing));
+            assertFalse(service.hasResource(missing));
+
+            verify(blobStorage, times(2)).exists(missing.getAbsoluteFilePath());
+            assertFalse(entry(missing).isExists());
+        } finally {
+            service.close();
+        }
+    }
+
+    private ResourceService create() {
+        return createResourceService(settings().batchParallelism(4).negativeCacheExpiration(EXPIRATION).build());
+    }
+
+    private static RMap<String, String> entry(ResourceDescriptor resource) {
+        return redissonClient.getMap("prompt:" + resource.getAbsoluteFilePath(), StringCodec.INSTANCE);
+    }
+
+    private static ResourceDescriptor prompt(String name) {
+        return ResourceDescriptorFactory.fromDecoded(ResourceTypes.PROMPT, ResourceDescriptor.PUBLIC_BUCKET,
+                ResourceDescriptor.PUBLIC_LOCATION, name);
+    }
+}
@@ -0,0 +1,118 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.config.Model;
+import com.epam.aidial.core.config.ModelType;
+import com.epam.aidial.core.config.ResponseCache;
+import com.epam.aidial.core.server.ProxyContext;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ResponseCacheServiceTest {
+
+    @Mock
+    private ProxyContext context;
+    @Mock
+    private HttpServerRequest request;
+
+    @Test
+    void testKeyOfDeterministicRequests() {
+        when(context.getUserSub()).thenReturn("user1");
+        when(context.getRequest()).thenReturn(request);
+        Model model = createModel(ModelType.CHAT);
+
+        String key = ResponseCacheService.getKey(context, model, tree("{\"temperature\": 0, \"messages\": [{\"role\": \"user\", \"content\": \"hi\"}]}"));
+        assertNotNull(key);
+        // the order of fields doesn't matter
+        assertEquals(key, ResponseCacheService.getKey(context, model, tree("{\"messages\": [{\"content\": \"hi\", \"role\": \"user\"}], \"temperature\": 0}")));
+        assertNotEquals(key, ResponseCacheService.getKey(context, model, tree("{\"temperature\": 0, \"messages\": [{\"role\": \"user\", \"content\": \"bye\"}]}")));
+        // the query parameters are part of the key
+        when(request.query()).thenReturn("api-version=2024-02-01");
+        assertNotEquals(key, ResponseCacheService.getKey(context, model, tree("{\"temperature\": 0, \"messages\": [{\"role\": \"user\", \"content\": \"hi\"}]}")));
+
+        // non-deterministic requests are not cached
+        assertNull(ResponseCacheService.getKey(context, model, tree("{\"messages\": []}")));
+        assertNull(ResponseCacheService.getKey(context, model, tree("{\"temperature\": 0.5, \"messages\": []}")));
+        assertNull(ResponseCacheService.getKey(context, model, tree("{\"temperature\": 0, \"n\": 2, \"messages\": []}")));
+
+        // embeddings are always deterministic
+        assertNotNull(ResponseCacheService.getKey(context, createModel(ModelType.EMBEDDING), tree("{\"input\": \"text\"}")));
+    }
+
+    @Test
+    void testKeyIsPartitionedByInitiator() {
+        Model model = createModel(ModelType.EMBEDDING);
+        ObjectNode body = tree("{\"input\": \"text\"}");
+        when(context.getRequest()).thenReturn(request);
+
+        when(context.getUserSub()).thenReturn("user1");
+        String key1 = ResponseCacheService.getKey(context, model, body);
+        when(context.getUserSub()).thenReturn("user2");
+        String key2 = ResponseCacheService.getKey(context, model, body);
+
+        assertNotEquals(key1, key2);
+    }
+
+    @Test
+    void testStreamingRequestIsNotCached() {
+        when(context.isStreamingRequest()).thenReturn(true);
+        assertNull(ResponseCacheService.getKey(context, createModel(ModelType.CHAT), tree("{\"temperature\": 0}")));
+    }
+
+    @Test
+    void testLocalCache() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ResponseCacheService service = new ResponseCacheService(null, null, registry,
+                new JsonObject().put("redis", false).put("localMaxSize", 10));
+        ResponseCache policy = new ResponseCache();
+
+        assertNull(service.get("key1"));
+        service.put("key1", Buffer.buffer("12345"), policy);
+        assertEquals(Buffer.buffer("12345"), service.get("key1"));
+
+        service.put("key2", Buffer.buffer("12345"), policy);
+        service.get("key1");
+        // the least recently used response is evicted
+        service.put("key3", Buffer.buffer("12345"), policy);
+        assertNull(service.get("key2"));
+        assertNotNull(service.get("key1"));
+        assertNotNull(service.get("key3"));
+
+        // the response exceeds the max entry size
+        policy.setMaxEntrySize(4);
+        service.put("key4", Buffer.buffer("12345"), policy);
+        assertNull(service.get("key4"));
+
+        assertEquals(4, registry.counter("aidial.response.cache.requests", "result", "hit", "tier", "local").count());
+        assertEquals(3, registry.counter("aidial.response.cache.requests", "result", "miss", "tier", "none").count());
+        assertEquals(4.0 / 7, registry.get("aidial.response.cache.hit.ratio").gauge().value(), 0.0001);
+    }
+
+    private static Model createModel(ModelType type) {
+        Model model = new Model();
+        model.setName("model1");
+        model.setType(type);
+        model.setResponseCache(new ResponseCache());
+        return model;
+    }
+
+    @SneakyThrows
+    private static ObjectNode tree(String json) {
+        return (ObjectNode) ProxyUtil.MAPPER.readTree(json);
+    }
+}
@@ -0,0 +1,121 @@
+package com.epam.aidial.core.server.service;
+
+import com.epam.aidial.core.server.data.ResourceTypes;
+import com.epam.aidial.core.server.data.ShareDelta;
+import com.epam.aidial.core.server.data.SharedResource;
+import com.epam.aidial.core.server.data.SharedResources;
+import com.epam.aidial.core.server.util.ProxyUtil;
+import com.epam.aidial.core.server.util.ResourceDescriptorFactory;
+import com.epam.aidial.core.storage.data.ResourceAccessType;
+import com.epam.aidial.core.storage.resource.ResourceDescriptor;
+import com.epam.aidial.core.storage.service.ResourceService;
+import com.epam.aidial.core.storage.util.EtagHeader;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RMap;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ShareIndexTest extends ResourceServiceBaseTest {
+
+    private static final String FOLDER = "files/owner/folder/";
+    private static final String FILE = "files/owner/folder/file.txt";
+    private static final String OTHER = "files/owner/other.txt";
+
+    private ResourceService resourceService;
+    private ShareIndex shareIndex;
+    private ResourceDescriptor document;
+
+    @BeforeEach
+    public void beforeEach() {
+        resourceService = createResourceService(settings().build());
+        resourceService.registerPatch(ResourceTypes.SHARED_WITH_ME, new SharedWithMePatch());
+        shareIndex = new ShareIndex(redissonClient, resourceService, null, new JsonObject());
+        document = ResourceDescriptorFactory.fromDecoded(ResourceTypes.SHARED_WITH_ME, "bucket", "Users/user/", "file/share.json");
+    }
+
+    @AfterEach
+    public void afterEach() {
+        resourceService.close();
+    }
+
+    @Test
+    public void testNoDocument() {
+        assertNull(shareIndex.getPermissions(document, List.of(FILE)));
+    }
+
+    @Test
+    public void testCompute() {
+        addLink(FOLDER, Set.of(ResourceAccessType.READ));
+        addLink(OTHER, Set.of(ResourceAccessType.READ, ResourceAccessType.WRITE));
+
+        assertEquals(Map.of(FOLDER, Set.of(ResourceAccessType.READ)),
+                shareIndex.getPermissions(document, List.of(FILE, FOLDER, "files/owner/")));
+        assertEquals(Map.of(OTHER, Set.of(ResourceAccessType.READ, ResourceAccessType.WRITE)),
+                shareIndex.getPermissions(document, List.of(OTHER)));
+
+        // the changed links are applied to the index in place
+        assertEquals(3, index().size());
+        removeLink(OTHER);
+        assertEquals(2, index().size());
+        assertEquals(Map.of(), shareIndex.getPermissions(document, List.of(OTHER)));
+        assertEquals(Map.of(FOLDER, Set.of(ResourceAccessType.READ)), shareIndex.getPermissions(document, List.of(FOLDER)));
+    }
+
+    @Test
+    public void testStaleIndex() {
+        addLink(FOLDER, Set.of(ResourceAccessType.READ));
+        assertEquals(Map.of(FOLDER, Set.of(ResourceAccessType.READ)), shareIndex.getPermissions(document, List.of(FOLDER)));
+
+        // the document is changed bypassing the index
+        resourceService.putResource(document, "{\"resources\":[{\"url\":\"" + OTHER + "\",\"permissions\":[\"READ\"]}]}", EtagHeader.ANY);
+
+        assertEquals(Map.of(), shareIndex.getPermissions(document, List.of(FOLDER)));
+        assertEquals(Map.of(OTHER, Set.of(ResourceAccessType.READ)), shareIndex.getPermissions(document, List.of(OTHER)));
+
+        // the index is rebuilt, so the following changes are applied in place
+        addLink(FOLDER, Set.of(ResourceAccessType.WRITE));
+        assertEquals(3, index().size());
+        assertEquals(Map.of(FOLDER, Set.of(ResourceAccessType.WRITE)), shareIndex.getPermissions(document, List.of(FOLDER)));
+    }
+
+    @Test
+    public void testDocument() {
+        addLink(FOLDER, Set.of(ResourceAccessType.READ));
+        addLink(FOLDER, Set.of(ResourceAccessType.WRITE));
+        addLink(OTHER, Set.of(ResourceAccessType.READ));
+        removeLink(OTHER);
+
+        // the deltas are applied to the document on read
+        SharedResources document = ProxyUtil.convertToObject(resourceService.getResource(this.document), SharedResources.class);
+        assertEquals(List.of(new SharedResource(FOLDER, Set.of(ResourceAccessType.READ, ResourceAccessType.WRITE))), document.getResources());
+    }
+
+    @Test
+    public void testRevokeWithoutDocument() {
+        removeLink(FOLDER);
+
+        assertNull(resourceService.getResource(document));
+        assertNull(shareIndex.getPermissions(document, List.of(FOLDER)));
+    }
+
+    private void addLink(String url, Set<ResourceAccessType> permissions) {
+        shareIndex.append(document, new ShareDelta(ShareDelta.Action.GRANT, null, Map.of(url, permissions)));
+    }
+
+    private void removeLink(String url) {
+        shareIndex.append(document, new ShareDelta(ShareDelta.Action.REVOKE, null, Map.of(url, ResourceAccessType.ALL)));
+    }
+
+    private RMap<String, String> index() {
+        return redissonClient.getMap("share-index:" + document.getAbsoluteFilePath(), StringCodec.INSTANCE);
+    }
+}
@@ -0,0 +1,152 @@
+package com.epam.aidial.core.server.upstream;
+
+import com.epam.aidial.core.config.BalancingStrategy;
+import com.epam.aidial.core.config.Upstream;
+import com.epam.aidial.core.storage.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LatencyAwareBalancerTest {
+
+    @Mock
+    private Random generator;
+
+    @Test
+    void testLeastInFlightRequests() {
+        List<Upstream> upstreams = List.of(
+                new Upstream("endpoint1", null, null, 1, 0),
+                new Upstream("endpoint2", null, null, 1, 0)
+        );
+        LatencyAwareBalancer balancer = new LatencyAwareBalancer("model1", upstreams, generator, false);
+        UpstreamState state1 = balancer.getUpstreamStates().get(0);
+        UpstreamState state2 = balancer.getUpstreamStates().get(1);
+
+        state1.acquire();
+        assertEquals(upstreams.get(1), balancer.next());
+
+        state2.acquire();
+        state2.acquire();
+        assertEquals(upstreams.get(0), balancer.next());
+
+        state2.release();
+        state2.release();
+        state1.release();
+        assertEquals(0, state1.getInFlightRequests());
+        assertEquals(0, state2.getInFlightRequests());
+    }
+
+    @Test
+    void testLowestResponseTime() {
+        List<Upstream> upstreams = List.of(
+                new Upstream("endpoint1", null, null, 1, 0),
+                new Upstream("endpoint2", null, null, 1, 0)
+        );
+        LatencyAwareBalancer balancer = new LatencyAwareBalancer("model1", upstreams, generator, false);
+        balancer.getUpstreamStates().get(0).updateResponseTime(1000);
+        balancer.getUpstreamStates().get(1).updateResponseTime(100);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(upstreams.get(1), balancer.next());
+        }
+    }
+
+    @Test
+    void testWeight() {
+        List<Upstream> upstreams = List.of(
+                new Upstream("endpoint1", null, null, 1, 0),
+                new Upstream("endpoint2", null, null, 4, 0)
+        );
+        LatencyAwareBalancer balancer = new LatencyAwareBalancer("model1", upstreams, generator, false);
+        balancer.getUpstreamStates().get(0).updateResponseTime(100);
+        balancer.getUpstreamStates().get(1).updateResponseTime(200);
+
+        // endpoint2 is slower but has 4 times more capacity
+        assertEquals(upstreams.get(1), balancer.next());
+    }
+
+    @Test
+    void testResponseTimeMovingAverage() {
+        UpstreamState state = new UpstreamState(new Upstream("endpoint1", null, null, 1, 0));
+        state.updateResponseTime(100);
+        assertEquals(100, state.getResponseTime());
+
+        state.updateResponseTime(600);
+        assertEquals(200, state.getResponseTime(), 0.0001);
+    }
+
+    @Test
+    void testPowerOfTwoChoices() {
+        List<Upstream> upstreams = List.of(
+                new Upstream("endpoint1", null, null, 1, 0),
+                new Upstream("endpoint2", null, null, 1, 0),
+                new Upstream("endpoint3", null, null, 1, 0)
+        );
+        LatencyAwareBalancer balancer = new LatencyAwareBalancer("model1", upstreams, generator, true);
+        balancer.getUpstreamStates().get(0).updateResponseTime(100);
+        balancer.getUpstreamStates().get(1).updateResponseTime(300);
+        balancer.getUpstreamStates().get(2).updateResponseTime(200);
+
+        // candidates are endpoint2 and endpoint3
+        when(generator.nextInt(3)).thenReturn(1);
+        when(generator.nextInt(2)).thenReturn(0);
+
+        assertEquals(upstreams.get(2), balancer.next());
+    }
+
+    @Test
+    void testSkipUnavailableUpstreams() {
+        List<Upstream> upstreams = List.of(
+                new Upstream("endpoint1", null, null, 1, 0),
+                new Upstream("endpoint2", null, null, 1, 0)
+        );
+        LatencyAwareBalancer balancer = new LatencyAwareBalancer("model1", upstreams, generator, false);
+        balancer.getUpstreamStates().get(0).updateResponseTime(100);
+        balancer.getUpstreamStates().get(1).updateResponseTime(1000);
+        balancer.getUpstreamStates().get(0).fail(HttpStatus.TOO_MANY_REQUESTS, 10);
+
+        assertEquals(upstreams.get(1), balancer.next());
+
+        balancer.getUpstreamStates().get(1).fail(HttpStatus.BAD_GATEWAY, -1);
+        assertNull(balancer.next());
+    }
+
+    @Test
+    void testTierFallback() {
+        List<Upstream> upstreams = List.of(
+                new Upstream("endpoint1", null, null, 1, 0),
+                new Upstream("endpoint2", null, null, 1, 1)
+        );
+        TieredBalancer balancer = new TieredBalancer("model1", upstreams, BalancingStrategy.LEAST_LOAD, generator);
+
+        Upstream upstream = balancer.next(new HashSet<>());
+        assertNotNull(upstream);
+        assertEquals("endpoint1", upstream.getEndpoint());
+
+        balancer.fail(upstream, HttpStatus.TOO_MANY_REQUESTS, 10);
+
+        upstream = balancer.next(new HashSet<>());
+        assertNotNull(upstream);
+        assertEquals("endpoint2", upstream.getEndpoint());
+
+        balancer.fail(upstream, HttpStatus.TOO_MANY_REQUESTS, 5);
+
+        // all upstreams are unavailable - fallback to the upstream which is available earlier
+        Set<Upstream> usedUpstreams = new HashSet<>();
+        upstream = balancer.next(usedUpstreams);
+        assertNotNull(upstream);
+        assertEquals("endpoint2", upstream.getEndpoint());
+    }
+}
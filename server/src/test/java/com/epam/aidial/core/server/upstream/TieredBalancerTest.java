@@ -1,5 +1,7 @@
 package com.epam.aidial.core.server.upstream;
 
+import com.epam.aidial.core.config.BalancingStrategy;
+import com.epam.aidial.core.config.ConcurrencyLimit;
 import com.epam.aidial.core.config.Model;
 import com.epam.aidial.core.config.Upstream;
 import com.epam.aidial.core.storage.http.HttpException;
@@ -10,18 +12,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -143,4 +152,192 @@ public class TieredBalancerTest {
 
         assertThrows(HttpException.class, route2::next);
     }
+
+    @Test
+    void testUpstreamStateAvailability() {
+        UpstreamState state = new UpstreamState(new Upstream("endpoint1", null, null, 1, 0));
+        assertTrue(state.isUpstreamAvailable());
+        assertEquals(-1, state.getRetryAfter());
+        assertNull(state.getStatus());
+        assertNull(state.getSource());
+
+        long before = System.currentTimeMillis();
+        state.fail(HttpStatus.SERVICE_UNAVAILABLE, -1);
+        state.fail(HttpStatus.SERVICE_UNAVAILABLE, -1);
+        assertFalse(state.isUpstreamAvailable());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, state.getStatus());
+        assertEquals(UpstreamState.RetryAfterSource.CORE, state.getSource());
+        assertEquals(2, UpstreamState.getErrorCount(state.getAvailability()));
+        // exponential backoff: 2^2 seconds
+        assertTrue(state.getRetryAfter() >= before + 4000);
+
+        state.fail(HttpStatus.TOO_MANY_REQUESTS, 10);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, state.getStatus());
+        assertEquals(UpstreamState.RetryAfterSource.UPSTREAM, state.getSource());
+        assertEquals(2, UpstreamState.getErrorCount(state.getAvailability()));
+        assertTrue(state.getRetryAfter() >= before + 10000);
+
+        state.succeeded();
+        assertTrue(state.isUpstreamAvailable());
+        assertEquals(-1, state.getRetryAfter());
+        assertNull(state.getStatus());
+        assertNull(state.getSource());
+        assertEquals(0, UpstreamState.getErrorCount(state.getAvailability()));
+    }
+
+    @Test
+    void testConcurrentAccess() throws Exception {
+        List<Upstream> upstreams = List.of(
+                new Upstream("endpoint1", null, null, 1, 0),
+                new Upstream("endpoint2", null, null, 1, 0),
+                new Upstream("endpoint3", null, null, 1, 1)
+        );
+        TieredBalancer balancer = new TieredBalancer("model1", upstreams, new Random());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        Upstream upstream = balancer.next(new HashSet<>());
+                        assertNotNull(upstream);
+                        balancer.acquire(upstream);
+                        if (j % 10 == 0) {
+                            balancer.fail(upstream, HttpStatus.BAD_GATEWAY, 0);
+                        } else {
+                            balancer.succeed(upstream);
+                        }
+                        balancer.release(upstream);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (Upstream upstream : upstreams) {
+            balancer.succeed(upstream);
+        }
+        assertNotNull(balancer.next(new HashSet<>()));
+    }
+
+    @Test
+    void testApplyHealthEvent() {
+        List<Upstream> upstreams = List.of(
+                new Upstream("endpoint1", "key1", null, 1, 0),
+                new Upstream("endpoint1", "key2", null, 1, 1)
+        );
+        TieredBalancer balancer = new TieredBalancer("model:model1", upstreams, generator);
+
+        UpstreamHealthEvent failure = new UpstreamHealthEvent()
+                .setDeployment("model:model1")
+                .setEndpoint("endpoint1")
+                .setUpstreamHash(upstreams.get(0).hashCode())
+                .setAction(UpstreamHealthEvent.Action.FAILURE)
+                .setStatus(HttpStatus.TOO_MANY_REQUESTS)
+                .setSource(UpstreamState.RetryAfterSource.UPSTREAM)
+                .setRetryAfter(System.currentTimeMillis() + 60_000);
+        balancer.applyHealthEvent(failure);
+
+        // the upstream throttled on another node is skipped
+        Upstream upstream = balancer.next(new HashSet<>());
+        assertNotNull(upstream);
+        assertEquals("key2", upstream.getKey());
+
+        UpstreamHealthEvent recovery = new UpstreamHealthEvent()
+                .setDeployment("model:model1")
+                .setEndpoint("endpoint1")
+                .setUpstreamHash(upstreams.get(0).hashCode())
+                .setAction(UpstreamHealthEvent.Action.RECOVERY);
+        balancer.applyHealthEvent(recovery);
+
+        upstream = balancer.next(new HashSet<>());
+        assertNotNull(upstream);
+        assertEquals("key1", upstream.getKey());
+    }
+
+    @Test
+    void testRemoteFailureOnlyExtendsRetryAfter() {
+        UpstreamState state = new UpstreamState(new Upstream("endpoint1", null, null, 1, 0));
+        state.fail(HttpStatus.TOO_MANY_REQUESTS, 60);
+        long retryAfter = state.getRetryAfter();
+
+        state.failRemotely(HttpStatus.TOO_MANY_REQUESTS, UpstreamState.RetryAfterSource.UPSTREAM, retryAfter - 1000);
+        assertEquals(retryAfter, state.getRetryAfter());
+
+        state.failRemotely(HttpStatus.TOO_MANY_REQUESTS, UpstreamState.RetryAfterSource.UPSTREAM, retryAfter + 1000);
+        assertEquals(retryAfter + 1000, state.getRetryAfter());
+    }
+
+    @Test
+    void testConcurrencyLimitSpillsToNextTier() {
+        List<Upstream> upstreams = List.of(
+                new Upstream("endpoint1", null, null, 1, 0),
+                new Upstream("endpoint2", null, null, 1, 1)
+        );
+        ConcurrencyLimit limit = new ConcurrencyLimit();
+        limit.setInitialLimit(2);
+        TieredBalancer balancer = new TieredBalancer("model1", upstreams, BalancingStrategy.RANDOMIZED_WEIGHTED, generator, null, limit);
+
+        for (String expected : List.of("endpoint1", "endpoint1", "endpoint2", "endpoint2")) {
+            Upstream upstream = balancer.next(new HashSet<>());
+            assertNotNull(upstream);
+            assertEquals(expected, upstream.getEndpoint());
+            balancer.acquire(upstream);
+        }
+
+        // all upstreams are healthy and saturated
+        assertNull(balancer.next(new HashSet<>()));
+        HttpException error = balancer.createUpstreamUnavailableException();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, error.getStatus());
+        assertEquals("1", error.getHeaders().get("Retry-After"));
+
+        balancer.release(upstreams.get(0));
+        Upstream upstream = balancer.next(new HashSet<>());
+        assertNotNull(upstream);
+        assertEquals("endpoint1", upstream.getEndpoint());
+    }
+
+    @Test
+    void testConcurrencyLimitAdditiveIncreaseMultiplicativeDecrease() {
+        Upstream upstream = new Upstream("endpoint1", null, null, 1, 0);
+        ConcurrencyLimit limit = new ConcurrencyLimit();
+        limit.setInitialLimit(4);
+        limit.setBackoffRatio(0.5);
+        TieredBalancer balancer = new TieredBalancer("model1", List.of(upstream), BalancingStrategy.RANDOMIZED_WEIGHTED, generator, null, limit);
+        UpstreamState state = balancer.getUpstreamStates().get(0);
+        balancer.updateResponseTime(upstream, 10_000);
+
+        // the burst of failures within the response time shrinks the limit once
+        balancer.fail(upstream, HttpStatus.TOO_MANY_REQUESTS, 1);
+        balancer.fail(upstream, HttpStatus.TOO_MANY_REQUESTS, 1);
+        assertEquals(2, state.getConcurrencyLimit());
+
+        // the limit isn't grown while the upstream uses less than half of it
+        balancer.succeed(upstream);
+        assertEquals(2, state.getConcurrencyLimit());
+
+        balancer.acquire(upstream);
+        balancer.succeed(upstream);
+        assertEquals(2.5, state.getConcurrencyLimit());
+    }
+
+    @Test
+    void testConcurrencyLimitDecreasesWithLatency() {
+        Upstream upstream = new Upstream("endpoint1", null, null, 1, 0);
+        ConcurrencyLimit limit = new ConcurrencyLimit();
+        limit.setInitialLimit(4);
+        limit.setBackoffRatio(0.5);
+        TieredBalancer balancer = new TieredBalancer("model1", List.of(upstream), BalancingStrategy.RANDOMIZED_WEIGHTED, generator, null, limit);
+        UpstreamState state = balancer.getUpstreamStates().get(0);
+
+        balancer.updateResponseTime(upstream, 100);
+        balancer.updateResponseTime(upstream, 1000);
+        balancer.acquire(upstream);
+        balancer.succeed(upstream);
+
+        assertEquals(2, state.getConcurrencyLimit());
+    }
 }
@@ -1,5 +1,6 @@
 package com.epam.aidial.core.server.upstream;
 
+import com.epam.aidial.core.config.Hedging;
 import com.epam.aidial.core.config.Model;
 import com.epam.aidial.core.config.Upstream;
 import com.epam.aidial.core.storage.http.HttpException;
@@ -15,6 +16,7 @@ import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -109,4 +111,75 @@ public class UpstreamRouteTest {
         assertNull(route.get());
         assertEquals(2, route.getAttemptCount());
     }
+
+    @Test
+    void testHedging() {
+        Hedging hedging = new Hedging();
+        hedging.setDelayPercentile(50);
+        hedging.setMinDelay(150);
+        hedging.setMinSamples(2);
+        hedging.setBudget(1);
+        Model model = new Model();
+        model.setName("model1");
+        model.setHedging(hedging);
+        model.setUpstreams(List.of(
+                new Upstream("endpoint1", null, null, 1, 1),
+                new Upstream("endpoint2", null, null, 1, 1)
+        ));
+
+        UpstreamRouteProvider upstreamRouteProvider = new UpstreamRouteProvider(vertx, () -> generator);
+        UpstreamRoute route = upstreamRouteProvider.get(model);
+        assertTrue(route.isHedgingEnabled());
+        Upstream primary = route.next();
+        assertNotNull(primary);
+
+        // not enough samples to estimate the delay
+        route.responded(100);
+        assertEquals(-1, route.getHedgeDelay());
+
+        // the percentile is clamped by min delay
+        route.responded(120);
+        assertEquals(150, route.getHedgeDelay());
+
+        Upstream hedge = route.hedge();
+        assertNotNull(hedge);
+        assertNotEquals(primary, hedge);
+        assertEquals(2, route.getAttemptCount());
+        // the request is hedged at most once
+        assertNull(route.hedge());
+
+        route.promoteHedge();
+        assertEquals(hedge, route.get());
+        assertNull(route.getHedge());
+        route.release();
+
+        // every request deposits the budget for one hedge
+        route = upstreamRouteProvider.get(model);
+        route.next();
+        assertNotNull(route.hedge());
+        route.cancelHedge();
+        assertNull(route.getHedge());
+
+        // the budget is not enough to hedge the request
+        hedging.setBudget(0.5);
+        route = upstreamRouteProvider.get(model);
+        route.next();
+        assertNull(route.hedge());
+    }
+
+    @Test
+    void testResponseTimeWindow() {
+        ResponseTimeWindow window = new ResponseTimeWindow(4);
+        assertEquals(-1, window.percentile(50));
+
+        for (long value : new long[] {500, 100, 400, 200, 300}) {
+            window.add(value);
+        }
+
+        // the oldest sample is evicted
+        assertEquals(4, window.size());
+        assertEquals(200, window.percentile(50));
+        assertEquals(400, window.percentile(100));
+        assertEquals(100, window.percentile(1));
+    }
 }
@@ -0,0 +1,164 @@
+package com.epam.aidial.core.server.upstream;
+
+import com.epam.aidial.core.config.ConcurrencyLimit;
+import com.epam.aidial.core.config.Model;
+import com.epam.aidial.core.config.Upstream;
+import com.epam.aidial.core.storage.http.HttpException;
+import com.epam.aidial.core.storage.http.HttpStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UpstreamSchedulerTest {
+
+    private Vertx vertx;
+    private Context context;
+    private MeterRegistry registry;
+    private Model model;
+
+    @BeforeEach
+    public void beforeEach() {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+        registry = new SimpleMeterRegistry();
+
+        ConcurrencyLimit limit = new ConcurrencyLimit();
+        limit.setInitialLimit(1);
+        limit.setMaxLimit(1);
+        model = new Model();
+        model.setName("model");
+        model.setUpstreams(List.of(new Upstream("endpoint1", null, null, 1, 0)));
+        model.setConcurrencyLimit(limit);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        vertx.close();
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        UpstreamRouteProvider provider = create(new JsonObject());
+        UpstreamRoute first = provider.get(model);
+        assertFalse(first.isSaturated());
+        await(onContext(() -> provider.schedule(first, 1)));
+        assertEquals("endpoint1", first.get().getEndpoint());
+
+        UpstreamRoute low = provider.get(model);
+        UpstreamRoute high = provider.get(model);
+        assertTrue(low.isSaturated());
+        Future<Void> lowFuture = onContext(() -> provider.schedule(low, 1));
+        Future<Void> highFuture = onContext(() -> provider.schedule(high, 3));
+        assertEquals(1, queued("1"));
+        assertEquals(1, queued("3"));
+
+        // the request of higher priority gets the freed slot though it's queued later
+        onContext(() -> {
+            first.release();
+            return null;
+        });
+        await(highFuture);
+        assertEquals("endpoint1", high.get().getEndpoint());
+        assertEquals(1, high.getAttemptCount());
+        // the dispatches of the freed slot run on the context before the check
+        assertFalse(onContext(lowFuture::isComplete));
+        assertEquals(1, queued("1"));
+
+        onContext(() -> {
+            high.release();
+            return null;
+        });
+        await(lowFuture);
+        assertEquals(0, queued("1"));
+        assertEquals(1, registry.get("aidial.upstream.queue.wait").tag("priority", "1").timer().count());
+    }
+
+    @Test
+    public void testMaxWait() throws Exception {
+        UpstreamRouteProvider provider = create(new JsonObject().put("queueMaxWait", 50));
+        UpstreamRoute first = provider.get(model);
+        await(onContext(() -> provider.schedule(first, 1)));
+
+        UpstreamRoute waiting = provider.get(model);
+        HttpException error = rejection(onContext(() -> provider.schedule(waiting, 1)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, error.getStatus());
+        assertEquals("1", error.getHeaders().get("Retry-After"));
+        assertEquals(0, waiting.getAttemptCount());
+        assertEquals(0, queued("1"));
+        assertEquals(1, registry.get("aidial.upstream.queue.wait").tag("priority", "1").timer().count());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        UpstreamRouteProvider provider = create(new JsonObject().put("queueMaxSize", 1));
+        UpstreamRoute first = provider.get(model);
+        await(onContext(() -> provider.schedule(first, 1)));
+
+        Future<Void> queued = onContext(() -> provider.schedule(provider.get(model), 1));
+        HttpException error = rejection(onContext(() -> provider.schedule(provider.get(model), 5)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, error.getStatus());
+        assertFalse(queued.isComplete());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        UpstreamRouteProvider provider = create(new JsonObject());
+        UpstreamRoute first = provider.get(model);
+        await(onContext(() -> provider.schedule(first, 1)));
+
+        UpstreamRoute waiting = provider.get(model);
+        Promise<Void> disconnected = Promise.promise();
+        Future<Void> future = onContext(() -> provider.schedule(waiting, 1, disconnected.future()));
+        assertEquals(1, queued("1"));
+
+        // the request of the disconnected client leaves the queue instead of taking the next free slot
+        onContext(disconnected::tryComplete);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejection(future).getStatus());
+        assertEquals(0, queued("1"));
+        assertFalse(first.getBalancer().hasWaiters());
+        assertEquals(0, waiting.getAttemptCount());
+    }
+
+    private UpstreamRouteProvider create(JsonObject settings) {
+        return new UpstreamRouteProvider(vertx, Random::new, null, registry, settings);
+    }
+
+    private double queued(String priority) {
+        return registry.get("aidial.upstream.queue.size").tag("priority", priority).gauge().value();
+    }
+
+    private <T> T onContext(Supplier<T> action) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        context.runOnContext(ignore -> result.complete(action.get()));
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    private static HttpException rejection(Future<?> future) {
+        ExecutionException error = assertThrows(ExecutionException.class, () -> await(future));
+        return assertInstanceOf(HttpException.class, error.getCause());
+    }
+}
@@ -0,0 +1,72 @@
+package com.epam.aidial.core.server.upstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WeightedFairQueueTest {
+
+    @Test
+    public void testProportionalShare() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>();
+        for (int i = 0; i < 8; i++) {
+            queue.add("low" + i, 1);
+            queue.add("high" + i, 3);
+        }
+
+        List<String> polled = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            polled.add(queue.poll());
+        }
+
+        assertEquals(List.of("high0", "low0", "high1", "high2", "high3", "low1", "high4", "high5"), polled);
+        assertEquals(8, queue.size());
+    }
+
+    @Test
+    public void testIdleClassDoesNotAccumulateCredit() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>();
+        for (int i = 0; i < 30; i++) {
+            queue.add("high", 3);
+            queue.poll();
+        }
+
+        // the class idle so far doesn't get the burst of polls
+        for (int i = 0; i < 3; i++) {
+            queue.add("low", 1);
+            queue.add("high", 3);
+        }
+
+        int low = 0;
+        for (int i = 0; i < 4; i++) {
+            if ("low".equals(queue.poll())) {
+                low++;
+            }
+        }
+        assertEquals(1, low);
+    }
+
+    @Test
+    public void testAddFirstAndRemove() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>();
+        queue.add("first", 1);
+        queue.add("second", 1);
+        queue.add("third", 0);
+
+        String polled = queue.poll();
+        assertEquals("first", polled);
+        queue.addFirst(polled, 1);
+        assertTrue(queue.remove("second", 1));
+        assertFalse(queue.remove("second", 1));
+
+        assertEquals(2, queue.size());
+        assertEquals("first", queue.poll());
+        assertEquals("third", queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -71,4 +71,33 @@ public class EventStreamParserTest {
         parser.parse(Buffer.buffer("\ndata: ops one more data\n"));
         assertEquals(List.of("{\"name\":\"assdsdsdsa 你好。답답해 123 \"}", "{\"value\":56,\"text\":\"[DONE]\"}"), responses);
     }
+
+    @Test
+    public void testEventFilter() {
+        BaseResponseFunction filtered = new BaseResponseFunction(null, null) {
+            @Override
+            public Future<Void> apply(ObjectNode json) {
+                responses.add(json.toString());
+                return Future.succeededFuture();
+            }
+
+            @Override
+            public String getEventFilter() {
+                return "\"attachments\"";
+            }
+
+            @Override
+            public Future<Void> complete() {
+                responses.add("complete");
+                return Future.succeededFuture();
+            }
+        };
+
+        EventStreamParser parser = new EventStreamParser(20, filtered);
+        parser.parse(Buffer.buffer("data: {\"content\": \"hello\"}\n\ndata: {\"attach"));
+        parser.parse(Buffer.buffer("ments\": []}\n\ndata: not json without the filter\n\n"));
+        parser.parse(Buffer.buffer("data: {\"attachments\": [1]}\r\ndata: [DONE]\n"));
+        parser.complete();
+        assertEquals(List.of("{\"attachments\":[]}", "{\"attachments\":[1]}", "complete"), responses);
+    }
 }
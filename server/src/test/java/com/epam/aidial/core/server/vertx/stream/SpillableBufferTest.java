@@ -0,0 +1,104 @@
+package com.epam.aidial.core.server.vertx.stream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SpillableBufferTest {
+
+    @TempDir
+    private Path directory;
+
+    private MeterRegistry registry;
+    private ResponseRetention retention;
+
+    @BeforeEach
+    public void beforeEach() {
+        registry = new SimpleMeterRegistry();
+        retention = new ResponseRetention(registry, new JsonObject()
+                .put("memoryLimit", 8)
+                .put("spillDirectory", directory.toString()));
+    }
+
+    @Test
+    public void testInMemory() {
+        SpillableBuffer buffer = new SpillableBuffer(16, retention);
+        buffer.append(Buffer.buffer("data"));
+        buffer.append(Buffer.buffer(":1"));
+
+        assertEquals("data:1", buffer.view().toString());
+        assertSame(buffer.view(), buffer.view());
+        assertEquals(6, buffer.length());
+        assertEquals(6, retained("memory"));
+        assertEquals(0, retained("disk"));
+    }
+
+    @Test
+    public void testSpill() {
+        SpillableBuffer buffer = new SpillableBuffer(16, retention);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            String chunk = "data: " + i + "\n\n";
+            buffer.append(Buffer.buffer(chunk));
+            expected.append(chunk);
+        }
+
+        assertEquals(expected.toString(), buffer.view().toString());
+        assertEquals(expected.length(), buffer.length());
+        assertEquals(8, retained("memory"));
+        assertEquals(expected.length() - 8, retained("disk"));
+
+        buffer.append(Buffer.buffer("[DONE]"));
+        assertEquals(expected + "[DONE]", buffer.view().toString());
+        assertEquals("[DONE]", buffer.view().slice(expected.length(), buffer.length()).toString());
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        SpillableBuffer buffer = new SpillableBuffer(16, retention);
+        String data = "data: 0123456789\n\n";
+        buffer.append(Buffer.buffer(data));
+        Buffer view = buffer.view();
+
+        buffer.release();
+        assertEquals(0, retained("memory"));
+        assertEquals(0, retained("disk"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+
+        // the content stays readable and the content appended later is not accounted
+        assertEquals(data, view.toString());
+        buffer.append(Buffer.buffer("[DONE]"));
+        assertEquals(data + "[DONE]", buffer.view().toString());
+        assertEquals(0, retained("disk"));
+
+        buffer.release();
+        assertEquals(0, retained("memory"));
+    }
+
+    @Test
+    public void testWithoutRetention() {
+        SpillableBuffer buffer = new SpillableBuffer(4, null);
+        String data = "x".repeat(1024);
+        buffer.append(Buffer.buffer(data));
+
+        assertEquals(data, buffer.view().toString());
+        assertEquals(0, retained("memory"));
+    }
+
+    private double retained(String storage) {
+        return registry.get("aidial.response.retained.bytes").tag("storage", storage).gauge().value();
+    }
+}
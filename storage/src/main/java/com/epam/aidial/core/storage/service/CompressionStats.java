@@ -0,0 +1,69 @@
+package com.epam.aidial.core.storage.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-local sizes of the bodies compressed in Redis by this node, tracked per Redis entry.
+ * <p>
+ * The totals are the current sizes: the entry is replaced once the body is rewritten, removed once the body is stored
+ * uncompressed or deleted and dropped once the Redis entry expires. The entries rewritten by the other nodes
+ * or evicted by Redis are counted until they expire.
+ * </p>
+ */
+class CompressionStats {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong originalBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    void put(String key, long originalSize, long compressedSize, long expiresAt) {
+        replace(key, new Entry(originalSize, compressedSize, expiresAt));
+    }
+
+    void remove(String key) {
+        replace(key, null);
+    }
+
+    void expireAt(String key, long expiresAt) {
+        entries.computeIfPresent(key, (ignore, entry) -> new Entry(entry.originalSize, entry.compressedSize, expiresAt));
+    }
+
+    /**
+     * Drops the entries expired by now.
+     */
+    void expire(long now) {
+        entries.forEach((key, entry) -> {
+            if (entry.expiresAt <= now && entries.remove(key, entry)) {
+                originalBytes.addAndGet(-entry.originalSize);
+                compressedBytes.addAndGet(-entry.compressedSize);
+            }
+        });
+    }
+
+    long getOriginalBytes() {
+        return originalBytes.get();
+    }
+
+    long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    private void replace(String key, Entry replacement) {
+        entries.compute(key, (ignore, entry) -> {
+            if (entry != null) {
+                originalBytes.addAndGet(-entry.originalSize);
+                compressedBytes.addAndGet(-entry.compressedSize);
+            }
+            if (replacement != null) {
+                originalBytes.addAndGet(replacement.originalSize);
+                compressedBytes.addAndGet(replacement.compressedSize);
+            }
+            return replacement;
+        });
+    }
+
+    private record Entry(long originalSize, long compressedSize, long expiresAt) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.epam.aidial.core.storage.service;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Node-local filter of the resources known not to exist, bounded by the number of slots.
+ * <p>
+ * Every resource URL is mapped to one slot by its 64-bit hash and the slot keeps the full hash,
+ * so a collision evicts the previous resource instead of reporting a false absence.
+ * </p>
+ */
+class NegativeCache {
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final long expiration;
+
+    /**
+     * @param size       - the number of slots, rounded up to the power of two
+     * @param expiration - time to live of the entries in milliseconds
+     */
+    NegativeCache(int size, long expiration) {
+        int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.expiration = expiration;
+    }
+
+    boolean isAbsent(String url, long now) {
+        long hash = hash(url);
+        Entry entry = slots.get(index(hash));
+        return entry != null && entry.hash == hash && entry.expiresAt > now;
+    }
+
+    void putAbsent(String url, long now) {
+        long hash = hash(url);
+        slots.set(index(hash), new Entry(hash, now + expiration));
+    }
+
+    void invalidate(String url) {
+        long hash = hash(url);
+        int index = index(hash);
+        Entry entry = slots.get(index);
+        if (entry != null && entry.hash == hash) {
+            slots.compareAndSet(index, entry, null);
+        }
+    }
+
+    private int index(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static long hash(String url) {
+        return Hashing.murmur3_128().hashString(url, StandardCharsets.UTF_8).asLong();
+    }
+
+    private record Entry(long hash, long expiresAt) {
+    }
+}
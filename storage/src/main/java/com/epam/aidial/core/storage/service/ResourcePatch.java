@@ -0,0 +1,18 @@
+package com.epam.aidial.core.storage.service;
+
+import java.util.List;
+
+/**
+ * Applies the deltas appended with {@link ResourceService#appendResource} to the body of a resource.
+ * The deltas are kept in Redis next to the body and applied on every read until they are compacted into the body on write-back.
+ */
+@FunctionalInterface
+public interface ResourcePatch {
+
+    /**
+     * @param body - the body the deltas are appended to
+     * @param deltas - the deltas in the order of appending
+     * @return the body with the deltas applied
+     */
+    String apply(String body, List<String> deltas);
+}
@@ -8,12 +8,16 @@ import com.epam.aidial.core.storage.data.ResourceEvent;
 import com.epam.aidial.core.storage.data.ResourceFolderMetadata;
 import com.epam.aidial.core.storage.data.ResourceItemMetadata;
 import com.epam.aidial.core.storage.resource.ResourceDescriptor;
+import com.epam.aidial.core.storage.resource.ResourceType;
 import com.epam.aidial.core.storage.util.Compression;
 import com.epam.aidial.core.storage.util.EtagBuilder;
 import com.epam.aidial.core.storage.util.EtagHeader;
 import com.epam.aidial.core.storage.util.RedisUtil;
+import com.epam.aidial.core.storage.util.SingleFlight;
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.SneakyThrows;
@@ -29,8 +33,13 @@ import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.io.Payload;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
 import org.redisson.api.RMap;
+import org.redisson.api.RMapAsync;
 import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.codec.ByteArrayCodec;
 import org.redisson.client.codec.Codec;
@@ -43,14 +52,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import javax.annotation.Nullable;
 
 @Slf4j
@@ -67,6 +85,14 @@ public class ResourceService implements AutoCloseable {
     public static final String CREATED_AT_ATTRIBUTE = "created_at";
     public static final String ETAG_ATTRIBUTE = "etag";
     private static final String COMPRESS_ATTRIBUTE = "compress";
+    // the compression of the body in Redis, the body is stored as is if the attribute is empty
+    private static final String BODY_ENCODING_ATTRIBUTE = "body_encoding";
+    // the deltas appended after the body, each one is terminated with the line break
+    private static final String PATCHES_ATTRIBUTE = "patches";
+    // the marker of the resource written to the blob store only, it's not read, so the entry is a cache miss
+    private static final String BLOB_ONLY_ATTRIBUTE = "blob_only";
+    private static final char DELTA_SEPARATOR = '\n';
+    private static final int NEGATIVE_CACHE_SIZE = 65536;
 
     private static final Set<String> REDIS_FIELDS_NO_BODY = Set.of(
             ETAG_ATTRIBUTE,
@@ -76,9 +102,10 @@ public class ResourceService implements AutoCloseable {
             CONTENT_TYPE_ATTRIBUTE,
             CONTENT_LENGTH_ATTRIBUTE,
             SYNCED_ATTRIBUTE,
-            EXISTS_ATTRIBUTE);
+            EXISTS_ATTRIBUTE,
+            COMPRESS_ATTRIBUTE);
     private static final Set<String> REDIS_FIELDS = Sets.union(
-            Set.of(BODY_ATTRIBUTE),
+            Set.of(BODY_ATTRIBUTE, BODY_ENCODING_ATTRIBUTE, PATCHES_ATTRIBUTE),
             REDIS_FIELDS_NO_BODY);
     private static final Codec REDIS_MAP_CODEC = new CompositeCodec(
             StringCodec.INSTANCE,
@@ -95,8 +122,34 @@ public class ResourceService implements AutoCloseable {
     private final int syncBatch;
     private final Duration cacheExpiration;
     private final int compressionMinSize;
+    @Nullable
+    private final String cacheCompression;
+    private final CompressionStats compressionStats = new CompressionStats();
     private final String prefix;
     private final String resourceQueue;
+    // distributes the partitions of the queue between the nodes, null if every node syncs the whole queue
+    @Nullable
+    private final SyncCoordinator syncCoordinator;
+    private final int syncPartitions;
+    // the highest number of the partitions the queue has been split to by any node
+    private final RAtomicLong queuePartitions;
+    private final AtomicLong syncedResources = new AtomicLong();
+    private final AtomicLong syncConflicts = new AtomicLong();
+    private final ExecutorService batchExecutor;
+    // coalesces the cache fills of the same resource within the node, so only one thread per key contends for the lock
+    private final SingleFlight<String, Result> cacheFills = new SingleFlight<>();
+    private final AtomicLong optimisticCacheFills = new AtomicLong();
+    private final Duration negativeCacheExpiration;
+    // the resources known not to exist on this node, null if the negative cache is disabled
+    @Nullable
+    private final NegativeCache negativeCache;
+    private final AtomicLong negativeCacheLocalHits = new AtomicLong();
+    private final AtomicLong negativeCacheRedisHits = new AtomicLong();
+    // the resources which are never updated in place, their cache is filled without the lock
+    private volatile Predicate<ResourceDescriptor> immutable = descriptor -> false;
+    // the patches by the prefix of the Redis keys of the resource type
+    private final Map<String, ResourcePatch> patches = new ConcurrentHashMap<>();
+    private final RScript script;
 
     public ResourceService(TimerService timerService,
                            RedissonClient redis,
@@ -105,6 +158,7 @@ public class ResourceService implements AutoCloseable {
                            Settings settings,
                            String prefix) {
         this.redis = redis;
+        this.script = redis.getScript(ByteArrayCodec.INSTANCE);
         this.blobStore = blobStore;
         this.lockService = lockService;
         this.topic = new ResourceTopic(redis, "resource:" + BlobStorageUtil.toStoragePath(prefix, "topic"));
@@ -113,16 +167,136 @@ public class ResourceService implements AutoCloseable {
         this.syncBatch = settings.syncBatch;
         this.cacheExpiration = Duration.ofMillis(settings.cacheExpiration);
         this.compressionMinSize = settings.compressionMinSize;
+        this.cacheCompression = Compression.validate(settings.cacheCompression);
+        this.negativeCacheExpiration = Duration.ofMillis(settings.negativeCacheExpiration);
+        this.negativeCache = (settings.negativeCacheExpiration > 0)
+                ? new NegativeCache(NEGATIVE_CACHE_SIZE, settings.negativeCacheExpiration) : null;
         this.prefix = prefix;
         this.resourceQueue = "resource:" + BlobStorageUtil.toStoragePath(prefix, "queue");
+        // the lease outlives a few sync periods, so a slow sync doesn't lose the partitions
+        this.syncCoordinator = (settings.syncPartitions > 0)
+                ? new SyncCoordinator(redis, resourceQueue + "/leases", settings.syncPartitions, settings.syncPeriod * 3) : null;
+        this.syncPartitions = Math.max(settings.syncPartitions, 0);
+        this.queuePartitions = redis.getAtomicLong(resourceQueue + "/partitions");
+        int batchParallelism = (settings.batchParallelism > 0) ? settings.batchParallelism : Settings.DEFAULT_BATCH_PARALLELISM;
+        this.batchExecutor = Executors.newFixedThreadPool(batchParallelism,
+                new ThreadFactoryBuilder().setNameFormat("resource-batch-%d").setDaemon(true).build());
 
         this.syncTimer = timerService.scheduleWithFixedDelay(settings.syncPeriod, settings.syncPeriod, this::sync);
+
+        if (negativeCache != null) {
+            // the resources created on the other nodes
+            topic.subscribePrefix("", event -> {
+                if (event.getAction() != ResourceEvent.Action.DELETE && event.getUrl() != null) {
+                    negativeCache.invalidate(event.getUrl());
+                }
+            });
+        }
     }
 
     @SneakyThrows
     @Override
     public void close() {
         syncTimer.close();
+        if (syncCoordinator != null) {
+            syncCoordinator.leave();
+        }
+        batchExecutor.shutdown();
+    }
+
+    /**
+     * @return the current size of the bodies compressed in Redis by this node before compression
+     */
+    public long getCacheOriginalBytes() {
+        return compressionStats.getOriginalBytes();
+    }
+
+    /**
+     * @return the current size of the bodies compressed in Redis by this node after compression
+     */
+    public long getCacheCompressedBytes() {
+        return compressionStats.getCompressedBytes();
+    }
+
+    /**
+     * @return the number of cache fills which waited for the concurrent fill of the same resource on this node
+     */
+    public long getCoalescedCacheFills() {
+        return cacheFills.getCoalesced();
+    }
+
+    /**
+     * @return the number of cache fills which loaded the resource from the blob store
+     */
+    public long getCacheFills() {
+        return cacheFills.getExecuted();
+    }
+
+    /**
+     * @return the number of resources cached without the lock
+     */
+    public long getOptimisticCacheFills() {
+        return optimisticCacheFills.get();
+    }
+
+    /**
+     * @return the number of resources synced by this node
+     */
+    public long getSyncedResources() {
+        return syncedResources.get();
+    }
+
+    /**
+     * @return the number of resources skipped by the sync because they were locked by another node or request
+     */
+    public long getSyncLockConflicts() {
+        return syncConflicts.get();
+    }
+
+    /**
+     * @return the number of partitions of the queue this node waited for because other nodes held them, 0 if the sync isn't coordinated
+     */
+    public long getSyncClaimConflicts() {
+        return (syncCoordinator == null) ? 0 : syncCoordinator.getClaimConflicts();
+    }
+
+    /**
+     * @return the number of partitions of the queue synced by this node, 0 if the sync isn't coordinated
+     */
+    public int getSyncPartitions() {
+        return (syncCoordinator == null) ? 0 : syncCoordinator.getOwned().size();
+    }
+
+    /**
+     * @return the number of lookups of the resources which don't exist answered by the node-local negative cache
+     */
+    public long getNegativeCacheLocalHits() {
+        return negativeCacheLocalHits.get();
+    }
+
+    /**
+     * @return the number of lookups of the resources which don't exist answered by Redis instead of the blob store
+     */
+    public long getNegativeCacheRedisHits() {
+        return negativeCacheRedisHits.get();
+    }
+
+    /**
+     * Registers the resources which are created once and never updated in place, e.g. the published ones.
+     * The cache of such resources is filled without the lock: the resource loaded from the blob store is cached
+     * only if the cache entry is still missing, so the concurrent write through Redis wins.
+     * The missing resource is not cached then, since the writes to the blob store only, e.g. the copy,
+     * drop the cache entry before the blob is written and the absence loaded before the write would outlive it.
+     */
+    public void registerImmutable(Predicate<ResourceDescriptor> predicate) {
+        immutable = predicate;
+    }
+
+    /**
+     * Enables {@link #appendResource(ResourceDescriptor, String, EtagHeader)} for the resources of the type.
+     */
+    public void registerPatch(ResourceType type, ResourcePatch patch) {
+        patches.put(redisKeyPrefix(type), patch);
     }
 
     public ResourceTopic.Subscription subscribeResources(Collection<ResourceDescriptor> resources,
@@ -130,6 +304,10 @@ public class ResourceService implements AutoCloseable {
         return topic.subscribe(resources, subscriber);
     }
 
+    public ResourceTopic.PrefixSubscription subscribeFolder(ResourceDescriptor folder, Consumer<ResourceEvent> subscriber) {
+        return topic.subscribePrefix(folder.getUrl(), subscriber);
+    }
+
     public void copyFolder(ResourceDescriptor sourceFolder, ResourceDescriptor targetFolder, boolean overwrite) {
         String token = null;
         do {
@@ -228,16 +406,26 @@ public class ResourceService implements AutoCloseable {
 
     @Nullable
     public ResourceItemMetadata getResourceMetadata(ResourceDescriptor descriptor) {
+        return getResourceMetadata(descriptor, true);
+    }
+
+    /**
+     * @param useNegativeCache - whether the node-local negative cache can be used, must be false for the updates under the lock
+     *                         since the entries of the resources created on the other nodes are invalidated asynchronously
+     */
+    @Nullable
+    private ResourceItemMetadata getResourceMetadata(ResourceDescriptor descriptor, boolean useNegativeCache) {
         if (descriptor.isFolder()) {
             throw new IllegalArgumentException("Resource folder: " + descriptor.getUrl());
         }
 
-        String redisKey = redisKey(descriptor);
-        Result result = redisGet(redisKey, false);
+        Result result = lookup(descriptor, useNegativeCache);
 
         if (result == null) {
-            String blobKey = blobKey(descriptor);
-            result = blobGet(blobKey, false);
+            result = blobGet(descriptor, false);
+            if (useNegativeCache && !result.exists()) {
+                putAbsent(descriptor);
+            }
         }
 
         if (!result.exists()) {
@@ -266,17 +454,65 @@ public class ResourceService implements AutoCloseable {
     }
 
     public boolean hasResource(ResourceDescriptor descriptor) {
-        String redisKey = redisKey(descriptor);
-        Result result = redisGet(redisKey, false);
+        Result result = lookup(descriptor, true);
 
         if (result == null) {
             String blobKey = blobKey(descriptor);
-            return blobExists(blobKey);
+            boolean exists = blobExists(blobKey);
+            if (!exists) {
+                putAbsent(descriptor);
+            }
+            return exists;
         }
 
         return result.exists();
     }
 
+    /**
+     * Looks up the resource without body in the negative cache and in Redis.
+     *
+     * @return the resource or null if the blob store must be checked
+     */
+    @Nullable
+    private Result lookup(ResourceDescriptor descriptor, boolean useNegativeCache) {
+        boolean negative = useNegativeCache && negativeCache != null;
+        if (negative && negativeCache.isAbsent(descriptor.getUrl(), time())) {
+            negativeCacheLocalHits.incrementAndGet();
+            return Result.DELETED_SYNCED;
+        }
+
+        Result result = redisGet(redisKey(descriptor), false);
+
+        if (negative && result != null && !result.exists() && result.synced) {
+            negativeCacheRedisHits.incrementAndGet();
+            negativeCache.putAbsent(descriptor.getUrl(), time());
+        }
+
+        return result;
+    }
+
+    /**
+     * Remembers the resource missing in the blob store: in Redis as the short-living tombstone unless the entry is written concurrently
+     * and in the node-local negative cache.
+     * The tombstone is replaced once the resource is created, the node-local entries are invalidated by the resource events.
+     * The node-local entry is put first and dropped if the tombstone is not written,
+     * so the invalidation by a concurrent create can't run before it.
+     */
+    private void putAbsent(ResourceDescriptor descriptor) {
+        if (negativeCache != null) {
+            negativeCache.putAbsent(descriptor.getUrl(), time());
+            if (!redisPutIfAbsent(redisKey(descriptor), Result.DELETED_SYNCED, negativeCacheExpiration)) {
+                negativeCache.invalidate(descriptor.getUrl());
+            }
+        }
+    }
+
+    private void invalidateAbsent(ResourceDescriptor descriptor) {
+        if (negativeCache != null) {
+            negativeCache.invalidate(descriptor.getUrl());
+        }
+    }
+
     @Nullable
     public Pair<ResourceItemMetadata, String> getResourceWithMetadata(ResourceDescriptor descriptor, EtagHeader etag) {
         return getResourceWithMetadata(descriptor, etag, true);
@@ -288,15 +524,8 @@ public class ResourceService implements AutoCloseable {
         Result result = redisGet(redisKey, true);
 
         if (result == null) {
-            try (var ignore = lock ? lockService.lock(redisKey) : null) {
-                result = redisGet(redisKey, true);
-
-                if (result == null) {
-                    String blobKey = blobKey(descriptor);
-                    result = blobGet(blobKey, true);
-                    redisPut(redisKey, result);
-                }
-            }
+            // the caller holding the lock must not wait for the fill of the other thread waiting for the same lock
+            result = lock ? load(descriptor, redisKey, true) : fill(descriptor, redisKey, true);
         }
 
         if (result.exists()) {
@@ -320,6 +549,52 @@ public class ResourceService implements AutoCloseable {
         return (result == null) ? null : result.getRight();
     }
 
+    /**
+     * Reads the resources with one Redis round-trip. The resources missing in Redis are loaded from the blob store in parallel.
+     *
+     * @return the resources with metadata in the order of the descriptors, null for the resources which don't exist
+     */
+    public List<Pair<ResourceItemMetadata, String>> getResources(Collection<ResourceDescriptor> descriptors) {
+        List<ResourceDescriptor> resources = List.copyOf(descriptors);
+        Result[] results = getAll(resources, true);
+        List<Pair<ResourceItemMetadata, String>> list = new ArrayList<>(results.length);
+
+        for (int i = 0; i < results.length; i++) {
+            Result result = results[i];
+            list.add(result.exists()
+                    ? Pair.of(toResourceItemMetadata(resources.get(i), result), new String(result.body, StandardCharsets.UTF_8))
+                    : null);
+        }
+
+        return list;
+    }
+
+    /**
+     * Reads the metadata of the resources with one Redis round-trip.
+     * The resources missing in Redis are looked up in the blob store in parallel.
+     *
+     * @return the metadata in the order of the descriptors, null for the resources which don't exist
+     */
+    public List<ResourceItemMetadata> getResourcesMetadata(Collection<ResourceDescriptor> descriptors) {
+        List<ResourceDescriptor> resources = List.copyOf(descriptors);
+        Result[] results = getAll(resources, false);
+        List<ResourceItemMetadata> list = new ArrayList<>(results.length);
+
+        for (int i = 0; i < results.length; i++) {
+            ResourceDescriptor descriptor = resources.get(i);
+            Result result = results[i];
+            if (!result.exists()) {
+                list.add(null);
+            } else {
+                list.add(descriptor.getType().requireCompression()
+                        ? toResourceItemMetadata(descriptor, result)
+                        : toFileMetadata(descriptor, result));
+            }
+        }
+
+        return list;
+    }
+
     public ResourceStream getResourceStream(ResourceDescriptor resource, EtagHeader etagHeader) throws IOException {
         if (resource.getType().requireCompression()) {
             throw new IllegalArgumentException("Streaming is supported for uncompressed resources only");
@@ -331,33 +606,61 @@ public class ResourceService implements AutoCloseable {
             return ResourceStream.fromResult(result, etagHeader);
         }
 
-        try (LockService.Lock ignored = lockService.lock(key)) {
-            result = redisGet(key, true);
-            if (result != null) {
-                return ResourceStream.fromResult(result, etagHeader);
+        // the blob which is too large to be cached is streamed by the caller which loaded it
+        Blob[] uncached = new Blob[1];
+        result = cacheFills.execute(key, () -> {
+            if (immutable.test(resource)) {
+                return fillStream(resource, key, false, uncached);
             }
 
-            Blob blob = blobStore.load(resource.getAbsoluteFilePath());
-            if (blob == null) {
-                redisPut(key, Result.DELETED_SYNCED);
-                return null;
+            try (LockService.Lock ignored = lockService.lock(key)) {
+                return fillStream(resource, key, true, uncached);
             }
+        });
 
-            Payload payload = blob.getPayload();
-            BlobMetadata metadata = blob.getMetadata();
-            String etag = extractEtag(metadata.getUserMetadata());
-            String contentType = metadata.getContentMetadata().getContentType();
-            Long length = metadata.getContentMetadata().getContentLength();
+        if (result != null) {
+            return ResourceStream.fromResult(result, etagHeader);
+        }
+
+        Blob blob = (uncached[0] == null) ? blobStore.load(resource.getAbsoluteFilePath()) : uncached[0];
+        if (blob == null) {
+            return null;
+        }
 
-            if (length <= maxSize) {
-                result = blobToResult(blob, metadata);
-                redisPut(key, result);
-                return ResourceStream.fromResult(result, etagHeader);
+        Payload payload = blob.getPayload();
+        BlobMetadata metadata = blob.getMetadata();
+        String etag = extractEtag(metadata.getUserMetadata());
+        String contentType = metadata.getContentMetadata().getContentType();
+        Long length = metadata.getContentMetadata().getContentLength();
+
+        etagHeader.validate(etag);
+        return new ResourceStream(payload.openStream(), etag, contentType, length);
+    }
+
+    /**
+     * @return the cached resource or null if the blob is too large to be cached
+     */
+    @Nullable
+    private Result fillStream(ResourceDescriptor resource, String key, boolean locked, Blob[] uncached) {
+        if (locked) {
+            Result result = redisGet(key, true);
+            if (result != null) {
+                return result;
             }
+        }
+
+        Blob blob = blobStore.load(resource.getAbsoluteFilePath());
+        if (blob == null) {
+            return cache(key, Result.DELETED_SYNCED, locked);
+        }
 
-            etagHeader.validate(etag);
-            return new ResourceStream(payload.openStream(), etag, contentType, length);
+        BlobMetadata metadata = blob.getMetadata();
+        if (metadata.getContentMetadata().getContentLength() <= maxSize) {
+            return cache(key, blobToResult(blob, metadata, false), locked);
         }
+
+        uncached[0] = blob;
+        return null;
     }
 
     public ResourceItemMetadata putResource(
@@ -380,7 +683,7 @@ public class ResourceService implements AutoCloseable {
         String redisKey = redisKey(descriptor);
 
         try (var ignore = lock ? lockService.lock(redisKey) : null) {
-            ResourceItemMetadata metadata = getResourceMetadata(descriptor);
+            ResourceItemMetadata metadata = getResourceMetadata(descriptor, false);
 
             if (metadata != null) {
                 etag.validate(metadata.getEtag());
@@ -406,6 +709,7 @@ public class ResourceService implements AutoCloseable {
             ResourceEvent.Action action = metadata == null
                     ? ResourceEvent.Action.CREATE
                     : ResourceEvent.Action.UPDATE;
+            invalidateAbsent(descriptor);
             publishEvent(descriptor, action, updatedAt, newEtag);
             return descriptor.getType().requireCompression()
                     ? toResourceItemMetadata(descriptor, result)
@@ -425,7 +729,7 @@ public class ResourceService implements AutoCloseable {
             ResourceDescriptor descriptor, MultipartData multipartData, EtagHeader etag) {
         String redisKey = redisKey(descriptor);
         try (var ignore = lockService.lock(redisKey)) {
-            ResourceItemMetadata metadata = getResourceMetadata(descriptor);
+            ResourceItemMetadata metadata = getResourceMetadata(descriptor, false);
             if (metadata != null) {
                 etag.validate(metadata.getEtag());
             }
@@ -441,6 +745,7 @@ public class ResourceService implements AutoCloseable {
             ResourceEvent.Action action = metadata == null
                     ? ResourceEvent.Action.CREATE
                     : ResourceEvent.Action.UPDATE;
+            invalidateAbsent(descriptor);
             publishEvent(descriptor, action, updatedAt, multipartData.etag);
 
             return (FileMetadata) new FileMetadata(
@@ -481,6 +786,116 @@ public class ResourceService implements AutoCloseable {
         }
     }
 
+    /**
+     * Appends the delta to the resource without reading or rewriting its body.
+     * The delta is stored in Redis next to the body, applied to the body on reads and compacted into the body on write-back
+     * or once the deltas get larger than the body. The ETag of the resource is derived from the previous ETag and the delta.
+     * The body which doesn't fit the max size with the delta is rewritten to the blob store instead.
+     *
+     * @param delta - the delta in the format of the patch registered for the resource type, must not contain line breaks
+     * @return the metadata of the updated resource or null if the resource doesn't exist
+     */
+    @Nullable
+    public ResourceItemMetadata appendResource(ResourceDescriptor descriptor, String delta, EtagHeader etag) {
+        Pair<ResourceItemMetadata, String> result = appendResourceWithPreviousEtag(descriptor, delta, etag);
+        return (result == null) ? null : result.getKey();
+    }
+
+    /**
+     * Appends the delta to the resource, see {@link #appendResource(ResourceDescriptor, String, EtagHeader)}.
+     *
+     * @return the metadata of the updated resource and the ETag of the resource the delta is applied to
+     *     or null if the resource doesn't exist
+     */
+    @Nullable
+    public Pair<ResourceItemMetadata, String> appendResourceWithPreviousEtag(ResourceDescriptor descriptor, String delta, EtagHeader etag) {
+        String redisKey = redisKey(descriptor);
+
+        if (!patches.containsKey(redisKeyPrefix(descriptor.getType()))) {
+            throw new IllegalArgumentException("Appending is not supported for resource type: " + descriptor.getType());
+        }
+
+        if (delta.indexOf(DELTA_SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("Delta must not contain line breaks");
+        }
+
+        try (var ignore = lockService.lock(redisKey)) {
+            Result result = redisGet(redisKey, false);
+
+            if (result == null) {
+                result = blobGet(descriptor, true);
+
+                if (result.exists() && result.body.length > maxSize) {
+                    etag.validate(result.etag);
+                    // the body is too large for Redis, so it stays in the blob store
+                    return Pair.of(rewriteResource(descriptor, result, delta), result.etag);
+                }
+
+                redisPut(redisKey, result);
+            }
+
+            if (!result.exists()) {
+                return null;
+            }
+
+            etag.validate(result.etag);
+
+            long updatedAt = time();
+            String newEtag = EtagBuilder.generateEtag((result.etag + delta).getBytes(StandardCharsets.UTF_8));
+
+            RScoredSortedSet<String> set = queue(redisKey);
+            set.add(updatedAt + syncDelay, redisKey); // add resource to sync set before changing because calls below can fail
+
+            Long status = script.eval(RScript.Mode.READ_WRITE,
+                    """
+                            local length = tonumber(redis.call('hget', KEYS[1], 'content_length')) or redis.call('hstrlen', KEYS[1], 'body')
+                            local size = length + redis.call('hstrlen', KEYS[1], 'patches') + string.len(ARGV[1])
+                            if (size > tonumber(ARGV[5])) then
+                              return -1
+                            end
+
+                            local patches = redis.call('hget', KEYS[1], 'patches') or ''
+                            redis.call('hset', KEYS[1], 'patches', patches .. ARGV[1], 'etag', ARGV[2], 'updated_at', ARGV[3], 'synced', ARGV[4])
+                            redis.call('persist', KEYS[1])
+
+                            -- the uncompressed size, so the compressed body is rewritten as rarely as the uncompressed one
+                            if (redis.call('hstrlen', KEYS[1], 'patches') > length) then
+                              return 1
+                            end
+
+                            return 0
+                            """, RScript.ReturnType.INTEGER, List.of(redisKey),
+                    RedisUtil.stringToRedis(delta + DELTA_SEPARATOR),
+                    RedisUtil.stringToRedis(newEtag),
+                    RedisUtil.longToRedis(updatedAt),
+                    RedisUtil.BOOLEAN_FALSE_ARRAY,
+                    RedisUtil.longToRedis((long) maxSize));
+
+            if (status < 0) {
+                // the body with the deltas doesn't fit Redis anymore, so it's moved to the blob store like the large bodies on put
+                return Pair.of(rewriteResource(descriptor, redisGet(redisKey, true), delta), result.etag);
+            }
+
+            if (status > 0) {
+                // the deltas got larger than the body, so applying them on reads costs more than rewriting the body
+                redisPut(redisKey, redisGet(redisKey, true));
+            }
+
+            publishEvent(descriptor, ResourceEvent.Action.UPDATE, updatedAt, newEtag);
+            ResourceItemMetadata metadata = new ResourceItemMetadata(descriptor)
+                    .setCreatedAt(result.createdAt)
+                    .setUpdatedAt(updatedAt)
+                    .setEtag(newEtag);
+            return Pair.of(metadata, result.etag);
+        }
+    }
+
+    private ResourceItemMetadata rewriteResource(ResourceDescriptor descriptor, Result result, String delta) {
+        byte[] deltas = (delta + DELTA_SEPARATOR).getBytes(StandardCharsets.UTF_8);
+        byte[] body = applyPatch(redisKey(descriptor), result.body, deltas);
+        return putResource(descriptor, body, EtagHeader.ANY, result.contentType, false);
+    }
+
     public boolean deleteResource(ResourceDescriptor descriptor, EtagHeader etag) {
         return deleteResource(descriptor, etag, true);
     }
@@ -489,7 +904,7 @@ public class ResourceService implements AutoCloseable {
         String redisKey = redisKey(descriptor);
 
         try (var ignore = lock ? lockService.lock(redisKey) : null) {
-            ResourceItemMetadata metadata = getResourceMetadata(descriptor);
+            ResourceItemMetadata metadata = getResourceMetadata(descriptor, false);
 
             if (metadata == null) {
                 return false;
@@ -520,12 +935,12 @@ public class ResourceService implements AutoCloseable {
         Pair<String, String> sortedPair = toOrderedPair(fromRedisKey, toRedisKey);
         try (LockService.Lock ignored1 = lockService.lock(sortedPair.getLeft());
              LockService.Lock ignored2 = lockService.lock(sortedPair.getRight())) {
-            ResourceItemMetadata fromMetadata = getResourceMetadata(from);
+            ResourceItemMetadata fromMetadata = getResourceMetadata(from, false);
             if (fromMetadata == null) {
                 return false;
             }
 
-            ResourceItemMetadata toMetadata = getResourceMetadata(to);
+            ResourceItemMetadata toMetadata = getResourceMetadata(to, false);
             if (toMetadata == null || overwrite) {
                 flushToBlobStore(fromRedisKey);
                 flushToBlobStore(toRedisKey);
@@ -534,6 +949,7 @@ public class ResourceService implements AutoCloseable {
                 ResourceEvent.Action action = toMetadata == null
                         ? ResourceEvent.Action.CREATE
                         : ResourceEvent.Action.UPDATE;
+                invalidateAbsent(to);
                 publishEvent(to, action, time(), fromMetadata.getEtag());
                 return true;
             }
@@ -556,23 +972,50 @@ public class ResourceService implements AutoCloseable {
         return a.compareTo(b) > 0 ? Pair.of(a, b) : Pair.of(b, a);
     }
 
+    /**
+     * @return the write-back queue of the resource, the partition of the queue if the sync is coordinated
+     */
+    private RScoredSortedSet<String> queue(String redisKey) {
+        String queue = (syncCoordinator == null) ? resourceQueue : resourceQueue + "/" + syncCoordinator.partition(redisKey);
+        return redis.getScoredSortedSet(queue, StringCodec.INSTANCE);
+    }
+
+    private void dequeue(String redisKey) {
+        queue(redisKey).remove(redisKey);
+        if (syncCoordinator != null) {
+            // the resource could be queued by the node without the coordinated sync
+            redis.getScoredSortedSet(resourceQueue, StringCodec.INSTANCE).remove(redisKey);
+        }
+    }
+
     private Void sync() {
         log.debug("Syncing");
         try {
-            RScoredSortedSet<String> set = redis.getScoredSortedSet(resourceQueue, StringCodec.INSTANCE);
             long now = time();
+            compressionStats.expire(now);
+            // the resources queued by the nodes without the coordinated sync are synced by all nodes
+            int budget = syncBatch - sync(resourceQueue, now, syncBatch);
+            long partitions = queuePartitions.get();
+
+            if (syncCoordinator != null) {
+                if (partitions < syncPartitions) {
+                    queuePartitions.compareAndSet(partitions, syncPartitions);
+                }
 
-            for (String redisKey : set.valueRange(Double.NEGATIVE_INFINITY, true, now, true, 0, syncBatch)) {
-                try (var lock = lockService.tryLock(redisKey)) {
-                    if (lock == null) {
-                        continue;
+                for (int partition : syncCoordinator.rebalance(now)) {
+                    if (budget <= 0) {
+                        break;
                     }
 
-                    sync(redisKey);
-                } catch (Throwable e) {
-                    log.warn("Failed to sync resource: {}", redisKey, e);
+                    budget -= sync(resourceQueue + "/" + partition, now, budget);
                 }
             }
+
+            // the partitions left by the nodes synced with more partitions before are synced by all nodes,
+            // so the partitioning can be reduced or disabled without draining the queue first
+            for (int partition = syncPartitions; partition < partitions && budget > 0; partition++) {
+                budget -= sync(resourceQueue + "/" + partition, now, budget);
+            }
         } catch (Throwable e) {
             log.warn("Failed to sync:", e);
         }
@@ -580,6 +1023,32 @@ public class ResourceService implements AutoCloseable {
         return null;
     }
 
+    /**
+     * @return the number of the resources due to sync in the queue
+     */
+    private int sync(String queue, long now, int limit) {
+        RScoredSortedSet<String> set = redis.getScoredSortedSet(queue, StringCodec.INSTANCE);
+        Collection<String> keys = set.valueRange(Double.NEGATIVE_INFINITY, true, now, true, 0, limit);
+
+        for (String redisKey : keys) {
+            try (var lock = lockService.tryLock(redisKey)) {
+                if (lock == null) {
+                    syncConflicts.incrementAndGet();
+                    continue;
+                }
+
+                sync(redisKey);
+                // the queue could be left by the nodes partitioned differently, the resource isn't dequeued from it by the sync
+                set.remove(redisKey);
+                syncedResources.incrementAndGet();
+            } catch (Throwable e) {
+                log.warn("Failed to sync resource: {}", redisKey, e);
+            }
+        }
+
+        return keys.size();
+    }
+
     private RMap<String, byte[]> sync(String redisKey) {
         log.debug("Syncing resource: {}", redisKey);
         Result result = redisGet(redisKey, false);
@@ -590,7 +1059,7 @@ public class ResourceService implements AutoCloseable {
             if (ttl == -1) {
                 map.expire(cacheExpiration);
             }
-            redis.getScoredSortedSet(resourceQueue, StringCodec.INSTANCE).remove(redisKey);
+            dequeue(redisKey);
             return map;
         }
 
@@ -599,6 +1068,7 @@ public class ResourceService implements AutoCloseable {
             log.debug("Syncing resource: {}. Blob updating", redisKey);
             result = redisGet(redisKey, true);
             blobPut(blobKey, result);
+            compact(redisKey, result);
         } else {
             log.debug("Syncing resource: {}. Blob deleting", redisKey);
             blobDelete(blobKey);
@@ -607,12 +1077,130 @@ public class ResourceService implements AutoCloseable {
         return redisSync(redisKey);
     }
 
+    /**
+     * Replaces the body with the body the deltas are applied to once the body is written back.
+     */
+    private void compact(String redisKey, Result result) {
+        RMap<String, byte[]> map = redis.getMap(redisKey, REDIS_MAP_CODEC);
+        if (map.valueSize(PATCHES_ATTRIBUTE) > 0) {
+            Map<String, byte[]> fields = new HashMap<>();
+            putBody(fields, result.body, Boolean.TRUE.equals(result.compress));
+            fields.put(PATCHES_ATTRIBUTE, RedisUtil.EMPTY_ARRAY);
+            fields.put(CONTENT_LENGTH_ATTRIBUTE, RedisUtil.longToRedis((long) result.body.length));
+            map.putAll(fields);
+            // the entry expires once synced
+            trackCompression(redisKey, fields, result.body.length, time() + cacheExpiration.toMillis());
+        }
+    }
+
+    private Result[] getAll(List<ResourceDescriptor> descriptors, boolean withBody) {
+        for (ResourceDescriptor descriptor : descriptors) {
+            if (descriptor.isFolder()) {
+                throw new IllegalArgumentException("Resource folder: " + descriptor.getUrl());
+            }
+        }
+
+        String[] keys = descriptors.stream().map(this::redisKey).toArray(String[]::new);
+        Result[] results = redisGetAll(keys, withBody);
+        // the same resource requested several times is loaded once
+        Map<String, Integer> misses = new LinkedHashMap<>();
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                misses.putIfAbsent(keys[i], i);
+            }
+        }
+
+        Map<String, Result> loaded = new HashMap<>();
+
+        if (misses.size() == 1) {
+            Map.Entry<String, Integer> miss = misses.entrySet().iterator().next();
+            loaded.put(miss.getKey(), load(descriptors.get(miss.getValue()), miss.getKey(), withBody));
+        } else if (!misses.isEmpty()) {
+            Map<String, Future<Result>> futures = new LinkedHashMap<>();
+            misses.forEach((key, index) -> futures.put(key, batchExecutor.submit(() -> load(descriptors.get(index), key, withBody))));
+            futures.forEach((key, future) -> loaded.put(key, await(future)));
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = loaded.get(keys[i]);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Loads the resource missing in Redis from the blob store. The resource with body is cached in Redis
+     * the same way as {@link #getResourceWithMetadata(ResourceDescriptor, EtagHeader)} does.
+     */
+    private Result load(ResourceDescriptor descriptor, String redisKey, boolean withBody) {
+        if (!withBody) {
+            return blobGet(descriptor, false);
+        }
+
+        return cacheFills.execute(redisKey, () -> {
+            if (immutable.test(descriptor)) {
+                return fill(descriptor, redisKey, false);
+            }
+
+            try (var ignore = lockService.lock(redisKey)) {
+                return fill(descriptor, redisKey, true);
+            }
+        });
+    }
+
+    /**
+     * Loads the resource from the blob store to Redis unless it is cached already.
+     *
+     * @param locked - whether the caller holds the lock, otherwise the resource is cached only if the entry is missing
+     */
+    private Result fill(ResourceDescriptor descriptor, String redisKey, boolean locked) {
+        if (locked) {
+            Result result = redisGet(redisKey, true);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        Result result = blobGet(descriptor, true);
+        return cache(redisKey, result, locked);
+    }
+
+    private Result cache(String redisKey, Result result, boolean locked) {
+        if (locked) {
+            redisPut(redisKey, result);
+            return result;
+        }
+
+        // the blob of the missing resource may be written after the cache entry is dropped, see registerImmutable
+        if (result.exists() && redisPutIfAbsent(redisKey, result, cacheExpiration)) {
+            optimisticCacheFills.incrementAndGet();
+            return result;
+        }
+
+        // the entry is written concurrently, so it is newer than the loaded blob
+        Result cached = redisGet(redisKey, true);
+        return (cached == null) ? result : cached;
+    }
+
+    @SneakyThrows
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
     private boolean blobExists(String key) {
         return blobStore.exists(key);
     }
 
     @SneakyThrows
-    private Result blobGet(String key, boolean withBody) {
+    private Result blobGet(ResourceDescriptor descriptor, boolean withBody) {
+        String key = blobKey(descriptor);
         Blob blob = null;
         BlobMetadata meta;
 
@@ -627,11 +1215,11 @@ public class ResourceService implements AutoCloseable {
             return Result.DELETED_SYNCED;
         }
 
-        return blobToResult(blob, meta);
+        return blobToResult(blob, meta, descriptor.getType().requireCompression());
     }
 
     @SneakyThrows
-    private static Result blobToResult(Blob blob, BlobMetadata meta) {
+    private static Result blobToResult(Blob blob, BlobMetadata meta, boolean compress) {
         String etag = extractEtag(meta.getUserMetadata());
         String contentType = meta.getContentMetadata().getContentType();
         Long contentLength = meta.getContentMetadata().getContentLength();
@@ -664,7 +1252,7 @@ public class ResourceService implements AutoCloseable {
             }
         }
 
-        return new Result(body, etag, createdAt, updatedAt, contentType, null, contentLength, resourceType, true);
+        return new Result(body, etag, createdAt, updatedAt, contentType, compress, contentLength, resourceType, true);
     }
 
     private void blobPut(String key, Result result) {
@@ -698,7 +1286,44 @@ public class ResourceService implements AutoCloseable {
     private Result redisGet(String key, boolean withBody) {
         RMap<String, byte[]> map = redis.getMap(key, REDIS_MAP_CODEC);
         Map<String, byte[]> fields = map.getAll(withBody ? REDIS_FIELDS : REDIS_FIELDS_NO_BODY);
+        return toResult(key, fields);
+    }
+
+    /**
+     * Reads the resources in one pipeline.
+     *
+     * @return the results in the order of the keys, null for the resources missing in Redis
+     */
+    private Result[] redisGetAll(String[] keys, boolean withBody) {
+        Result[] results = new Result[keys.length];
+
+        if (keys.length == 1) {
+            results[0] = redisGet(keys[0], withBody);
+            return results;
+        }
+
+        if (keys.length > 1) {
+            Set<String> fields = withBody ? REDIS_FIELDS : REDIS_FIELDS_NO_BODY;
+            RBatch batch = redis.createBatch();
+            List<RFuture<Map<String, byte[]>>> futures = new ArrayList<>(keys.length);
+
+            for (String key : keys) {
+                RMapAsync<String, byte[]> map = batch.getMap(key, REDIS_MAP_CODEC);
+                futures.add(map.getAllAsync(fields));
+            }
+
+            batch.execute();
 
+            for (int i = 0; i < keys.length; i++) {
+                results[i] = toResult(keys[i], futures.get(i).toCompletableFuture().join());
+            }
+        }
+
+        return results;
+    }
+
+    @Nullable
+    private Result toResult(String key, Map<String, byte[]> fields) {
         if (fields.isEmpty()) {
             return null;
         }
@@ -710,9 +1335,19 @@ public class ResourceService implements AutoCloseable {
         }
 
         byte[] body = fields.getOrDefault(BODY_ATTRIBUTE, ArrayUtils.EMPTY_BYTE_ARRAY);
+        String encoding = RedisUtil.redisToString(fields.get(BODY_ENCODING_ATTRIBUTE), null);
+        if (encoding != null) {
+            body = Compression.decompress(encoding, body);
+        }
         String etag = RedisUtil.redisToString(fields.get(ETAG_ATTRIBUTE), DEFAULT_ETAG);
         String contentType = RedisUtil.redisToString(fields.get(CONTENT_TYPE_ATTRIBUTE), null);
         Long contentLength = RedisUtil.redisToLong(fields.get(CONTENT_LENGTH_ATTRIBUTE));
+
+        byte[] deltas = fields.get(PATCHES_ATTRIBUTE);
+        if (!ArrayUtils.isEmpty(deltas)) {
+            body = applyPatch(key, body, deltas);
+            contentLength = (long) body.length;
+        }
         Long createdAt = RedisUtil.redisToLong(fields.get(CREATED_AT_ATTRIBUTE));
         Long updatedAt = RedisUtil.redisToLong(fields.get(UPDATED_AT_ATTRIBUTE));
         String resourceType = RedisUtil.redisToString(fields.get(RESOURCE_TYPE_ATTRIBUTE), null);
@@ -722,8 +1357,19 @@ public class ResourceService implements AutoCloseable {
         return new Result(body, etag, createdAt, updatedAt, contentType, compress, contentLength, resourceType, synced);
     }
 
+    private byte[] applyPatch(String key, byte[] body, byte[] deltas) {
+        ResourcePatch patch = patches.get(key.substring(0, key.indexOf(':') + 1));
+        if (patch == null) {
+            throw new IllegalStateException("No patch is registered to apply the deltas of the resource: " + key);
+        }
+
+        String text = new String(deltas, StandardCharsets.UTF_8);
+        List<String> list = List.of(StringUtils.split(text, DELTA_SEPARATOR));
+        return patch.apply(new String(body, StandardCharsets.UTF_8), list).getBytes(StandardCharsets.UTF_8);
+    }
+
     private void redisPut(String key, Result result) {
-        RScoredSortedSet<String> set = redis.getScoredSortedSet(resourceQueue, StringCodec.INSTANCE);
+        RScoredSortedSet<String> set = queue(key);
         set.add(time() + syncDelay, key); // add resource to sync set before changing because calls below can fail
 
         RMap<String, byte[]> map = redis.getMap(key, REDIS_MAP_CODEC);
@@ -732,9 +1378,56 @@ public class ResourceService implements AutoCloseable {
             map.clearExpire();
         }
 
+        Map<String, byte[]> fields = redisFields(result);
+        map.putAll(fields);
+        long expiresAt = time() + cacheExpiration.toMillis() + (result.synced ? 0 : syncDelay);
+        trackCompression(key, fields, result.exists() ? result.body.length : 0, expiresAt);
+
+        if (result.synced) { // cleanup because it is already synced
+            map.expire(cacheExpiration);
+            set.remove(key);
+        }
+    }
+
+    /**
+     * Caches the synced resource only if the cache entry is missing, the check and the write are atomic.
+     *
+     * @return true if the resource is cached
+     */
+    private boolean redisPutIfAbsent(String key, Result result, Duration expiration) {
+        List<Object> args = new ArrayList<>();
+        args.add(RedisUtil.longToRedis(expiration.toMillis()));
+        Map<String, byte[]> fields = redisFields(result);
+        fields.forEach((field, value) -> {
+            args.add(RedisUtil.stringToRedis(field));
+            args.add(value);
+        });
+
+        Long status = script.eval(RScript.Mode.READ_WRITE,
+                """
+                        if (redis.call('exists', KEYS[1]) == 1) then
+                          return 0
+                        end
+
+                        redis.call('hset', KEYS[1], unpack(ARGV, 2))
+                        redis.call('pexpire', KEYS[1], ARGV[1])
+                        return 1
+                        """, RScript.ReturnType.INTEGER, List.of(key), args.toArray());
+
+        if (status > 0) {
+            trackCompression(key, fields, result.exists() ? result.body.length : 0, time() + expiration.toMillis());
+            return true;
+        }
+
+        return false;
+    }
+
+    private Map<String, byte[]> redisFields(Result result) {
         Map<String, byte[]> fields = new HashMap<>();
         if (result.exists()) {
-            fields.put(BODY_ATTRIBUTE, result.body);
+            putBody(fields, result.body, Boolean.TRUE.equals(result.compress));
+            fields.put(COMPRESS_ATTRIBUTE, RedisUtil.booleanToRedis(result.compress));
+            fields.put(PATCHES_ATTRIBUTE, RedisUtil.EMPTY_ARRAY);
             fields.put(ETAG_ATTRIBUTE, RedisUtil.stringToRedis(result.etag));
             fields.put(CREATED_AT_ATTRIBUTE, RedisUtil.longToRedis(result.createdAt));
             fields.put(UPDATED_AT_ATTRIBUTE, RedisUtil.longToRedis(result.updatedAt));
@@ -747,11 +1440,35 @@ public class ResourceService implements AutoCloseable {
             fields.put(EXISTS_ATTRIBUTE, RedisUtil.BOOLEAN_FALSE_ARRAY);
         }
         fields.put(SYNCED_ATTRIBUTE, RedisUtil.booleanToRedis(result.synced));
-        map.putAll(fields);
+        return fields;
+    }
 
-        if (result.synced) { // cleanup because it is already synced
-            map.expire(cacheExpiration);
-            set.remove(key);
+    /**
+     * Compresses the body of the resource if the compression in Redis is enabled and the body is compressible.
+     * Files are stored as is because they are often compressed already.
+     *
+     * @param compress - whether the resource type requires compression
+     */
+    private void putBody(Map<String, byte[]> fields, byte[] body, boolean compress) {
+        String encoding = null;
+
+        if (cacheCompression != null && compress && body.length >= compressionMinSize) {
+            byte[] compressed = Compression.compress(cacheCompression, body);
+            if (compressed.length < body.length) {
+                encoding = cacheCompression;
+                body = compressed;
+            }
+        }
+
+        fields.put(BODY_ATTRIBUTE, body);
+        fields.put(BODY_ENCODING_ATTRIBUTE, RedisUtil.stringToRedis(encoding));
+    }
+
+    private void trackCompression(String key, Map<String, byte[]> fields, long originalSize, long expiresAt) {
+        if (ArrayUtils.isEmpty(fields.get(BODY_ENCODING_ATTRIBUTE))) {
+            compressionStats.remove(key);
+        } else {
+            compressionStats.put(key, originalSize, fields.get(BODY_ATTRIBUTE).length, expiresAt);
         }
     }
 
@@ -759,25 +1476,47 @@ public class ResourceService implements AutoCloseable {
         RMap<String, byte[]> map = redis.getMap(key, REDIS_MAP_CODEC);
         map.put(SYNCED_ATTRIBUTE, RedisUtil.BOOLEAN_TRUE_ARRAY);
         map.expire(cacheExpiration);
+        compressionStats.expireAt(key, time() + cacheExpiration.toMillis());
 
-        RScoredSortedSet<String> set = redis.getScoredSortedSet(resourceQueue, StringCodec.INSTANCE);
-        set.remove(key);
-
+        dequeue(key);
         return map;
     }
 
     private String redisKey(ResourceDescriptor descriptor) {
         String resourcePath = BlobStorageUtil.toStoragePath(prefix, descriptor.getAbsoluteFilePath());
-        return descriptor.getType().name().toLowerCase() + ":" + resourcePath;
+        return redisKeyPrefix(descriptor.getType()) + resourcePath;
+    }
+
+    private static String redisKeyPrefix(ResourceType type) {
+        return type.name().toLowerCase() + ":";
     }
 
     private static long time() {
         return System.currentTimeMillis();
     }
 
+    /**
+     * Writes back and drops the cache entry of the resource before the resource is written to the blob store only.
+     * If the negative cache is enabled, the entry is replaced with the short-living marker which is read as a cache miss,
+     * so the tombstone of a reader which has missed the resource in the blob store before the write can't be cached over it.
+     */
     private void flushToBlobStore(String redisKey) {
         RMap<String, byte[]> map = sync(redisKey);
-        map.delete();
+        if (negativeCache == null) {
+            map.delete();
+            return;
+        }
+
+        script.eval(RScript.Mode.READ_WRITE,
+                """
+                        redis.call('del', KEYS[1])
+                        redis.call('hset', KEYS[1], ARGV[1], ARGV[2])
+                        redis.call('pexpire', KEYS[1], ARGV[3])
+                        return 1
+                        """, RScript.ReturnType.INTEGER, List.of(redisKey),
+                RedisUtil.stringToRedis(BLOB_ONLY_ATTRIBUTE),
+                RedisUtil.BOOLEAN_TRUE_ARRAY,
+                RedisUtil.longToRedis(negativeCacheExpiration.toMillis()));
     }
 
     public String getEtag(ResourceDescriptor descriptor) {
@@ -871,7 +1610,15 @@ public class ResourceService implements AutoCloseable {
      * @param syncBatch          - how many resources to sync in one go.
      * @param cacheExpiration    - expiration in milliseconds for synced resources in Redis.
      * @param compressionMinSize - compress resources with gzip if their size in bytes more or equal to this value.
+     * @param batchParallelism   - how many resources missing in Redis to load from object storage in parallel in a batch read.
+     * @param cacheCompression   - compression of the resources in Redis: deflate, gzip or none. Resources smaller than compressionMinSize
+     *                           and files are not compressed.
+     * @param negativeCacheExpiration - expiration in milliseconds for the resources known not to exist, 0 disables the negative cache.
+     * @param syncPartitions     - the number of partitions of the write-back queue distributed between the nodes,
+     *                           0 means every node syncs the whole queue. The partitions left after the number is reduced
+     *                           are synced by all nodes.
      */
+    @Builder
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record Settings(
             int maxSize,
@@ -879,6 +1626,24 @@ public class ResourceService implements AutoCloseable {
             long syncDelay,
             int syncBatch,
             long cacheExpiration,
-            int compressionMinSize) {
+            int compressionMinSize,
+            int batchParallelism,
+            String cacheCompression,
+            long negativeCacheExpiration,
+            int syncPartitions) {
+
+        public static final int DEFAULT_BATCH_PARALLELISM = 16;
+
+        @JsonCreator
+        public Settings {
+        }
+
+        /**
+         * Creates the settings with the batch parallelism by default, no compression in Redis,
+         * the negative cache disabled and the write-back queue not partitioned.
+         */
+        public Settings(int maxSize, long syncPeriod, long syncDelay, int syncBatch, long cacheExpiration, int compressionMinSize) {
+            this(maxSize, syncPeriod, syncDelay, syncBatch, cacheExpiration, compressionMinSize, DEFAULT_BATCH_PARALLELISM, null, 0, 0);
+        }
     }
 }
\ No newline at end of file
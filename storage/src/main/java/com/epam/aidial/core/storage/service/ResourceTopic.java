@@ -20,6 +20,9 @@ import java.util.function.Consumer;
 public class ResourceTopic {
 
     private final Map<String, Set<Subscription>> urlToSubscriptions = new ConcurrentHashMap<>();
+    // the folder prefixes are looked up by the parent folders of the event URL, the rest are matched one by one
+    private final Map<String, Set<PrefixSubscription>> folderToSubscriptions = new ConcurrentHashMap<>();
+    private final Set<PrefixSubscription> prefixSubscriptions = ConcurrentHashMap.newKeySet();
     private final RTopic topic;
 
     public ResourceTopic(RedissonClient redis, String topicKey) {
@@ -49,6 +52,26 @@ public class ResourceTopic {
         return subscription;
     }
 
+    /**
+     * Subscribes to the events of all resources which URL starts with the prefix, e.g. all resources in a folder.
+     */
+    public PrefixSubscription subscribePrefix(String prefix, Consumer<ResourceEvent> subscriber) {
+        PrefixSubscription subscription = new PrefixSubscription(prefix, subscriber);
+        if (isFolder(prefix)) {
+            folderToSubscriptions.compute(prefix, (key, subs) -> {
+                if (subs == null) {
+                    subs = ConcurrentHashMap.newKeySet();
+                }
+
+                subs.add(subscription);
+                return subs;
+            });
+        } else {
+            prefixSubscriptions.add(subscription);
+        }
+        return subscription;
+    }
+
     private void unsubscribe(Subscription subscription) {
         for (ResourceDescriptor resource : subscription.resources) {
             String url = resource.getUrl();
@@ -59,16 +82,60 @@ public class ResourceTopic {
         }
     }
 
+    private void unsubscribe(PrefixSubscription subscription) {
+        if (isFolder(subscription.prefix)) {
+            folderToSubscriptions.computeIfPresent(subscription.prefix, (key, subs) -> {
+                subs.remove(subscription);
+                return subs.isEmpty() ? null : subs;
+            });
+        } else {
+            prefixSubscriptions.remove(subscription);
+        }
+    }
+
     private void handle(ResourceEvent event) {
         for (Subscription subscription : urlToSubscriptions.getOrDefault(event.getUrl(), Set.of())) {
-            try {
-                subscription.subscriber.accept(event);
-            } catch (Throwable e) {
-                log.warn("Can't notify subscriber", e);
+            notify(subscription.subscriber, event);
+        }
+
+        String url = event.getUrl();
+        if (url == null) {
+            return;
+        }
+
+        notifyFolder("", event);
+        for (int i = url.indexOf('/'); i >= 0; i = url.indexOf('/', i + 1)) {
+            notifyFolder(url.substring(0, i + 1), event);
+        }
+
+        for (PrefixSubscription subscription : prefixSubscriptions) {
+            if (url.startsWith(subscription.prefix)) {
+                notify(subscription.subscriber, event);
             }
         }
     }
 
+    private void notifyFolder(String folder, ResourceEvent event) {
+        for (PrefixSubscription subscription : folderToSubscriptions.getOrDefault(folder, Set.of())) {
+            notify(subscription.subscriber, event);
+        }
+    }
+
+    private static void notify(Consumer<ResourceEvent> subscriber, ResourceEvent event) {
+        try {
+            subscriber.accept(event);
+        } catch (Throwable e) {
+            log.warn("Can't notify subscriber", e);
+        }
+    }
+
+    /**
+     * @return true if the prefix is the root or a folder URL, so the subscription is indexed by it
+     */
+    private static boolean isFolder(String prefix) {
+        return prefix.isEmpty() || prefix.endsWith("/");
+    }
+
     @Value
     public class Subscription implements AutoCloseable {
 
@@ -83,4 +150,19 @@ public class ResourceTopic {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Value
+    public class PrefixSubscription implements AutoCloseable {
+
+        AtomicBoolean active = new AtomicBoolean(true);
+        String prefix;
+        Consumer<ResourceEvent> subscriber;
+
+        @Override
+        public void close() {
+            if (active.getAndSet(false)) {
+                unsubscribe(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.epam.aidial.core.storage.service;
+
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Distributes the partitions of the write-back queue between the nodes with leases kept in one Redis hash,
+ * so every partition is synced by a single node.
+ * <p>
+ * Every node claims its fair share of the partitions: the number of partitions divided by the number of live nodes rounded up.
+ * The node releases the partitions above its share once other nodes join, the leases of the nodes left expire and are claimed by the others.
+ * </p>
+ */
+class SyncCoordinator {
+
+    private static final String REBALANCE_SCRIPT = """
+            local node, now, ttl, count = ARGV[1], tonumber(ARGV[2]), tonumber(ARGV[3]), tonumber(ARGV[4])
+            local expiration = now + ttl
+            redis.call('hset', KEYS[1], 'node:' .. node, expiration)
+
+            local nodes = 0
+            local leases = {}
+            local fields = redis.call('hgetall', KEYS[1])
+            for i = 1, #fields, 2 do
+              local field, value = fields[i], fields[i + 1]
+              if (string.sub(field, 1, 5) == 'node:') then
+                if (tonumber(value) > now) then
+                  nodes = nodes + 1
+                else
+                  redis.call('hdel', KEYS[1], field)
+                end
+              else
+                leases[field] = value
+              end
+            end
+
+            local share = math.ceil(count / nodes)
+            local owned = {}
+            local free = {}
+            local holders = {}
+            for partition = 0, count - 1 do
+              local field = 'partition:' .. partition
+              local lease = leases[field]
+              local owner, expires = nil, 0
+              if (lease) then
+                local separator = string.find(lease, '@', 1, true)
+                owner = string.sub(lease, 1, separator - 1)
+                expires = tonumber(string.sub(lease, separator + 1))
+              end
+
+              if (owner ~= node and expires > now) then
+                holders[owner] = (holders[owner] or 0) + 1
+              end
+
+              if (owner == node) then
+                if (#owned < share) then
+                  table.insert(owned, partition)
+                  redis.call('hset', KEYS[1], field, node .. '@' .. expiration)
+                else
+                  redis.call('hdel', KEYS[1], field)
+                end
+              elseif (expires <= now) then
+                table.insert(free, partition)
+              end
+            end
+
+            for _, partition in ipairs(free) do
+              if (#owned >= share) then
+                break
+              end
+              table.insert(owned, partition)
+              redis.call('hset', KEYS[1], 'partition:' .. partition, node .. '@' .. expiration)
+            end
+
+            -- the partitions of the share still held by the nodes above their share
+            local conflicts = 0
+            for _, held in pairs(holders) do
+              if (held > share) then
+                conflicts = conflicts + held - share
+              end
+            end
+
+            table.insert(owned, 1, math.min(conflicts, share - #owned))
+            return owned
+            """;
+
+    private static final String LEAVE_SCRIPT = """
+            redis.call('hdel', KEYS[1], 'node:' .. ARGV[1])
+            local fields = redis.call('hgetall', KEYS[1])
+            for i = 1, #fields, 2 do
+              if (string.find(fields[i + 1], ARGV[1] .. '@', 1, true) == 1) then
+                redis.call('hdel', KEYS[1], fields[i])
+              end
+            end
+            return 0
+            """;
+
+    private final RScript script;
+    private final String key;
+    private final int partitions;
+    private final long leaseTime;
+    private final String node = UUID.randomUUID().toString();
+    private final AtomicLong claimConflicts = new AtomicLong();
+    private volatile Set<Integer> owned = Set.of();
+
+    /**
+     * @param key        - the Redis hash of the nodes and the leases
+     * @param partitions - the number of partitions of the queue
+     * @param leaseTime  - time in milliseconds the node keeps the partitions without renewing them
+     */
+    SyncCoordinator(RedissonClient redis, String key, int partitions, long leaseTime) {
+        this.script = redis.getScript(StringCodec.INSTANCE);
+        this.key = key;
+        this.partitions = partitions;
+        this.leaseTime = leaseTime;
+    }
+
+    int partition(String redisKey) {
+        return Math.floorMod(redisKey.hashCode(), partitions);
+    }
+
+    /**
+     * @return the partitions currently owned by the node
+     */
+    Set<Integer> getOwned() {
+        return owned;
+    }
+
+    /**
+     * @return the number of partitions the node failed to claim because other nodes still hold them
+     */
+    long getClaimConflicts() {
+        return claimConflicts.get();
+    }
+
+    /**
+     * Renews the membership and the leases of the node, releases the partitions above the fair share and claims the free ones.
+     *
+     * @return the partitions owned by the node
+     */
+    Set<Integer> rebalance(long now) {
+        List<Long> result = script.eval(RScript.Mode.READ_WRITE, REBALANCE_SCRIPT, RScript.ReturnType.MULTI, List.of(key),
+                node, String.valueOf(now), String.valueOf(leaseTime), String.valueOf(partitions));
+
+        // the first element is the number of partitions of the fair share still held by other nodes
+        claimConflicts.addAndGet(result.get(0));
+        owned = result.subList(1, result.size()).stream()
+                .map(Long::intValue)
+                .collect(Collectors.toUnmodifiableSet());
+        return owned;
+    }
+
+    /**
+     * Releases the leases of the node, so other nodes claim them without waiting for expiration.
+     */
+    void leave() {
+        script.eval(RScript.Mode.READ_WRITE, LEAVE_SCRIPT, RScript.ReturnType.INTEGER, List.of(key), node);
+        owned = Set.of();
+    }
+}
@@ -7,30 +7,73 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipException;
+import javax.annotation.Nullable;
 
 @UtilityClass
 @Slf4j
 public class Compression {
 
-    @SneakyThrows
-    public byte[] compress(String type, byte[] data) {
-        if (!type.equals("gzip")) {
+    public static final String GZIP = "gzip";
+    /**
+     * Deflate with the fastest compression level, trades the compression ratio for CPU.
+     */
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * @param type - the compression type or null/none to disable the compression
+     * @return the compression type or null if the compression is disabled
+     */
+    @Nullable
+    public String validate(@Nullable String type) {
+        if (type == null || type.equals("none")) {
+            return null;
+        }
+
+        if (!type.equals(GZIP) && !type.equals(DEFLATE)) {
             throw new IllegalArgumentException("Unsupported compression: " + type);
         }
 
+        return type;
+    }
+
+    @SneakyThrows
+    public byte[] compress(String type, byte[] data) {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
-        try (GZIPOutputStream stream = new GZIPOutputStream(output)) {
-            stream.write(data);
+
+        if (type.equals(GZIP)) {
+            try (GZIPOutputStream stream = new GZIPOutputStream(output)) {
+                stream.write(data);
+            }
+        } else if (type.equals(DEFLATE)) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (OutputStream stream = new DeflaterOutputStream(output, deflater)) {
+                stream.write(data);
+            } finally {
+                deflater.end();
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported compression: " + type);
         }
+
         return output.toByteArray();
     }
 
     @SneakyThrows
     public byte[] decompress(String type, byte[] input) {
-        if (!type.equals("gzip")) {
+        if (type.equals(DEFLATE)) {
+            try (InputStream decompressed = new InflaterInputStream(new ByteArrayInputStream(input))) {
+                return decompressed.readAllBytes();
+            }
+        }
+
+        if (!type.equals(GZIP)) {
             throw new IllegalArgumentException("Unsupported compression: " + type);
         }
         try (InputStream decompressed = new GZIPInputStream(new ByteArrayInputStream(input))) {
@@ -41,4 +84,4 @@ public class Compression {
             return input;
         }
     }
-}
\ No newline at end of file
+}
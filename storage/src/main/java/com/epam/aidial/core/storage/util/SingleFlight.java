@@ -0,0 +1,67 @@
+package com.epam.aidial.core.storage.util;
+
+import lombok.SneakyThrows;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with the same key within the node: the first caller runs the call,
+ * the others wait for its result or failure.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = calls.putIfAbsent(key, future);
+
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        executed.increment();
+
+        try {
+            V value = call.get();
+            future.complete(value);
+            return value;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, future);
+        }
+    }
+
+    /**
+     * @return the number of calls run by the first callers
+     */
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    /**
+     * @return the number of calls which waited for the result of the concurrent call instead of running
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    @SneakyThrows
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause();
+        }
+    }
+}
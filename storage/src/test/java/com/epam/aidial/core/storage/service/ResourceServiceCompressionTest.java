@@ -0,0 +1,267 @@
+package com.epam.aidial.core.storage.service;
+
+import com.epam.aidial.core.storage.blobstore.BlobStorage;
+import com.epam.aidial.core.storage.resource.ResourceDescriptor;
+import com.epam.aidial.core.storage.resource.ResourceType;
+import com.epam.aidial.core.storage.util.Compression;
+import com.epam.aidial.core.storage.util.EtagHeader;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.Redisson;
+import org.redisson.api.RKeys;
+import org.redisson.api.RMap;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ResourceServiceCompressionTest {
+
+    private static final String BODY = "{\"messages\":[" + "{\"role\":\"user\",\"content\":\"hello\"},".repeat(100) + "{}]}";
+
+    private static RedisServer redisServer;
+    private static RedissonClient redissonClient;
+
+    @Mock
+    private BlobStorage blobStorage;
+    @Mock
+    private TimerService timerService;
+
+    private LockService lockService;
+    private ResourceService resourceService;
+
+    @BeforeAll
+    public static void beforeAll() throws IOException {
+        redisServer = RedisServer.newRedisServer()
+                .port(16375)
+                .bind("127.0.0.1")
+                .setting("maxmemory 16M")
+                .setting("maxmemory-policy volatile-lfu")
+                .build();
+        redisServer.start();
+
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://localhost:16375");
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    public static void afterAll() throws IOException {
+        if (redissonClient != null) {
+            redissonClient.shutdown();
+        }
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        RKeys keys = redissonClient.getKeys();
+        for (String key : keys.getKeys()) {
+            keys.delete(key);
+        }
+        when(timerService.scheduleWithFixedDelay(anyLong(), anyLong(), any())).thenReturn(mock(TimerService.Timer.class));
+        lockService = new LockService(redissonClient, null);
+        resourceService = create("deflate");
+    }
+
+    @AfterEach
+    public void afterEach() {
+        resourceService.close();
+    }
+
+    @Test
+    public void testCompressedEntry() {
+        ResourceDescriptor resource = resource(TestResourceType.CONVERSATION, "large");
+        resourceService.putResource(resource, BODY, EtagHeader.ANY);
+
+        RMap<String, String> entry = entry(resource);
+        assertEquals("deflate", entry.get("body_encoding"));
+        assertTrue(entry.valueSize("body") < BODY.length());
+
+        assertEquals(BODY, resourceService.getResource(resource));
+        assertEquals(String.valueOf(BODY.length()), entry.get("content_length"));
+        assertEquals(BODY.length(), resourceService.getCacheOriginalBytes());
+        assertEquals(entry.valueSize("body"), resourceService.getCacheCompressedBytes());
+    }
+
+    @Test
+    public void testRewrittenEntry() {
+        ResourceDescriptor resource = resource(TestResourceType.CONVERSATION, "large");
+        resourceService.putResource(resource, BODY, EtagHeader.ANY);
+        resourceService.putResource(resource, BODY + BODY, EtagHeader.ANY);
+
+        // the sizes are current, not accumulated over the writes
+        assertEquals(2L * BODY.length(), resourceService.getCacheOriginalBytes());
+        assertEquals(entry(resource).valueSize("body"), resourceService.getCacheCompressedBytes());
+
+        resourceService.putResource(resource, "{}", EtagHeader.ANY);
+        assertEquals(0, resourceService.getCacheOriginalBytes());
+        assertEquals(0, resourceService.getCacheCompressedBytes());
+    }
+
+    @Test
+    public void testSmallEntry() {
+        ResourceDescriptor resource = resource(TestResourceType.CONVERSATION, "small");
+        resourceService.putResource(resource, "{}", EtagHeader.ANY);
+
+        assertEquals("", entry(resource).get("body_encoding"));
+        assertEquals("{}", resourceService.getResource(resource));
+        assertEquals(0, resourceService.getCacheOriginalBytes());
+    }
+
+    @Test
+    public void testFileEntry() throws IOException {
+        ResourceDescriptor resource = resource(TestResourceType.FILE, "file.txt");
+        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+        resourceService.putFile(resource, body, EtagHeader.ANY, "text/plain");
+
+        // the files are stored as is because of their type
+        assertEquals("", entry(resource).get("body_encoding"));
+        assertEquals(body.length, entry(resource).valueSize("body"));
+        try (ResourceService.ResourceStream stream = resourceService.getResourceStream(resource, EtagHeader.ANY)) {
+            assertArrayEquals(body, stream.inputStream().readAllBytes());
+        }
+        assertEquals(0, resourceService.getCacheOriginalBytes());
+    }
+
+    @Test
+    public void testAppendToCompressedEntry() {
+        resourceService.registerPatch(TestResourceType.CONVERSATION, (body, deltas) -> body + String.join("", deltas));
+        ResourceDescriptor resource = resource(TestResourceType.CONVERSATION, "appended");
+        resourceService.putResource(resource, BODY, EtagHeader.ANY);
+        int compressedSize = entry(resource).valueSize("body");
+
+        StringBuilder expected = new StringBuilder(BODY);
+        while (expected.length() - BODY.length() <= compressedSize) {
+            String delta = "{\"delta\":" + expected.length() + "}";
+            resourceService.appendResource(resource, delta, EtagHeader.ANY);
+            expected.append(delta);
+        }
+
+        // the deltas are compacted once they outgrow the uncompressed body, not the compressed one
+        assertTrue(entry(resource).valueSize("patches") > compressedSize);
+        assertEquals(compressedSize, entry(resource).valueSize("body"));
+        assertEquals(expected.toString(), resourceService.getResource(resource));
+    }
+
+    @Test
+    public void testAppendOverMaxSize() {
+        ResourceService limited = create("deflate", BODY.length() + 64);
+        try {
+            limited.registerPatch(TestResourceType.CONVERSATION, (body, deltas) -> body + String.join("", deltas));
+            ResourceDescriptor resource = resource(TestResourceType.CONVERSATION, "oversized");
+            limited.putResource(resource, BODY, EtagHeader.ANY);
+
+            StringBuilder expected = new StringBuilder(BODY);
+            while (entry(resource).isExists()) {
+                String delta = "{\"delta\":" + expected.length() + "}";
+                assertNotNull(limited.appendResource(resource, delta, EtagHeader.ANY));
+                expected.append(delta);
+            }
+
+            // the body outgrown the max size is moved to the blob store with the deltas applied
+            assertTrue(expected.length() > BODY.length() + 64);
+            ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+            verify(blobStorage, atLeastOnce()).store(eq(resource.getAbsoluteFilePath()), any(), eq("gzip"), any(), captor.capture());
+            assertEquals(expected.toString(), new String(Compression.decompress("gzip", captor.getValue()), StandardCharsets.UTF_8));
+        } finally {
+            limited.close();
+        }
+    }
+
+    @Test
+    public void testUncompressedEntry() {
+        ResourceDescriptor resource = resource(TestResourceType.CONVERSATION, "legacy");
+        ResourceService uncompressed = create(null);
+        try {
+            uncompressed.putResource(resource, BODY, EtagHeader.ANY);
+        } finally {
+            uncompressed.close();
+        }
+
+        assertEquals(BODY.length(), entry(resource).valueSize("body"));
+        assertEquals(BODY, resourceService.getResource(resource));
+
+        // the compressed entry is readable after the compression is disabled
+        resourceService.putResource(resource, BODY + " ", EtagHeader.ANY);
+        uncompressed = create("none");
+        try {
+            assertEquals(BODY + " ", uncompressed.getResource(resource));
+        } finally {
+            uncompressed.close();
+        }
+    }
+
+    private ResourceService create(String cacheCompression) {
+        return create(cacheCompression, 1048576);
+    }
+
+    private ResourceService create(String cacheCompression, int maxSize) {
+        ResourceService.Settings settings = ResourceService.Settings.builder()
+                .maxSize(maxSize)
+                .syncPeriod(60000)
+                .syncDelay(120000)
+                .syncBatch(4096)
+                .cacheExpiration(300000)
+                .compressionMinSize(256)
+                .cacheCompression(cacheCompression)
+                .build();
+        return new ResourceService(timerService, redissonClient, blobStorage, lockService, settings, null);
+    }
+
+    private static RMap<String, String> entry(ResourceDescriptor resource) {
+        return redissonClient.getMap(resource.getType().name().toLowerCase() + ":" + resource.getAbsoluteFilePath(), StringCodec.INSTANCE);
+    }
+
+    private static ResourceDescriptor resource(ResourceType type, String name) {
+        return new ResourceDescriptor(type, name, List.of(), "bucket", "location/", false);
+    }
+
+    private enum TestResourceType implements ResourceType {
+        CONVERSATION("conversations", true), FILE("files", false);
+
+        private final String group;
+        private final boolean requireCompression;
+
+        TestResourceType(String group, boolean requireCompression) {
+            this.group = group;
+            this.requireCompression = requireCompression;
+        }
+
+        @Override
+        public String group() {
+            return group;
+        }
+
+        @Override
+        public boolean requireCompression() {
+            return requireCompression;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.epam.aidial.core.storage.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncCoordinatorTest {
+
+    private static final String KEY = "resource:queue/leases";
+    private static final int PARTITIONS = 8;
+    private static final long LEASE_TIME = 1000;
+
+    private static RedisServer server;
+    private static RedissonClient client;
+
+    @BeforeAll
+    static void init() throws IOException {
+        try {
+            server = RedisServer.newRedisServer()
+                    .port(16377)
+                    .bind("127.0.0.1")
+                    .setting("maxmemory 4M")
+                    .setting("maxmemory-policy volatile-lfu")
+                    .build();
+            server.start();
+
+            Config config = new Config();
+            config.useSingleServer().setAddress("redis://localhost:16377");
+            client = Redisson.create(config);
+        } catch (Throwable e) {
+            destroy();
+            throw e;
+        }
+    }
+
+    @AfterAll
+    static void destroy() throws IOException {
+        try {
+            if (client != null) {
+                client.shutdown();
+            }
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    @BeforeEach
+    void clean() {
+        client.getKeys().delete(KEY);
+    }
+
+    @Test
+    void testRebalance() {
+        SyncCoordinator node1 = new SyncCoordinator(client, KEY, PARTITIONS, LEASE_TIME);
+        SyncCoordinator node2 = new SyncCoordinator(client, KEY, PARTITIONS, LEASE_TIME);
+        long now = 1000000;
+
+        assertEquals(PARTITIONS, node1.rebalance(now).size());
+
+        // the second node waits for the partitions released by the first one
+        assertEquals(0, node2.rebalance(now).size());
+        assertEquals(PARTITIONS / 2, node2.getClaimConflicts());
+
+        assertEquals(PARTITIONS / 2, node1.rebalance(now + 10).size());
+        assertEquals(PARTITIONS / 2, node2.rebalance(now + 20).size());
+        assertDisjoint(node1.getOwned(), node2.getOwned());
+
+        // the partitions of the node left are claimed once its leases expire
+        assertEquals(PARTITIONS, node2.rebalance(now + 20 + LEASE_TIME + 1).size());
+    }
+
+    @Test
+    void testLeave() {
+        SyncCoordinator node1 = new SyncCoordinator(client, KEY, PARTITIONS, LEASE_TIME);
+        SyncCoordinator node2 = new SyncCoordinator(client, KEY, PARTITIONS, LEASE_TIME);
+        long now = 1000000;
+
+        node1.rebalance(now);
+        node2.rebalance(now);
+        node1.rebalance(now);
+        node2.rebalance(now);
+        assertEquals(PARTITIONS / 2, node2.getOwned().size());
+
+        node1.leave();
+        assertTrue(node1.getOwned().isEmpty());
+        assertEquals(PARTITIONS, node2.rebalance(now + 10).size());
+    }
+
+    @Test
+    void testPartition() {
+        SyncCoordinator coordinator = new SyncCoordinator(client, KEY, PARTITIONS, LEASE_TIME);
+        for (String key : new String[] {"prompt:a", "conversation:b", "file:c/d"}) {
+            int partition = coordinator.partition(key);
+            assertTrue(partition >= 0 && partition < PARTITIONS);
+            assertEquals(partition, coordinator.partition(key));
+        }
+    }
+
+    private static void assertDisjoint(Set<Integer> first, Set<Integer> second) {
+        Set<Integer> all = new HashSet<>(first);
+        all.addAll(second);
+        assertEquals(first.size() + second.size(), all.size());
+        assertEquals(PARTITIONS, all.size());
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -27,6 +28,27 @@ public class CompressionTest {
         assertArrayEquals(content, actual);
     }
 
+    @Test
+    public void testDeflate() {
+        byte[] content = "Hello world! Hello world! Hello world!".getBytes();
+
+        byte[] compressed = Compression.compress("deflate", content);
+
+        assertNotNull(compressed);
+        assertTrue(compressed.length < content.length);
+        assertArrayEquals(content, Compression.decompress("deflate", compressed));
+        assertThrows(Exception.class, () -> Compression.decompress("deflate", content));
+    }
+
+    @Test
+    public void testValidate() {
+        assertNull(Compression.validate(null));
+        assertNull(Compression.validate("none"));
+        assertEquals("gzip", Compression.validate("gzip"));
+        assertEquals("deflate", Compression.validate("deflate"));
+        assertThrows(IllegalArgumentException.class, () -> Compression.validate("brotli"));
+    }
+
     @Test
     public void testGcpWorkaround() {
         byte[] content = "Hello world!".getBytes();